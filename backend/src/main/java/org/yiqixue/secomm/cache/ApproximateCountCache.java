@@ -0,0 +1,147 @@
+package org.yiqixue.secomm.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 近似总数缓存
+ * 列表页展示的总数由后台定时刷新，请求线程不再执行 COUNT 查询；
+ * 键数超过上限时淘汰最久未访问的键，统计查询均在锁外执行
+ */
+@Component
+@Slf4j
+public class ApproximateCountCache implements MetricsProvider {
+
+    @Value("${app.approx-count.max-keys:1000}")
+    private int maxKeys;
+
+    // 超过该时间未被读取的键不再刷新并移除
+    @Value("${app.approx-count.idle-timeout-ms:600000}")
+    private long idleTimeoutMs;
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    // 按访问顺序排列，由 entries 自身加锁保护
+    private final LinkedHashMap<String, CountEntry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CountEntry> eldest) {
+            if (size() > maxKeys) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    private static class CountEntry {
+        private final Supplier<Long> counter;
+        private volatile long value;
+        private volatile long refreshedAt;
+        private volatile long lastReadAt;
+
+        private CountEntry(Supplier<Long> counter, long value) {
+            this.counter = counter;
+            this.value = value;
+            this.refreshedAt = System.currentTimeMillis();
+            this.lastReadAt = refreshedAt;
+        }
+    }
+
+    /**
+     * 获取近似总数；首次访问时同步统计一次，之后由后台刷新
+     *
+     * @param key 统计口径的唯一键，如 products:category:1
+     * @param counter 精确统计方法
+     */
+    public long get(String key, Supplier<Long> counter) {
+        CountEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            // 在锁外统计，避免慢查询阻塞其他键；并发首次访问可能各统计一次，以先写入的为准
+            CountEntry loaded = new CountEntry(counter, counter.get());
+            synchronized (entries) {
+                entry = entries.putIfAbsent(key, loaded);
+            }
+            if (entry == null) {
+                return loaded.value;
+            }
+        }
+        entry.lastReadAt = System.currentTimeMillis();
+        return entry.value;
+    }
+
+    /**
+     * 按增量调整已缓存的统计值，未缓存的键忽略（下次访问时重新统计）；
+     * 结果仍是近似值，以后台刷新为准
+     */
+    public void adjust(String key, long delta) {
+        synchronized (entries) {
+            CountEntry entry = entries.get(key);
+            if (entry != null) {
+                entry.value = Math.max(0, entry.value + delta);
+            }
+        }
+    }
+
+    /**
+     * 后台刷新所有活跃的统计值
+     */
+    @Scheduled(fixedDelayString = "${app.approx-count.refresh-ms:60000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, CountEntry>> active;
+        synchronized (entries) {
+            entries.entrySet().removeIf(e -> now - e.getValue().lastReadAt > idleTimeoutMs);
+            active = new ArrayList<>(entries.size());
+            entries.forEach((key, entry) -> active.add(Map.entry(key, entry)));
+        }
+
+        for (Map.Entry<String, CountEntry> e : active) {
+            CountEntry entry = e.getValue();
+            try {
+                long value = entry.counter.get();
+                synchronized (entries) {
+                    entry.value = value;
+                }
+                entry.refreshedAt = System.currentTimeMillis();
+                refreshes.incrementAndGet();
+            } catch (Exception ex) {
+                refreshFailures.incrementAndGet();
+                log.warn("刷新近似总数失败 - 键: {}, 原因: {}", e.getKey(), ex.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "approximateCounts";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (entries) {
+            metrics.put("keys", entries.size());
+        }
+        metrics.put("maxKeys", maxKeys);
+        metrics.put("evictions", evictions.get());
+        metrics.put("refreshes", refreshes.get());
+        metrics.put("refreshFailures", refreshFailures.get());
+        return metrics;
+    }
+}
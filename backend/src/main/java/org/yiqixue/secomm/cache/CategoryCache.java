@@ -0,0 +1,148 @@
+package org.yiqixue.secomm.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.yiqixue.secomm.dto.ProductCategoryDTO;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+import org.yiqixue.secomm.mapper.ProductMapper;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+import org.yiqixue.secomm.repository.ProductCategoryRepository;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品分类内存快照
+ * 分类列表连同各分类商品数一次构建，请求直接读快照；商品或分类变更后标记过期，下次读取时重建
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryCache implements MetricsProvider {
+
+    private final ProductCategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+
+    // 兜底过期时间，覆盖直接改库等不经过应用的分类变更
+    @Value("${app.category-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    // 每次变更递增；快照记录构建时的版本，版本不一致即过期
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    private record Snapshot(List<ProductCategoryDTO> categories,
+                            Map<Long, ProductCategoryDTO> byId,
+                            Map<String, ProductCategoryDTO> byName,
+                            long version,
+                            long builtAt) {
+    }
+
+    /**
+     * 全部分类（按ID排序）
+     */
+    public List<ProductCategoryDTO> getAll() {
+        return current().categories();
+    }
+
+    public Optional<ProductCategoryDTO> getById(Long categoryId) {
+        return Optional.ofNullable(current().byId().get(categoryId));
+    }
+
+    public Optional<ProductCategoryDTO> getByName(String categoryName) {
+        return Optional.ofNullable(current().byName().get(categoryName));
+    }
+
+    /**
+     * 标记快照过期（分类数据变更后调用）
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * 商品新增、删除或改分类会影响分类商品数，事务提交后标记过期
+     */
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isStockOnly()) {
+            return;
+        }
+        invalidate();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "categoryCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        Snapshot current = snapshot;
+        metrics.put("categories", current != null ? current.categories().size() : 0);
+        metrics.put("stale", current == null || current.version() != version.get());
+        metrics.put("hits", hits.get());
+        metrics.put("rebuilds", rebuilds.get());
+        return metrics;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (isFresh(current)) {
+            hits.incrementAndGet();
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (!isFresh(current)) {
+                current = rebuild();
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private boolean isFresh(Snapshot current) {
+        return current != null
+                && current.version() == version.get()
+                && current.builtAt() + ttlSeconds * 1000 > System.currentTimeMillis();
+    }
+
+    private Snapshot rebuild() {
+        // 先取版本再查库：查询期间发生的变更会让新快照立即过期，不会丢失
+        long buildVersion = version.get();
+
+        Map<Long, Long> productCounts = new HashMap<>();
+        for (Object[] row : productRepository.countProductsGroupByCategory()) {
+            productCounts.put((Long) row[0], (Long) row[1]);
+        }
+        List<ProductCategoryDTO> categories = List.copyOf(productMapper.toCategoryDTOList(
+                categoryRepository.findAll(Sort.by("id")), productCounts));
+
+        Map<Long, ProductCategoryDTO> byId = new HashMap<>();
+        Map<String, ProductCategoryDTO> byName = new HashMap<>();
+        for (ProductCategoryDTO category : categories) {
+            byId.put(category.getId(), category);
+            byName.put(category.getCategoryName(), category);
+        }
+
+        rebuilds.incrementAndGet();
+        log.debug("分类快照重建完成 - 分类数: {}", categories.size());
+        return new Snapshot(categories, byId, byName, buildVersion, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,142 @@
+package org.yiqixue.secomm.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yiqixue.secomm.exception.BusinessException;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 幂等键存储
+ * 按键记录进行中和已完成的请求结果：首个请求执行，并发的重复请求等待其结果，之后的重放直接返回缓存结果；
+ * 执行失败时移除记录，允许客户端用同一个键重试。容量有上限，超出时淘汰最久未访问的已完成记录。
+ * 记录只保存在本实例内存中
+ */
+@Component
+@Slf4j
+public class IdempotencyStore implements MetricsProvider {
+
+    @Value("${app.idempotency.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.idempotency.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    // 等待首个请求完成的最长时间
+    @Value("${app.idempotency.wait-seconds:30}")
+    private long waitSeconds;
+
+    private static final class Entry {
+        private final Object fingerprint;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private Entry(Object fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    // 按访问顺序排列；进行中的记录不淘汰，避免重复执行
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize && eldest.getValue().result.isDone();
+        }
+    };
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong replays = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+
+    /**
+     * 按幂等键执行一次 action
+     *
+     * @param key         幂等键（调用方负责加上客户等作用域前缀）
+     * @param fingerprint 请求内容，同一个键对应不同请求内容时拒绝
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Object fingerprint, Supplier<T> action) {
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry(fingerprint);
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+
+        if (!Objects.equals(entry.fingerprint, fingerprint)) {
+            throw new IllegalArgumentException("幂等键已用于其他请求内容: " + key);
+        }
+
+        if (owner) {
+            executions.incrementAndGet();
+            try {
+                T value = action.get();
+                entry.expiresAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+                entry.result.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                // 失败不缓存，等待中的重复请求收到同样的异常
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+                entry.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        if (entry.result.isDone()) {
+            replays.incrementAndGet();
+        } else {
+            waits.incrementAndGet();
+            log.info("重复请求等待首个请求完成 - 幂等键: {}", key);
+        }
+        try {
+            return (T) entry.result.get(waitSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new BusinessException("请求处理失败", e.getCause());
+        } catch (TimeoutException e) {
+            throw new BusinessException("相同请求正在处理中，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("等待请求结果时被中断", e);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "idempotency";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (entries) {
+            metrics.put("size", entries.size());
+        }
+        metrics.put("executions", executions.get());
+        metrics.put("replays", replays.get());
+        metrics.put("waits", waits.get());
+        return metrics;
+    }
+}
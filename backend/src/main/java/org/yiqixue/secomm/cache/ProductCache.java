@@ -0,0 +1,229 @@
+package org.yiqixue.secomm.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 商品详情读穿缓存
+ * 按商品ID和SKU双键访问，容量（LRU）和存活时间双重淘汰，商品写事务提交后失效；
+ * 只改库存的变更（下单、归还、秒杀刷库）原地更新缓存条目的库存，不失效
+ */
+@Component
+@Slf4j
+public class ProductCache implements MetricsProvider {
+
+    @Value("${app.product-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.product-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Object lock = new Object();
+
+    // 按访问顺序排列，超出容量时淘汰最久未访问的条目
+    private final LinkedHashMap<Long, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
+            if (size() > maxSize) {
+                skuIndex.remove(eldest.getValue().product().getSku());
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // SKU -> 商品ID
+    private final Map<String, Long> skuIndex = new HashMap<>();
+
+    // 加载中的键（商品ID或SKU）-> 本次加载的标记；该键失效或库存更新时移除，加载结果不写入缓存，避免旧数据回填。
+    // 只影响被修改的商品，其他商品的加载照常写入
+    private final Map<Object, Object> pendingLoads = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong stockUpdates = new AtomicLong();
+
+    private record CacheEntry(ProductDTO product, long expiresAt) {
+    }
+
+    /**
+     * 按商品ID读取，未命中时调用 loader 加载并写入缓存
+     */
+    public ProductDTO getById(Long productId, Supplier<ProductDTO> loader) {
+        Object token = new Object();
+        synchronized (lock) {
+            ProductDTO cached = lookup(productId);
+            if (cached != null) {
+                return cached;
+            }
+            pendingLoads.put(productId, token);
+        }
+        return load(loader, productId, token);
+    }
+
+    /**
+     * 按SKU读取，未命中时调用 loader 加载并写入缓存
+     */
+    public ProductDTO getBySku(String sku, Supplier<ProductDTO> loader) {
+        Object token = new Object();
+        synchronized (lock) {
+            Long productId = skuIndex.get(sku);
+            ProductDTO cached = productId != null ? lookup(productId) : null;
+            if (cached != null) {
+                return cached;
+            }
+            pendingLoads.put(sku, token);
+        }
+        return load(loader, sku, token);
+    }
+
+    /**
+     * 使指定商品失效（同时按ID和SKU）
+     */
+    public void invalidate(Long productId, String... skus) {
+        synchronized (lock) {
+            if (productId != null) {
+                pendingLoads.remove(productId);
+            }
+            CacheEntry removed = productId != null ? entries.remove(productId) : null;
+            if (removed != null) {
+                skuIndex.remove(removed.product().getSku());
+                pendingLoads.remove(removed.product().getSku());
+            }
+            for (String sku : skus) {
+                if (sku == null) {
+                    continue;
+                }
+                pendingLoads.remove(sku);
+                Long mappedId = skuIndex.remove(sku);
+                if (mappedId != null) {
+                    entries.remove(mappedId);
+                    pendingLoads.remove(mappedId);
+                }
+            }
+        }
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * 更新已缓存商品的库存，条目的其余字段和过期时间不变；未缓存时不加载。
+     * 缓存返回的对象可能正被调用方使用，不直接修改，换成带新库存的副本
+     */
+    public void updateStock(Long productId, String sku, Integer unitsInStock) {
+        synchronized (lock) {
+            // 加载中的结果可能是修改前的库存
+            pendingLoads.remove(productId);
+            if (sku != null) {
+                pendingLoads.remove(sku);
+            }
+            CacheEntry entry = entries.get(productId);
+            if (entry == null) {
+                return;
+            }
+            ProductDTO updated = new ProductDTO();
+            BeanUtils.copyProperties(entry.product(), updated);
+            updated.setUnitsInStock(unitsInStock);
+            entries.put(productId, new CacheEntry(updated, entry.expiresAt()));
+        }
+        stockUpdates.incrementAndGet();
+    }
+
+    /**
+     * 商品写事务提交后失效缓存；只改库存时原地更新库存。
+     * 并发提交的监听方执行顺序可能与提交顺序不同，缓存中的库存可能短暂落后，下单时仍以数据库行锁下的库存为准
+     */
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isStockOnly() && event.getProduct() != null) {
+            updateStock(event.getProductId(), event.getProduct().getSku(), event.getProduct().getUnitsInStock());
+            return;
+        }
+        String currentSku = event.getProduct() != null ? event.getProduct().getSku() : null;
+        invalidate(event.getProductId(), event.getPreviousSku(), currentSku);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "productCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        synchronized (lock) {
+            metrics.put("size", entries.size());
+        }
+        metrics.put("maxSize", maxSize);
+        metrics.put("ttlSeconds", ttlSeconds);
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        metrics.put("evictions", evictions.get());
+        metrics.put("expirations", expirations.get());
+        metrics.put("invalidations", invalidations.get());
+        metrics.put("stockUpdates", stockUpdates.get());
+        return metrics;
+    }
+
+    /**
+     * 调用方需持有 lock
+     */
+    private ProductDTO lookup(Long productId) {
+        CacheEntry entry = entries.get(productId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(productId);
+            skuIndex.remove(entry.product().getSku());
+            expirations.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.product();
+    }
+
+    private ProductDTO load(Supplier<ProductDTO> loader, Object key, Object token) {
+        misses.incrementAndGet();
+        ProductDTO product;
+        try {
+            product = loader.get();
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                pendingLoads.remove(key, token);
+            }
+            throw e;
+        }
+
+        synchronized (lock) {
+            // 标记已被移除说明加载期间该商品被修改过；被同一键更晚的加载替换时由那次加载写入
+            if (pendingLoads.remove(key, token) && product != null) {
+                CacheEntry previous = entries.put(product.getId(),
+                        new CacheEntry(product, System.currentTimeMillis() + ttlSeconds * 1000));
+                if (previous != null && !previous.product().getSku().equals(product.getSku())) {
+                    skuIndex.remove(previous.product().getSku());
+                }
+                skuIndex.put(product.getSku(), product.getId());
+            }
+        }
+        return product;
+    }
+}
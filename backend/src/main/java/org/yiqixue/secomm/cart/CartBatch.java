@@ -0,0 +1,110 @@
+package org.yiqixue.secomm.cart;
+
+import org.yiqixue.secomm.dto.CartBatchRequest;
+import org.yiqixue.secomm.exception.BusinessException;
+import org.yiqixue.secomm.exception.ResourceNotFoundException;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 购物车批量操作的计算
+ * 按顺序把操作应用到各商品的数量上，得出每个涉及商品的最终数量（0 表示移除），由存储实现一次性写入
+ */
+final class CartBatch {
+
+    private CartBatch() {
+    }
+
+    /**
+     * ADD 操作引用的商品ID
+     */
+    static Set<Long> productIds(List<CartBatchRequest.Operation> operations) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (CartBatchRequest.Operation operation : operations) {
+            if (operation.getType() == CartBatchRequest.OperationType.ADD && operation.getProductId() != null) {
+                ids.add(operation.getProductId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * UPDATE/REMOVE 操作引用的商品项ID
+     */
+    static Set<Long> cartItemIds(List<CartBatchRequest.Operation> operations) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (CartBatchRequest.Operation operation : operations) {
+            if (operation.getType() != CartBatchRequest.OperationType.ADD && operation.getCartItemId() != null) {
+                ids.add(operation.getCartItemId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @param itemProducts 本客户购物车中被引用的商品项ID -> 商品ID，不在其中的商品项视为不存在
+     * @param quantities 涉及商品当前在购物车中的数量
+     * @return 商品ID -> 最终数量，按首次涉及的顺序
+     */
+    static Map<Long, Integer> apply(List<CartBatchRequest.Operation> operations,
+                                    Map<Long, Long> itemProducts, Map<Long, Integer> quantities) {
+        Map<Long, Integer> result = new LinkedHashMap<>();
+        for (CartBatchRequest.Operation operation : operations) {
+            switch (operation.getType()) {
+                case ADD -> {
+                    Long productId = require(operation.getProductId(), "ADD 操作缺少商品ID");
+                    int quantity = require(operation.getQuantity(), "ADD 操作缺少数量");
+                    result.put(productId, result.getOrDefault(productId, quantities.getOrDefault(productId, 0)) + quantity);
+                }
+                case UPDATE -> result.put(productOf(operation, itemProducts, result),
+                        require(operation.getQuantity(), "UPDATE 操作缺少数量"));
+                case REMOVE -> result.put(productOf(operation, itemProducts, result), 0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 检查每个数量增加的商品的最终数量不超过库存；减少数量或移除不受库存限制
+     *
+     * @param quantities 涉及商品当前在购物车中的数量
+     */
+    static void checkStock(Map<Long, Integer> result, Map<Long, Integer> quantities,
+                           Map<Long, Integer> unitsInStock) {
+        result.forEach((productId, quantity) -> {
+            if (quantity <= quantities.getOrDefault(productId, 0)) {
+                return;
+            }
+            Integer stock = unitsInStock.get(productId);
+            if (stock == null) {
+                throw new ResourceNotFoundException("Product", "id", productId);
+            }
+            if (stock < quantity) {
+                throw new BusinessException("商品库存不足，当前库存: " + stock);
+            }
+        });
+    }
+
+    private static Long productOf(CartBatchRequest.Operation operation, Map<Long, Long> itemProducts,
+                                  Map<Long, Integer> result) {
+        Long cartItemId = require(operation.getCartItemId(), operation.getType() + " 操作缺少商品项ID");
+        Long productId = itemProducts.get(cartItemId);
+        // 同一批中已移除的商品项不能再修改或移除
+        if (productId == null || Objects.equals(result.get(productId), 0)) {
+            throw new ResourceNotFoundException("CartItem", "id", cartItemId);
+        }
+        return productId;
+    }
+
+    private static <T> T require(T value, String message) {
+        if (value == null) {
+            throw new IllegalArgumentException(message);
+        }
+        return value;
+    }
+}
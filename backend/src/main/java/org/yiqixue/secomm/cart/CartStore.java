@@ -0,0 +1,65 @@
+package org.yiqixue.secomm.cart;
+
+import org.yiqixue.secomm.dto.CartBatchRequest;
+import org.yiqixue.secomm.dto.CartDTO;
+import org.yiqixue.secomm.dto.CartItemDTO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 购物车存储
+ * 按客户ID（customer 表ID）存取购物车，由 app.cart.store 选择实现：
+ * jdbc 每次直接读写 cart/cart_item 表；memory 在内存中暂存修改，异步批量回写
+ */
+public interface CartStore {
+
+    /**
+     * 获取客户的活跃购物车（含商品项），不存在时创建
+     */
+    CartDTO getCart(Long customerId);
+
+    /**
+     * 获取购物车商品项列表
+     */
+    List<CartItemDTO> getItems(Long customerId);
+
+    /**
+     * 加入商品，已有该商品时累加数量
+     */
+    CartItemDTO addItem(Long customerId, Long productId, int quantity);
+
+    /**
+     * 修改商品项数量
+     */
+    CartItemDTO updateItem(Long customerId, Long cartItemId, int quantity);
+
+    /**
+     * 移除商品项
+     */
+    void removeItem(Long customerId, Long cartItemId);
+
+    /**
+     * 按顺序应用一批加入/修改/移除操作，全部校验通过后一次写入，购物车总计只重算一次
+     *
+     * @return 操作后的购物车商品项
+     */
+    List<CartItemDTO> applyBatch(Long customerId, List<CartBatchRequest.Operation> operations);
+
+    /**
+     * 按增量扣除商品数量，扣完的商品项移除，购物车中没有的商品忽略；在事务中调用时随事务提交生效
+     *
+     * @param quantities 商品ID -> 扣除数量
+     */
+    void subtractItems(Long customerId, Map<Long, Integer> quantities);
+
+    /**
+     * 清空购物车；在事务中调用时随事务提交生效
+     */
+    void clear(Long customerId);
+
+    /**
+     * 把尚未写入数据库的修改写回；在事务中调用时加入该事务
+     */
+    void flush(Long customerId);
+}
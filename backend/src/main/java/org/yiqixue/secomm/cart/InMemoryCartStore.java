@@ -0,0 +1,684 @@
+package org.yiqixue.secomm.cart;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.yiqixue.secomm.dto.CartBatchRequest;
+import org.yiqixue.secomm.dto.CartDTO;
+import org.yiqixue.secomm.dto.CartItemDTO;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.entity.Cart;
+import org.yiqixue.secomm.exception.BusinessException;
+import org.yiqixue.secomm.exception.ResourceNotFoundException;
+import org.yiqixue.secomm.mapper.CartMapper;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+import org.yiqixue.secomm.repository.CartItemRepository;
+import org.yiqixue.secomm.repository.CartRepository;
+import org.yiqixue.secomm.service.ProductService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 内存购物车存储（写回）
+ * 按客户ID在内存中保存购物车，修改只落在内存并标记为脏，定时批量写回数据库，结算时和关闭时也会写回；
+ * 商品项总数超过内存预算时按 LRU 淘汰，淘汰前先写回。
+ * 只适用于单实例或按客户会话粘滞的部署；尚未写回的新商品项使用负数临时ID，写回后换成数据库ID（临时ID仍可使用）
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "memory")
+@RequiredArgsConstructor
+@Slf4j
+public class InMemoryCartStore implements CartStore, MetricsProvider {
+
+    // 按内存中的状态覆盖数据库购物车总计，非活跃购物车随之重新启用
+    private static final String UPSERT_CART_SQL =
+            "INSERT INTO cart (customer_id, status, total_price, total_quantity, date_created, last_updated)"
+                    + " VALUES (?, 'ACTIVE', ?, ?, NOW(), NOW())"
+                    + " ON DUPLICATE KEY UPDATE status = 'ACTIVE', total_price = VALUES(total_price),"
+                    + " total_quantity = VALUES(total_quantity), last_updated = NOW()";
+
+    private static final String DELETE_ALL_ITEMS_SQL =
+            "DELETE ci FROM cart_item ci JOIN cart c ON c.id = ci.cart_id WHERE c.customer_id = ?";
+
+    // 删除内存中已不存在的商品项，后接 product_id 占位符列表
+    private static final String DELETE_OTHER_ITEMS_SQL =
+            "DELETE ci FROM cart_item ci JOIN cart c ON c.id = ci.cart_id"
+                    + " WHERE c.customer_id = ? AND ci.product_id NOT IN (";
+
+    // 数量未变的商品项不改动
+    private static final String UPSERT_ITEM_SQL =
+            "INSERT INTO cart_item (cart_id, product_id, quantity, unit_price, date_added, last_updated)"
+                    + " SELECT c.id, ?, ?, ?, ?, NOW() FROM cart c WHERE c.customer_id = ?"
+                    + " ON DUPLICATE KEY UPDATE"
+                    + " last_updated = IF(cart_item.quantity = VALUES(quantity), cart_item.last_updated, NOW()),"
+                    + " quantity = VALUES(quantity)";
+
+    private static final String SELECT_ITEM_IDS_SQL =
+            "SELECT c.id AS cart_id, ci.id, ci.product_id FROM cart c"
+                    + " LEFT JOIN cart_item ci ON ci.cart_id = c.id WHERE c.customer_id = ?";
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final CartMapper cartMapper;
+    private final ProductService productService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.cart.max-items:100000}")
+    private long maxItems;
+
+    // 按访问顺序排列，超出预算时从最久未访问的购物车开始淘汰
+    private final LinkedHashMap<Long, CartEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    // 有未写回修改的购物车
+    private final Set<CartEntry> dirtyEntries = ConcurrentHashMap.newKeySet();
+
+    // 内存中的购物车数与商品项数之和，用于内存预算
+    private final AtomicLong residentWeight = new AtomicLong();
+
+    private final AtomicLong tempIds = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * 内存中的购物车；字段在持有该对象监视器时访问
+     */
+    private static final class CartEntry {
+
+        final Long customerId;
+        Long cartId;
+        LocalDateTime dateCreated;
+        LocalDateTime lastUpdated;
+
+        // 商品ID -> 商品项，保持加入顺序
+        final Map<Long, Line> lines = new LinkedHashMap<>();
+
+        // 临时ID -> 商品ID
+        final Map<Long, Long> tempIdAliases = new HashMap<>();
+
+        // 每次修改递增；写回提交后记录已写回的版本
+        volatile long version;
+        volatile long flushedVersion;
+
+        boolean evicted;
+
+        CartEntry(Long customerId) {
+            this.customerId = customerId;
+        }
+
+        boolean isDirty() {
+            return version != flushedVersion;
+        }
+
+        long weight() {
+            return 1 + lines.size();
+        }
+    }
+
+    private static final class Line {
+
+        Long id;
+        final Long productId;
+        int quantity;
+        final BigDecimal unitPrice;
+        final LocalDateTime dateAdded;
+        LocalDateTime lastUpdated;
+        String productName;
+        String productSku;
+        String productImageUrl;
+        String productDescription;
+        Integer unitsInStock;
+
+        Line(Long id, Long productId, int quantity, BigDecimal unitPrice,
+             LocalDateTime dateAdded, LocalDateTime lastUpdated) {
+            this.id = id;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+            this.dateAdded = dateAdded;
+            this.lastUpdated = lastUpdated;
+        }
+
+        void refresh(ProductDTO product) {
+            productName = product.getName();
+            productSku = product.getSku();
+            productImageUrl = product.getImageUrl();
+            productDescription = product.getDescription();
+            unitsInStock = product.getUnitsInStock();
+        }
+
+        BigDecimal subtotal() {
+            return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    @Override
+    public CartDTO getCart(Long customerId) {
+        return withEntry(customerId, entry -> {
+            List<CartItemDTO> items = toDTOs(entry);
+            return CartDTO.builder()
+                    .id(entry.cartId)
+                    .customerId(customerId)
+                    .status(Cart.CartStatus.ACTIVE.name())
+                    .totalPrice(items.stream().map(CartItemDTO::getSubtotal).reduce(BigDecimal.ZERO, BigDecimal::add))
+                    .totalQuantity(items.stream().mapToInt(CartItemDTO::getQuantity).sum())
+                    .dateCreated(entry.dateCreated)
+                    .lastUpdated(entry.lastUpdated)
+                    .cartItems(items)
+                    .build();
+        });
+    }
+
+    @Override
+    public List<CartItemDTO> getItems(Long customerId) {
+        return withEntry(customerId, this::toDTOs);
+    }
+
+    /**
+     * 商品信息和库存取自商品缓存，不访问数据库；单价保持首次加入时的价格
+     */
+    @Override
+    public CartItemDTO addItem(Long customerId, Long productId, int quantity) {
+        ProductDTO product = productService.getProductById(productId);
+        return withEntry(customerId, entry -> {
+            Line line = entry.lines.get(productId);
+            int existingQuantity = line != null ? line.quantity : 0;
+            if (product.getUnitsInStock() < existingQuantity + quantity) {
+                throw new BusinessException("商品库存不足，当前库存: " + product.getUnitsInStock());
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            if (line == null) {
+                long tempId = -tempIds.incrementAndGet();
+                line = new Line(tempId, productId, 0, product.getUnitPrice(), now, now);
+                entry.lines.put(productId, line);
+                entry.tempIdAliases.put(tempId, productId);
+            }
+            line.quantity += quantity;
+            line.lastUpdated = now;
+            line.refresh(product);
+            touch(entry);
+            return toDTO(entry, line);
+        });
+    }
+
+    @Override
+    public CartItemDTO updateItem(Long customerId, Long cartItemId, int quantity) {
+        Long productId = withEntry(customerId, entry -> findLine(entry, cartItemId).productId);
+        ProductDTO product = productService.getProductById(productId);
+        if (product.getUnitsInStock() < quantity) {
+            throw new BusinessException("商品库存不足，当前库存: " + product.getUnitsInStock());
+        }
+        return withEntry(customerId, entry -> {
+            Line line = findLine(entry, cartItemId);
+            line.quantity = quantity;
+            line.lastUpdated = LocalDateTime.now();
+            line.refresh(product);
+            touch(entry);
+            return toDTO(entry, line);
+        });
+    }
+
+    @Override
+    public void removeItem(Long customerId, Long cartItemId) {
+        withEntry(customerId, entry -> {
+            Line line = findLine(entry, cartItemId);
+            entry.lines.remove(line.productId);
+            entry.tempIdAliases.values().remove(line.productId);
+            touch(entry);
+            return null;
+        });
+    }
+
+    /**
+     * 先解析被引用商品项对应的商品并从商品缓存取商品（不持锁），再在购物车锁内重新校验、整体应用
+     */
+    @Override
+    public List<CartItemDTO> applyBatch(Long customerId, List<CartBatchRequest.Operation> operations) {
+        Set<Long> productIds = withEntry(customerId, entry -> {
+            Set<Long> ids = new HashSet<>(CartBatch.productIds(operations));
+            for (Long cartItemId : CartBatch.cartItemIds(operations)) {
+                ids.add(findLine(entry, cartItemId).productId);
+            }
+            return ids;
+        });
+        Map<Long, ProductDTO> products = new HashMap<>();
+        Map<Long, Integer> unitsInStock = new HashMap<>();
+        for (Long productId : productIds) {
+            ProductDTO product = productService.getProductById(productId);
+            products.put(productId, product);
+            unitsInStock.put(productId, product.getUnitsInStock());
+        }
+
+        return withEntry(customerId, entry -> {
+            Map<Long, Long> itemProducts = new HashMap<>();
+            for (Long cartItemId : CartBatch.cartItemIds(operations)) {
+                itemProducts.put(cartItemId, findLine(entry, cartItemId).productId);
+            }
+            Map<Long, Integer> quantities = new HashMap<>();
+            entry.lines.values().forEach(line -> quantities.put(line.productId, line.quantity));
+
+            Map<Long, Integer> result = CartBatch.apply(operations, itemProducts, quantities);
+            // 两次加锁之间购物车可能被修改，涉及未预先取到的商品时要求重试
+            if (!products.keySet().containsAll(result.keySet())) {
+                throw new BusinessException("购物车已被修改，请重试");
+            }
+            CartBatch.checkStock(result, quantities, unitsInStock);
+
+            LocalDateTime now = LocalDateTime.now();
+            result.forEach((productId, quantity) -> {
+                Line line = entry.lines.get(productId);
+                if (quantity == 0) {
+                    entry.lines.remove(productId);
+                    entry.tempIdAliases.values().remove(productId);
+                    return;
+                }
+                if (line == null) {
+                    long tempId = -tempIds.incrementAndGet();
+                    line = new Line(tempId, productId, 0, products.get(productId).getUnitPrice(), now, now);
+                    entry.lines.put(productId, line);
+                    entry.tempIdAliases.put(tempId, productId);
+                }
+                line.quantity = quantity;
+                line.lastUpdated = now;
+                line.refresh(products.get(productId));
+            });
+            if (!result.isEmpty()) {
+                touch(entry);
+            }
+            return toDTOs(entry);
+        });
+    }
+
+    /**
+     * 与 clear 相同，在事务中调用时等事务提交后再扣除
+     */
+    @Override
+    public void subtractItems(Long customerId, Map<Long, Integer> quantities) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    subtractNow(customerId, quantities);
+                }
+            });
+        } else {
+            subtractNow(customerId, quantities);
+        }
+    }
+
+    private void subtractNow(Long customerId, Map<Long, Integer> quantities) {
+        withEntry(customerId, entry -> {
+            boolean changed = false;
+            LocalDateTime now = LocalDateTime.now();
+            for (Map.Entry<Long, Integer> subtraction : quantities.entrySet()) {
+                Line line = entry.lines.get(subtraction.getKey());
+                if (line == null) {
+                    continue;
+                }
+                line.quantity -= subtraction.getValue();
+                line.lastUpdated = now;
+                if (line.quantity <= 0) {
+                    entry.lines.remove(line.productId);
+                    entry.tempIdAliases.values().remove(line.productId);
+                }
+                changed = true;
+            }
+            if (changed) {
+                touch(entry);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 在事务中调用时（如下单后清空购物车）等事务提交后再清空，下单回滚时购物车保持不变
+     */
+    @Override
+    public void clear(Long customerId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clearNow(customerId);
+                }
+            });
+        } else {
+            clearNow(customerId);
+        }
+    }
+
+    private void clearNow(Long customerId) {
+        withEntry(customerId, entry -> {
+            entry.lines.clear();
+            entry.tempIdAliases.clear();
+            touch(entry);
+            return null;
+        });
+    }
+
+    @Override
+    public void flush(Long customerId) {
+        CartEntry entry;
+        synchronized (entries) {
+            entry = entries.get(customerId);
+        }
+        if (entry != null) {
+            dirtyEntries.remove(entry);
+            flush(entry);
+        }
+    }
+
+    /**
+     * 定时写回有修改的购物车，并按内存预算淘汰
+     */
+    @Scheduled(fixedDelayString = "${app.cart.flush-ms:500}")
+    public void flushDirty() {
+        for (CartEntry entry : new ArrayList<>(dirtyEntries)) {
+            dirtyEntries.remove(entry);
+            try {
+                flush(entry);
+            } catch (RuntimeException e) {
+                log.error("购物车写回失败 - 客户ID: {}: {}", entry.customerId, e.getMessage(), e);
+            }
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * 关闭前写回全部修改
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushDirty();
+        log.info("购物车存储已关闭 - 写回次数: {}, 失败次数: {}", flushes.get(), flushFailures.get());
+    }
+
+    /**
+     * 在购物车上执行操作；操作期间持有该购物车的锁，遇到刚被淘汰的对象时重新加载
+     */
+    private <R> R withEntry(Long customerId, Function<CartEntry, R> action) {
+        while (true) {
+            CartEntry entry = entry(customerId);
+            R result;
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                long weight = entry.weight();
+                try {
+                    result = action.apply(entry);
+                } finally {
+                    residentWeight.addAndGet(entry.weight() - weight);
+                }
+            }
+            // 事务中不淘汰：淘汰前的写回必须独立提交
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                evictIfNeeded();
+            }
+            return result;
+        }
+    }
+
+    private CartEntry entry(Long customerId) {
+        synchronized (entries) {
+            CartEntry entry = entries.get(customerId);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return entry;
+            }
+        }
+        misses.incrementAndGet();
+        CartEntry loaded = load(customerId);
+        synchronized (entries) {
+            CartEntry existing = entries.putIfAbsent(customerId, loaded);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        residentWeight.addAndGet(loaded.weight());
+        return loaded;
+    }
+
+    /**
+     * 从数据库加载；已放弃的购物车连同商品项加载，已下单的购物车视为空车，首次写回时重新启用并删除旧商品项
+     */
+    private CartEntry load(Long customerId) {
+        CartEntry entry = new CartEntry(customerId);
+        LocalDateTime now = LocalDateTime.now();
+        entry.dateCreated = now;
+        entry.lastUpdated = now;
+        cartRepository.findByCustomerId(customerId).ifPresent(cart -> {
+            entry.dateCreated = cart.getDateCreated();
+            entry.lastUpdated = cart.getLastUpdated();
+            if (cart.getStatus() == Cart.CartStatus.CONVERTED) {
+                return;
+            }
+            entry.cartId = cart.getId();
+            for (CartItemDTO item : cartMapper.toCartItemDTOList(
+                    cartItemRepository.findByCartIdWithProduct(cart.getId()))) {
+                Line line = new Line(item.getId(), item.getProductId(), item.getQuantity(), item.getUnitPrice(),
+                        item.getDateAdded(), item.getLastUpdated());
+                line.productName = item.getProductName();
+                line.productSku = item.getProductSku();
+                line.productImageUrl = item.getProductImageUrl();
+                line.productDescription = item.getProductDescription();
+                line.unitsInStock = item.getUnitsInStock();
+                entry.lines.put(line.productId, line);
+            }
+        });
+        return entry;
+    }
+
+    /**
+     * 把购物车当前状态写入数据库：覆盖总计、删除已移除的商品项、upsert 其余商品项，再取回新商品项的ID。
+     * 在事务中调用时加入该事务，提交后才记为已写回，回滚则保持为脏等待下次写回
+     */
+    private void flush(CartEntry entry) {
+        synchronized (entry) {
+            if (!entry.isDirty()) {
+                return;
+            }
+            long version = entry.version;
+            List<Line> lines = new ArrayList<>(entry.lines.values());
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    write(entry.customerId, lines);
+                    Map<Long, Long> itemIds = new HashMap<>();
+                    Long[] cartId = new Long[1];
+                    jdbcTemplate.query(SELECT_ITEM_IDS_SQL, rs -> {
+                        cartId[0] = rs.getLong("cart_id");
+                        long itemId = rs.getLong("id");
+                        if (!rs.wasNull()) {
+                            itemIds.put(rs.getLong("product_id"), itemId);
+                        }
+                    }, entry.customerId);
+
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(int completionStatus) {
+                            if (completionStatus == STATUS_COMMITTED) {
+                                flushed(entry, version, cartId[0], itemIds);
+                            } else {
+                                dirtyEntries.add(entry);
+                            }
+                        }
+                    });
+                });
+            } catch (RuntimeException e) {
+                flushFailures.incrementAndGet();
+                dirtyEntries.add(entry);
+                throw e;
+            }
+        }
+    }
+
+    private void write(Long customerId, List<Line> lines) {
+        BigDecimal totalPrice = lines.stream().map(Line::subtotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        int totalQuantity = lines.stream().mapToInt(line -> line.quantity).sum();
+        jdbcTemplate.update(UPSERT_CART_SQL, customerId, totalPrice, totalQuantity);
+
+        if (lines.isEmpty()) {
+            jdbcTemplate.update(DELETE_ALL_ITEMS_SQL, customerId);
+            return;
+        }
+        List<Object> args = new ArrayList<>(lines.size() + 1);
+        args.add(customerId);
+        lines.forEach(line -> args.add(line.productId));
+        jdbcTemplate.update(DELETE_OTHER_ITEMS_SQL + String.join(",", Collections.nCopies(lines.size(), "?")) + ")",
+                args.toArray());
+
+        jdbcTemplate.batchUpdate(UPSERT_ITEM_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setLong(1, line.productId);
+            ps.setInt(2, line.quantity);
+            ps.setBigDecimal(3, line.unitPrice);
+            ps.setObject(4, line.dateAdded);
+            ps.setLong(5, customerId);
+        });
+    }
+
+    private void flushed(CartEntry entry, long version, Long cartId, Map<Long, Long> itemIds) {
+        synchronized (entry) {
+            entry.cartId = cartId;
+            for (Line line : entry.lines.values()) {
+                Long itemId = itemIds.get(line.productId);
+                if (line.id < 0 && itemId != null) {
+                    line.id = itemId;
+                }
+            }
+            if (version > entry.flushedVersion) {
+                entry.flushedVersion = version;
+            }
+        }
+        flushes.incrementAndGet();
+    }
+
+    /**
+     * 超出内存预算时从最久未访问的购物车开始淘汰，有未写回修改的先写回；写回失败时停止淘汰
+     */
+    private void evictIfNeeded() {
+        while (residentWeight.get() > maxItems) {
+            CartEntry eldest;
+            synchronized (entries) {
+                if (entries.isEmpty()) {
+                    return;
+                }
+                eldest = entries.values().iterator().next();
+            }
+            synchronized (eldest) {
+                if (eldest.evicted) {
+                    continue;
+                }
+                try {
+                    flush(eldest);
+                } catch (RuntimeException e) {
+                    log.error("淘汰前写回购物车失败 - 客户ID: {}: {}", eldest.customerId, e.getMessage(), e);
+                    return;
+                }
+                eldest.evicted = true;
+                dirtyEntries.remove(eldest);
+                synchronized (entries) {
+                    entries.remove(eldest.customerId, eldest);
+                }
+                residentWeight.addAndGet(-eldest.weight());
+            }
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void touch(CartEntry entry) {
+        entry.lastUpdated = LocalDateTime.now();
+        entry.version++;
+        dirtyEntries.add(entry);
+    }
+
+    private Line findLine(CartEntry entry, Long cartItemId) {
+        Line line = null;
+        if (cartItemId < 0) {
+            Long productId = entry.tempIdAliases.get(cartItemId);
+            line = productId != null ? entry.lines.get(productId) : null;
+        } else {
+            for (Line candidate : entry.lines.values()) {
+                if (cartItemId.equals(candidate.id)) {
+                    line = candidate;
+                    break;
+                }
+            }
+        }
+        if (line == null) {
+            throw new ResourceNotFoundException("CartItem", "id", cartItemId);
+        }
+        return line;
+    }
+
+    private List<CartItemDTO> toDTOs(CartEntry entry) {
+        return entry.lines.values().stream()
+                .map(line -> toDTO(entry, line))
+                .collect(Collectors.toList());
+    }
+
+    private CartItemDTO toDTO(CartEntry entry, Line line) {
+        return CartItemDTO.builder()
+                .id(line.id)
+                .cartId(entry.cartId)
+                .productId(line.productId)
+                .quantity(line.quantity)
+                .unitPrice(line.unitPrice)
+                .subtotal(line.subtotal())
+                .dateAdded(line.dateAdded)
+                .lastUpdated(line.lastUpdated)
+                .productName(line.productName)
+                .productSku(line.productSku)
+                .productImageUrl(line.productImageUrl)
+                .productDescription(line.productDescription)
+                .unitsInStock(line.unitsInStock)
+                .build();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "cartStore";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (entries) {
+            metrics.put("carts", entries.size());
+        }
+        metrics.put("residentWeight", residentWeight.get());
+        metrics.put("maxItems", maxItems);
+        metrics.put("dirty", dirtyEntries.size());
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("flushes", flushes.get());
+        metrics.put("flushFailures", flushFailures.get());
+        metrics.put("evictions", evictions.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,490 @@
+package org.yiqixue.secomm.cart;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.dto.CartBatchRequest;
+import org.yiqixue.secomm.dto.CartDTO;
+import org.yiqixue.secomm.dto.CartItemDTO;
+import org.yiqixue.secomm.entity.Cart;
+import org.yiqixue.secomm.entity.CartItem;
+import org.yiqixue.secomm.entity.Product;
+import org.yiqixue.secomm.exception.BusinessException;
+import org.yiqixue.secomm.exception.ResourceNotFoundException;
+import org.yiqixue.secomm.mapper.CartMapper;
+import org.yiqixue.secomm.repository.CartItemRepository;
+import org.yiqixue.secomm.repository.CartRepository;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 数据库购物车存储（默认）
+ * 每次操作直接读写 cart/cart_item 表
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "jdbc", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class JdbcCartStore implements CartStore {
+
+    // 同时锁定该客户的购物车行（与 LOCK_CART_SQL 相同），重新启用和修改商品项都在锁内进行
+    private static final String ADD_TO_CART_STATE_SQL =
+            "SELECT p.name, p.sku, p.image_url, p.description, p.unit_price, p.units_in_stock,"
+                    + " c.id AS cart_id, c.status AS cart_status,"
+                    + " ci.id AS item_id, COALESCE(ci.quantity, 0) AS existing_quantity,"
+                    + " ci.unit_price AS item_unit_price, ci.date_added AS item_date_added"
+                    + " FROM product p"
+                    + " LEFT JOIN cart c ON c.customer_id = ?"
+                    + " LEFT JOIN cart_item ci ON ci.cart_id = c.id AND ci.product_id = p.id"
+                    + " WHERE p.id = ?"
+                    + " FOR UPDATE OF c";
+
+    // id = LAST_INSERT_ID(id)：已存在时生成键返回原有购物车的 id
+    private static final String CREATE_CART_SQL =
+            "INSERT INTO cart (customer_id, status, total_price, total_quantity, date_created, last_updated)"
+                    + " VALUES (?, 'ACTIVE', 0, 0, NOW(), NOW())"
+                    + " ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id), status = 'ACTIVE'";
+
+    private static final String SELECT_CART_ID_SQL = "SELECT id FROM cart WHERE customer_id = ?";
+
+    // 已放弃的购物车：商品项和总计保持原样（归档时清理任务已删除商品项并清零总计）
+    private static final String REACTIVATE_CART_SQL =
+            "UPDATE cart SET status = 'ACTIVE', last_updated = NOW() WHERE id = ?";
+
+    // 已下单的购物车：旧商品项已转为订单，清零后重新启用
+    private static final String RESET_CART_SQL =
+            "UPDATE cart SET status = 'ACTIVE', total_price = 0, total_quantity = 0, last_updated = NOW() WHERE id = ?";
+
+    private static final String DELETE_CART_ITEMS_SQL = "DELETE FROM cart_item WHERE cart_id = ?";
+
+    // customer_id 唯一，锁定该客户的购物车行（任意状态），修改商品项前先取得该锁
+    private static final String LOCK_CART_SQL = "SELECT id, status FROM cart WHERE customer_id = ? FOR UPDATE";
+
+    // 购物车中已有该商品：一条语句同时累加商品项数量和购物车总计，单价保持加入时的价格
+    private static final String INCREMENT_CART_ITEM_SQL =
+            "UPDATE cart c JOIN cart_item ci ON ci.cart_id = c.id"
+                    + " SET ci.quantity = ci.quantity + ?, ci.last_updated = NOW(),"
+                    + " c.total_quantity = c.total_quantity + ?,"
+                    + " c.total_price = c.total_price + ci.unit_price * ?, c.last_updated = NOW()"
+                    + " WHERE ci.id = ? AND c.id = ?";
+
+    // 新商品项；并发插入了同一商品时累加数量，id = LAST_INSERT_ID(id) 使生成键仍是该商品项的 id
+    private static final String UPSERT_CART_ITEM_SQL =
+            "INSERT INTO cart_item (cart_id, product_id, quantity, unit_price, date_added, last_updated)"
+                    + " VALUES (?, ?, ?, ?, NOW(), NOW())"
+                    + " ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id),"
+                    + " quantity = cart_item.quantity + VALUES(quantity), last_updated = NOW()";
+
+    // 总计按本次增量更新，不再重新汇总所有商品项
+    private static final String APPLY_CART_DELTA_SQL =
+            "UPDATE cart c JOIN cart_item ci ON ci.cart_id = c.id AND ci.product_id = ?"
+                    + " SET c.total_quantity = c.total_quantity + ?,"
+                    + " c.total_price = c.total_price + ci.unit_price * ?, c.last_updated = NOW()"
+                    + " WHERE c.customer_id = ?";
+
+    // 批量操作涉及的商品（ADD 的商品和被引用商品项的商品）及其在本客户购物车中的商品项，后接两组占位符
+    private static final String BATCH_STATE_SQL =
+            "SELECT p.id AS product_id, p.units_in_stock, c.id AS cart_id, c.status AS cart_status,"
+                    + " ci.id AS item_id, ci.quantity"
+                    + " FROM product p"
+                    + " LEFT JOIN cart c ON c.customer_id = ?"
+                    + " LEFT JOIN cart_item ci ON ci.cart_id = c.id AND ci.product_id = p.id"
+                    + " WHERE p.id IN (%s) OR p.id IN (SELECT product_id FROM cart_item WHERE id IN (%s))";
+
+    // 写入最终数量；新商品项取当前单价
+    private static final String SET_CART_ITEM_SQL =
+            "INSERT INTO cart_item (cart_id, product_id, quantity, unit_price, date_added, last_updated)"
+                    + " SELECT c.id, p.id, ?, p.unit_price, NOW(), NOW() FROM cart c JOIN product p ON p.id = ?"
+                    + " WHERE c.customer_id = ?"
+                    + " ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), last_updated = NOW()";
+
+    private static final String DELETE_CART_ITEM_SQL = "DELETE FROM cart_item WHERE id = ?";
+
+    // 在数据库中按增量扣减，不依赖事先读到的数量
+    private static final String SUBTRACT_CART_ITEM_SQL =
+            "UPDATE cart_item SET quantity = GREATEST(quantity - ?, 0), last_updated = NOW()"
+                    + " WHERE cart_id = ? AND product_id = ?";
+
+    private static final String DELETE_EMPTY_CART_ITEMS_SQL = "DELETE FROM cart_item WHERE cart_id = ? AND quantity = 0";
+
+    private static final String CLEAR_CART_ITEMS_SQL =
+            "DELETE ci FROM cart_item ci JOIN cart c ON c.id = ci.cart_id"
+                    + " WHERE c.customer_id = ? AND c.status = 'ACTIVE'";
+
+    private static final String RESET_CART_TOTALS_SQL =
+            "UPDATE cart SET total_price = 0, total_quantity = 0, last_updated = NOW()"
+                    + " WHERE customer_id = ? AND status = 'ACTIVE'";
+
+    private static final String RECOMPUTE_TOTALS_SQL =
+            "UPDATE cart c SET"
+                    + " c.total_quantity = (SELECT COALESCE(SUM(ci.quantity), 0) FROM cart_item ci WHERE ci.cart_id = c.id),"
+                    + " c.total_price = (SELECT COALESCE(SUM(ci.quantity * ci.unit_price), 0) FROM cart_item ci"
+                    + " WHERE ci.cart_id = c.id),"
+                    + " c.last_updated = NOW()"
+                    + " WHERE c.customer_id = ?";
+
+    private record AddToCartState(String name, String sku, String imageUrl, String description, BigDecimal unitPrice,
+                                  int unitsInStock, Long cartId, String cartStatus, Long itemId, int existingQuantity,
+                                  BigDecimal itemUnitPrice, LocalDateTime itemDateAdded) {
+    }
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final ProductRepository productRepository;
+    private final CartMapper cartMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 没有活跃购物车时新建；已放弃/已下单的购物车占着唯一的 customer_id，原地重新启用（见 reactivate）
+     */
+    @Override
+    @Transactional
+    public CartDTO getCart(Long customerId) {
+        Optional<Cart> cartOpt = cartRepository.findByCustomerIdAndStatus(
+                customerId, Cart.CartStatus.ACTIVE);
+
+        if (cartOpt.isPresent()) {
+            return cartMapper.toDTO(cartOpt.get());
+        }
+
+        // 加锁后再判断状态，避免并发加购刚启用的购物车被再次清空
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(LOCK_CART_SQL, customerId);
+        if (rows.isEmpty()) {
+            jdbcTemplate.update(CREATE_CART_SQL, customerId);
+        } else if (!Cart.CartStatus.ACTIVE.name().equals(rows.get(0).get("status"))) {
+            reactivate(((Number) rows.get(0).get("id")).longValue(), (String) rows.get(0).get("status"));
+        }
+
+        Cart cart = cartRepository.findByCustomerIdAndStatus(customerId, Cart.CartStatus.ACTIVE)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart", "customerId", customerId));
+        return cartMapper.toDTO(cart);
+    }
+
+    @Override
+    public List<CartItemDTO> getItems(Long customerId) {
+        Optional<Cart> cartOpt = cartRepository.findByCustomerIdAndStatus(
+                customerId, Cart.CartStatus.ACTIVE);
+
+        if (cartOpt.isEmpty()) {
+            return List.of();
+        }
+
+        List<CartItem> cartItems = cartItemRepository.findByCartIdWithProduct(cartOpt.get().getId());
+        return cartMapper.toCartItemDTOList(cartItems);
+    }
+
+    /**
+     * 购物车中已有该商品时两次往返：查询商品、购物车和已有商品项；一条语句累加数量和总计。
+     * 新商品项三次往返：查询；upsert 商品项（生成键即商品项 id）；按增量更新购物车总计。
+     * 连接不开启 allowMultiQueries，写语句不合并发送；返回值由已查到的数据拼出，不再回查
+     */
+    @Override
+    @Transactional
+    public CartItemDTO addItem(Long customerId, Long productId, int quantity) {
+        // 验证商品是否存在，同时取出商品信息、购物车状态和该商品已在购物车中的商品项
+        List<AddToCartState> states = jdbcTemplate.query(ADD_TO_CART_STATE_SQL,
+                (rs, rowNum) -> new AddToCartState(
+                        rs.getString("name"),
+                        rs.getString("sku"),
+                        rs.getString("image_url"),
+                        rs.getString("description"),
+                        rs.getBigDecimal("unit_price"),
+                        rs.getInt("units_in_stock"),
+                        rs.getObject("cart_id", Long.class),
+                        rs.getString("cart_status"),
+                        rs.getObject("item_id", Long.class),
+                        rs.getInt("existing_quantity"),
+                        rs.getBigDecimal("item_unit_price"),
+                        rs.getObject("item_date_added", LocalDateTime.class)),
+                customerId, productId);
+        if (states.isEmpty()) {
+            throw new ResourceNotFoundException("Product", "id", productId);
+        }
+        AddToCartState state = states.get(0);
+        // 已下单购物车的旧商品项会在重新启用时清掉
+        boolean hasItem = state.itemId() != null && !isConverted(state.cartStatus());
+        int existingQuantity = hasItem ? state.existingQuantity() : 0;
+
+        // 检查库存（含购物车中已有的数量）
+        if (state.unitsInStock() < existingQuantity + quantity) {
+            throw new BusinessException("商品库存不足，当前库存: " + state.unitsInStock());
+        }
+
+        Long cartId = state.cartId();
+        if (cartId == null) {
+            cartId = insertReturningId(CREATE_CART_SQL, customerId);
+            if (cartId == null) {
+                // 并发请求已建好活跃购物车
+                cartId = jdbcTemplate.queryForObject(SELECT_CART_ID_SQL, Long.class, customerId);
+            }
+        } else if (!Cart.CartStatus.ACTIVE.name().equals(state.cartStatus())) {
+            reactivate(cartId, state.cartStatus());
+        }
+
+        Long itemId;
+        int itemQuantity;
+        BigDecimal unitPrice;
+        LocalDateTime dateAdded;
+        // 持有购物车行锁，商品项只会被未加锁的单项删除并发移除，此时按新商品项插入
+        if (hasItem && jdbcTemplate.update(INCREMENT_CART_ITEM_SQL,
+                quantity, quantity, quantity, state.itemId(), cartId) > 0) {
+            itemId = state.itemId();
+            itemQuantity = existingQuantity + quantity;
+            unitPrice = state.itemUnitPrice();
+            dateAdded = state.itemDateAdded();
+        } else {
+            itemId = insertReturningId(UPSERT_CART_ITEM_SQL, cartId, productId, quantity, state.unitPrice());
+            if (itemId == null) {
+                throw new BusinessException("添加购物车失败");
+            }
+            itemQuantity = quantity;
+            unitPrice = state.unitPrice();
+            dateAdded = LocalDateTime.now();
+            jdbcTemplate.update(APPLY_CART_DELTA_SQL, productId, quantity, quantity, customerId);
+        }
+
+        return CartItemDTO.builder()
+                .id(itemId)
+                .cartId(cartId)
+                .productId(productId)
+                .quantity(itemQuantity)
+                .unitPrice(unitPrice)
+                .subtotal(unitPrice.multiply(BigDecimal.valueOf(itemQuantity)))
+                .dateAdded(dateAdded)
+                .lastUpdated(LocalDateTime.now())
+                .productName(state.name())
+                .productSku(state.sku())
+                .productImageUrl(state.imageUrl())
+                .productDescription(state.description())
+                .unitsInStock(state.unitsInStock())
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public CartItemDTO updateItem(Long customerId, Long cartItemId, int quantity) {
+        CartItem cartItem = findOwnedItem(customerId, cartItemId);
+
+        // 检查库存
+        Product product = productRepository.findById(cartItem.getProductId())
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Product", "id", cartItem.getProductId()));
+
+        if (product.getUnitsInStock() < quantity) {
+            throw new BusinessException("商品库存不足，当前库存: " + product.getUnitsInStock());
+        }
+
+        int quantityDelta = quantity - cartItem.getQuantity();
+        cartItem.setQuantity(quantity);
+        CartItem saved = cartItemRepository.save(cartItem);
+
+        // 按增量更新购物车总计
+        cartRepository.applyTotalsDelta(saved.getCartId(), quantityDelta,
+                saved.getUnitPrice().multiply(BigDecimal.valueOf(quantityDelta)));
+
+        return cartMapper.toCartItemDTO(saved);
+    }
+
+    @Override
+    @Transactional
+    public void removeItem(Long customerId, Long cartItemId) {
+        CartItem cartItem = findOwnedItem(customerId, cartItemId);
+
+        cartItemRepository.delete(cartItem);
+
+        // 按增量更新购物车总计
+        cartRepository.applyTotalsDelta(cartItem.getCartId(), -cartItem.getQuantity(),
+                cartItem.getUnitPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())).negate());
+    }
+
+    /**
+     * 先锁定购物车行，同一客户的并发批量操作串行执行，基于最新的商品项数量计算最终数量；
+     * 再一次查询取得所有涉及商品的库存和本客户购物车中的商品项（同时完成归属校验），
+     * 校验通过后批量删除、批量写入最终数量，最后重算一次总计
+     */
+    @Override
+    @Transactional
+    public List<CartItemDTO> applyBatch(Long customerId, List<CartBatchRequest.Operation> operations) {
+        // 锁定读不建立快照，随后的普通读取看到的是取得锁之后已提交的商品项
+        jdbcTemplate.queryForList(LOCK_CART_SQL, customerId);
+
+        Set<Long> productIds = CartBatch.productIds(operations);
+        Set<Long> cartItemIds = CartBatch.cartItemIds(operations);
+
+        List<Object> args = new ArrayList<>();
+        args.add(customerId);
+        args.addAll(productIds);
+        args.addAll(cartItemIds);
+        String sql = String.format(BATCH_STATE_SQL, placeholders(productIds.size()), placeholders(cartItemIds.size()));
+
+        Map<Long, Integer> unitsInStock = new HashMap<>();
+        Map<Long, Integer> quantities = new HashMap<>();
+        Map<Long, Long> itemProducts = new HashMap<>();
+        Map<Long, Long> productItems = new HashMap<>();
+        Long[] cartId = new Long[1];
+        String[] cartStatus = new String[1];
+        jdbcTemplate.query(sql, rs -> {
+            long productId = rs.getLong("product_id");
+            unitsInStock.put(productId, rs.getInt("units_in_stock"));
+            cartId[0] = rs.getObject("cart_id", Long.class);
+            cartStatus[0] = rs.getString("cart_status");
+            Long itemId = rs.getObject("item_id", Long.class);
+            // 已下单购物车中的旧商品项视为不存在；已放弃购物车的商品项重新启用后保留
+            if (itemId != null && !isConverted(cartStatus[0])) {
+                itemProducts.put(itemId, productId);
+                productItems.put(productId, itemId);
+                quantities.put(productId, rs.getInt("quantity"));
+            }
+        }, args.toArray());
+
+        Map<Long, Integer> result = CartBatch.apply(operations, itemProducts, quantities);
+        CartBatch.checkStock(result, quantities, unitsInStock);
+
+        boolean adding = result.values().stream().anyMatch(quantity -> quantity > 0);
+        if (adding && cartId[0] == null) {
+            jdbcTemplate.update(CREATE_CART_SQL, customerId);
+        } else if (cartId[0] != null && !result.isEmpty() && !Cart.CartStatus.ACTIVE.name().equals(cartStatus[0])) {
+            // 修改已放弃购物车中保留的商品项时同样重新启用
+            reactivate(cartId[0], cartStatus[0]);
+        }
+
+        List<Long> removed = new ArrayList<>();
+        List<Map.Entry<Long, Integer>> changed = new ArrayList<>();
+        result.forEach((productId, quantity) -> {
+            if (quantity == 0) {
+                if (productItems.containsKey(productId)) {
+                    removed.add(productItems.get(productId));
+                }
+            } else if (!quantity.equals(quantities.get(productId))) {
+                changed.add(Map.entry(productId, quantity));
+            }
+        });
+        if (!removed.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_CART_ITEM_SQL, removed, removed.size(),
+                    (ps, itemId) -> ps.setLong(1, itemId));
+        }
+        if (!changed.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET_CART_ITEM_SQL, changed, changed.size(), (ps, change) -> {
+                ps.setInt(1, change.getValue());
+                ps.setLong(2, change.getKey());
+                ps.setLong(3, customerId);
+            });
+        }
+        if (!removed.isEmpty() || !changed.isEmpty()) {
+            jdbcTemplate.update(RECOMPUTE_TOTALS_SQL, customerId);
+        }
+
+        return getItems(customerId);
+    }
+
+    /**
+     * 先锁定购物车行，与同一客户的其他扣除和批量操作串行执行；只修改活跃购物车
+     */
+    @Override
+    @Transactional
+    public void subtractItems(Long customerId, Map<Long, Integer> quantities) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(LOCK_CART_SQL, customerId);
+        if (quantities.isEmpty() || rows.isEmpty()
+                || !Cart.CartStatus.ACTIVE.name().equals(rows.get(0).get("status"))) {
+            return;
+        }
+        long cartId = ((Number) rows.get(0).get("id")).longValue();
+
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(quantities.entrySet());
+        jdbcTemplate.batchUpdate(SUBTRACT_CART_ITEM_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, cartId);
+            ps.setLong(3, entry.getKey());
+        });
+        jdbcTemplate.update(DELETE_EMPTY_CART_ITEMS_SQL, cartId);
+        jdbcTemplate.update(RECOMPUTE_TOTALS_SQL, customerId);
+    }
+
+    @Override
+    @Transactional
+    public void clear(Long customerId) {
+        // 删除商品项并重置总计，不论商品项多少都只发两次请求
+        jdbcTemplate.update(CLEAR_CART_ITEMS_SQL, customerId);
+        jdbcTemplate.update(RESET_CART_TOTALS_SQL, customerId);
+    }
+
+    /**
+     * 每次修改都已直接写入数据库
+     */
+    @Override
+    public void flush(Long customerId) {
+    }
+
+    /**
+     * 重新启用非活跃的购物车（调用方已持有该购物车行锁）：
+     * 已放弃的保留商品项和总计，已下单的清掉旧商品项
+     */
+    private void reactivate(Long cartId, String status) {
+        if (isConverted(status)) {
+            jdbcTemplate.update(RESET_CART_SQL, cartId);
+            jdbcTemplate.update(DELETE_CART_ITEMS_SQL, cartId);
+        } else {
+            jdbcTemplate.update(REACTIVATE_CART_SQL, cartId);
+        }
+    }
+
+    /**
+     * 执行插入并返回生成键；ON DUPLICATE KEY UPDATE 走更新分支时驱动可能返回多个键，取第一个（即 LAST_INSERT_ID），
+     * 更新分支没有改动任何列时不返回键，此时返回 null
+     */
+    private Long insertReturningId(String sql, Object... args) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            return ps;
+        }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        return keys.isEmpty() ? null : ((Number) keys.get(0).values().iterator().next()).longValue();
+    }
+
+    private static boolean isConverted(String status) {
+        return Cart.CartStatus.CONVERTED.name().equals(status);
+    }
+
+    private static String placeholders(int count) {
+        // 空列表时用 NULL，IN (NULL) 不匹配任何行
+        return count == 0 ? "NULL" : String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * 查找商品项并验证购物车属于该客户
+     */
+    private CartItem findOwnedItem(Long customerId, Long cartItemId) {
+        CartItem cartItem = cartItemRepository.findById(cartItemId)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "CartItem", "id", cartItemId));
+
+        Cart cart = cartRepository.findById(cartItem.getCartId())
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Cart", "id", cartItem.getCartId()));
+
+        if (!cart.getCustomerId().equals(customerId)) {
+            throw new BusinessException("无权限操作此购物车");
+        }
+        return cartItem;
+    }
+}
@@ -20,6 +20,7 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.yiqixue.secomm.security.AuthTokenFilter;
 import org.yiqixue.secomm.security.UserDetailsServiceImpl;
 import org.yiqixue.secomm.security.JwtUtils;
+import org.yiqixue.secomm.security.LegacyPrincipalCache;
 
 import java.util.Arrays;
 
@@ -31,10 +32,11 @@ public class SecurityConfig {
 
     private final UserDetailsServiceImpl userDetailsService;
     private final JwtUtils jwtUtils;
+    private final LegacyPrincipalCache legacyPrincipalCache;
 
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
-        return new AuthTokenFilter(jwtUtils, userDetailsService);
+        return new AuthTokenFilter(jwtUtils, userDetailsService, legacyPrincipalCache);
     }
 
     @Bean
@@ -1,13 +1,34 @@
 package org.yiqixue.secomm.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.yiqixue.secomm.service.ImageStorageService;
 
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 默认资源处理链；app.static-files.zero-copy=false 时启用，否则由 StaticFileController 处理
+ */
 @Configuration
+@ConditionalOnProperty(name = "app.static-files.zero-copy", havingValue = "false")
 public class Webconfig implements WebMvcConfigurer {
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // 内容寻址的图片：URL 随内容变化，永久缓存，文件名（内容哈希）即强 ETag
+        registry.addResourceHandler(ImageStorageService.BLOB_URL_PREFIX + "**")
+                .addResourceLocations("file:uploads/images/blobs/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .setUseLastModified(false)
+                .setEtagGenerator(resource -> {
+                    String filename = resource.getFilename();
+                    int dot = filename != null ? filename.indexOf('.') : -1;
+                    return dot > 0 ? filename.substring(0, dot) : filename;
+                })
+                .resourceChain(true);
+
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:uploads/")
                 .setCachePeriod(3600)
@@ -10,7 +10,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.yiqixue.secomm.dto.*;
-import org.yiqixue.secomm.entity.Customer;
 import org.yiqixue.secomm.security.UserPrincipal;
 import org.yiqixue.secomm.service.CartService;
 import org.yiqixue.secomm.service.CustomerService;
@@ -42,9 +41,9 @@ public class CartController {
         
         log.info("API调用 - 获取购物车: 用户ID={}", userPrincipal.getId());
 
-        Customer customer = customerService.getCustomerByUserId(userPrincipal.getId());
+        Long customerId = customerService.getCustomerId(userPrincipal);
 
-        CartDTO cart = cartService.getCartByCustomerId(customer.getId());
+        CartDTO cart = cartService.getCartByCustomerId(customerId);
 
         return ResponseEntity.ok(ApiResponse.success(cart));
     }
@@ -59,11 +58,11 @@ public class CartController {
         
         log.info("API调用 - 获取购物车商品项: 用户ID={}", userPrincipal.getId());
 
-        Customer customer = customerService.getCustomerByUserId(userPrincipal.getId());
+        Long customerId = customerService.getCustomerId(userPrincipal);
 
-//        CartItemDTO cartItem = cartService.addToCart(customer.getId(), request);
+//        CartItemDTO cartItem = cartService.addToCart(customerId, request);
 
-        List<CartItemDTO> cartItems = cartService.getCartItems(customer.getId());
+        List<CartItemDTO> cartItems = cartService.getCartItems(customerId);
 
         return ResponseEntity.ok(ApiResponse.success(cartItems));
     }
@@ -79,9 +78,9 @@ public class CartController {
         
         log.info("API调用 - 添加商品到购物车: 用户ID={}, 商品ID={}, 数量={}", 
                 userPrincipal.getId(), request.getProductId(), request.getQuantity());
-        Customer customer = customerService.getCustomerByUserId(userPrincipal.getId());
+        Long customerId = customerService.getCustomerId(userPrincipal);
 
-        CartItemDTO cartItem = cartService.addToCart(customer.getId(), request);
+        CartItemDTO cartItem = cartService.addToCart(customerId, request);
 
         return ResponseEntity.ok(ApiResponse.success(cartItem));
     }
@@ -100,12 +99,12 @@ public class CartController {
         log.info("API调用 - 更新购物车商品项: 用户ID={}, 商品项ID={}, 新数量={}", 
                 userPrincipal.getId(), cartItemId, request.getQuantity());
 
-        Customer customer = customerService.getCustomerByUserId(userPrincipal.getId());
+        Long customerId = customerService.getCustomerId(userPrincipal);
 
-//        CartItemDTO cartItem = cartService.addToCart(customer.getId(), request);
+//        CartItemDTO cartItem = cartService.addToCart(customerId, request);
 
         CartItemDTO cartItem = cartService.updateCartItem(
-                customer.getId(), cartItemId, request);
+                customerId, cartItemId, request);
 
         return ResponseEntity.ok(ApiResponse.success(cartItem));
     }
@@ -123,15 +122,34 @@ public class CartController {
         log.info("API调用 - 移除购物车商品: 用户ID={}, 商品项ID={}", 
                 userPrincipal.getId(), cartItemId);
 
-        Customer customer = customerService.getCustomerByUserId(userPrincipal.getId());
+        Long customerId = customerService.getCustomerId(userPrincipal);
 
-//        CartItemDTO cartItem = cartService.addToCart(customer.getId(), request);
+//        CartItemDTO cartItem = cartService.addToCart(customerId, request);
 
-        cartService.removeFromCart(customer.getId(), cartItemId);
+        cartService.removeFromCart(customerId, cartItemId);
 
         return ResponseEntity.ok(ApiResponse.success(null, "商品已从购物车中移除"));
     }
 
+    /**
+     * 批量修改购物车
+     */
+    @PostMapping("/batch")
+    @Operation(summary = "批量修改购物车", description = "按顺序应用一批加入/修改/移除操作，全部成功或全部不生效，返回修改后的商品项")
+    public ResponseEntity<ApiResponse<List<CartItemDTO>>> applyBatch(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Valid @RequestBody CartBatchRequest request) {
+
+        log.info("API调用 - 批量修改购物车: 用户ID={}, 操作数={}",
+                userPrincipal.getId(), request.getOperations().size());
+
+        Long customerId = customerService.getCustomerId(userPrincipal);
+
+        List<CartItemDTO> cartItems = cartService.applyBatch(customerId, request);
+
+        return ResponseEntity.ok(ApiResponse.success(cartItems));
+    }
+
     /**
      * 清空购物车
      */
@@ -142,11 +160,11 @@ public class CartController {
         
         log.info("API调用 - 清空购物车: 用户ID={}", userPrincipal.getId());
 
-        Customer customer = customerService.getCustomerByUserId(userPrincipal.getId());
+        Long customerId = customerService.getCustomerId(userPrincipal);
 
-//        CartItemDTO cartItem = cartService.addToCart(customer.getId(), request);
+//        CartItemDTO cartItem = cartService.addToCart(customerId, request);
 
-        cartService.clearCart(customer.getId());
+        cartService.clearCart(customerId);
 
         return ResponseEntity.ok(ApiResponse.success(null, "购物车已清空"));
     }
@@ -0,0 +1,64 @@
+package org.yiqixue.secomm.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.yiqixue.secomm.dto.ApiResponse;
+import org.yiqixue.secomm.dto.FlashSaleStatusDTO;
+import org.yiqixue.secomm.service.FlashSaleService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/flash-sales")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "秒杀管理", description = "开启/结束商品秒杀模式")
+@CrossOrigin(origins = "http://localhost:5173")
+public class FlashSaleController {
+
+    private final FlashSaleService flashSaleService;
+
+    /**
+     * 获取进行中的秒杀
+     */
+    @GetMapping
+    @Operation(summary = "获取进行中的秒杀", description = "返回各秒杀商品的预载库存和内存剩余库存")
+    public ResponseEntity<ApiResponse<List<FlashSaleStatusDTO>>> getActiveSales() {
+        log.info("API调用 - 获取进行中的秒杀");
+        return ResponseEntity.ok(ApiResponse.success(flashSaleService.getActiveSales()));
+    }
+
+    /**
+     * 开启秒杀
+     */
+    @PostMapping("/{productId}")
+    @Operation(summary = "开启秒杀", description = "把商品库存预载到内存计数器，结账不再锁商品行")
+    public ResponseEntity<ApiResponse<FlashSaleStatusDTO>> start(
+            @Parameter(description = "商品ID")
+            @PathVariable Long productId,
+
+            @Parameter(description = "预载库存，不传时使用全部库存")
+            @RequestParam(required = false) Integer stock) {
+
+        log.info("API调用 - 开启秒杀: productId={}, stock={}", productId, stock);
+        return ResponseEntity.ok(ApiResponse.success("秒杀已开启", flashSaleService.start(productId, stock)));
+    }
+
+    /**
+     * 结束秒杀
+     */
+    @DeleteMapping("/{productId}")
+    @Operation(summary = "结束秒杀", description = "已售数量刷回数据库，后续结账回到数据库扣减")
+    public ResponseEntity<ApiResponse<FlashSaleStatusDTO>> stop(
+            @Parameter(description = "商品ID")
+            @PathVariable Long productId) {
+
+        log.info("API调用 - 结束秒杀: productId={}", productId);
+        return ResponseEntity.ok(ApiResponse.success("秒杀已结束", flashSaleService.stop(productId)));
+    }
+}
@@ -0,0 +1,47 @@
+package org.yiqixue.secomm.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.yiqixue.secomm.dto.ApiResponse;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 运行时指标控制器
+ * 汇总缓存、后台任务等组件的运行指标
+ */
+@RestController
+@RequestMapping("/api/admin/metrics")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "运行指标", description = "缓存命中率、后台队列等运行时指标")
+@CrossOrigin(origins = "http://localhost:5173")
+public class MetricsController {
+
+    private final List<MetricsProvider> metricsProviders;
+
+    /**
+     * 获取所有组件的运行指标
+     *
+     * GET /api/admin/metrics
+     */
+    @GetMapping
+    @Operation(summary = "获取运行指标", description = "获取所有组件的运行时指标快照")
+    public ResponseEntity<ApiResponse<Map<String, Map<String, Object>>>> getMetrics() {
+        log.info("API调用 - 获取运行指标");
+
+        Map<String, Map<String, Object>> metrics = new TreeMap<>();
+        for (MetricsProvider provider : metricsProviders) {
+            metrics.put(provider.getMetricsName(), provider.getMetrics());
+        }
+
+        return ResponseEntity.ok(ApiResponse.success(metrics));
+    }
+}
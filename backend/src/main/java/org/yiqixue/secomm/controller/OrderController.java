@@ -5,14 +5,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.yiqixue.secomm.cache.IdempotencyStore;
 import org.yiqixue.secomm.dto.ApiResponse;
 import org.yiqixue.secomm.dto.CheckoutRequest;
+import org.yiqixue.secomm.dto.CountMode;
 import org.yiqixue.secomm.dto.OrderDTO;
 import org.yiqixue.secomm.dto.PageResponse;
-import org.yiqixue.secomm.entity.Customer;
+import org.yiqixue.secomm.dto.StockHoldDTO;
 import org.yiqixue.secomm.security.UserPrincipal;
 import org.yiqixue.secomm.service.CustomerService;
 import org.yiqixue.secomm.service.OrderService;
+import org.yiqixue.secomm.service.StockReservationService;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -21,26 +24,76 @@ import org.yiqixue.secomm.service.OrderService;
 @CrossOrigin(origins = "http://localhost:5173")
 public class OrderController {
 
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 128;
+
     private final OrderService orderService;
 
     private final CustomerService customerService;
 
+    private final StockReservationService stockReservationService;
+
+    private final IdempotencyStore idempotencyStore;
+
     /**
      * 结算购物车，创建订单
+     * 携带 Idempotency-Key 时，同一客户同一个键只下单一次，重试返回首次创建的订单
      */
     @PostMapping("/checkout")
     public ResponseEntity<ApiResponse<OrderDTO>> checkout(
             @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody CheckoutRequest request) {
         
-        log.info("API调用 - 结算: 用户ID={}, 总金额={}", 
-                userPrincipal.getId(), request.getTotalAmount());
+        log.info("API调用 - 结算: 用户ID={}, 总金额={}, 幂等键={}", 
+                userPrincipal.getId(), request.getTotalAmount(), idempotencyKey);
+
+        Long customerId = customerService.getCustomerId(userPrincipal);
+
+        OrderDTO order;
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            order = orderService.createOrderFromCart(customerId, request);
+        } else {
+            if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                throw new IllegalArgumentException("Idempotency-Key 长度不能超过 " + MAX_IDEMPOTENCY_KEY_LENGTH);
+            }
+            order = idempotencyStore.execute("checkout:" + customerId + ":" + idempotencyKey, request,
+                    () -> orderService.createOrderFromCart(customerId, request));
+        }
+
+        return ResponseEntity.ok(ApiResponse.success("订单创建成功", order));
+    }
 
-        Customer customer = customerService.getCustomerByUserId(userPrincipal.getId());
+    /**
+     * 开始结算：按购物车预留库存，到期未下单自动归还
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<ApiResponse<StockHoldDTO>> holdStock(
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
 
-        OrderDTO order = orderService.createOrderFromCart(customer.getId(), request);
+        log.info("API调用 - 预留库存: 用户ID={}", userPrincipal.getId());
 
-        return ResponseEntity.ok(ApiResponse.success("订单创建成功", order));
+        Long customerId = customerService.getCustomerId(userPrincipal);
+
+        StockHoldDTO hold = stockReservationService.hold(customerId);
+
+        return ResponseEntity.ok(ApiResponse.success("库存预留成功", hold));
+    }
+
+    /**
+     * 放弃结算，立即归还预留的库存
+     */
+    @DeleteMapping("/holds/{reservationId}")
+    public ResponseEntity<ApiResponse<Void>> cancelHold(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable String reservationId) {
+
+        log.info("API调用 - 取消库存预留: 用户ID={}, 预留ID={}", userPrincipal.getId(), reservationId);
+
+        Long customerId = customerService.getCustomerId(userPrincipal);
+
+        stockReservationService.cancel(customerId, reservationId);
+
+        return ResponseEntity.ok(ApiResponse.success("库存预留已取消", null));
     }
 
     /**
@@ -52,14 +105,15 @@ public class OrderController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "dateCreated") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "true") String count) {
         
-        log.info("API调用 - 获取用户订单: 用户ID={}, page={}, size={}", 
-                userPrincipal.getId(), page, size);
+        log.info("API调用 - 获取用户订单: 用户ID={}, page={}, size={}, count={}", 
+                userPrincipal.getId(), page, size, count);
 
-        Customer customer = customerService.getCustomerByUserId(userPrincipal.getId());
+        Long customerId = customerService.getCustomerId(userPrincipal);
 
-        PageResponse<OrderDTO> orders = orderService.getUserOrders(customer.getId(), page, size, sortBy, sortDir);
+        PageResponse<OrderDTO> orders = orderService.getUserOrders(customerId, page, size, sortBy, sortDir, CountMode.of(count));
 
         return ResponseEntity.ok(ApiResponse.success(orders));
     }
@@ -75,9 +129,9 @@ public class OrderController {
         log.info("API调用 - 获取订单详情: 用户ID={}, 订单ID={}", 
                 userPrincipal.getId(), orderId);
 
-        Customer customer = customerService.getCustomerByUserId(userPrincipal.getId());
+        Long customerId = customerService.getCustomerId(userPrincipal);
 
-        OrderDTO order = orderService.getUserOrderById(customer.getId(), orderId);
+        OrderDTO order = orderService.getUserOrderById(customerId, orderId);
 
         return ResponseEntity.ok(ApiResponse.success(order));
     }
@@ -92,14 +146,15 @@ public class OrderController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "dateCreated") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "true") String count) {
         
-        log.info("API调用 - 按状态获取用户订单: 用户ID={}, 状态={}, page={}, size={}", 
-                userPrincipal.getId(), status, page, size);
+        log.info("API调用 - 按状态获取用户订单: 用户ID={}, 状态={}, page={}, size={}, count={}", 
+                userPrincipal.getId(), status, page, size, count);
 
-        Customer customer = customerService.getCustomerByUserId(userPrincipal.getId());
+        Long customerId = customerService.getCustomerId(userPrincipal);
 
-        PageResponse<OrderDTO> orders = orderService.getUserOrdersByStatus(customer.getId(), status, page, size, sortBy, sortDir);
+        PageResponse<OrderDTO> orders = orderService.getUserOrdersByStatus(customerId, status, page, size, sortBy, sortDir, CountMode.of(count));
 
         return ResponseEntity.ok(ApiResponse.success(orders));
     }
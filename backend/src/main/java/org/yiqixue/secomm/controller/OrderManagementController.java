@@ -42,12 +42,17 @@ public class OrderManagementController {
             @RequestParam(defaultValue = "dateCreated") String sortBy,
             
             @Parameter(description = "排序方向：asc或desc")
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+
+            @Parameter(description = "游标（传入时启用游标分页，首页传空字符串）")
+            @RequestParam(required = false) String after) {
 
-        log.info("API调用 - 管理员获取所有订单: page={}, size={}, sortBy={}, sortDir={}", 
-                page, size, sortBy, sortDir);
+        log.info("API调用 - 管理员获取所有订单: page={}, size={}, sortBy={}, sortDir={}, after={}", 
+                page, size, sortBy, sortDir, after);
 
-        PageResponse<OrderDTO> orders = orderManagementService.getAllOrders(page, size, sortBy, sortDir);
+        PageResponse<OrderDTO> orders = after != null
+                ? orderManagementService.scrollAllOrders(after, size, sortBy, sortDir)
+                : orderManagementService.getAllOrders(page, size, sortBy, sortDir);
 
         return ResponseEntity.ok(ApiResponse.success(orders));
     }
@@ -9,13 +9,23 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.yiqixue.secomm.dto.ApiResponse;
+import org.yiqixue.secomm.dto.CountMode;
 import org.yiqixue.secomm.dto.PageResponse;
 import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.dto.ProductFilterResponse;
+import org.yiqixue.secomm.dto.ProductSuggestionDTO;
+import org.yiqixue.secomm.dto.ProductImportReport;
 import org.yiqixue.secomm.dto.ProductUpdateRequest;
+import org.yiqixue.secomm.search.ProductFacetIndex;
+import org.yiqixue.secomm.search.ProductSuggestIndex;
+import org.yiqixue.secomm.service.ProductImportService;
 import org.yiqixue.secomm.service.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.MediaType;
 import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * 商品控制器
@@ -30,11 +40,15 @@ import java.math.BigDecimal;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductSuggestIndex productSuggestIndex;
 
     /**
      * 获取所有激活商品（分页）
      *
      * GET /api/products?page=0&size=10&sortBy=name&sortDir=asc
+     * 游标模式：GET /api/products?after=&size=10，后续页传入上一页返回的 nextCursor
+     * 无限滚动：GET /api/products?page=0&size=10&count=false
      */
     @GetMapping
     @Operation(summary = "获取所有商品", description = "分页获取所有激活状态的商品")
@@ -49,13 +63,20 @@ public class ProductController {
             @RequestParam(defaultValue = "name") String sortBy,
 
             @Parameter(description = "排序方向：asc或desc")
-            @RequestParam(defaultValue = "asc") String sortDir) {
+            @RequestParam(defaultValue = "asc") String sortDir,
 
-        log.info("API调用 - 获取所有商品: page={}, size={}, sortBy={}, sortDir={}",
-                page, size, sortBy, sortDir);
+            @Parameter(description = "游标（传入时启用游标分页，首页传空字符串）")
+            @RequestParam(required = false) String after,
 
-        PageResponse<ProductDTO> products = productService
-                .getAllActiveProducts(page, size, sortBy, sortDir);
+            @Parameter(description = "是否统计总数：true 精确统计，false 不统计（无限滚动），approx 返回近似总数")
+            @RequestParam(defaultValue = "true") String count) {
+
+        log.info("API调用 - 获取所有商品: page={}, size={}, sortBy={}, sortDir={}, after={}, count={}",
+                page, size, sortBy, sortDir, after, count);
+
+        PageResponse<ProductDTO> products = after != null
+                ? productService.scrollActiveProducts(after, size, sortBy, sortDir)
+                : productService.getAllActiveProducts(page, size, sortBy, sortDir, CountMode.of(count));
 
         return ResponseEntity.ok(ApiResponse.success(products));
     }
@@ -81,13 +102,20 @@ public class ProductController {
             @RequestParam(defaultValue = "name") String sortBy,
 
             @Parameter(description = "排序方向")
-            @RequestParam(defaultValue = "asc") String sortDir) {
+            @RequestParam(defaultValue = "asc") String sortDir,
 
-        log.info("API调用 - 按分类获取商品: categoryId={}, page={}, size={}",
-                categoryId, page, size);
+            @Parameter(description = "游标（传入时启用游标分页，首页传空字符串）")
+            @RequestParam(required = false) String after,
 
-        PageResponse<ProductDTO> products = productService
-                .getProductsByCategory(categoryId, page, size, sortBy, sortDir);
+            @Parameter(description = "是否统计总数：true 精确统计，false 不统计（无限滚动），approx 返回近似总数")
+            @RequestParam(defaultValue = "true") String count) {
+
+        log.info("API调用 - 按分类获取商品: categoryId={}, page={}, size={}, after={}, count={}",
+                categoryId, page, size, after, count);
+
+        PageResponse<ProductDTO> products = after != null
+                ? productService.scrollProductsByCategory(categoryId, after, size, sortBy, sortDir)
+                : productService.getProductsByCategory(categoryId, page, size, sortBy, sortDir, CountMode.of(count));
 
         return ResponseEntity.ok(ApiResponse.success(products));
     }
@@ -136,6 +164,70 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(products));
     }
 
+    /**
+     * 搜索框输入联想
+     *
+     * GET /api/products/suggest?prefix=cof&limit=10
+     */
+    @GetMapping("/suggest")
+    @Operation(summary = "输入联想", description = "按名称或SKU前缀返回销量最高的商品，由内存前缀树提供")
+    public ResponseEntity<ApiResponse<List<ProductSuggestionDTO>>> suggestProducts(
+            @Parameter(description = "已输入的前缀")
+            @RequestParam String prefix,
+
+            @Parameter(description = "返回条数")
+            @RequestParam(defaultValue = "10") int limit) {
+
+        List<ProductSuggestionDTO> suggestions = productSuggestIndex.suggest(prefix, limit);
+
+        return ResponseEntity.ok(ApiResponse.success(suggestions));
+    }
+
+    /**
+     * 分面筛选商品
+     *
+     * GET /api/products/filter?categoryIds=1,2&minPrice=0&maxPrice=50&inStock=true&page=0&size=10
+     */
+    @GetMapping("/filter")
+    @Operation(summary = "分面筛选商品", description = "按分类、价格区间、库存和上架状态筛选商品，并返回各分面计数")
+    public ResponseEntity<ApiResponse<ProductFilterResponse>> filterProducts(
+            @Parameter(description = "分类ID，多个分类之间为“或”")
+            @RequestParam(required = false) List<Long> categoryIds,
+
+            @Parameter(description = "最低价格（含）")
+            @RequestParam(required = false) BigDecimal minPrice,
+
+            @Parameter(description = "最高价格（含）")
+            @RequestParam(required = false) BigDecimal maxPrice,
+
+            @Parameter(description = "是否有货，不传表示不限")
+            @RequestParam(required = false) Boolean inStock,
+
+            @Parameter(description = "是否上架，默认只返回上架商品")
+            @RequestParam(required = false, defaultValue = "true") Boolean active,
+
+            @Parameter(description = "页码")
+            @RequestParam(defaultValue = "0") int page,
+
+            @Parameter(description = "每页大小")
+            @RequestParam(defaultValue = "10") int size,
+
+            @Parameter(description = "排序字段：id、name、unitPrice、dateCreated")
+            @RequestParam(defaultValue = "name") String sortBy,
+
+            @Parameter(description = "排序方向：asc或desc")
+            @RequestParam(defaultValue = "asc") String sortDir) {
+
+        log.info("API调用 - 分面筛选商品: categoryIds={}, price={}~{}, inStock={}, active={}, page={}, size={}",
+                categoryIds, minPrice, maxPrice, inStock, active, page, size);
+
+        ProductFacetIndex.Query query = new ProductFacetIndex.Query(
+                categoryIds, minPrice, maxPrice, inStock, active);
+        ProductFilterResponse response = productService.filterProducts(query, page, size, sortBy, sortDir);
+
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
     /**
      * 根据SKU获取商品
      *
@@ -223,6 +315,31 @@ public class ProductController {
         }
     }
 
+    /**
+     * 批量导入商品（流式读取请求体，按SKU新增或更新）
+     *
+     * POST /api/products/import  Content-Type: text/csv 或 application/x-ndjson
+     * CSV 首行为表头：sku,name,description,unitPrice,unitsInStock,categoryId,categoryName,active,imageUrl
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    @Operation(summary = "批量导入商品", description = "流式导入 CSV 或 NDJSON 文件，返回每行的失败原因和吞吐量")
+    public ResponseEntity<ApiResponse<ProductImportReport>> importProducts(
+            @Parameter(description = "文件格式：csv 或 ndjson，默认按 Content-Type 判断")
+            @RequestParam(required = false) String format,
+
+            HttpServletRequest request) throws IOException {
+
+        boolean ndjson = format != null
+                ? format.equalsIgnoreCase("ndjson")
+                : request.getContentType() != null && request.getContentType().contains("ndjson");
+
+        log.info("API调用 - 批量导入商品: format={}", ndjson ? "ndjson" : "csv");
+
+        ProductImportReport report = productImportService.importProducts(request.getInputStream(), ndjson);
+
+        return ResponseEntity.ok(ApiResponse.success("商品导入完成", report));
+    }
+
     /**
      * 删除商品
      *
@@ -47,11 +47,19 @@ public class ProductReviewController {
             @RequestParam(defaultValue = "dateCreated") String sortBy,
             
             @Parameter(description = "排序方向：asc或desc")
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+
+            @Parameter(description = "游标（传入时启用游标分页，首页传空字符串）")
+            @RequestParam(required = false) String after,
+
+            @Parameter(description = "是否统计总数：true 精确统计，false 不统计（无限滚动），approx 返回近似总数")
+            @RequestParam(defaultValue = "true") String count) {
 
-        log.info("API调用 - 获取产品评价: productId={}, page={}, size={}", productId, page, size);
+        log.info("API调用 - 获取产品评价: productId={}, page={}, size={}, after={}, count={}", productId, page, size, after, count);
 
-        PageResponse<ProductReviewDTO> reviews = reviewService.getProductReviews(productId, page, size, sortBy, sortDir);
+        PageResponse<ProductReviewDTO> reviews = after != null
+                ? reviewService.scrollProductReviews(productId, after, size, sortBy, sortDir)
+                : reviewService.getProductReviews(productId, page, size, sortBy, sortDir, CountMode.of(count));
 
         return ResponseEntity.ok(ApiResponse.success(reviews));
     }
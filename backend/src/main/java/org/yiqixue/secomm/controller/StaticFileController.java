@@ -0,0 +1,322 @@
+package org.yiqixue.secomm.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriUtils;
+import org.yiqixue.secomm.service.ImageStorageService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 静态文件服务（商品图片）
+ * 替代默认资源处理链：优先使用 Tomcat sendfile 由内核直接发送文件，不支持时用 FileChannel.transferTo；
+ * 支持 Range、If-Range、If-None-Match，客户端接受时返回预生成的 .br/.gz 或 WebP 版本
+ * 设置 app.static-files.zero-copy=false 可切回默认资源处理链（用于对比压测）
+ */
+@RestController
+@ConditionalOnProperty(name = "app.static-files.zero-copy", havingValue = "true", matchIfMissing = true)
+public class StaticFileController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final Path UPLOADS_ROOT = Paths.get("uploads").toAbsolutePath().normalize();
+    private static final String CLASSPATH_IMAGES = "static/images/products/";
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String DEFAULT_CACHE_CONTROL = "public, max-age=3600";
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "webp", "image/webp",
+            "svg", "image/svg+xml");
+
+    /**
+     * 待发送的文件表示
+     *
+     * @param file 磁盘文件（类路径资源在 jar 内时为 null）
+     * @param classpathResource 类路径资源（仅当 file 为 null 时使用）
+     * @param contentEncoding 预压缩版本的编码（br/gzip），原文件为 null
+     */
+    private record Representation(Path file, ClassPathResource classpathResource, long length,
+                                  long lastModified, String contentType, String contentEncoding, String etag) {
+    }
+
+    @RequestMapping(value = {"/uploads/**", "/images/products/**"}, method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = UriUtils.decode(request.getRequestURI().substring(request.getContextPath().length()),
+                StandardCharsets.UTF_8);
+
+        Representation representation = path.startsWith("/uploads/")
+                ? resolveUpload(path.substring("/uploads/".length()), request)
+                : resolveClasspath(path.substring("/images/products/".length()));
+        if (representation == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        boolean immutable = path.startsWith(ImageStorageService.BLOB_URL_PREFIX);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? IMMUTABLE_CACHE_CONTROL : DEFAULT_CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ETAG, representation.etag());
+        response.setHeader(HttpHeaders.VARY, "Accept, Accept-Encoding");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (!immutable) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, representation.lastModified());
+        }
+
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), representation.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long length = representation.length();
+        long start = 0;
+        long end = length - 1;
+
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), representation.etag())) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                // 直接写状态码：sendError 会转到错误页，丢掉已设置的 Content-Range 并输出错误页正文
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setContentLength(0);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        response.setContentType(representation.contentType());
+        if (representation.contentEncoding() != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, representation.contentEncoding());
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (representation.file() == null) {
+            try (InputStream in = representation.classpathResource().getInputStream()) {
+                in.skipNBytes(start);
+                OutputStream out = response.getOutputStream();
+                byte[] buffer = new byte[8192];
+                long remaining = count;
+                int read;
+                while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+            return;
+        }
+
+        // Tomcat NIO 连接器支持 sendfile 时交给容器，由内核直接从页缓存发送到 socket
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, representation.file().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(representation.file(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * 解析 uploads 下的文件，按 Accept / Accept-Encoding 选择预生成的版本
+     */
+    private Representation resolveUpload(String relativePath, HttpServletRequest request) throws IOException {
+        Path file = UPLOADS_ROOT.resolve(relativePath).normalize();
+        if (!file.startsWith(UPLOADS_ROOT) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        String extension = extensionOf(file.getFileName().toString());
+        String contentType = CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null && accept.contains("image/webp")
+                && (extension.equals("jpg") || extension.equals("jpeg") || extension.equals("png"))) {
+            Path webp = siblingWithExtension(file, "webp");
+            if (Files.isRegularFile(webp)) {
+                return fileRepresentation(webp, "image/webp", null, "webp");
+            }
+        }
+
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null) {
+            if (acceptEncoding.contains("br")) {
+                Path br = file.resolveSibling(file.getFileName() + ".br");
+                if (Files.isRegularFile(br)) {
+                    return fileRepresentation(br, contentType, "br", "br");
+                }
+            }
+            if (acceptEncoding.contains("gzip")) {
+                Path gz = file.resolveSibling(file.getFileName() + ".gz");
+                if (Files.isRegularFile(gz)) {
+                    return fileRepresentation(gz, contentType, "gzip", "gz");
+                }
+            }
+        }
+        return fileRepresentation(file, contentType, null, null);
+    }
+
+    /**
+     * 解析类路径下的商品图片；未打包（开发环境）时同样走文件通道
+     */
+    private Representation resolveClasspath(String relativePath) throws IOException {
+        if (relativePath.contains("..")) {
+            return null;
+        }
+        ClassPathResource resource = new ClassPathResource(CLASSPATH_IMAGES + relativePath);
+        if (!resource.exists() || !resource.isReadable()) {
+            return null;
+        }
+        String contentType = CONTENT_TYPES.getOrDefault(extensionOf(relativePath), "application/octet-stream");
+        if (resource.isFile()) {
+            return fileRepresentation(resource.getFile().toPath(), contentType, null, null);
+        }
+        long length = resource.contentLength();
+        long lastModified = resource.lastModified();
+        return new Representation(null, resource, length, lastModified, contentType, null,
+                "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"");
+    }
+
+    private Representation fileRepresentation(Path file, String contentType, String contentEncoding,
+                                              String variant) throws IOException {
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+        // 内容寻址文件的哈希即强 ETag，其余文件用长度和修改时间
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String tag = stem.length() >= 64 && stem.substring(0, 64).matches("[0-9a-f]{64}")
+                ? stem
+                : Long.toHexString(length) + "-" + Long.toHexString(lastModified);
+        String etag = "\"" + tag + (variant != null ? "-" + variant : "") + "\"";
+
+        return new Representation(file, null, length, lastModified, contentType, contentEncoding, etag);
+    }
+
+    /**
+     * 解析单个字节区间
+     *
+     * @return 长度为 2 的 [start, end]；多区间等不支持的格式返回空数组（按整体返回）；无法满足时返回 null
+     */
+    static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.contains(",")) {
+            return new long[0];
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // 后缀区间：最后 N 个字节
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? length - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    /**
+     * If-None-Match 使用弱比较：忽略 W/ 前缀
+     */
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-Range 使用强比较（RFC 9110 13.1.5）：弱 ETag 永不匹配；日期形式不做判断，按不匹配处理（返回完整内容）
+     *
+     * @return 未携带 If-Range 或与当前 ETag 强匹配时返回 true，此时才按 Range 返回部分内容
+     */
+    static boolean ifRangeMatches(String ifRange, String etag) {
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        return !value.startsWith("W/") && value.equals(etag);
+    }
+
+    private static Path siblingWithExtension(Path file, String extension) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return file.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + "." + extension);
+    }
+
+    private static String extensionOf(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
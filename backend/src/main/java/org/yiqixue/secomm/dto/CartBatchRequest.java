@@ -0,0 +1,54 @@
+package org.yiqixue.secomm.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 购物车批量操作请求对象
+ * 操作按顺序应用，全部成功或全部不生效
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartBatchRequest {
+
+    @NotEmpty(message = "操作列表不能为空")
+    @Size(max = 100, message = "单次最多100个操作")
+    @Valid
+    private List<Operation> operations;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Operation {
+
+        @NotNull(message = "操作类型不能为空")
+        private OperationType type;
+
+        // ADD 时必填
+        private Long productId;
+
+        // UPDATE/REMOVE 时必填
+        private Long cartItemId;
+
+        // ADD/UPDATE 时必填
+        @Min(value = 1, message = "数量必须大于0")
+        private Integer quantity;
+    }
+
+    public enum OperationType {
+        ADD,
+        UPDATE,
+        REMOVE
+    }
+}
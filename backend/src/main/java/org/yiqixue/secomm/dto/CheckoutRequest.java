@@ -14,6 +14,9 @@ public class CheckoutRequest {
     private BigDecimal totalAmount;
     
     private List<CheckoutItem> items;
+
+    // 开始结算时获得的库存预留ID，为空时下单时直接扣减库存
+    private String reservationId;
     
     @Data
     public static class CheckoutItem {
@@ -23,7 +26,7 @@ public class CheckoutRequest {
         @NotNull(message = "数量不能为空")
         private Integer quantity;
         
-        @NotNull(message = "单价不能为空")
+        // 客户端展示的单价，仅供参考；下单按商品当前价格计算
         private BigDecimal unitPrice;
     }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package org.yiqixue.secomm.dto;
+
+/**
+ * 分页总数统计模式
+ */
+public enum CountMode {
+
+    // 精确统计（额外执行一次 COUNT 查询）
+    EXACT,
+
+    // 不统计，只判断是否还有下一页（多取一行）
+    NONE,
+
+    // 返回后台定期刷新的近似总数
+    APPROX;
+
+    /**
+     * 解析请求参数 count：true/exact、false/none、approx
+     */
+    public static CountMode of(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        switch (value.trim().toLowerCase()) {
+            case "true":
+            case "exact":
+                return EXACT;
+            case "false":
+            case "none":
+                return NONE;
+            case "approx":
+                return APPROX;
+            default:
+                throw new IllegalArgumentException("无效的count参数: " + value);
+        }
+    }
+}
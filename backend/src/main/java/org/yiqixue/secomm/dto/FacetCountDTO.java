@@ -0,0 +1,25 @@
+package org.yiqixue.secomm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分面计数项，例如 “书籍 (120)”
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FacetCountDTO {
+
+    // 筛选参数取值（分类ID、价格区间 “50-100”、有货 true/false）
+    private String value;
+
+    // 展示名称
+    private String label;
+
+    // 当前筛选条件下的商品数量
+    private long count;
+}
@@ -0,0 +1,28 @@
+package org.yiqixue.secomm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 秒杀商品状态
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FlashSaleStatusDTO {
+
+    private Long productId;
+
+    // 开始时预载到内存计数器的库存
+    private long allotted;
+
+    // 内存计数器中的剩余库存
+    private long remaining;
+
+    private LocalDateTime startedAt;
+}
@@ -24,10 +24,10 @@ public class PageResponse<T> {
     // 每页大小
     private int pageSize;
 
-    // 总元素数
+    // 总元素数（游标分页或不统计总数时为 -1）
     private long totalElements;
 
-    // 总页数
+    // 总页数（游标分页或不统计总数时为 -1）
     private int totalPages;
 
     // 是否是第一页
@@ -38,4 +38,17 @@ public class PageResponse<T> {
 
     // 是否为空
     private boolean empty;
+
+    // 下一页游标（仅游标分页模式，最后一页为 null）
+    private String nextCursor;
+
+    /**
+     * 根据总数计算总页数，总数未知（-1）时返回 -1
+     */
+    public static int totalPagesOf(long totalElements, int pageSize) {
+        if (totalElements < 0) {
+            return -1;
+        }
+        return pageSize == 0 ? 1 : (int) Math.ceil((double) totalElements / pageSize);
+    }
 }
\ No newline at end of file
@@ -40,4 +40,11 @@ public class ProductDTO {
     private Long categoryId;
 
     private String categoryName;
+
+    // 图片衍生尺寸（JPEG；同目录下同名 .webp 文件存在时可按 Accept 协商），生成完成前为 null
+    private String thumbnailUrl;
+
+    private String listImageUrl;
+
+    private String detailImageUrl;
 }
\ No newline at end of file
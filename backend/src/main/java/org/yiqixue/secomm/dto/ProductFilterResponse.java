@@ -0,0 +1,29 @@
+package org.yiqixue.secomm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 商品分面筛选响应：当前页商品及各分面计数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductFilterResponse {
+
+    private PageResponse<ProductDTO> products;
+
+    // 分类分面
+    private List<FacetCountDTO> categories;
+
+    // 价格区间分面
+    private List<FacetCountDTO> priceRanges;
+
+    // 库存分面（有货/缺货）
+    private List<FacetCountDTO> stock;
+}
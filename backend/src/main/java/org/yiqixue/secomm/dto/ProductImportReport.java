@@ -0,0 +1,57 @@
+package org.yiqixue.secomm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 商品批量导入结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportReport {
+
+    // 读取的数据行数（不含表头和空行）
+    private long totalRows;
+
+    // 新增商品数
+    private long inserted;
+
+    // 按SKU更新的已有商品数
+    private long updated;
+
+    // 失败行数
+    private long failed;
+
+    // 耗时（毫秒）
+    private long elapsedMillis;
+
+    // 吞吐量（行/秒）
+    private double rowsPerSecond;
+
+    // 失败明细（超过上限时截断）
+    private List<RowError> errors;
+
+    // 失败明细是否被截断
+    private boolean errorsTruncated;
+
+    /**
+     * 单行失败明细
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+
+        private long lineNumber;
+
+        private String sku;
+
+        private String message;
+    }
+}
@@ -0,0 +1,27 @@
+package org.yiqixue.secomm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 商品输入联想项
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductSuggestionDTO {
+
+    private Long productId;
+
+    private String name;
+
+    private String sku;
+
+    private String imageUrl;
+
+    // 排序依据：累计销量
+    private long popularity;
+}
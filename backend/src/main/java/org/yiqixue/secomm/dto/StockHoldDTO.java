@@ -0,0 +1,35 @@
+package org.yiqixue.secomm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 库存预留结果，下单时在 CheckoutRequest.reservationId 中回传
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockHoldDTO {
+
+    private String reservationId;
+
+    private LocalDateTime expiresAt;
+
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        private Long productId;
+
+        private Integer quantity;
+    }
+}
@@ -13,7 +13,8 @@ import java.util.Set;
        },
        indexes = {
            @Index(name = "idx_status", columnList = "status"),
-           @Index(name = "idx_last_updated", columnList = "last_updated")
+           @Index(name = "idx_last_updated", columnList = "last_updated"),
+           @Index(name = "idx_status_last_updated", columnList = "status, last_updated")
        })
 @Data
 @NoArgsConstructor
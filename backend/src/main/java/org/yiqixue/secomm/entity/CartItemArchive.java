@@ -0,0 +1,50 @@
+package org.yiqixue.secomm.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 已放弃购物车的商品项归档
+ * 由废弃购物车清理任务从 cart_item 整批搬入，保留原商品项ID
+ */
+@Entity
+@Table(name = "cart_item_archive", indexes = {
+        @Index(name = "idx_cart_item_archive_customer", columnList = "customer_id"),
+        @Index(name = "idx_cart_item_archive_archived_at", columnList = "archived_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartItemArchive {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cart_item_id", nullable = false)
+    private Long cartItemId;
+
+    @Column(name = "cart_id", nullable = false)
+    private Long cartId;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "unit_price", nullable = false, precision = 19, scale = 2)
+    private BigDecimal unitPrice;
+
+    @Column(name = "date_added")
+    private LocalDateTime dateAdded;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
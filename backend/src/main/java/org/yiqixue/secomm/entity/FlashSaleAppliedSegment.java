@@ -0,0 +1,34 @@
+package org.yiqixue.secomm.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * 已刷入数据库的秒杀恢复日志段
+ * 与该段的库存扣减在同一事务中写入；删除段文件前进程退出、重启后重放该段时据此跳过
+ */
+@Entity
+@Table(name = "flash_sale_applied_segment",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_flash_sale_segment_name", columnNames = {"segment_name"})
+       },
+       indexes = {
+           @Index(name = "idx_flash_sale_segment_applied_at", columnList = "applied_at")
+       })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FlashSaleAppliedSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "segment_name", nullable = false, length = 100)
+    private String segmentName;
+
+    @Column(name = "applied_at", nullable = false)
+    private LocalDateTime appliedAt;
+}
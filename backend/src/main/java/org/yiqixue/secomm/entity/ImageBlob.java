@@ -0,0 +1,30 @@
+package org.yiqixue.secomm.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * 按内容寻址存储的图片（文件名为内容的 SHA-256），记录被多少个商品引用
+ */
+@Entity
+@Table(name = "image_blob")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImageBlob {
+
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Column(name = "url", nullable = false)
+    private String url;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "date_created", nullable = false, updatable = false)
+    private LocalDateTime dateCreated;
+}
@@ -15,7 +15,10 @@ import java.util.List;
 
 @Entity
 @EntityListeners(AuditingEntityListener.class)
-@Table(name = "orders")
+@Table(name = "orders",
+       indexes = {
+           @Index(name = "idx_orders_date_created", columnList = "date_created, id")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
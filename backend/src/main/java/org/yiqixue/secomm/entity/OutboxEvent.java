@@ -0,0 +1,64 @@
+package org.yiqixue.secomm.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * 事务发件箱
+ * 业务写事务中插入，提交后由 OutboxDispatcher 轮询投递给进程内处理器；投递成功即删除，
+ * 超过最大重试次数标记为 FAILED 保留待查
+ */
+@Entity
+@Table(name = "outbox_event", indexes = {
+        @Index(name = "idx_outbox_status_id", columnList = "status, id"),
+        @Index(name = "idx_outbox_aggregate", columnList = "aggregate_type, aggregate_id, status, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "aggregate_type", nullable = false, length = 50)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    // JSON 格式的事件内容
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    // 已成功处理该事件的处理器名称（逗号分隔），重试时跳过
+    @Column(name = "delivered_handlers", length = 1000)
+    private String deliveredHandlers;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public enum Status {
+        PENDING,
+        FAILED
+    }
+}
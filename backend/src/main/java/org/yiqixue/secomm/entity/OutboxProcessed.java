@@ -0,0 +1,38 @@
+package org.yiqixue.secomm.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * 发件箱事件处理记录
+ * 处理器在处理事件的同一事务中写入 (处理器名称, 事件键)，重复投递时插入不到新行即跳过
+ */
+@Entity
+@Table(name = "outbox_processed",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_outbox_processed_handler_key", columnNames = {"handler_name", "event_key"})
+       },
+       indexes = {
+           @Index(name = "idx_outbox_processed_at", columnList = "processed_at")
+       })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxProcessed {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "handler_name", nullable = false, length = 200)
+    private String handlerName;
+
+    // 事件的业务键，如 order:123
+    @Column(name = "event_key", nullable = false, length = 100)
+    private String eventKey;
+
+    @Column(name = "processed_at", nullable = false)
+    private LocalDateTime processedAt;
+}
@@ -12,7 +12,11 @@ import java.util.List;
 
 @Entity
 @EntityListeners(AuditingEntityListener.class)
-@Table(name = "product")
+@Table(name = "product",
+       indexes = {
+           @Index(name = "idx_product_active_name", columnList = "active, name, id"),
+           @Index(name = "idx_product_category_active_name", columnList = "category_id, active, name, id")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -38,6 +42,16 @@ public class Product {
     @Column(name = "image_url")
     private String imageUrl;
 
+    // 缩略图、列表图、详情图（后台生成，生成前为 null）
+    @Column(name = "thumbnail_url")
+    private String thumbnailUrl;
+
+    @Column(name = "list_image_url")
+    private String listImageUrl;
+
+    @Column(name = "detail_image_url")
+    private String detailImageUrl;
+
     @Column(name = "active", nullable = false)
     private Boolean active = true;
 
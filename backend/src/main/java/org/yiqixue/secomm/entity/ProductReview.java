@@ -26,7 +26,8 @@ import java.time.LocalDateTime;
            @Index(name = "idx_customer_id", columnList = "customer_id"),
            @Index(name = "idx_order_id", columnList = "order_id"),
            @Index(name = "idx_rating", columnList = "rating"),
-           @Index(name = "idx_status", columnList = "status")
+           @Index(name = "idx_status", columnList = "status"),
+           @Index(name = "idx_product_status_date", columnList = "product_id, status, date_created, id")
        })
 @Data
 @Builder
@@ -0,0 +1,54 @@
+package org.yiqixue.secomm.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * 结算时的库存预留（每个商品一行，同一次预留共用 reservationId）
+ * 库存在预留时已扣减，到期未支付则归还；记录持久化用于重启后恢复到期任务
+ */
+@Entity
+@Table(name = "stock_hold", indexes = {
+        @Index(name = "idx_stock_hold_reservation", columnList = "reservation_id"),
+        @Index(name = "idx_stock_hold_status_expires", columnList = "status, expires_at"),
+        @Index(name = "idx_stock_hold_customer_status", columnList = "customer_id, status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockHold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "reservation_id", nullable = false, length = 36)
+    private String reservationId;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private HoldStatus status;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "date_created", nullable = false, updatable = false)
+    private LocalDateTime dateCreated;
+
+    public enum HoldStatus {
+        ACTIVE,     // 预留中
+        CONFIRMED,  // 已下单，库存转为实际扣减
+        RELEASED    // 已到期或取消，库存已归还
+    }
+}
@@ -0,0 +1,21 @@
+package org.yiqixue.secomm.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 客户信息变更事件
+ * 创建或修改客户姓名、邮箱后发布，订单搜索索引在事务提交后更新该客户的搜索文本
+ */
+@Getter
+@RequiredArgsConstructor
+public class CustomerChangedEvent {
+
+    private final Long customerId;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final String email;
+}
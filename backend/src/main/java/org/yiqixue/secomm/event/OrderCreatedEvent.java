@@ -0,0 +1,45 @@
+package org.yiqixue.secomm.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 订单创建事件
+ * 随下单事务写入发件箱，提交后由发件箱投递器交给各处理器（从购物车扣除已下单商品、更新统计等）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderCreatedEvent {
+
+    public static final String AGGREGATE_TYPE = "ORDER";
+
+    public static final String EVENT_TYPE = "ORDER_CREATED";
+
+    private Long orderId;
+
+    private Long customerId;
+
+    private String orderNumber;
+
+    private BigDecimal totalAmount;
+
+    // 下单的商品及数量，同一商品已合并
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        private Long productId;
+
+        private Integer quantity;
+    }
+}
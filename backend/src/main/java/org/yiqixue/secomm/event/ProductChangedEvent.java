@@ -0,0 +1,54 @@
+package org.yiqixue.secomm.event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.yiqixue.secomm.dto.ProductDTO;
+
+/**
+ * 商品变更事件
+ * 由 ProductService 的写方法发布，监听方在事务提交后（AFTER_COMMIT）更新各自的内存结构。
+ * 下单、归还、秒杀刷库只改库存，发布 STOCK_CHANGED，与库存无关的监听方直接忽略
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class ProductChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        // 只有库存变化，其余字段不变
+        STOCK_CHANGED
+    }
+
+    private final Type type;
+
+    private final Long productId;
+
+    // 变更前的SKU（SKU可能在更新时被修改，缓存需要按旧SKU失效）
+    private final String previousSku;
+
+    // 变更后的商品快照，删除时为 null
+    private final ProductDTO product;
+
+    public static ProductChangedEvent created(ProductDTO product) {
+        return new ProductChangedEvent(Type.CREATED, product.getId(), product.getSku(), product);
+    }
+
+    public static ProductChangedEvent updated(String previousSku, ProductDTO product) {
+        return new ProductChangedEvent(Type.UPDATED, product.getId(), previousSku, product);
+    }
+
+    public static ProductChangedEvent stockChanged(ProductDTO product) {
+        return new ProductChangedEvent(Type.STOCK_CHANGED, product.getId(), product.getSku(), product);
+    }
+
+    public boolean isStockOnly() {
+        return type == Type.STOCK_CHANGED;
+    }
+
+    public static ProductChangedEvent deleted(Long productId, String sku) {
+        return new ProductChangedEvent(Type.DELETED, productId, sku, null);
+    }
+}
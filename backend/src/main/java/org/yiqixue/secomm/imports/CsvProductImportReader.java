@@ -0,0 +1,157 @@
+package org.yiqixue.secomm.imports;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV 商品导入读取器
+ * 第一行为表头（列名不区分大小写、顺序任意），支持双引号包裹、字段内逗号/换行和 "" 转义；
+ * 忽略文件开头的 UTF-8 BOM（Excel 导出的 CSV 常带 BOM）
+ */
+public class CsvProductImportReader implements ProductImportReader {
+
+    private static final int BOM = '\uFEFF';
+
+    private final Reader reader;
+
+    // 列名（小写） -> 列下标
+    private Map<String, Integer> header;
+
+    // 已读取的物理行数
+    private long line;
+
+    private int pushback = -1;
+
+    public CsvProductImportReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public ProductImportRow next() throws IOException {
+        if (header == null) {
+            int first = read();
+            if (first != BOM) {
+                pushback = first;
+            }
+            List<String> columns = readRecord();
+            if (columns == null) {
+                return null;
+            }
+            header = new HashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                header.put(columns.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            if (!header.containsKey("sku")) {
+                throw new IllegalArgumentException("CSV表头缺少 sku 列");
+            }
+        }
+
+        while (true) {
+            long startLine = line + 1;
+            List<String> fields;
+            try {
+                fields = readRecord();
+            } catch (IllegalStateException e) {
+                return ProductImportRow.invalid(startLine, e.getMessage());
+            }
+            if (fields == null) {
+                return null;
+            }
+            // 跳过空行
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            return new ProductImportRow(startLine,
+                    field(fields, "sku"),
+                    field(fields, "name"),
+                    field(fields, "description"),
+                    field(fields, "unitprice"),
+                    field(fields, "unitsinstock"),
+                    field(fields, "categoryid"),
+                    field(fields, "categoryname"),
+                    field(fields, "active"),
+                    field(fields, "imageurl"),
+                    null);
+        }
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer index = header.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * 读取一条记录（可能跨多个物理行），文件结束返回 null
+     */
+    private List<String> readRecord() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalStateException("引号未闭合");
+                }
+                if (c == '"') {
+                    int nextChar = read();
+                    if (nextChar == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = nextChar;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int nextChar = read();
+                    if (nextChar != '\n') {
+                        pushback = nextChar;
+                    }
+                }
+                if (c != -1) {
+                    line++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushback != -1) {
+            int c = pushback;
+            pushback = -1;
+            return c;
+        }
+        return reader.read();
+    }
+}
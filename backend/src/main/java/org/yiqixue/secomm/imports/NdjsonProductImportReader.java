@@ -0,0 +1,70 @@
+package org.yiqixue.secomm.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * NDJSON 商品导入读取器，每行一个 JSON 对象，字段名与 ProductDTO 一致
+ */
+public class NdjsonProductImportReader implements ProductImportReader {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+
+    private long line;
+
+    public NdjsonProductImportReader(BufferedReader reader, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ProductImportRow next() throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (line == 1 && text.startsWith("\uFEFF")) {
+                text = text.substring(1);
+            }
+            if (text.isBlank()) {
+                continue;
+            }
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                return ProductImportRow.invalid(line, "JSON格式错误: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                return ProductImportRow.invalid(line, "每行必须是一个JSON对象");
+            }
+
+            return new ProductImportRow(line,
+                    field(node, "sku"),
+                    field(node, "name"),
+                    field(node, "description"),
+                    field(node, "unitPrice"),
+                    field(node, "unitsInStock"),
+                    field(node, "categoryId"),
+                    field(node, "categoryName"),
+                    field(node, "active"),
+                    field(node, "imageUrl"),
+                    null);
+        }
+        return null;
+    }
+
+    private static String field(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        String text = value.asText().trim();
+        return text.isEmpty() ? null : text;
+    }
+}
@@ -0,0 +1,16 @@
+package org.yiqixue.secomm.imports;
+
+import java.io.IOException;
+
+/**
+ * 商品导入文件的逐行读取器，只持有当前行，不缓冲整个文件
+ */
+public interface ProductImportReader {
+
+    /**
+     * 读取下一行
+     *
+     * @return 下一行数据，文件结束时返回 null
+     */
+    ProductImportRow next() throws IOException;
+}
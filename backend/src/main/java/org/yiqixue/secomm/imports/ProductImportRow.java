@@ -0,0 +1,26 @@
+package org.yiqixue.secomm.imports;
+
+/**
+ * 导入文件中的一行商品数据（原始字符串，校验和类型转换由导入服务统一处理）
+ *
+ * @param lineNumber 行号（从1开始，CSV 含表头行）
+ * @param parseError 行解析失败时的原因，正常为 null
+ */
+public record ProductImportRow(
+        long lineNumber,
+        String sku,
+        String name,
+        String description,
+        String unitPrice,
+        String unitsInStock,
+        String categoryId,
+        String categoryName,
+        String active,
+        String imageUrl,
+        String parseError) {
+
+    public static ProductImportRow invalid(long lineNumber, String parseError) {
+        return new ProductImportRow(lineNumber, null, null, null, null, null,
+                null, null, null, null, parseError);
+    }
+}
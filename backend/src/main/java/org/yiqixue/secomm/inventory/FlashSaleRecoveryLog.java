@@ -0,0 +1,163 @@
+package org.yiqixue.secomm.inventory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 秒杀扣减恢复日志
+ * 已提交的扣减先追加到当前日志，刷库前整体轮转为待刷段；段内扣减写入数据库后删除该段。
+ * 进程重启时未删除的段会被重新交给调用方，已刷过库的段由调用方按段名跳过
+ */
+public class FlashSaleRecoveryLog implements AutoCloseable {
+
+    private static final String CURRENT = "flash-sale.log";
+    private static final String SEGMENT_PREFIX = "flash-sale-";
+    private static final String SEGMENT_SUFFIX = ".pending";
+
+    private final Path directory;
+
+    // 追加方持读锁并发写（FileChannel 追加写是线程安全的），轮转时持写锁
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtomicLong segmentSequence = new AtomicLong();
+
+    private FileChannel channel;
+
+    public FlashSaleRecoveryLog(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            this.channel = open();
+            terminateTornLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法打开秒杀恢复日志: " + directory, e);
+        }
+    }
+
+    /**
+     * 记录一次已提交的扣减
+     */
+    public void append(long productId, int quantity) {
+        ByteBuffer line = ByteBuffer.wrap((productId + "," + quantity + "\n").getBytes(StandardCharsets.US_ASCII));
+        lock.readLock().lock();
+        try {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入秒杀恢复日志失败", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 把当前日志轮转为待刷段（为空时不轮转），返回所有待刷段（按生成顺序）
+     */
+    public List<Path> rotate() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel.size() > 0) {
+                channel.force(false);
+                channel.close();
+                Path segment = directory.resolve(SEGMENT_PREFIX + System.currentTimeMillis()
+                        + "-" + segmentSequence.incrementAndGet() + SEGMENT_SUFFIX);
+                Files.move(directory.resolve(CURRENT), segment, StandardCopyOption.ATOMIC_MOVE);
+                channel = open();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return pendingSegments();
+    }
+
+    /**
+     * 汇总一个段内每个商品的扣减数量
+     */
+    public static Map<Long, Long> read(Path segment) throws IOException {
+        Map<Long, Long> totals = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comma = line.indexOf(',');
+                // 进程崩溃时最后一行可能不完整
+                if (comma <= 0 || comma == line.length() - 1) {
+                    continue;
+                }
+                try {
+                    totals.merge(Long.parseLong(line.substring(0, comma)),
+                            Long.parseLong(line.substring(comma + 1)), Long::sum);
+                } catch (NumberFormatException ignored) {
+                    // 跳过损坏的行
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * 段内扣减已写入数据库，删除该段
+     */
+    public void complete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.force(false);
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Path> pendingSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * 上次进程崩溃时最后一行可能只写了一半，补一个换行，避免与之后追加的行粘连
+     */
+    private void terminateTornLine() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        try (FileChannel reader = FileChannel.open(directory.resolve(CURRENT), StandardOpenOption.READ)) {
+            reader.read(last, size - 1);
+        }
+        if (last.get(0) != '\n') {
+            channel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+        }
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(directory.resolve(CURRENT),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,166 @@
+package org.yiqixue.secomm.inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 哈希时间轮
+ * 环形数组的每个槽是一个双向链表，任务按到期刻度落入对应槽并记录还需转过的圈数；
+ * 添加、取消均为 O(1)，每次推进只处理经过的槽
+ *
+ * @param <T> 任务携带的数据
+ */
+public class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final Bucket<T>[] wheel;
+
+    // 已处理到的刻度（绝对值，自起始时间算起）
+    private long currentTick;
+    private final long startMillis;
+
+    private int size;
+
+    /**
+     * 已加入时间轮的任务，可用于取消
+     */
+    public static final class Timeout<T> {
+
+        private final T value;
+        private final long deadlineTick;
+        private long remainingRounds;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T value() {
+            return value;
+        }
+
+        public boolean isScheduled() {
+            return bucket != null;
+        }
+    }
+
+    private static final class Bucket<T> {
+
+        Timeout<T> head;
+        Timeout<T> tail;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    /**
+     * @param tickMillis 每格时长
+     * @param wheelSize 槽数，向上取整为 2 的幂
+     * @param startMillis 起始时间
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("刻度时长和槽数必须大于0");
+        }
+        int slots = 1;
+        while (slots < wheelSize) {
+            slots <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        this.mask = slots - 1;
+        this.wheel = new Bucket[slots];
+        for (int i = 0; i < slots; i++) {
+            wheel[i] = new Bucket<>();
+        }
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * 在指定时间到期；已过期的任务在下次推进时返回
+     */
+    public synchronized Timeout<T> schedule(T value, long deadlineMillis) {
+        long deadlineTick = Math.max(ceilTick(deadlineMillis), currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(value, deadlineTick);
+        timeout.remainingRounds = (deadlineTick - currentTick - 1) / wheel.length;
+        wheel[(int) (deadlineTick & mask)].add(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * 取消任务
+     *
+     * @return 任务尚未到期且本次取消成功返回 true
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * 推进到指定时间，返回期间到期的任务
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            Bucket<T> bucket = wheel[(int) (currentTick & mask)];
+            Timeout<T> timeout = bucket.head;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadlineTick <= currentTick) {
+                    bucket.remove(timeout);
+                    size--;
+                    expired.add(timeout.value);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private long ceilTick(long millis) {
+        long elapsed = millis - startMillis;
+        return elapsed <= 0 ? 0 : (elapsed + tickMillis - 1) / tickMillis;
+    }
+}
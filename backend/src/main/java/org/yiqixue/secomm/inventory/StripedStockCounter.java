@@ -0,0 +1,127 @@
+package org.yiqixue.secomm.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段库存计数器
+ * 库存平均分到若干段，线程从随机段开始 CAS 扣减，本段不足时依次尝试其他段；
+ * 库存耗尽后置位标志，后续请求直接拒绝
+ */
+public class StripedStockCounter {
+
+    // 每段占 8 个 long（64 字节），避免不同段落在同一缓存行上
+    private static final int PADDING = 8;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    private volatile boolean exhausted;
+
+    public StripedStockCounter(long stock, int stripes) {
+        if (stock < 0 || stripes <= 0) {
+            throw new IllegalArgumentException("库存不能为负数，分段数必须大于0");
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PADDING, stock / stripes + (i < stock % stripes ? 1 : 0));
+        }
+        this.exhausted = stock == 0;
+    }
+
+    /**
+     * 扣减库存
+     *
+     * @return 扣减成功返回 true；剩余库存不足时不做任何扣减并返回 false
+     */
+    public boolean tryAcquire(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("扣减数量必须大于0");
+        }
+        if (exhausted) {
+            return false;
+        }
+
+        int home = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            if (takeFrom((home + i) % stripes, quantity, true) == quantity) {
+                return true;
+            }
+        }
+
+        // 没有单段能满足，跨段凑齐；凑不齐则全部归还
+        long[] taken = new long[stripes];
+        long collected = 0;
+        for (int i = 0; i < stripes && collected < quantity; i++) {
+            int stripe = (home + i) % stripes;
+            taken[stripe] = takeFrom(stripe, quantity - collected, false);
+            collected += taken[stripe];
+        }
+        if (collected == quantity) {
+            return true;
+        }
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (taken[stripe] > 0) {
+                cells.addAndGet(stripe * PADDING, taken[stripe]);
+                // 归还后清除标志：其他线程可能已根据本次暂扣时的读数置位
+                exhausted = false;
+            }
+        }
+        if (remaining() == 0) {
+            exhausted = true;
+            // 置位前的读数可能不含其他线程正在归还的库存；置位后再读一次，仍有库存则撤销
+            if (remaining() > 0) {
+                exhausted = false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 归还库存（下单事务回滚时调用）
+     */
+    public void release(int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        // 先加回再清除标志，保证看到标志清除的线程也能看到库存
+        cells.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PADDING, quantity);
+        exhausted = false;
+    }
+
+    /**
+     * 当前剩余库存（各段之和，并发下为近似值）
+     */
+    public long remaining() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * 从一段中扣减
+     *
+     * @param all 为 true 时只有该段足够才扣减；为 false 时尽量扣减
+     * @return 实际扣减数量
+     */
+    private long takeFrom(int stripe, long quantity, boolean all) {
+        int index = stripe * PADDING;
+        while (true) {
+            long current = cells.get(index);
+            if (current <= 0 || (all && current < quantity)) {
+                return 0;
+            }
+            long take = Math.min(current, quantity);
+            if (cells.compareAndSet(index, current, current - take)) {
+                return take;
+            }
+        }
+    }
+}
@@ -8,6 +8,8 @@ import org.yiqixue.secomm.entity.OrderItem;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 import org.yiqixue.secomm.dto.PageResponse;
 
 /**
@@ -86,4 +88,44 @@ public class OrderMapper {
                 .last(orderPage.isLast())
                 .empty(orderPage.isEmpty()).build();
     }
+
+    /**
+     * Slice<Order> 转 PageResponse<OrderDTO>（不执行 COUNT 查询）
+     *
+     * @param totalElements 近似总数，未知时传 -1
+     */
+    public PageResponse<OrderDTO> toSliceResponse(Slice<Order> orderSlice, long totalElements) {
+        List<OrderDTO> orderDTOs = orderSlice.getContent().stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+
+        return PageResponse.<OrderDTO>builder()
+                .content(orderDTOs)
+                .pageNumber(orderSlice.getNumber())
+                .pageSize(orderSlice.getSize())
+                .totalElements(totalElements)
+                .totalPages(PageResponse.totalPagesOf(totalElements, orderSlice.getSize()))
+                .first(orderSlice.isFirst())
+                .last(orderSlice.isLast())
+                .empty(orderSlice.isEmpty()).build();
+    }
+
+    /**
+     * Window<Order>（游标分页）转 PageResponse<OrderDTO>
+     */
+    public PageResponse<OrderDTO> toPageResponse(Window<Order> orderWindow, int pageSize, boolean first) {
+        List<OrderDTO> orderDTOs = orderWindow.getContent().stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+
+        return PageResponse.<OrderDTO>builder()
+                .content(orderDTOs)
+                .pageSize(pageSize)
+                .totalElements(-1)
+                .totalPages(-1)
+                .first(first)
+                .last(!orderWindow.hasNext())
+                .empty(orderWindow.isEmpty())
+                .nextCursor(PageCursors.nextCursor(orderWindow)).build();
+    }
 }
@@ -0,0 +1,132 @@
+package org.yiqixue.secomm.mapper;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * 游标分页工具类
+ * 将 keyset 位置（排序字段值 + id）编码为不透明的游标字符串，供客户端作为 after 参数回传
+ * 每个字段编码为 名称=类型:值；只允许按非空字段排序，keyset 条件（col > ?）无法越过空值
+ */
+public final class PageCursors {
+
+    private PageCursors() {
+    }
+
+    /**
+     * 构造游标分页使用的排序：在排序字段后追加 id 保证顺序唯一
+     *
+     * @param sortable 该列表允许游标分页的排序字段（数据库中均为非空列）
+     */
+    public static Sort keysetSort(String sortBy, String sortDir, Set<String> sortable) {
+        if (!sortable.contains(sortBy)) {
+            throw new IllegalArgumentException("游标分页不支持按该字段排序: " + sortBy
+                    + "，可选字段: " + String.join(", ", new TreeSet<>(sortable)));
+        }
+        Sort.Direction direction = sortDir.equalsIgnoreCase("asc") ?
+                Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = Sort.by(direction, sortBy);
+        return "id".equals(sortBy) ? sort : sort.and(Sort.by(direction, "id"));
+    }
+
+    /**
+     * 解析游标；空字符串表示从第一页开始
+     *
+     * @param after 客户端传入的游标
+     * @param sort 当前排序，游标中的字段必须与之一致
+     */
+    public static ScrollPosition decode(String after, Sort sort) {
+        if (after == null || after.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+            for (String part : raw.split("&")) {
+                int eq = part.indexOf('=');
+                String key = part.substring(0, eq);
+                char type = part.charAt(eq + 1);
+                String value = URLDecoder.decode(part.substring(eq + 3), StandardCharsets.UTF_8);
+                keys.put(key, parseValue(type, value));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + after);
+        }
+
+        Set<String> sortProperties = sort.stream()
+                .map(Sort.Order::getProperty)
+                .collect(Collectors.toSet());
+        if (!keys.keySet().equals(sortProperties)) {
+            throw new IllegalArgumentException("分页游标与当前排序不匹配");
+        }
+
+        return ScrollPosition.forward(keys);
+    }
+
+    /**
+     * 生成下一页游标；已经是最后一页时返回 null
+     */
+    public static String nextCursor(Window<?> window) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+        ScrollPosition position = window.positionAt(window.size() - 1);
+        if (!(position instanceof KeysetScrollPosition keyset)) {
+            throw new IllegalStateException("仅支持 keyset 游标分页");
+        }
+
+        String raw = keyset.getKeys().entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + typeOf(entry.getValue()) + ":"
+                        + URLEncoder.encode(String.valueOf(entry.getValue()), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static char typeOf(Object value) {
+        if (value == null) {
+            // keysetSort 只允许非空字段，出现空值说明字段白名单有误
+            throw new IllegalStateException("游标排序字段值为空");
+        } else if (value instanceof String) {
+            return 'S';
+        } else if (value instanceof Long) {
+            return 'L';
+        } else if (value instanceof Integer) {
+            return 'I';
+        } else if (value instanceof BigDecimal) {
+            return 'D';
+        } else if (value instanceof LocalDateTime) {
+            return 'T';
+        } else if (value instanceof Boolean) {
+            return 'B';
+        }
+        throw new IllegalArgumentException("该排序字段不支持游标分页: " + value.getClass().getSimpleName());
+    }
+
+    private static Object parseValue(char type, String value) {
+        return switch (type) {
+            case 'S' -> value;
+            case 'L' -> Long.valueOf(value);
+            case 'I' -> Integer.valueOf(value);
+            case 'D' -> new BigDecimal(value);
+            case 'T' -> LocalDateTime.parse(value);
+            case 'B' -> Boolean.valueOf(value);
+            default -> throw new IllegalArgumentException("未知的游标字段类型: " + type);
+        };
+    }
+}
@@ -1,6 +1,8 @@
 package org.yiqixue.secomm.mapper;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Component;
 import org.yiqixue.secomm.dto.PageResponse;
 import org.yiqixue.secomm.dto.ProductCategoryDTO;
@@ -8,6 +10,7 @@ import org.yiqixue.secomm.dto.ProductDTO;
 import org.yiqixue.secomm.entity.Product;
 import org.yiqixue.secomm.entity.ProductCategory;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -37,6 +40,9 @@ public class ProductMapper {
                 .lastUpdated(product.getLastUpdated())
                 .categoryId(product.getCategory().getId())
                 .categoryName(product.getCategory().getCategoryName())
+                .thumbnailUrl(product.getThumbnailUrl())
+                .listImageUrl(product.getListImageUrl())
+                .detailImageUrl(product.getDetailImageUrl())
                 .build();
     }
 
@@ -67,10 +73,64 @@ public class ProductMapper {
                 .build();
     }
 
+    /**
+     * ProductDTO Page（投影查询结果）转 PageResponse
+     */
+    public PageResponse<ProductDTO> toDTOPageResponse(Page<ProductDTO> page) {
+        return PageResponse.<ProductDTO>builder()
+                .content(page.getContent())
+                .pageNumber(page.getNumber())
+                .pageSize(page.getSize())
+                .totalElements(page.getTotalElements())
+                .totalPages(page.getTotalPages())
+                .first(page.isFirst())
+                .last(page.isLast())
+                .empty(page.isEmpty())
+                .build();
+    }
+
+    /**
+     * ProductDTO Slice（投影查询结果）转 PageResponse（不执行 COUNT 查询）
+     *
+     * @param totalElements 近似总数，未知时传 -1
+     */
+    public PageResponse<ProductDTO> toSliceResponse(Slice<ProductDTO> slice, long totalElements) {
+        return PageResponse.<ProductDTO>builder()
+                .content(slice.getContent())
+                .pageNumber(slice.getNumber())
+                .pageSize(slice.getSize())
+                .totalElements(totalElements)
+                .totalPages(PageResponse.totalPagesOf(totalElements, slice.getSize()))
+                .first(slice.isFirst())
+                .last(slice.isLast())
+                .empty(slice.isEmpty())
+                .build();
+    }
+
+    /**
+     * Product Window（游标分页）转 PageResponse
+     */
+    public PageResponse<ProductDTO> toPageResponse(Window<Product> window, int pageSize, boolean first) {
+        List<ProductDTO> dtoList = toDTOList(window.getContent());
+
+        return PageResponse.<ProductDTO>builder()
+                .content(dtoList)
+                .pageSize(pageSize)
+                .totalElements(-1)
+                .totalPages(-1)
+                .first(first)
+                .last(!window.hasNext())
+                .empty(window.isEmpty())
+                .nextCursor(PageCursors.nextCursor(window))
+                .build();
+    }
+
     /**
      * ProductCategory Entity 转 DTO
+     *
+     * @param productCount 该分类下的商品数量（由分组统计查询得到，不加载商品集合）
      */
-    public ProductCategoryDTO toCategoryDTO(ProductCategory category) {
+    public ProductCategoryDTO toCategoryDTO(ProductCategory category, long productCount) {
         if (category == null) {
             return null;
         }
@@ -79,17 +139,20 @@ public class ProductMapper {
                 .id(category.getId())
                 .categoryName(category.getCategoryName())
                 .categoryEnglishName(category.getCategoryEnglishName())
-                .productCount(category.getProducts() != null ?
-                        (long) category.getProducts().size() : 0L)
+                .productCount(productCount)
                 .build();
     }
 
     /**
      * ProductCategory Entity List 转 DTO List
+     *
+     * @param productCounts 分类ID -> 商品数量，缺失的分类按 0 处理
      */
-    public List<ProductCategoryDTO> toCategoryDTOList(List<ProductCategory> categories) {
+    public List<ProductCategoryDTO> toCategoryDTOList(List<ProductCategory> categories,
+                                                      Map<Long, Long> productCounts) {
         return categories.stream()
-                .map(this::toCategoryDTO)
+                .map(category -> toCategoryDTO(category,
+                        productCounts.getOrDefault(category.getId(), 0L)))
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package org.yiqixue.secomm.mapper;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Component;
 import org.yiqixue.secomm.dto.PageResponse;
 import org.yiqixue.secomm.dto.ProductReviewDTO;
@@ -67,4 +69,42 @@ public class ProductReviewMapper {
                 .empty(reviewPage.isEmpty())
                 .build();
     }
+
+    /**
+     * Slice<ProductReview> 转 PageResponse<ProductReviewDTO>（不执行 COUNT 查询）
+     *
+     * @param totalElements 近似总数，未知时传 -1
+     */
+    public PageResponse<ProductReviewDTO> toSliceResponse(Slice<ProductReview> reviewSlice, long totalElements) {
+        List<ProductReviewDTO> reviewDTOs = toDTOList(reviewSlice.getContent());
+
+        return PageResponse.<ProductReviewDTO>builder()
+                .content(reviewDTOs)
+                .pageNumber(reviewSlice.getNumber())
+                .pageSize(reviewSlice.getSize())
+                .totalElements(totalElements)
+                .totalPages(PageResponse.totalPagesOf(totalElements, reviewSlice.getSize()))
+                .first(reviewSlice.isFirst())
+                .last(reviewSlice.isLast())
+                .empty(reviewSlice.isEmpty())
+                .build();
+    }
+
+    /**
+     * Window<ProductReview>（游标分页）转 PageResponse<ProductReviewDTO>
+     */
+    public PageResponse<ProductReviewDTO> toPageResponse(Window<ProductReview> reviewWindow, int pageSize, boolean first) {
+        List<ProductReviewDTO> reviewDTOs = toDTOList(reviewWindow.getContent());
+
+        return PageResponse.<ProductReviewDTO>builder()
+                .content(reviewDTOs)
+                .pageSize(pageSize)
+                .totalElements(-1)
+                .totalPages(-1)
+                .first(first)
+                .last(!reviewWindow.hasNext())
+                .empty(reviewWindow.isEmpty())
+                .nextCursor(PageCursors.nextCursor(reviewWindow))
+                .build();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package org.yiqixue.secomm.metrics;
+
+import java.util.Map;
+
+/**
+ * 运行时指标提供者
+ * 实现类的指标会汇总到 /api/admin/metrics 接口
+ */
+public interface MetricsProvider {
+
+    /**
+     * 指标分组名称
+     */
+    String getMetricsName();
+
+    /**
+     * 当前指标快照
+     */
+    Map<String, Object> getMetrics();
+}
@@ -0,0 +1,266 @@
+package org.yiqixue.secomm.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发件箱投递器
+ * 定时按 ID 顺序批量读取已到投递时间的事件，按聚合分组后交给专用线程池；同一聚合同时只有一个投递任务，
+ * 前一个事件在退避重试期间后续事件不投递，从而保证聚合内顺序。
+ * 失败按指数退避重试，只重新调用失败的处理器；超过最大次数标记为 FAILED 并继续投递该聚合的后续事件。
+ * 只适用于单个投递实例（多实例部署时只在一个实例上启用）
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxDispatcher implements MetricsProvider {
+
+    // 只取已到重试时间、且同一聚合中没有更早的事件仍在退避的事件，退避中的事件不占用批次
+    private static final String SELECT_PENDING_SQL =
+            "SELECT id, aggregate_type, aggregate_id, event_type, payload, attempts, delivered_handlers"
+                    + " FROM outbox_event o WHERE o.status = 'PENDING' AND o.next_attempt_at <= ?"
+                    + " AND NOT EXISTS (SELECT 1 FROM outbox_event h"
+                    + " WHERE h.aggregate_type = o.aggregate_type AND h.aggregate_id = o.aggregate_id"
+                    + " AND h.status = 'PENDING' AND h.id < o.id AND h.next_attempt_at > ?)"
+                    + " ORDER BY o.id LIMIT ?";
+
+    private static final String DELETE_SQL = "DELETE FROM outbox_event WHERE id = ?";
+
+    private static final String RETRY_SQL =
+            "UPDATE outbox_event SET attempts = ?, next_attempt_at = ?, last_error = ?, delivered_handlers = ?"
+                    + " WHERE id = ?";
+
+    private static final String FAIL_SQL =
+            "UPDATE outbox_event SET status = 'FAILED', attempts = ?, last_error = ? WHERE id = ?";
+
+    private static final String COUNT_PENDING_SQL =
+            "SELECT COUNT(*) FROM outbox_event WHERE status = 'PENDING'";
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final List<OutboxEventHandler<?>> handlers;
+
+    @Value("${app.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.outbox.threads:2}")
+    private int threads;
+
+    @Value("${app.outbox.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retry-base-ms:1000}")
+    private long retryBaseMs;
+
+    @Value("${app.outbox.retry-max-ms:300000}")
+    private long retryMaxMs;
+
+    private record Message(long id, String aggregateType, long aggregateId, String eventType, String payload,
+                           int attempts, Set<String> deliveredHandlers) {
+
+        String aggregateKey() {
+            return aggregateType + ":" + aggregateId;
+        }
+    }
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, List<OutboxEventHandler<?>>> handlersByType = new HashMap<>();
+
+    // 有投递任务在排队或执行中的聚合
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        for (OutboxEventHandler<?> handler : handlers) {
+            handlersByType.computeIfAbsent(handler.getEventType(), type -> new ArrayList<>()).add(handler);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "outbox-dispatch-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // 队列满时拒绝，事件留在表中由下次轮询重新提交
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("发件箱投递器启动 - 线程数: {}, 事件类型: {}", threads, handlersByType.keySet());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 读取一批待投递事件并按聚合提交，不在调度线程上等待投递完成
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.poll-ms:500}")
+    public void poll() {
+        if (!enabled || executor.getQueue().remainingCapacity() == 0) {
+            return;
+        }
+        polls.incrementAndGet();
+
+        // 查询前的快照：查询期间结束的投递任务已删除其事件，读到的旧行不会被重复投递
+        Set<String> busy = Set.copyOf(inFlight);
+        LocalDateTime now = LocalDateTime.now();
+        List<Message> messages = jdbcTemplate.query(SELECT_PENDING_SQL,
+                (rs, rowNum) -> new Message(rs.getLong("id"), rs.getString("aggregate_type"),
+                        rs.getLong("aggregate_id"), rs.getString("event_type"), rs.getString("payload"),
+                        rs.getInt("attempts"), parseHandlers(rs.getString("delivered_handlers"))),
+                now, now, batchSize);
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Message>> byAggregate = new LinkedHashMap<>();
+        for (Message message : messages) {
+            byAggregate.computeIfAbsent(message.aggregateKey(), key -> new ArrayList<>()).add(message);
+        }
+
+        for (Map.Entry<String, List<Message>> entry : byAggregate.entrySet()) {
+            String key = entry.getKey();
+            List<Message> events = entry.getValue();
+            if (busy.contains(key) || !inFlight.add(key)) {
+                continue;
+            }
+            try {
+                executor.execute(() -> dispatch(key, events));
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(key);
+                rejected.incrementAndGet();
+                break;
+            }
+        }
+    }
+
+    /**
+     * 按顺序投递同一聚合的事件，遇到需要重试的事件即停止
+     */
+    private void dispatch(String key, List<Message> events) {
+        try {
+            for (Message event : events) {
+                if (!deliver(event)) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("发件箱投递异常 - 聚合: {}", key, e);
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    /**
+     * @return 事件已投递或已放弃时返回 true，需要稍后重试时返回 false
+     */
+    private boolean deliver(Message event) {
+        // 之前的尝试中已成功的处理器不再调用
+        Set<String> done = new LinkedHashSet<>(event.deliveredHandlers());
+        try {
+            for (OutboxEventHandler<?> handler : handlersByType.getOrDefault(event.eventType(), List.of())) {
+                if (done.contains(handler.getHandlerName())) {
+                    continue;
+                }
+                invoke(handler, event.payload());
+                done.add(handler.getHandlerName());
+            }
+        } catch (Exception e) {
+            int attempts = event.attempts() + 1;
+            String error = abbreviate(e.toString());
+            if (attempts >= maxAttempts) {
+                jdbcTemplate.update(FAIL_SQL, attempts, error, event.id());
+                deadLettered.incrementAndGet();
+                log.error("发件箱事件投递失败，已放弃 - ID: {}, 类型: {}, 聚合: {}, 次数: {}",
+                        event.id(), event.eventType(), event.aggregateKey(), attempts, e);
+                return true;
+            }
+            long delayMs = Math.min(retryMaxMs, retryBaseMs << Math.min(attempts - 1, 20));
+            jdbcTemplate.update(RETRY_SQL, attempts, LocalDateTime.now().plus(Duration.ofMillis(delayMs)), error,
+                    done.isEmpty() ? null : String.join(",", done), event.id());
+            retried.incrementAndGet();
+            log.warn("发件箱事件投递失败，{}ms 后重试 - ID: {}, 类型: {}, 次数: {}, 原因: {}",
+                    delayMs, event.id(), event.eventType(), attempts, e.getMessage());
+            return false;
+        }
+        jdbcTemplate.update(DELETE_SQL, event.id());
+        delivered.incrementAndGet();
+        return true;
+    }
+
+    private <T> void invoke(OutboxEventHandler<T> handler, String payload) throws Exception {
+        handler.handle(objectMapper.readValue(payload, handler.getPayloadType()));
+    }
+
+    private static Set<String> parseHandlers(String handlers) {
+        return handlers == null || handlers.isEmpty() ? Set.of() : Set.of(handlers.split(","));
+    }
+
+    private static String abbreviate(String message) {
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "outbox";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("pending", jdbcTemplate.queryForObject(COUNT_PENDING_SQL, Long.class));
+        metrics.put("inFlightAggregates", inFlight.size());
+        metrics.put("queueSize", executor.getQueue().size());
+        metrics.put("polls", polls.get());
+        metrics.put("delivered", delivered.get());
+        metrics.put("retried", retried.get());
+        metrics.put("deadLettered", deadLettered.get());
+        metrics.put("rejected", rejected.get());
+        return metrics;
+    }
+}
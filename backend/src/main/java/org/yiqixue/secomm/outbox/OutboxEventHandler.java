@@ -0,0 +1,32 @@
+package org.yiqixue.secomm.outbox;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * 发件箱事件的进程内处理器
+ * 同一事件的所有处理器成功后事件才被删除；部分处理器失败时记录已成功的处理器，重试只重新调用失败的处理器。
+ * 处理器成功后、记录写入前进程退出时仍可能重复调用，因此处理器应幂等（非幂等的修改用 {@link OutboxProcessedLog} 去重）
+ *
+ * @param <T> 事件内容类型，由 JSON 反序列化得到
+ */
+public interface OutboxEventHandler<T> {
+
+    /**
+     * 处理的事件类型
+     */
+    String getEventType();
+
+    /**
+     * 事件内容类型
+     */
+    Class<T> getPayloadType();
+
+    /**
+     * 处理器名称，用于记录已成功处理的处理器，同一事件类型的处理器之间不能重复
+     */
+    default String getHandlerName() {
+        return ClassUtils.getUserClass(getClass()).getName();
+    }
+
+    void handle(T payload);
+}
@@ -0,0 +1,33 @@
+package org.yiqixue.secomm.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 发件箱处理器的去重记录
+ * 投递至少一次：处理器成功后、事件删除前进程退出时会重新投递。处理器在自己的写事务中先调用 {@link #markProcessed}，
+ * 处理记录与业务修改一起提交或回滚，重复投递时直接跳过
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxProcessedLog {
+
+    // 唯一键冲突时不插入，影响行数为 0
+    private static final String INSERT_SQL =
+            "INSERT IGNORE INTO outbox_processed (handler_name, event_key, processed_at) VALUES (?, ?, NOW())";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 记录处理器已处理该事件；必须在处理器的写事务中调用
+     *
+     * @return 首次处理时返回 true，已处理过时返回 false
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean markProcessed(String handlerName, String eventKey) {
+        return jdbcTemplate.update(INSERT_SQL, handlerName, eventKey) > 0;
+    }
+}
@@ -0,0 +1,44 @@
+package org.yiqixue.secomm.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * 写入发件箱
+ * 必须在业务写事务中调用，事件与业务数据一起提交或回滚
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxPublisher {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO outbox_event (aggregate_type, aggregate_id, event_type, payload, status, attempts,"
+                    + " next_attempt_at, created_at) VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 记录一个事件；同一聚合的事件按写入顺序投递
+     */
+    public void publish(String aggregateType, Long aggregateId, String eventType, Object payload) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("发件箱事件必须在事务中写入: " + eventType);
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("事件内容无法序列化: " + eventType, e);
+        }
+        // 时间取应用时钟，与投递器比较重试时间时口径一致
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(INSERT_SQL, aggregateType, aggregateId, eventType, json, now, now);
+    }
+}
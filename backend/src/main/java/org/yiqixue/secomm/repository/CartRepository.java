@@ -1,12 +1,13 @@
 package org.yiqixue.secomm.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.yiqixue.secomm.entity.Cart;
 
-import java.time.LocalDateTime;
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,11 +30,14 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     List<Cart> findByStatus(Cart.CartStatus status);
 
     /**
-     * 查找指定时间之前最后更新的购物车（用于清理废弃购物车）
+     * 按增量更新购物车总计
      */
-    @Query("SELECT c FROM Cart c WHERE c.lastUpdated < :cutoffTime AND c.status = :status")
-    List<Cart> findCartsLastUpdatedBefore(@Param("cutoffTime") LocalDateTime cutoffTime, 
-                                         @Param("status") Cart.CartStatus status);
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalQuantity = c.totalQuantity + :quantityDelta,"
+            + " c.totalPrice = c.totalPrice + :priceDelta, c.lastUpdated = CURRENT_TIMESTAMP WHERE c.id = :cartId")
+    int applyTotalsDelta(@Param("cartId") Long cartId,
+                         @Param("quantityDelta") int quantityDelta,
+                         @Param("priceDelta") BigDecimal priceDelta);
 
     /**
      * 统计顾客的购物车数量
@@ -0,0 +1,68 @@
+package org.yiqixue.secomm.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.yiqixue.secomm.entity.ImageBlob;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    /**
+     * 引用计数加一，记录不存在时插入（单条语句，并发上传同一图片也不会冲突）
+     */
+    @Modifying
+    @Query(value = "INSERT INTO image_blob (hash, url, ref_count, date_created) VALUES (:hash, :url, 1, NOW())"
+            + " ON DUPLICATE KEY UPDATE ref_count = ref_count + 1", nativeQuery = true)
+    int acquire(@Param("hash") String hash, @Param("url") String url);
+
+    /**
+     * 已有图片的引用计数加一（导入文件直接引用已上传图片URL时使用），返回 0 表示图片记录不存在
+     */
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.refCount = b.refCount + 1 WHERE b.hash = :hash")
+    int retain(@Param("hash") String hash);
+
+    /**
+     * 登记可能已无引用的图片文件（如写入文件后事务回滚），记录已存在时不做修改，由回收扫描处理
+     */
+    @Modifying
+    @Query(value = "INSERT INTO image_blob (hash, url, ref_count, date_created) VALUES (:hash, :url, 0, NOW())"
+            + " ON DUPLICATE KEY UPDATE ref_count = ref_count", nativeQuery = true)
+    int registerOrphan(@Param("hash") String hash, @Param("url") String url);
+
+    /**
+     * 引用计数减一
+     */
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.refCount = b.refCount - 1 WHERE b.hash = :hash AND b.refCount > 0")
+    int release(@Param("hash") String hash);
+
+    /**
+     * 按哈希键集分页查找已无引用的记录（不加锁，删除前需用 findUnreferencedForUpdate 重新确认）
+     */
+    List<ImageBlob> findByHashGreaterThanAndRefCountLessThanEqualOrderByHashAsc(
+            String afterHash, Integer refCount, Limit limit);
+
+    /**
+     * 锁定仍无引用的记录；并发上传相同内容时 acquire 持有行锁，此处等待其提交后重新判断
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ImageBlob b WHERE b.hash = :hash AND b.refCount <= 0")
+    Optional<ImageBlob> findUnreferencedForUpdate(@Param("hash") String hash);
+
+    /**
+     * 删除已无引用的记录
+     */
+    @Modifying
+    @Query("DELETE FROM ImageBlob b WHERE b.hash = :hash AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+}
@@ -27,10 +27,11 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     Long getTotalQuantitySoldByProduct(@Param("productId") Long productId);
 
     /**
-     * 查找最畅销的商品
+     * 查找最畅销的商品（不含已取消订单）
      */
     @Query("SELECT oi.productId, SUM(oi.quantity) as totalSold " +
             "FROM OrderItem oi " +
+            "WHERE oi.order.status != 'CANCELLED' " +
             "GROUP BY oi.productId " +
             "ORDER BY totalSold DESC")
     List<Object[]> findBestSellingProducts();
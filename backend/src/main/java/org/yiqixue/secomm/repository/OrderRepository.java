@@ -1,13 +1,22 @@
 package org.yiqixue.secomm.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.yiqixue.secomm.entity.Order;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
 import java.math.BigDecimal;
 import java.util.List;
@@ -37,12 +46,25 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.customer")
     Page<Order> findAllWithCustomer(Pageable pageable);
 
+    /**
+     * 获取所有订单（带客户信息，游标分页）
+     */
+    @EntityGraph(attributePaths = "customer")
+    Window<Order> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
     /**
      * 根据订单ID获取订单详情（带客户和订单项信息）
      */
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.customer LEFT JOIN FETCH o.orderItems WHERE o.id = :orderId")
     Optional<Order> findByIdWithCustomerAndItems(@Param("orderId") Long orderId);
 
+    /**
+     * 锁定订单行，状态变更（取消时归还库存）在锁内判断，避免并发重复归还
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :orderId")
+    Optional<Order> findByIdForUpdate(@Param("orderId") Long orderId);
+
     /**
      * 搜索订单（根据订单号、客户姓名、邮箱）
      */
@@ -52,6 +74,19 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
            "c.email LIKE %:query%")
     Page<Order> searchOrders(@Param("query") String query, Pageable pageable);
 
+    /**
+     * 按ID批量获取订单（带客户信息），顺序不保证
+     */
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.customer WHERE o.id IN :ids")
+    List<Order> findByIdInWithCustomer(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 在给定ID范围内分页排序（带客户信息）
+     */
+    @Query(value = "SELECT o FROM Order o LEFT JOIN FETCH o.customer WHERE o.id IN :ids",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.id IN :ids")
+    Page<Order> findPageByIdInWithCustomer(@Param("ids") Collection<Long> ids, Pageable pageable);
+
     /**
      * 根据日期范围查找订单
      */
@@ -137,6 +172,17 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.customer WHERE o.customerId = :customerId")
     Page<Order> findByCustomerIdWithCustomer(@Param("customerId") Long customerId, Pageable pageable);
 
+    /**
+     * 根据客户ID查找订单（带客户信息，切片，不执行 COUNT 查询）
+     */
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.customer WHERE o.customerId = :customerId")
+    Slice<Order> findSliceByCustomerIdWithCustomer(@Param("customerId") Long customerId, Pageable pageable);
+
+    /**
+     * 统计客户的订单数量
+     */
+    long countByCustomerId(Long customerId);
+
     /**
      * 根据订单ID和客户ID获取订单详情（带客户和订单项信息）
      */
@@ -148,4 +194,15 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      */
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.customer WHERE o.customerId = :customerId AND o.status = :status")
     Page<Order> findByCustomerIdAndStatusWithCustomer(@Param("customerId") Long customerId, @Param("status") Order.OrderStatus status, Pageable pageable);
+
+    /**
+     * 根据客户ID和状态查找订单（带客户信息，切片，不执行 COUNT 查询）
+     */
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.customer WHERE o.customerId = :customerId AND o.status = :status")
+    Slice<Order> findSliceByCustomerIdAndStatusWithCustomer(@Param("customerId") Long customerId, @Param("status") Order.OrderStatus status, Pageable pageable);
+
+    /**
+     * 统计客户某状态的订单数量
+     */
+    long countByCustomerIdAndStatus(Long customerId, Order.OrderStatus status);
 }
@@ -3,6 +3,8 @@ package org.yiqixue.secomm.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import org.yiqixue.secomm.entity.ProductCategory;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,4 +19,9 @@ public interface ProductCategoryRepository extends JpaRepository<ProductCategory
      * 检查分类名称是否存在
      */
     boolean existsByCategoryName(String categoryName);
+
+    /**
+     * 根据分类名称列表批量查找分类
+     */
+    List<ProductCategory> findByCategoryNameIn(Collection<String> categoryNames);
 }
\ No newline at end of file
@@ -1,18 +1,36 @@
 package org.yiqixue.secomm.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.yiqixue.secomm.dto.ProductDTO;
 import org.yiqixue.secomm.entity.Product;
 import org.yiqixue.secomm.entity.ProductCategory;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    /**
+     * ProductDTO 构造器表达式，列顺序与 ProductDTO 全参构造器一致（要求查询中商品别名为 p、分类别名为 c）
+     */
+    String PRODUCT_DTO_SELECT = "new org.yiqixue.secomm.dto.ProductDTO("
+            + "p.id, p.sku, p.name, p.description, p.unitPrice, p.imageUrl, p.active, p.unitsInStock,"
+            + " p.dateCreated, p.lastUpdated, c.id, c.categoryName,"
+            + " p.thumbnailUrl, p.listImageUrl, p.detailImageUrl)";
+
     /**
      * 根据分类查找商品（分页）
      */
@@ -28,6 +46,18 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      */
     Optional<Product> findBySku(String sku);
 
+    /**
+     * 根据ID查找商品（同时抓取分类）
+     */
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.id = :id")
+    Optional<Product> findByIdWithCategory(@Param("id") Long id);
+
+    /**
+     * 根据SKU查找商品（同时抓取分类）
+     */
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.sku = :sku")
+    Optional<Product> findBySkuWithCategory(@Param("sku") String sku);
+
     /**
      * 查找激活状态的商品（分页）
      */
@@ -38,6 +68,56 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      */
     Page<Product> findByCategoryIdAndActiveTrue(Long categoryId, Pageable pageable);
 
+    /**
+     * 查找激活状态的商品（分页，直接投影为DTO，分类随商品一条语句取回）
+     */
+    @Query(value = "SELECT " + PRODUCT_DTO_SELECT + " FROM Product p JOIN p.category c WHERE p.active = true",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true")
+    Page<ProductDTO> findActiveProductDTOs(Pageable pageable);
+
+    /**
+     * 查找激活状态的商品（切片投影，不执行 COUNT 查询）
+     */
+    @Query("SELECT " + PRODUCT_DTO_SELECT + " FROM Product p JOIN p.category c WHERE p.active = true")
+    Slice<ProductDTO> findActiveProductDTOSlice(Pageable pageable);
+
+    /**
+     * 根据分类ID查找激活商品（分页投影）
+     */
+    @Query(value = "SELECT " + PRODUCT_DTO_SELECT + " FROM Product p JOIN p.category c"
+            + " WHERE c.id = :categoryId AND p.active = true",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId AND p.active = true")
+    Page<ProductDTO> findActiveProductDTOsByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    /**
+     * 根据分类ID查找激活商品（切片投影，不执行 COUNT 查询）
+     */
+    @Query("SELECT " + PRODUCT_DTO_SELECT + " FROM Product p JOIN p.category c"
+            + " WHERE c.id = :categoryId AND p.active = true")
+    Slice<ProductDTO> findActiveProductDTOSliceByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    /**
+     * 统计激活商品数量
+     */
+    long countByActiveTrue();
+
+    /**
+     * 统计分类下的激活商品数量
+     */
+    long countByCategoryIdAndActiveTrue(Long categoryId);
+
+    /**
+     * 查找激活状态的商品（游标分页，按排序键定位，不做 OFFSET 和 COUNT）
+     */
+    @EntityGraph(attributePaths = "category")
+    Window<Product> findByActiveTrue(ScrollPosition position, Sort sort, Limit limit);
+
+    /**
+     * 根据分类ID查找激活商品（游标分页）
+     */
+    @EntityGraph(attributePaths = "category")
+    Window<Product> findByCategoryIdAndActiveTrue(Long categoryId, ScrollPosition position, Sort sort, Limit limit);
+
     /**
      * 根据名称模糊搜索商品（分页）
      */
@@ -49,6 +129,55 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.name LIKE %:keyword% OR p.description LIKE %:keyword%")
     Page<Product> searchProducts(@Param("keyword") String keyword, Pageable pageable);
 
+    /**
+     * 根据名称或描述搜索商品（分页投影，搜索索引未就绪时使用）
+     */
+    @Query(value = "SELECT " + PRODUCT_DTO_SELECT + " FROM Product p JOIN p.category c"
+            + " WHERE p.name LIKE %:keyword% OR p.description LIKE %:keyword%",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.name LIKE %:keyword% OR p.description LIKE %:keyword%")
+    Page<ProductDTO> searchProductDTOs(@Param("keyword") String keyword, Pageable pageable);
+
+    /**
+     * 查找全部商品（同时抓取分类，用于构建内存索引）
+     */
+    @Query("SELECT p FROM Product p JOIN FETCH p.category")
+    List<Product> findAllWithCategory();
+
+    /**
+     * 查找全部商品（投影为DTO，用于构建内存索引）
+     */
+    @Query("SELECT " + PRODUCT_DTO_SELECT + " FROM Product p JOIN p.category c")
+    List<ProductDTO> findAllProductDTOs();
+
+    /**
+     * 根据ID列表批量查找商品（投影为DTO）
+     */
+    @Query("SELECT " + PRODUCT_DTO_SELECT + " FROM Product p JOIN p.category c WHERE p.id IN :ids")
+    List<ProductDTO> findProductDTOsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 根据SKU列表批量查找商品（投影为DTO）
+     */
+    @Query("SELECT " + PRODUCT_DTO_SELECT + " FROM Product p JOIN p.category c WHERE p.sku IN :skus")
+    List<ProductDTO> findProductDTOsBySkuIn(@Param("skus") Collection<String> skus);
+
+    /**
+     * 写入图片衍生尺寸URL；原图已被替换时不更新（返回 0）
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.thumbnailUrl = :thumbnailUrl, p.listImageUrl = :listImageUrl,"
+            + " p.detailImageUrl = :detailImageUrl WHERE p.id = :id AND p.imageUrl = :imageUrl")
+    int updateImageVariants(@Param("id") Long id, @Param("imageUrl") String imageUrl,
+                            @Param("thumbnailUrl") String thumbnailUrl,
+                            @Param("listImageUrl") String listImageUrl,
+                            @Param("detailImageUrl") String detailImageUrl);
+
+    /**
+     * 按ID键集查找原图URL以指定前缀开头、尚未生成衍生尺寸的商品
+     */
+    List<Product> findByIdGreaterThanAndImageUrlStartingWithAndThumbnailUrlIsNullOrderByIdAsc(
+            Long afterId, String imageUrlPrefix, Limit limit);
+
     /**
      * 查找库存不足的商品
      */
@@ -57,6 +186,12 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     boolean existsBySku(String sku);
 
+    /**
+     * 按分类分组统计商品数量，返回 [分类ID, 商品数]
+     */
+    @Query("SELECT p.category.id, COUNT(p) FROM Product p GROUP BY p.category.id")
+    List<Object[]> countProductsGroupByCategory();
+
     /**
      * 统计低库存产品数量
      */
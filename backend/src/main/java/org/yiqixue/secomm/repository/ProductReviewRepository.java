@@ -1,7 +1,12 @@
 package org.yiqixue.secomm.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -26,6 +31,22 @@ public interface ProductReviewRepository extends JpaRepository<ProductReview, Lo
      */
     Page<ProductReview> findByProductIdAndStatus(Long productId, String status, Pageable pageable);
 
+    /**
+     * 根据产品ID和状态查找评价（切片，不执行 COUNT 查询）
+     */
+    Slice<ProductReview> findSliceByProductIdAndStatus(Long productId, String status, Pageable pageable);
+
+    /**
+     * 统计产品某状态的评价数量
+     */
+    long countByProductIdAndStatus(Long productId, String status);
+
+    /**
+     * 根据产品ID和状态查找评价（游标分页）
+     */
+    Window<ProductReview> findByProductIdAndStatus(Long productId, String status,
+                                                   ScrollPosition position, Sort sort, Limit limit);
+
     /**
      * 根据客户ID查找评价（分页）
      */
@@ -0,0 +1,44 @@
+package org.yiqixue.secomm.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.yiqixue.secomm.entity.StockHold;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockHoldRepository extends JpaRepository<StockHold, Long> {
+
+    /**
+     * 锁定指定预留中仍处于预留状态的行（到期归还与下单确认互斥）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM StockHold h WHERE h.reservationId IN :reservationIds AND h.status = :status ORDER BY h.productId")
+    List<StockHold> findForUpdate(@Param("reservationIds") Collection<String> reservationIds,
+                                  @Param("status") StockHold.HoldStatus status);
+
+    /**
+     * 锁定客户处于指定状态的预留行（同一客户的新预留替换旧预留）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM StockHold h WHERE h.customerId = :customerId AND h.status = :status ORDER BY h.productId")
+    List<StockHold> findByCustomerForUpdate(@Param("customerId") Long customerId,
+                                            @Param("status") StockHold.HoldStatus status);
+
+    List<StockHold> findByStatus(StockHold.HoldStatus status);
+
+    /**
+     * 批量修改预留状态
+     */
+    @Modifying
+    @Query("UPDATE StockHold h SET h.status = :to WHERE h.reservationId IN :reservationIds AND h.status = :from")
+    int updateStatus(@Param("reservationIds") Collection<String> reservationIds,
+                     @Param("from") StockHold.HoldStatus from,
+                     @Param("to") StockHold.HoldStatus to);
+}
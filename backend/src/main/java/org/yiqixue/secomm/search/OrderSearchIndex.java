@@ -0,0 +1,329 @@
+package org.yiqixue.secomm.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.yiqixue.secomm.event.CustomerChangedEvent;
+import org.yiqixue.secomm.event.OrderCreatedEvent;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+import org.yiqixue.secomm.outbox.OutboxEventHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 订单搜索三元组索引（进程内）
+ * 订单号按订单建三元组倒排，客户姓名（名 姓）和邮箱按客户建三元组倒排，再经客户 -> 订单列表展开，
+ * 替代订单连接客户后的 LIKE '%keyword%' 扫描。候选结果用原文做子串校验，语义与 LIKE 一致（不区分大小写）。
+ * 查询少于 3 个字符时无法使用三元组，由调用方退回数据库查询
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderSearchIndex implements OutboxEventHandler<OrderCreatedEvent>, MetricsProvider {
+
+    static final int GRAM = 3;
+
+    private static final String SELECT_ORDERS_SQL = "SELECT id, order_number, customer_id FROM orders";
+
+    private static final String SELECT_CUSTOMERS_SQL = "SELECT id, first_name, last_name, email FROM customer";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 三元组 -> 订单ID
+    private final Map<String, IdList> orderGrams = new HashMap<>();
+
+    // 三元组 -> 客户ID
+    private final Map<String, IdList> customerGrams = new HashMap<>();
+
+    // 订单ID -> 小写订单号，用于校验候选
+    private final Map<Long, String> orderNumbers = new HashMap<>();
+
+    // 客户ID -> 小写搜索文本（姓名、邮箱）
+    private final Map<Long, String[]> customerTexts = new HashMap<>();
+
+    // 客户ID -> 订单ID
+    private final Map<Long, IdList> customerOrders = new HashMap<>();
+
+    private volatile boolean ready;
+
+    private final AtomicLong searches = new AtomicLong();
+
+    /**
+     * 按升序保存的 long 列表，比 Set<Long> 节省内存；订单ID基本递增，插入通常追加在末尾
+     */
+    static final class IdList {
+        private long[] ids = new long[4];
+        private int size;
+
+        boolean add(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return false;
+            }
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+            return true;
+        }
+
+        void remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+                size--;
+            }
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(int index) {
+            return ids[index];
+        }
+    }
+
+    /**
+     * 应用启动后全量构建；构建期间持有写锁，同时到达的增量更新在构建完成后应用
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            orderGrams.clear();
+            customerGrams.clear();
+            orderNumbers.clear();
+            customerTexts.clear();
+            customerOrders.clear();
+            jdbcTemplate.query(SELECT_CUSTOMERS_SQL, rs -> {
+                putCustomer(rs.getLong("id"), rs.getString("first_name"), rs.getString("last_name"),
+                        rs.getString("email"));
+            });
+            jdbcTemplate.query(SELECT_ORDERS_SQL, rs -> {
+                putOrder(rs.getLong("id"), rs.getString("order_number"), rs.getLong("customer_id"));
+            });
+            ready = true;
+            log.info("订单搜索索引构建完成 - 订单数: {}, 客户数: {}, 三元组数: {}, 耗时: {}ms",
+                    orderNumbers.size(), customerTexts.size(), orderGrams.size() + customerGrams.size(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public String getEventType() {
+        return OrderCreatedEvent.EVENT_TYPE;
+    }
+
+    @Override
+    public Class<OrderCreatedEvent> getPayloadType() {
+        return OrderCreatedEvent.class;
+    }
+
+    /**
+     * 新订单随发件箱事件加入索引（重复投递时幂等）
+     */
+    @Override
+    public void handle(OrderCreatedEvent event) {
+        lock.writeLock().lock();
+        try {
+            putOrder(event.getOrderId(), event.getOrderNumber(), event.getCustomerId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 客户写事务提交后更新该客户的搜索文本
+     */
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            putCustomer(event.getCustomerId(), event.getFirstName(), event.getLastName(), event.getEmail());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按订单号、客户姓名或邮箱的子串搜索
+     *
+     * @return 命中的订单ID（升序）；查询少于 3 个字符时返回 null，由调用方退回数据库查询
+     */
+    public List<Long> search(String query) {
+        String q = normalize(query);
+        if (q.length() < GRAM) {
+            return null;
+        }
+        searches.incrementAndGet();
+        List<String> grams = grams(q);
+
+        lock.readLock().lock();
+        try {
+            // 先收集再排序去重，宽泛查询（如邮箱域名）命中大量订单时避免逐个有序插入
+            long[] matched = new long[16];
+            int count = 0;
+            for (long orderId : candidates(orderGrams, grams)) {
+                if (orderNumbers.get(orderId).contains(q)) {
+                    matched = append(matched, count++, orderId);
+                }
+            }
+            for (long customerId : candidates(customerGrams, grams)) {
+                String[] texts = customerTexts.get(customerId);
+                IdList orders = customerOrders.get(customerId);
+                if (orders != null && (texts[0].contains(q) || texts[1].contains(q))) {
+                    for (int i = 0; i < orders.size(); i++) {
+                        matched = append(matched, count++, orders.get(i));
+                    }
+                }
+            }
+
+            Arrays.sort(matched, 0, count);
+            List<Long> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || matched[i] != matched[i - 1]) {
+                    result.add(matched[i]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 包含查询全部三元组的ID：从最短的倒排表出发，逐个在其余倒排表中二分查找
+     */
+    private static List<Long> candidates(Map<String, IdList> index, List<String> grams) {
+        List<IdList> postings = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            IdList posting = index.get(gram);
+            if (posting == null) {
+                return List.of();
+            }
+            postings.add(posting);
+        }
+        postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        IdList smallest = postings.get(0);
+        List<Long> result = new ArrayList<>();
+        outer:
+        for (int i = 0; i < smallest.size(); i++) {
+            long id = smallest.get(i);
+            for (int p = 1; p < postings.size(); p++) {
+                if (!postings.get(p).contains(id)) {
+                    continue outer;
+                }
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    private static long[] append(long[] array, int index, long value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    private void putOrder(long orderId, String orderNumber, long customerId) {
+        String text = normalize(orderNumber);
+        if (orderNumbers.putIfAbsent(orderId, text) == null) {
+            for (String gram : grams(text)) {
+                orderGrams.computeIfAbsent(gram, g -> new IdList()).add(orderId);
+            }
+        }
+        customerOrders.computeIfAbsent(customerId, id -> new IdList()).add(orderId);
+    }
+
+    private void putCustomer(long customerId, String firstName, String lastName, String email) {
+        String[] previous = customerTexts.get(customerId);
+        if (previous != null) {
+            for (String text : previous) {
+                for (String gram : grams(text)) {
+                    IdList posting = customerGrams.get(gram);
+                    if (posting != null) {
+                        posting.remove(customerId);
+                        if (posting.size() == 0) {
+                            customerGrams.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+
+        // 与原查询 CONCAT(firstName, ' ', lastName) 一致
+        String[] texts = {normalize(firstName + " " + lastName), normalize(email)};
+        customerTexts.put(customerId, texts);
+        for (String text : texts) {
+            for (String gram : grams(text)) {
+                customerGrams.computeIfAbsent(gram, g -> new IdList()).add(customerId);
+            }
+        }
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> grams(String text) {
+        List<String> grams = new ArrayList<>(Math.max(0, text.length() - GRAM + 1));
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderSearchIndex";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("ready", ready);
+        lock.readLock().lock();
+        try {
+            metrics.put("orders", orderNumbers.size());
+            metrics.put("customers", customerTexts.size());
+            metrics.put("orderGrams", orderGrams.size());
+            metrics.put("customerGrams", customerGrams.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.put("searches", searches.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,408 @@
+package org.yiqixue.secomm.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品分面筛选索引（进程内）
+ * 以商品ID为位下标，为每个分类、价格区间、有货、上架状态维护一个位图；
+ * 筛选条件按位与/或组合。每个分面的计数应用除该分面自身以外的全部条件，
+ * 已选中一个分类时仍能看到其他分类的商品数
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductFacetIndex {
+
+    // 应用刚启动、索引尚未构建完成时，查询最多等待的时间
+    private static final long READY_WAIT_SECONDS = 5;
+
+    private final ProductRepository productRepository;
+
+    // 价格区间分界点，n 个分界点划分出 n+1 个区间
+    @Value("${app.product-facets.price-buckets:50,100,200,500,1000}")
+    private BigDecimal[] priceBoundaries;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 商品ID -> 文档，按ID直接寻址
+    private FacetDoc[] docs = new FacetDoc[0];
+
+    private final BitSet all = new BitSet();
+    private final BitSet active = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final Map<Long, BitSet> byCategory = new HashMap<>();
+    private BitSet[] byPriceBucket;
+
+    // 排序字段 -> 按该字段升序排列的商品ID；写入后清空，查询时按需重建
+    private final Map<String, int[]> sortOrders = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
+
+    private record FacetDoc(int id, String name, BigDecimal unitPrice, LocalDateTime dateCreated,
+                            Long categoryId, int priceBucket, boolean active, boolean inStock) {
+    }
+
+    /**
+     * 筛选条件，字段为 null 表示不限
+     *
+     * @param categoryIds 分类ID（多个分类之间为“或”）
+     */
+    public record Query(Collection<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice,
+                       Boolean inStock, Boolean active) {
+    }
+
+    /**
+     * 价格区间计数，max 为 null 表示无上限
+     */
+    public record PriceRangeCount(BigDecimal min, BigDecimal max, long count) {
+    }
+
+    /**
+     * 筛选结果：当前页商品ID（已排序）、命中总数及各分面计数（各分面不应用自身的条件）
+     */
+    public record Result(List<Long> productIds, long total, Map<Long, Long> categoryCounts,
+                         List<PriceRangeCount> priceRangeCounts, long inStockCount, long outOfStockCount) {
+    }
+
+    /**
+     * 应用启动后全量构建索引
+     * 在写锁内读取商品：构建期间提交的变更事件等待构建完成后再应用，不会被构建读到的旧数据覆盖
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<ProductDTO> products;
+
+        lock.writeLock().lock();
+        try {
+            products = productRepository.findAllProductDTOs();
+            docs = new FacetDoc[0];
+            all.clear();
+            active.clear();
+            inStock.clear();
+            byCategory.clear();
+            byPriceBucket = new BitSet[priceBoundaries.length + 1];
+            for (int i = 0; i < byPriceBucket.length; i++) {
+                byPriceBucket[i] = new BitSet();
+            }
+            sortOrders.clear();
+            for (ProductDTO product : products) {
+                addDoc(product);
+            }
+            ready = true;
+            readyLatch.countDown();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("商品分面索引构建完成 - 商品数: {}, 分类数: {}, 耗时: {}ms",
+                products.size(), byCategory.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 商品写事务提交后增量更新索引
+     * 在写锁内判断是否已构建：构建开始前到达的事件可以忽略（构建时读取的是其提交后的数据），
+     * 构建过程中到达的事件等待写锁，构建完成后再应用
+     */
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                return;
+            }
+            if (event.isStockOnly()) {
+                // 只翻转有货位，排序字段未变，保留排序序列
+                updateStock(event.getProduct());
+                return;
+            }
+            removeDoc(event.getProductId());
+            if (event.getType() != ProductChangedEvent.Type.DELETED) {
+                addDoc(event.getProduct());
+            }
+            sortOrders.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 筛选商品
+     *
+     * @param sortBy 排序字段：id、name、unitPrice、dateCreated
+     */
+    public Result search(Query query, int offset, int limit, String sortBy, boolean ascending) {
+        Comparator<FacetDoc> comparator = comparatorFor(sortBy);
+        awaitReady();
+
+        lock.readLock().lock();
+        try {
+            BitSet result = filter(query);
+            long total = result.cardinality();
+
+            // 分类计数不应用分类条件
+            Map<Long, Long> categoryCounts = new TreeMap<>();
+            BitSet withoutCategories = hasCategories(query)
+                    ? filter(new Query(null, query.minPrice(), query.maxPrice(), query.inStock(), query.active()))
+                    : result;
+            for (int id = withoutCategories.nextSetBit(0); id >= 0; id = withoutCategories.nextSetBit(id + 1)) {
+                categoryCounts.merge(docs[id].categoryId(), 1L, Long::sum);
+            }
+
+            // 价格区间计数不应用价格条件
+            long[] bucketCounts = new long[byPriceBucket.length];
+            BitSet withoutPrice = query.minPrice() != null || query.maxPrice() != null
+                    ? filter(new Query(query.categoryIds(), null, null, query.inStock(), query.active()))
+                    : result;
+            for (int id = withoutPrice.nextSetBit(0); id >= 0; id = withoutPrice.nextSetBit(id + 1)) {
+                bucketCounts[docs[id].priceBucket()]++;
+            }
+
+            // 有货/缺货计数不应用有货条件
+            BitSet withoutStock = query.inStock() != null
+                    ? filter(new Query(query.categoryIds(), query.minPrice(), query.maxPrice(), null, query.active()))
+                    : (BitSet) result.clone();
+            long stockTotal = withoutStock.cardinality();
+            withoutStock.and(inStock);
+            long inStockCount = withoutStock.cardinality();
+
+            List<PriceRangeCount> priceRangeCounts = new ArrayList<>(bucketCounts.length);
+            for (int i = 0; i < bucketCounts.length; i++) {
+                priceRangeCounts.add(new PriceRangeCount(
+                        i == 0 ? BigDecimal.ZERO : priceBoundaries[i - 1],
+                        i < priceBoundaries.length ? priceBoundaries[i] : null,
+                        bucketCounts[i]));
+            }
+
+            List<Long> pageIds = page(result, offset, limit, sortBy, comparator, ascending);
+            return new Result(pageIds, total, categoryCounts, priceRangeCounts,
+                    inStockCount, stockTotal - inStockCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 应用刚启动时等待启动构建完成，不在请求线程上构建
+     */
+    private void awaitReady() {
+        if (ready) {
+            return;
+        }
+        try {
+            if (!readyLatch.await(READY_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("商品筛选索引正在构建，请稍后重试");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待商品筛选索引构建被中断", e);
+        }
+    }
+
+    private static boolean hasCategories(Query query) {
+        return query.categoryIds() != null && !query.categoryIds().isEmpty();
+    }
+
+    /**
+     * 调用方需持有读锁
+     */
+    private BitSet filter(Query query) {
+        BitSet result = (BitSet) all.clone();
+
+        if (query.active() != null) {
+            if (query.active()) {
+                result.and(active);
+            } else {
+                result.andNot(active);
+            }
+        }
+        if (query.inStock() != null) {
+            if (query.inStock()) {
+                result.and(inStock);
+            } else {
+                result.andNot(inStock);
+            }
+        }
+        if (hasCategories(query)) {
+            BitSet categories = new BitSet();
+            for (Long categoryId : query.categoryIds()) {
+                BitSet bits = byCategory.get(categoryId);
+                if (bits != null) {
+                    categories.or(bits);
+                }
+            }
+            result.and(categories);
+        }
+        if (query.minPrice() != null || query.maxPrice() != null) {
+            applyPriceRange(result, query.minPrice(), query.maxPrice());
+        }
+        return result;
+    }
+
+    /**
+     * 价格区间：先取覆盖到的区间位图之并，再逐个校验首尾两个区间内的商品
+     */
+    private void applyPriceRange(BitSet result, BigDecimal minPrice, BigDecimal maxPrice) {
+        int firstBucket = minPrice != null ? bucketOf(minPrice) : 0;
+        int lastBucket = maxPrice != null ? bucketOf(maxPrice) : byPriceBucket.length - 1;
+
+        BitSet prices = new BitSet();
+        for (int i = firstBucket; i <= lastBucket; i++) {
+            prices.or(byPriceBucket[i]);
+        }
+        result.and(prices);
+
+        for (int bucket : new int[]{firstBucket, lastBucket}) {
+            BitSet boundary = (BitSet) byPriceBucket[bucket].clone();
+            boundary.and(result);
+            for (int id = boundary.nextSetBit(0); id >= 0; id = boundary.nextSetBit(id + 1)) {
+                BigDecimal price = docs[id].unitPrice();
+                if ((minPrice != null && price.compareTo(minPrice) < 0)
+                        || (maxPrice != null && price.compareTo(maxPrice) > 0)) {
+                    result.clear(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * 调用方需持有读锁；按ID排序直接遍历位图，其他字段使用预排序的ID序列
+     */
+    private List<Long> page(BitSet result, int offset, int limit, String sortBy,
+                            Comparator<FacetDoc> comparator, boolean ascending) {
+        List<Long> pageIds = new ArrayList<>(limit);
+        int skipped = 0;
+
+        if (comparator == null) {
+            int id = ascending ? result.nextSetBit(0) : result.previousSetBit(result.length() - 1);
+            while (id >= 0 && pageIds.size() < limit) {
+                if (skipped++ >= offset) {
+                    pageIds.add((long) id);
+                }
+                id = ascending ? result.nextSetBit(id + 1) : result.previousSetBit(id - 1);
+            }
+            return pageIds;
+        }
+
+        // 读锁下写线程被排除，此时计算并缓存排序序列是安全的
+        int[] order = sortOrders.computeIfAbsent(sortBy, key -> sortedIds(comparator));
+        for (int i = 0; i < order.length && pageIds.size() < limit; i++) {
+            int id = order[ascending ? i : order.length - 1 - i];
+            if (result.get(id) && skipped++ >= offset) {
+                pageIds.add((long) id);
+            }
+        }
+        return pageIds;
+    }
+
+    private int[] sortedIds(Comparator<FacetDoc> comparator) {
+        List<FacetDoc> sorted = new ArrayList<>(all.cardinality());
+        for (int id = all.nextSetBit(0); id >= 0; id = all.nextSetBit(id + 1)) {
+            sorted.add(docs[id]);
+        }
+        sorted.sort(comparator.thenComparingInt(FacetDoc::id));
+        return sorted.stream().mapToInt(FacetDoc::id).toArray();
+    }
+
+    private static Comparator<FacetDoc> comparatorFor(String sortBy) {
+        return switch (sortBy) {
+            case "id" -> null;
+            case "name" -> Comparator.comparing(FacetDoc::name, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "unitPrice" -> Comparator.comparing(FacetDoc::unitPrice);
+            case "dateCreated" -> Comparator.comparing(FacetDoc::dateCreated,
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            default -> throw new IllegalArgumentException("不支持的排序字段: " + sortBy);
+        };
+    }
+
+    private int bucketOf(BigDecimal price) {
+        int bucket = 0;
+        while (bucket < priceBoundaries.length && price.compareTo(priceBoundaries[bucket]) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private void addDoc(ProductDTO product) {
+        int id = Math.toIntExact(product.getId());
+        boolean isActive = Boolean.TRUE.equals(product.getActive());
+        boolean hasStock = product.getUnitsInStock() != null && product.getUnitsInStock() > 0;
+        FacetDoc doc = new FacetDoc(id, product.getName(), product.getUnitPrice(), product.getDateCreated(),
+                product.getCategoryId(), bucketOf(product.getUnitPrice()), isActive, hasStock);
+
+        if (id >= docs.length) {
+            docs = Arrays.copyOf(docs, Math.max(id + 1, docs.length * 2));
+        }
+        docs[id] = doc;
+        all.set(id);
+        active.set(id, isActive);
+        inStock.set(id, hasStock);
+        byCategory.computeIfAbsent(doc.categoryId(), k -> new BitSet()).set(id);
+        byPriceBucket[doc.priceBucket()].set(id);
+    }
+
+    private void updateStock(ProductDTO product) {
+        int id = Math.toIntExact(product.getId());
+        if (id >= docs.length || docs[id] == null) {
+            return;
+        }
+        FacetDoc doc = docs[id];
+        boolean hasStock = product.getUnitsInStock() != null && product.getUnitsInStock() > 0;
+        if (doc.inStock() != hasStock) {
+            docs[id] = new FacetDoc(doc.id(), doc.name(), doc.unitPrice(), doc.dateCreated(), doc.categoryId(),
+                    doc.priceBucket(), doc.active(), hasStock);
+            inStock.set(id, hasStock);
+        }
+    }
+
+    private void removeDoc(Long productId) {
+        int id = Math.toIntExact(productId);
+        if (id >= docs.length || docs[id] == null) {
+            return;
+        }
+        FacetDoc doc = docs[id];
+        docs[id] = null;
+        all.clear(id);
+        active.clear(id);
+        inStock.clear(id);
+        BitSet category = byCategory.get(doc.categoryId());
+        if (category != null) {
+            category.clear(id);
+            if (category.isEmpty()) {
+                byCategory.remove(doc.categoryId());
+            }
+        }
+        byPriceBucket[doc.priceBucket()].clear(id);
+    }
+}
@@ -0,0 +1,249 @@
+package org.yiqixue.secomm.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+import org.yiqixue.secomm.mapper.ProductMapper;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品搜索倒排索引（进程内）
+ * 索引商品名称、描述和SKU，使用 BM25 打分，替代 LIKE '%keyword%' 全表扫描
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    // BM25 参数
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // 字段权重：名称和SKU命中比描述命中更重要
+    private static final int NAME_WEIGHT = 3;
+    private static final int SKU_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 词项 -> (商品ID -> 加权词频)
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    // 商品ID -> 文档信息
+    private final Map<Long, IndexedDoc> docs = new HashMap<>();
+
+    private long totalLength;
+
+    private volatile boolean ready;
+
+    /**
+     * 搜索结果：按得分排序后的当前页商品ID及命中总数
+     */
+    public record Hits(List<Long> productIds, long total) {
+    }
+
+    private record IndexedDoc(Map<String, Integer> termFreqs, int length) {
+    }
+
+    private record ScoredDoc(Long productId, double score) {
+    }
+
+    /**
+     * 应用启动后全量构建索引
+     * 在写锁内读取商品：构建期间提交的变更事件等待构建完成后再应用，不会被构建读到的旧数据覆盖；
+     * 构建开始前已提交的变更包含在读取结果中
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<ProductDTO> products;
+
+        lock.writeLock().lock();
+        try {
+            products = productMapper.toDTOList(productRepository.findAllWithCategory());
+            postings.clear();
+            docs.clear();
+            totalLength = 0;
+            for (ProductDTO product : products) {
+                addDoc(product);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("商品搜索索引构建完成 - 商品数: {}, 词项数: {}, 耗时: {}ms",
+                products.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 商品写事务提交后增量更新索引
+     */
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        // 库存不参与检索
+        if (event.isStockOnly()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDoc(event.getProductId());
+            if (event.getType() != ProductChangedEvent.Type.DELETED) {
+                addDoc(event.getProduct());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 搜索商品
+     *
+     * @param keyword 搜索关键词
+     * @param offset 起始位置
+     * @param limit 返回条数
+     * @return 当前页商品ID（按相关度排序）及命中总数
+     */
+    public Hits search(String keyword, int offset, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextTokenizer.tokenizeForQuery(keyword)));
+        if (terms.isEmpty()) {
+            return new Hits(Collections.emptyList(), 0);
+        }
+
+        // 最后一个拉丁词按前缀展开，用户尚未输入完整单词时也能命中
+        String lastTerm = terms.get(terms.size() - 1);
+        boolean expandLast = !TextTokenizer.isCjk(lastTerm.codePointAt(0))
+                && !keyword.isEmpty()
+                && Character.isLetterOrDigit(keyword.codePointBefore(keyword.length()));
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < terms.size(); i++) {
+                boolean prefix = expandLast && i == terms.size() - 1;
+                Map<Long, Double> termScores = scoreTerm(terms.get(i), prefix);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // 多个词项之间取交集
+                    Map<Long, Double> merged = new HashMap<>();
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        Double other = termScores.get(entry.getKey());
+                        if (other != null) {
+                            merged.put(entry.getKey(), entry.getValue() + other);
+                        }
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) {
+                    return new Hits(Collections.emptyList(), 0);
+                }
+            }
+
+            List<ScoredDoc> ranked = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> ranked.add(new ScoredDoc(id, score)));
+            ranked.sort((a, b) -> {
+                int cmp = Double.compare(b.score(), a.score());
+                return cmp != 0 ? cmp : a.productId().compareTo(b.productId());
+            });
+
+            List<Long> pageIds = new ArrayList<>();
+            for (int i = offset; i < ranked.size() && i < offset + limit; i++) {
+                pageIds.add(ranked.get(i).productId());
+            }
+            return new Hits(pageIds, ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 计算单个词项对各文档的 BM25 得分；前缀模式下取展开词项中的最高分
+     */
+    private Map<Long, Double> scoreTerm(String term, boolean prefix) {
+        Map<Long, Double> result = new HashMap<>();
+        NavigableMap<String, Map<Long, Integer>> matched = prefix
+                ? postings.subMap(term, true, term + Character.MAX_VALUE, false)
+                : postings.subMap(term, true, term, true);
+
+        double avgLength = docs.isEmpty() ? 1.0 : (double) totalLength / docs.size();
+        for (Map<Long, Integer> posting : matched.values()) {
+            double idf = Math.log(1 + (docs.size() - posting.size() + 0.5) / (posting.size() + 0.5));
+            for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+                IndexedDoc doc = docs.get(entry.getKey());
+                double tf = entry.getValue();
+                double score = idf * tf * (K1 + 1)
+                        / (tf + K1 * (1 - B + B * doc.length() / avgLength));
+                result.merge(entry.getKey(), score, Math::max);
+            }
+        }
+        return result;
+    }
+
+    private void addDoc(ProductDTO product) {
+        Map<String, Integer> termFreqs = new HashMap<>();
+        addField(termFreqs, product.getName(), NAME_WEIGHT);
+        addField(termFreqs, product.getSku(), SKU_WEIGHT);
+        addField(termFreqs, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
+                    .put(product.getId(), entry.getValue());
+            length += entry.getValue();
+        }
+        docs.put(product.getId(), new IndexedDoc(termFreqs, length));
+        totalLength += length;
+    }
+
+    private void removeDoc(Long productId) {
+        IndexedDoc doc = docs.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        Set<String> emptied = new HashSet<>();
+        for (String term : doc.termFreqs().keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    emptied.add(term);
+                }
+            }
+        }
+        emptied.forEach(postings::remove);
+        totalLength -= doc.length();
+    }
+
+    private static void addField(Map<String, Integer> termFreqs, String text, int weight) {
+        for (String token : TextTokenizer.tokenizeForIndex(text)) {
+            termFreqs.merge(token, weight, Integer::sum);
+        }
+    }
+}
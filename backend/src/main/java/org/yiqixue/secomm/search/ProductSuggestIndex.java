@@ -0,0 +1,318 @@
+package org.yiqixue.secomm.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.dto.ProductSuggestionDTO;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+import org.yiqixue.secomm.repository.OrderItemRepository;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品输入联想索引（前缀树）
+ * 以商品名称（含每个单词/汉字起始的后缀）和SKU建树，每个节点缓存子树内销量最高的前 N 个商品，
+ * 查询只需沿前缀走到对应节点，直接返回缓存结果
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSuggestIndex {
+
+    // 单个键的最大长度，限制CJK后缀带来的节点数量
+    private static final int MAX_KEY_LENGTH = 20;
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    @Value("${app.product-suggest.top-n:10}")
+    private int topN;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Node root = new Node();
+
+    // 商品ID -> 联想项
+    private final Map<Long, Candidate> candidates = new HashMap<>();
+
+    // 商品ID -> 该商品写入树中的键
+    private final Map<Long, Set<String>> keysByProduct = new HashMap<>();
+
+    // 商品ID -> 销量，不含已取消订单（全量重建时刷新）
+    private Map<Long, Long> popularity = Map.of();
+
+    private static final Comparator<Candidate> RANKING = Comparator
+            .comparingLong(Candidate::popularity).reversed()
+            .thenComparingInt(candidate -> candidate.name().length())
+            .thenComparing(Candidate::productId);
+
+    private record Candidate(Long productId, String name, String sku, String imageUrl, long popularity) {
+    }
+
+    private record PathStep(Node parent, char c, Node node) {
+    }
+
+    private static final class Node {
+
+        final Map<Character, Node> children = new HashMap<>();
+
+        // 在此节点结束的键所属的商品
+        final Set<Long> terminals = new HashSet<>();
+
+        // 子树内排名前 N 的商品（已排序）
+        List<Candidate> top = new ArrayList<>();
+    }
+
+    /**
+     * 应用启动后全量构建；之后定期重建以刷新销量排名。
+     * 持写锁读取商品和销量，读取期间提交的商品变更等重建完成后再增量应用，不会被旧数据覆盖
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.product-suggest.rebuild-ms:3600000}",
+            fixedDelayString = "${app.product-suggest.rebuild-ms:3600000}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            Map<Long, Long> sales = new HashMap<>();
+            for (Object[] row : orderItemRepository.findBestSellingProducts()) {
+                sales.put((Long) row[0], ((Number) row[1]).longValue());
+            }
+            List<ProductDTO> products = productRepository.findAllProductDTOs();
+
+            root = new Node();
+            candidates.clear();
+            keysByProduct.clear();
+            popularity = sales;
+            for (ProductDTO product : products) {
+                addProduct(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("商品联想索引构建完成 - 商品数: {}, 耗时: {}ms",
+                candidates.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 商品写事务提交后增量更新
+     */
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        // 联想只用名称和SKU，库存变化无需更新
+        if (event.isStockOnly()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeProduct(event.getProductId());
+            if (event.getType() != ProductChangedEvent.Type.DELETED) {
+                addProduct(event.getProduct());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按前缀返回联想结果
+     *
+     * @param prefix 用户已输入的前缀
+     * @param limit 返回条数（不超过 top-n 配置）
+     */
+    public List<ProductSuggestionDTO> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String walkKey = key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < walkKey.length() && node != null; i++) {
+                node = node.children.get(walkKey.charAt(i));
+            }
+            if (node == null) {
+                return Collections.emptyList();
+            }
+
+            List<ProductSuggestionDTO> result = new ArrayList<>(Math.min(limit, node.top.size()));
+            for (Candidate candidate : node.top) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                // 超出树深度的部分逐个校验
+                if (walkKey.length() < key.length() && !matchesBeyondDepth(candidate, key)) {
+                    continue;
+                }
+                result.add(ProductSuggestionDTO.builder()
+                        .productId(candidate.productId())
+                        .name(candidate.name())
+                        .sku(candidate.sku())
+                        .imageUrl(candidate.imageUrl())
+                        .popularity(candidate.popularity())
+                        .build());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean matchesBeyondDepth(Candidate candidate, String key) {
+        return normalize(candidate.name()).contains(key) || normalize(candidate.sku()).startsWith(key);
+    }
+
+    /**
+     * 调用方需持有写锁；只索引上架商品
+     */
+    private void addProduct(ProductDTO product) {
+        if (!Boolean.TRUE.equals(product.getActive())) {
+            return;
+        }
+        Candidate candidate = new Candidate(product.getId(), product.getName(), product.getSku(),
+                product.getImageUrl(), popularity.getOrDefault(product.getId(), 0L));
+        Set<String> keys = keysOf(product);
+        candidates.put(product.getId(), candidate);
+        keysByProduct.put(product.getId(), keys);
+
+        for (String key : keys) {
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+                offer(node, candidate);
+            }
+            node.terminals.add(product.getId());
+        }
+    }
+
+    /**
+     * 调用方需持有写锁；从各键路径上的节点移除商品，按深度自底向上重算受影响节点的前 N 名
+     */
+    private void removeProduct(Long productId) {
+        Set<String> keys = keysByProduct.remove(productId);
+        candidates.remove(productId);
+        if (keys == null) {
+            return;
+        }
+
+        // 多个键可能共享路径，按深度分层去重
+        List<Map<Node, PathStep>> levels = new ArrayList<>();
+        for (String key : keys) {
+            Node parent = root;
+            for (int i = 0; i < key.length(); i++) {
+                Node node = parent.children.get(key.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (levels.size() <= i) {
+                    levels.add(new HashMap<>());
+                }
+                levels.get(i).putIfAbsent(node, new PathStep(parent, key.charAt(i), node));
+                if (i == key.length() - 1) {
+                    node.terminals.remove(productId);
+                }
+                parent = node;
+            }
+        }
+
+        for (int depth = levels.size() - 1; depth >= 0; depth--) {
+            for (PathStep step : levels.get(depth).values()) {
+                Node node = step.node();
+                if (node.top.removeIf(candidate -> candidate.productId().equals(productId))) {
+                    recomputeTop(node);
+                }
+                // 剪掉空子树
+                if (node.terminals.isEmpty() && node.children.isEmpty()) {
+                    step.parent().children.remove(step.c());
+                }
+            }
+        }
+    }
+
+    /**
+     * 由本节点结束的商品和各子节点的前 N 名合并得出本节点的前 N 名
+     */
+    private void recomputeTop(Node node) {
+        Map<Long, Candidate> merged = new HashMap<>();
+        for (Long productId : node.terminals) {
+            Candidate candidate = candidates.get(productId);
+            if (candidate != null) {
+                merged.put(productId, candidate);
+            }
+        }
+        for (Node child : node.children.values()) {
+            for (Candidate candidate : child.top) {
+                merged.putIfAbsent(candidate.productId(), candidate);
+            }
+        }
+        List<Candidate> top = new ArrayList<>(merged.values());
+        top.sort(RANKING);
+        node.top = top.size() > topN ? new ArrayList<>(top.subList(0, topN)) : top;
+    }
+
+    private void offer(Node node, Candidate candidate) {
+        List<Candidate> top = node.top;
+        for (Candidate existing : top) {
+            if (existing.productId().equals(candidate.productId())) {
+                return;
+            }
+        }
+        int index = Collections.binarySearch(top, candidate, RANKING);
+        int insertAt = index >= 0 ? index : -index - 1;
+        if (insertAt < topN) {
+            top.add(insertAt, candidate);
+            if (top.size() > topN) {
+                top.remove(top.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * 键：完整SKU、完整名称，以及名称中从每个单词或汉字开始的后缀
+     */
+    private static Set<String> keysOf(ProductDTO product) {
+        Set<String> keys = new LinkedHashSet<>();
+        addKey(keys, normalize(product.getSku()));
+
+        String name = normalize(product.getName());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1));
+            if (Character.isLetterOrDigit(c) && (wordStart || TextTokenizer.isCjk(c))) {
+                addKey(keys, name.substring(i));
+            }
+        }
+        return keys;
+    }
+
+    private static void addKey(Set<String> keys, String key) {
+        if (!key.isEmpty()) {
+            keys.add(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,96 @@
+package org.yiqixue.secomm.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 文本分词工具
+ * 拉丁文字按单词切分（转小写），中日韩文字按二元组（bigram）切分
+ */
+public final class TextTokenizer {
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * 建索引时使用：CJK连续片段同时输出单字和二元组，保证单字查询也能命中
+     */
+    public static List<String> tokenizeForIndex(String text) {
+        return tokenize(text, true);
+    }
+
+    /**
+     * 查询时使用：CJK片段长度大于1时只输出二元组，长度为1时输出单字
+     */
+    public static List<String> tokenizeForQuery(String text) {
+        return tokenize(text, false);
+    }
+
+    /**
+     * 判断字符是否属于中日韩文字
+     */
+    public static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static List<String> tokenize(String text, boolean forIndex) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        StringBuilder word = new StringBuilder();
+        List<Integer> cjkRun = new ArrayList<>();
+
+        int i = 0;
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (isCjk(codePoint)) {
+                flushWord(word, tokens);
+                cjkRun.add(codePoint);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                flushCjk(cjkRun, tokens, forIndex);
+                word.appendCodePoint(codePoint);
+            } else {
+                flushWord(word, tokens);
+                flushCjk(cjkRun, tokens, forIndex);
+            }
+        }
+        flushWord(word, tokens);
+        flushCjk(cjkRun, tokens, forIndex);
+
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString().toLowerCase(Locale.ROOT));
+            word.setLength(0);
+        }
+    }
+
+    private static void flushCjk(List<Integer> run, List<String> tokens, boolean forIndex) {
+        if (run.isEmpty()) {
+            return;
+        }
+        if (run.size() == 1 || forIndex) {
+            for (int codePoint : run) {
+                tokens.add(new String(Character.toChars(codePoint)));
+            }
+        }
+        for (int j = 0; j + 1 < run.size(); j++) {
+            tokens.add(new StringBuilder()
+                    .appendCodePoint(run.get(j))
+                    .appendCodePoint(run.get(j + 1))
+                    .toString());
+        }
+        run.clear();
+    }
+}
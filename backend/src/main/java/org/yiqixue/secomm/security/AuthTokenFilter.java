@@ -1,5 +1,6 @@
 package org.yiqixue.secomm.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,16 +22,21 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
     private final UserDetailsServiceImpl userDetailsService;
+    private final LegacyPrincipalCache legacyPrincipalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            Claims claims = jwt != null ? jwtUtils.parseJwtToken(jwt) : null;
+            if (claims != null) {
+                // 新令牌直接由声明构建用户主体；旧令牌只有用户名，查库结果短时缓存
+                UserDetails userDetails = jwtUtils.getPrincipalFromClaims(claims);
+                if (userDetails == null) {
+                    userDetails = legacyPrincipalCache.get(claims.getSubject(),
+                            username -> (UserPrincipal) userDetailsService.loadUserByUsername(username));
+                }
                 UsernamePasswordAuthenticationToken authentication = 
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
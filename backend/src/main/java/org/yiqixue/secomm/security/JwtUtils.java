@@ -5,15 +5,23 @@ import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class JwtUtils {
 
+    static final String USER_ID_CLAIM = "userId";
+    static final String CUSTOMER_ID_CLAIM = "customerId";
+    static final String ROLES_CLAIM = "roles";
+
     @Value("${app.jwtSecret:mySecretKey}")
     private String jwtSecret;
 
@@ -24,17 +32,71 @@ public class JwtUtils {
         return Keys.hmacShaKeyFor(jwtSecret.getBytes());
     }
 
+    /**
+     * 用户ID、客户ID和角色作为签名声明写入令牌，请求时据此构建用户主体，不再查库
+     */
     public String generateJwtToken(Authentication authentication) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        List<String> roles = userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .subject(userPrincipal.getUsername())
+                .claim(USER_ID_CLAIM, userPrincipal.getId())
+                .claim(ROLES_CLAIM, roles);
+        if (userPrincipal.getCustomerId() != null) {
+            builder.claim(CUSTOMER_ID_CLAIM, userPrincipal.getCustomerId());
+        }
+        return builder
                 .issuedAt(new Date())
                 .expiration(new Date((new Date()).getTime() + jwtExpirationMs))
                 .signWith(getSigningKey())
                 .compact();
     }
 
+    /**
+     * 校验并解析令牌，无效时返回 null
+     */
+    public Claims parseJwtToken(String authToken) {
+        try {
+            return Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(authToken).getPayload();
+        } catch (MalformedJwtException e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
+        } catch (ExpiredJwtException e) {
+            log.error("JWT token is expired: {}", e.getMessage());
+        } catch (UnsupportedJwtException e) {
+            log.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            log.error("Invalid JWT signature: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 从令牌声明构建用户主体；此前签发、不含用户ID和角色声明的令牌返回 null
+     */
+    public UserPrincipal getPrincipalFromClaims(Claims claims) {
+        if (!claims.containsKey(USER_ID_CLAIM) || !claims.containsKey(ROLES_CLAIM)) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = ((List<?>) claims.get(ROLES_CLAIM, List.class)).stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(role)))
+                .collect(Collectors.toList());
+        return new UserPrincipal(
+                claims.get(USER_ID_CLAIM, Long.class),
+                claims.getSubject(),
+                null,
+                null,
+                null,
+                claims.get(CUSTOMER_ID_CLAIM, Long.class),
+                null,
+                authorities
+        );
+    }
+
     public String getUserNameFromJwtToken(String token) {
         return Jwts.parser()
                 .verifyWith(getSigningKey())
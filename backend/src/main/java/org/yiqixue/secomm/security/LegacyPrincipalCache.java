@@ -0,0 +1,74 @@
+package org.yiqixue.secomm.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 旧令牌的用户主体缓存
+ * 此前签发的令牌只含用户名，需要查库构建用户主体；按用户名缓存一小段时间，旧令牌全部过期后自然不再使用
+ */
+@Component
+public class LegacyPrincipalCache implements MetricsProvider {
+
+    @Value("${app.jwt-legacy-cache.max-size:1000}")
+    private int maxSize;
+
+    @Value("${app.jwt-legacy-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private record CacheEntry(UserPrincipal principal, long expiresAt) {
+    }
+
+    // 按访问顺序排列，超出容量时淘汰最久未访问的条目
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * 按用户名读取，未命中或已过期时调用 loader 加载
+     */
+    public UserPrincipal get(String username, Function<String, UserPrincipal> loader) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CacheEntry entry = entries.get(username);
+            if (entry != null && entry.expiresAt() > now) {
+                hits.incrementAndGet();
+                return entry.principal();
+            }
+        }
+        misses.incrementAndGet();
+        UserPrincipal principal = loader.apply(username);
+        synchronized (entries) {
+            entries.put(username, new CacheEntry(principal, now + ttlSeconds * 1000));
+        }
+        return principal;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "legacyTokenPrincipals";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (entries) {
+            metrics.put("size", entries.size());
+        }
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        return metrics;
+    }
+}
@@ -7,8 +7,10 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.entity.Customer;
 import org.yiqixue.secomm.entity.Role;
 import org.yiqixue.secomm.entity.User;
+import org.yiqixue.secomm.repository.CustomerRepository;
 import org.yiqixue.secomm.repository.UserRepository;
 import org.yiqixue.secomm.repository.UserRoleRepository;
 
@@ -28,6 +30,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final UserRoleRepository userRoleRepository;
+    private final CustomerRepository customerRepository;
 
     @Override
     @Transactional(readOnly = true)
@@ -39,6 +42,11 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         Set<Role> roles = userRoleRepository.findRolesByUserId(user.getId());
         
         log.info("用户 {} 的角色数量: {}", username, roles.size());
+
+        // 客户ID写入令牌，之后的请求不再按用户ID查客户
+        Long customerId = customerRepository.findByUserId(user.getId())
+                .map(Customer::getId)
+                .orElse(null);
         
         // 直接构建authorities，不依赖user.getRoles()
         List<GrantedAuthority> authorities = roles.stream()
@@ -51,6 +59,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 user.getRealName(),
                 user.getPhone(),
                 user.getGender(),
+                customerId,
                 user.getPassword(),
                 authorities
         ) {
@@ -26,6 +26,9 @@ public class UserPrincipal implements UserDetails {
     private String phone;
     private User.Gender gender;
 
+    // 对应的客户ID（customer 表），没有客户记录的用户（如管理员）为空
+    private Long customerId;
+
     @JsonIgnore
     private String password;
 
@@ -47,6 +50,7 @@ public class UserPrincipal implements UserDetails {
                 user.getRealName(),
                 user.getPhone(),
                 user.getGender(),
+                null,
                 user.getPassword(),
 
                 authorities
@@ -0,0 +1,249 @@
+package org.yiqixue.secomm.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 废弃购物车清理任务
+ * 按 (last_updated, id) 键集分页扫描长时间未更新的活跃购物车，每块在一个事务中用集合 UPDATE 标记为 ABANDONED，
+ * 可选把商品项搬入 cart_item_archive。
+ * 限流：只在配置的时间窗口内运行，每次最多处理若干块，连接池繁忙时让出本轮；正在被修改的购物车（行锁被占用）直接跳过
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AbandonedCartSweeper implements MetricsProvider {
+
+    // 初始游标，早于任何购物车
+    private static final LocalDateTime CURSOR_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    // 走 idx_status_last_updated，二级索引隐含主键，键集条件为范围扫描
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id, last_updated FROM cart"
+                    + " WHERE status = 'ACTIVE' AND last_updated < ?"
+                    + " AND (last_updated > ? OR (last_updated = ? AND id > ?))"
+                    + " ORDER BY last_updated, id LIMIT ?"
+                    + " FOR UPDATE SKIP LOCKED";
+
+    private static final String ABANDON_SQL =
+            "UPDATE cart SET status = 'ABANDONED' WHERE id IN (%s)";
+
+    private static final String ABANDON_AND_RESET_SQL =
+            "UPDATE cart SET status = 'ABANDONED', total_price = 0, total_quantity = 0 WHERE id IN (%s)";
+
+    private static final String ARCHIVE_ITEMS_SQL =
+            "INSERT INTO cart_item_archive"
+                    + " (cart_item_id, cart_id, customer_id, product_id, quantity, unit_price, date_added, archived_at)"
+                    + " SELECT ci.id, ci.cart_id, c.customer_id, ci.product_id, ci.quantity, ci.unit_price, ci.date_added, NOW()"
+                    + " FROM cart_item ci JOIN cart c ON c.id = ci.cart_id WHERE ci.cart_id IN (%s)";
+
+    private static final String DELETE_ITEMS_SQL =
+            "DELETE FROM cart_item WHERE cart_id IN (%s)";
+
+    private static final String OLDEST_ACTIVE_SQL =
+            "SELECT MIN(last_updated) FROM cart WHERE status = 'ACTIVE'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSource dataSource;
+
+    @Value("${app.abandoned-cart.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.abandoned-cart.idle-hours:72}")
+    private long idleHours;
+
+    @Value("${app.abandoned-cart.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.abandoned-cart.max-chunks-per-run:10}")
+    private int maxChunksPerRun;
+
+    @Value("${app.abandoned-cart.archive-items:false}")
+    private boolean archiveItems;
+
+    // 运行时间窗口，如 01:00-06:00（可跨零点），为空时不限
+    @Value("${app.abandoned-cart.window:}")
+    private String window;
+
+    // 连接池活跃连接数达到该值或有线程在等待连接时让出本轮
+    @Value("${app.abandoned-cart.max-active-connections:5}")
+    private int maxActiveConnections;
+
+    private LocalTime windowStart;
+    private LocalTime windowEnd;
+
+    // 键集游标，只在 sweep 中访问（fixedDelay 任务不会并发执行）；一轮扫到末尾后回到起点
+    private LocalDateTime cursorLastUpdated = CURSOR_START;
+    private long cursorId;
+
+    record Row(long id, LocalDateTime lastUpdated) {
+    }
+
+    private final AtomicLong abandoned = new AtomicLong();
+    private final AtomicLong archived = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong throttledRuns = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lagSeconds;
+
+    @PostConstruct
+    public void init() {
+        if (!window.isBlank()) {
+            String[] bounds = window.split("-");
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("app.abandoned-cart.window 格式应为 HH:mm-HH:mm: " + window);
+            }
+            windowStart = LocalTime.parse(bounds[0].trim());
+            windowEnd = LocalTime.parse(bounds[1].trim());
+        }
+    }
+
+    /**
+     * 每轮最多处理 maxChunksPerRun 块，不在调度线程上休眠
+     */
+    @Scheduled(initialDelayString = "${app.abandoned-cart.sweep-ms:60000}",
+            fixedDelayString = "${app.abandoned-cart.sweep-ms:60000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        if (!inWindow(LocalTime.now()) || poolBusy()) {
+            throttledRuns.incrementAndGet();
+            return;
+        }
+        runs.incrementAndGet();
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(idleHours);
+
+        int processed = 0;
+        for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+            List<Row> rows = transactionTemplate.execute(status -> sweepChunk(cutoff));
+            chunks.incrementAndGet();
+            processed += rows.size();
+            if (!advanceCursor(rows)) {
+                break;
+            }
+            if (poolBusy()) {
+                throttledRuns.incrementAndGet();
+                break;
+            }
+        }
+
+        lastRunAt = LocalDateTime.now();
+        LocalDateTime oldest = jdbcTemplate.queryForObject(OLDEST_ACTIVE_SQL, LocalDateTime.class);
+        lagSeconds = oldest != null && oldest.isBefore(cutoff) ? Duration.between(oldest, cutoff).toSeconds() : 0;
+        if (processed > 0) {
+            log.info("废弃购物车清理 - 本轮标记: {}, 累计: {}, 滞后: {}秒", processed, abandoned.get(), lagSeconds);
+        }
+    }
+
+    /**
+     * 锁定一块超时的活跃购物车（跳过被占用的行），集合更新状态并按需归档商品项
+     */
+    private List<Row> sweepChunk(LocalDateTime cutoff) {
+        List<Row> rows = jdbcTemplate.query(SELECT_CHUNK_SQL,
+                (rs, rowNum) -> new Row(rs.getLong("id"), rs.getObject("last_updated", LocalDateTime.class)),
+                cutoff, cursorLastUpdated, cursorLastUpdated, cursorId, chunkSize);
+        if (rows.isEmpty()) {
+            return rows;
+        }
+
+        List<Object> ids = new ArrayList<>(rows.size());
+        rows.forEach(row -> ids.add(row.id()));
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+
+        if (archiveItems) {
+            int items = jdbcTemplate.update(String.format(ARCHIVE_ITEMS_SQL, placeholders), args);
+            jdbcTemplate.update(String.format(DELETE_ITEMS_SQL, placeholders), args);
+            jdbcTemplate.update(String.format(ABANDON_AND_RESET_SQL, placeholders), args);
+            archived.addAndGet(items);
+        } else {
+            jdbcTemplate.update(String.format(ABANDON_SQL, placeholders), args);
+        }
+        abandoned.addAndGet(rows.size());
+        return rows;
+    }
+
+    /**
+     * 游标移到本块最后一行之后
+     *
+     * @return 本块不满一块说明已扫到末尾，游标回到起点（已标记的购物车不再满足条件）并返回 false
+     */
+    boolean advanceCursor(List<Row> rows) {
+        if (rows.size() < chunkSize) {
+            cursorLastUpdated = CURSOR_START;
+            cursorId = 0;
+            return false;
+        }
+        Row last = rows.get(rows.size() - 1);
+        cursorLastUpdated = last.lastUpdated();
+        cursorId = last.id();
+        return true;
+    }
+
+    boolean inWindow(LocalTime now) {
+        if (windowStart == null) {
+            return true;
+        }
+        if (!windowStart.isAfter(windowEnd)) {
+            return !now.isBefore(windowStart) && now.isBefore(windowEnd);
+        }
+        // 跨零点
+        return !now.isBefore(windowStart) || now.isBefore(windowEnd);
+    }
+
+    private boolean poolBusy() {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return false;
+            }
+            HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+            return pool != null
+                    && (pool.getThreadsAwaitingConnection() > 0 || pool.getActiveConnections() >= maxActiveConnections);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "abandonedCarts";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("abandoned", abandoned.get());
+        metrics.put("archivedItems", archived.get());
+        metrics.put("chunks", chunks.get());
+        metrics.put("runs", runs.get());
+        metrics.put("throttledRuns", throttledRuns.get());
+        metrics.put("lastRunAt", lastRunAt);
+        metrics.put("lagSeconds", lagSeconds);
+        return metrics;
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.yiqixue.secomm.entity.Customer;
 import org.yiqixue.secomm.exception.ResourceNotFoundException;
 import org.yiqixue.secomm.repository.CustomerRepository;
+import org.yiqixue.secomm.security.UserPrincipal;
 
 /**
  * 客户服务层
@@ -28,4 +29,15 @@ public class CustomerService {
         return customerRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Customer", "userId", userId));
     }
+
+    /**
+     * 获取当前登录用户的客户ID
+     * 优先使用令牌中的客户ID；令牌中没有时（旧令牌、登录后才建立客户记录）按用户ID查询
+     */
+    public Long getCustomerId(UserPrincipal userPrincipal) {
+        if (userPrincipal.getCustomerId() != null) {
+            return userPrincipal.getCustomerId();
+        }
+        return getCustomerByUserId(userPrincipal.getId()).getId();
+    }
 }
\ No newline at end of file
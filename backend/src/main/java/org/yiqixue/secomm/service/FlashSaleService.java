@@ -0,0 +1,360 @@
+package org.yiqixue.secomm.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.yiqixue.secomm.dto.FlashSaleStatusDTO;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+import org.yiqixue.secomm.exception.BusinessException;
+import org.yiqixue.secomm.exception.ResourceNotFoundException;
+import org.yiqixue.secomm.inventory.FlashSaleRecoveryLog;
+import org.yiqixue.secomm.inventory.StripedStockCounter;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 秒杀库存服务
+ * 开启秒杀的商品库存预载到内存分段计数器，结账时无锁扣减，超出库存直接拒绝、不访问数据库；
+ * 扣减在事务提交前写入恢复日志（回滚时追加冲正记录），由定时任务批量刷回 units_in_stock；
+ * 刷库事务同时记录段名，段文件删除前进程退出时重放该段不会重复扣减
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlashSaleService implements MetricsProvider {
+
+    // 不截断为 0：超卖时库存变为负数并告警，而不是被悄悄吞掉
+    private static final String FLUSH_SQL =
+            "UPDATE product SET units_in_stock = units_in_stock - ?, last_updated = NOW() WHERE id = ?";
+
+    // 段名唯一，已记录的段插入不到新行
+    private static final String MARK_SEGMENT_SQL =
+            "INSERT IGNORE INTO flash_sale_applied_segment (segment_name, applied_at) VALUES (?, NOW())";
+
+    private static final String PURGE_SEGMENTS_SQL =
+            "DELETE FROM flash_sale_applied_segment WHERE applied_at < ?";
+
+    private static final String LOCK_PRODUCT_SQL =
+            "SELECT active, units_in_stock FROM product WHERE id = ? FOR UPDATE";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.flash-sale.stripes:16}")
+    private int stripes;
+
+    @Value("${app.flash-sale.log-dir:data/flash-sale}")
+    private String logDir;
+
+    @Value("${app.flash-sale.applied-retention-hours:168}")
+    private long appliedRetentionHours;
+
+    private FlashSaleRecoveryLog recoveryLog;
+
+    private record FlashSale(StripedStockCounter counter, long allotted, LocalDateTime startedAt) {
+    }
+
+    private record ProductStock(boolean active, int unitsInStock) {
+    }
+
+    private final Map<Long, FlashSale> sales = new ConcurrentHashMap<>();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong flushedUnits = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong replayedSegments = new AtomicLong();
+    private final AtomicLong oversoldUnits = new AtomicLong();
+
+    @PostConstruct
+    public void openLog() {
+        Path directory = Paths.get(logDir).toAbsolutePath().normalize();
+        recoveryLog = new FlashSaleRecoveryLog(directory);
+        log.info("秒杀恢复日志目录: {}", directory);
+    }
+
+    /**
+     * 启动时把上次未刷入数据库的扣减补刷
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        flush();
+        recoveryLog.close();
+    }
+
+    /**
+     * 开启秒杀：把库存预载到内存计数器
+     * 持有商品行锁读取库存并登记秒杀：进行中的数据库预占提交后才能读到库存；
+     * 登记之后才拿到行锁的数据库预占会发现商品已在秒杀中而回滚（见 InventoryService.reserve）
+     *
+     * @param stock 预载数量，为空时使用全部库存，超过数据库库存时按数据库库存
+     */
+    public FlashSaleStatusDTO start(Long productId, Integer stock) {
+        if (stock != null && stock < 0) {
+            throw new IllegalArgumentException("秒杀库存不能为负数");
+        }
+        // 先刷掉之前的扣减，保证预载的库存是最新值
+        flush();
+
+        FlashSale sale = transactionTemplate.execute(status -> {
+            List<ProductStock> rows = jdbcTemplate.query(LOCK_PRODUCT_SQL,
+                    (rs, rowNum) -> new ProductStock(rs.getBoolean("active"), rs.getInt("units_in_stock")),
+                    productId);
+            if (rows.isEmpty()) {
+                throw new ResourceNotFoundException("Product", "id", productId);
+            }
+            ProductStock product = rows.get(0);
+            if (!product.active()) {
+                throw new BusinessException("商品未上架，不能开启秒杀: " + productId);
+            }
+
+            int available = Math.max(product.unitsInStock(), 0);
+            long allotted = stock == null ? available : Math.min(stock, available);
+            FlashSale started = new FlashSale(new StripedStockCounter(allotted, stripes), allotted,
+                    LocalDateTime.now());
+            if (sales.putIfAbsent(productId, started) != null) {
+                throw new BusinessException("商品已在秒杀中: " + productId);
+            }
+            // 提交失败时撤销登记
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int completionStatus) {
+                    if (completionStatus != STATUS_COMMITTED) {
+                        sales.remove(productId, started);
+                    }
+                }
+            });
+            return started;
+        });
+        log.info("开启秒杀 - 商品ID: {}, 预载库存: {}", productId, sale.allotted());
+        return toStatus(productId, sale);
+    }
+
+    /**
+     * 结束秒杀：后续结账回到数据库扣减，并立即刷回已售数量
+     */
+    public FlashSaleStatusDTO stop(Long productId) {
+        FlashSale sale = sales.remove(productId);
+        if (sale == null) {
+            throw new ResourceNotFoundException("FlashSale", "productId", productId);
+        }
+        flush();
+        log.info("结束秒杀 - 商品ID: {}, 剩余: {}", productId, sale.counter().remaining());
+        return toStatus(productId, sale);
+    }
+
+    public List<FlashSaleStatusDTO> getActiveSales() {
+        List<FlashSaleStatusDTO> result = new ArrayList<>(sales.size());
+        sales.forEach((productId, sale) -> result.add(toStatus(productId, sale)));
+        return result;
+    }
+
+    public boolean isFlashSale(Long productId) {
+        return sales.containsKey(productId);
+    }
+
+    /**
+     * 从内存计数器扣减
+     * 在事务中调用时，提交前写恢复日志（提交后进程崩溃也不会丢失扣减）；回滚时归还计数器并追加冲正记录
+     *
+     * @return 库存不足时返回 false
+     */
+    public boolean tryAcquire(Long productId, int quantity) {
+        FlashSale sale = sales.get(productId);
+        if (sale == null || !sale.counter().tryAcquire(quantity)) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        accepted.incrementAndGet();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recoveryLog.append(productId, quantity);
+            return true;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean logged;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // 写入失败时异常使事务回滚
+                recoveryLog.append(productId, quantity);
+                logged = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                sale.counter().release(quantity);
+                accepted.decrementAndGet();
+                if (logged) {
+                    // 日志已写入但事务未提交，追加负数冲正，刷库时与原记录相抵
+                    recoveryLog.append(productId, -quantity);
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 把已售数量还给内存计数器（预留到期等），在事务中调用时提交后才归还
+     */
+    public void release(Long productId, int quantity) {
+        FlashSale sale = sales.get(productId);
+        if (sale == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            sale.counter().release(quantity);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                sale.counter().release(quantity);
+            }
+        });
+    }
+
+    /**
+     * 轮转恢复日志，把各段的扣减按商品汇总后批量写入数据库
+     */
+    @Scheduled(initialDelayString = "${app.flash-sale.flush-ms:1000}", fixedDelayString = "${app.flash-sale.flush-ms:1000}")
+    public synchronized void flush() {
+        List<Path> segments;
+        try {
+            segments = recoveryLog.rotate();
+        } catch (IOException e) {
+            log.error("秒杀恢复日志轮转失败: {}", e.getMessage(), e);
+            return;
+        }
+
+        for (Path segment : segments) {
+            try {
+                Map<Long, Long> sold = FlashSaleRecoveryLog.read(segment);
+                if (!sold.isEmpty()) {
+                    applyToDatabase(segment.getFileName().toString(), sold);
+                }
+                recoveryLog.complete(segment);
+                flushes.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                // 保留该段，下次再刷；段按顺序处理，后面的段也留到下次
+                log.error("秒杀库存刷库失败 - 段: {}: {}", segment.getFileName(), e.getMessage(), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 清理早于保留期的段记录；保留期远长于刷库间隔，段文件在记录之后随即删除，不会再被重放
+     */
+    @Scheduled(fixedDelayString = "${app.flash-sale.applied-purge-ms:3600000}")
+    public void purgeAppliedSegments() {
+        int purged = jdbcTemplate.update(PURGE_SEGMENTS_SQL, LocalDateTime.now().minusHours(appliedRetentionHours));
+        if (purged > 0) {
+            log.debug("清理秒杀段记录 - 数量: {}", purged);
+        }
+    }
+
+    private void applyToDatabase(String segmentName, Map<Long, Long> sold) {
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(sold.entrySet());
+        boolean applied = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            // 先记录段名，与扣减一起提交；该段已刷过（删除段文件前进程退出）时整段跳过
+            if (jdbcTemplate.update(MARK_SEGMENT_SQL, segmentName) == 0) {
+                return false;
+            }
+            jdbcTemplate.batchUpdate(FLUSH_SQL, entries, entries.size(), (ps, entry) -> {
+                ps.setLong(1, entry.getValue());
+                ps.setLong(2, entry.getKey());
+            });
+            for (ProductDTO product : productRepository.findProductDTOsByIdIn(sold.keySet())) {
+                checkOversold(product, sold.get(product.getId()));
+                eventPublisher.publishEvent(ProductChangedEvent.stockChanged(product));
+            }
+            return true;
+        }));
+        if (!applied) {
+            replayedSegments.incrementAndGet();
+            log.warn("秒杀恢复日志段已刷过库，跳过 - 段: {}", segmentName);
+            return;
+        }
+        long units = sold.values().stream().mapToLong(Long::longValue).sum();
+        flushedUnits.addAndGet(units);
+        log.debug("秒杀库存已刷库 - 商品数: {}, 数量: {}", sold.size(), units);
+    }
+
+    /**
+     * 刷库后库存为负说明内存计数器预载的库存多于数据库实际库存（超卖），记录本次新增的超卖数量并告警
+     */
+    private void checkOversold(ProductDTO product, long sold) {
+        int stock = product.getUnitsInStock();
+        if (stock >= 0) {
+            return;
+        }
+        long shortfall = Math.min(sold, -(long) stock);
+        if (shortfall <= 0) {
+            return;
+        }
+        oversoldUnits.addAndGet(shortfall);
+        log.error("秒杀超卖 - 商品ID: {}, 本次刷库数量: {}, 刷库后库存: {}, 超卖: {}",
+                product.getId(), sold, stock, shortfall);
+    }
+
+    private FlashSaleStatusDTO toStatus(Long productId, FlashSale sale) {
+        return FlashSaleStatusDTO.builder()
+                .productId(productId)
+                .allotted(sale.allotted())
+                .remaining(sale.counter().remaining())
+                .startedAt(sale.startedAt())
+                .build();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "flashSale";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("activeSales", sales.size());
+        metrics.put("accepted", accepted.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("flushedUnits", flushedUnits.get());
+        metrics.put("flushes", flushes.get());
+        metrics.put("replayedSegments", replayedSegments.get());
+        metrics.put("oversoldUnits", oversoldUnits.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,415 @@
+package org.yiqixue.secomm.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.entity.Product;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品图片衍生尺寸生成服务
+ * 上传请求只保存原图；事务提交后把缩略图、列表图、详情图的生成任务放入有界线程池，
+ * 生成完成后回写URL并发布商品变更事件。
+ * 解码前先读取图片头中的宽高，像素数超过上限的原图不解码（防止小文件解压出超大位图耗尽内存）；
+ * WebP 版本只在类路径上有 ImageIO WebP 编码插件时生成，否则只生成 JPEG
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageDerivativeService implements MetricsProvider {
+
+    /**
+     * 衍生尺寸：文件名后缀和最长边像素
+     */
+    private enum Variant {
+        THUMBNAIL("thumb", 150),
+        LIST("list", 400),
+        DETAIL("detail", 1000);
+
+        final String suffix;
+        final int maxEdge;
+
+        Variant(String suffix, int maxEdge) {
+            this.suffix = suffix;
+            this.maxEdge = maxEdge;
+        }
+    }
+
+    // 只为上传的原图生成衍生尺寸，初始数据 /images/ 下的图片不处理
+    static final String UPLOADS_PREFIX = "/uploads/";
+
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.image-derivatives.threads:2}")
+    private int threads;
+
+    @Value("${app.image-derivatives.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.image-derivatives.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    // 原图像素数（宽 x 高）上限，超出时不解码、按生成失败处理
+    @Value("${app.image-derivatives.max-pixels:40000000}")
+    private long maxPixels;
+
+    // 生成失败的原图在补偿扫描中跳过的时长，到期后再试一次
+    @Value("${app.image-derivatives.failure-retry-minutes:60}")
+    private long failureRetryMinutes;
+
+    // 记录的失败原图数上限，超出时丢弃最早的记录
+    @Value("${app.image-derivatives.max-failed-images:1000}")
+    private int maxFailedImages;
+
+    private ThreadPoolExecutor executor;
+
+    private boolean webpSupported;
+
+    // 已排队或处理中的商品，避免重复提交
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    // 生成失败的原图URL -> 失败时间（按失败先后排列），补偿扫描时跳过
+    private final LinkedHashMap<String, Long> failedImages = new LinkedHashMap<>();
+
+    // 补偿扫描的ID键集游标，只在 sweepPending 中访问；扫到末尾后回到起点
+    private long sweepCursor;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong oversized = new AtomicLong();
+    private final AtomicLong totalProcessingMillis = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivative-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // 队列满时直接拒绝，由补偿扫描稍后重新提交，不阻塞上传请求
+                new ThreadPoolExecutor.AbortPolicy());
+        webpSupported = ImageIO.getImageWritersByFormatName("webp").hasNext();
+        log.info("图片衍生尺寸线程池启动 - 线程数: {}, 队列容量: {}, WebP: {}",
+                threads, queueCapacity, webpSupported ? "支持" : "不支持（仅生成JPEG）");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 商品写事务提交后，为有原图但没有衍生尺寸的商品安排生成任务
+     */
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        ProductDTO product = event.getProduct();
+        if (event.isStockOnly()) {
+            return;
+        }
+        if (product != null && product.getImageUrl() != null && product.getThumbnailUrl() == null) {
+            submit(product.getId(), product.getImageUrl());
+        }
+    }
+
+    /**
+     * 补偿扫描：重新提交因队列满被拒绝或应用重启而遗漏的任务。
+     * 按ID键集分页向后扫描，失败的原图不会一直占住扫描窗口；队列满时停在被拒绝的商品，下次从这里继续
+     */
+    @Scheduled(fixedDelayString = "${app.image-derivatives.sweep-ms:60000}")
+    public void sweepPending() {
+        if (executor.getQueue().remainingCapacity() == 0) {
+            return;
+        }
+        List<Product> products = productRepository
+                .findByIdGreaterThanAndImageUrlStartingWithAndThumbnailUrlIsNullOrderByIdAsc(
+                        sweepCursor, UPLOADS_PREFIX, Limit.of(SWEEP_BATCH_SIZE));
+        long now = System.currentTimeMillis();
+        for (Product product : products) {
+            if (!recentlyFailed(product.getImageUrl(), now) && !submit(product.getId(), product.getImageUrl())) {
+                return;
+            }
+            sweepCursor = product.getId();
+        }
+        if (products.size() < SWEEP_BATCH_SIZE) {
+            sweepCursor = 0;
+        }
+    }
+
+    /**
+     * 提交生成任务
+     *
+     * @return 队列已满时返回 false
+     */
+    public boolean submit(Long productId, String imageUrl) {
+        if (!imageUrl.startsWith(UPLOADS_PREFIX) || !pending.add(productId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> process(productId, imageUrl));
+            submitted.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(productId);
+            rejected.incrementAndGet();
+            log.warn("图片衍生尺寸队列已满，稍后重试 - 商品ID: {}", productId);
+            return false;
+        }
+    }
+
+    /**
+     * 衍生图片的文件URL（JPEG 及可能存在的 WebP），用于删除原图时一并清理
+     */
+    public static List<String> derivativeUrls(String imageUrl) {
+        String base = stripExtension(imageUrl);
+        List<String> urls = new ArrayList<>();
+        for (Variant variant : Variant.values()) {
+            urls.add(base + "_" + variant.suffix + ".jpg");
+            urls.add(base + "_" + variant.suffix + ".webp");
+        }
+        return urls;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "imageDerivatives";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long completedCount = completed.get();
+        metrics.put("queueSize", executor.getQueue().size());
+        metrics.put("queueRemainingCapacity", executor.getQueue().remainingCapacity());
+        metrics.put("activeThreads", executor.getActiveCount());
+        metrics.put("poolSize", executor.getPoolSize());
+        metrics.put("submitted", submitted.get());
+        metrics.put("completed", completedCount);
+        metrics.put("failed", failed.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("oversized", oversized.get());
+        synchronized (failedImages) {
+            metrics.put("failedImages", failedImages.size());
+        }
+        metrics.put("avgProcessingMillis", completedCount > 0 ? totalProcessingMillis.get() / completedCount : 0);
+        metrics.put("webpSupported", webpSupported);
+        return metrics;
+    }
+
+    /**
+     * 记录生成失败的原图，超出上限时丢弃最早的记录
+     */
+    void recordFailure(String imageUrl, long now) {
+        synchronized (failedImages) {
+            failedImages.remove(imageUrl);
+            failedImages.put(imageUrl, now);
+            Iterator<String> eldest = failedImages.keySet().iterator();
+            while (failedImages.size() > maxFailedImages) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * 原图在重试间隔内失败过时返回 true；过期的记录顺带清除
+     */
+    boolean recentlyFailed(String imageUrl, long now) {
+        synchronized (failedImages) {
+            Long failedAt = failedImages.get(imageUrl);
+            if (failedAt == null) {
+                return false;
+            }
+            if (now - failedAt < TimeUnit.MINUTES.toMillis(failureRetryMinutes)) {
+                return true;
+            }
+            failedImages.remove(imageUrl);
+            return false;
+        }
+    }
+
+    private void process(Long productId, String imageUrl) {
+        long start = System.currentTimeMillis();
+        try {
+            Path original = toPath(imageUrl);
+            BufferedImage source = read(original);
+
+            String base = stripExtension(imageUrl);
+            Map<Variant, String> urls = new LinkedHashMap<>();
+            for (Variant variant : Variant.values()) {
+                String url = base + "_" + variant.suffix + ".jpg";
+                Path webp = toPath(base + "_" + variant.suffix + ".webp");
+                urls.put(variant, url);
+                // 原图按内容寻址，多个商品共用同一原图时衍生文件只生成一次
+                if (Files.exists(toPath(url)) && (!webpSupported || Files.exists(webp))) {
+                    continue;
+                }
+                BufferedImage scaled = scale(source, variant.maxEdge);
+                writeJpeg(scaled, toPath(url));
+                if (webpSupported) {
+                    ImageIO.write(scaled, "webp", webp.toFile());
+                }
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                int updated = productRepository.updateImageVariants(productId, imageUrl,
+                        urls.get(Variant.THUMBNAIL), urls.get(Variant.LIST), urls.get(Variant.DETAIL));
+                if (updated == 0) {
+                    // 处理期间原图已被替换或商品已删除
+                    return;
+                }
+                productRepository.findProductDTOsByIdIn(List.of(productId)).forEach(product ->
+                        eventPublisher.publishEvent(ProductChangedEvent.updated(product.getSku(), product)));
+            });
+
+            completed.incrementAndGet();
+            totalProcessingMillis.addAndGet(System.currentTimeMillis() - start);
+            log.debug("图片衍生尺寸生成完成 - 商品ID: {}, 耗时: {}ms", productId, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            recordFailure(imageUrl, System.currentTimeMillis());
+            log.error("图片衍生尺寸生成失败 - 商品ID: {}, 原图: {}: {}", productId, imageUrl, e.getMessage());
+        } finally {
+            pending.remove(productId);
+        }
+    }
+
+    /**
+     * 先从图片头读取宽高，像素数不超过上限时才解码
+     */
+    BufferedImage read(Path original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("无法识别的图片格式: " + original);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    oversized.incrementAndGet();
+                    throw new IOException("图片像素数超过上限: " + width + "x" + height + ", 上限: " + maxPixels);
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 等比缩放到最长边不超过 maxEdge（不放大），大比例缩小时逐级减半以保证质量
+     */
+    private static BufferedImage scale(BufferedImage source, int maxEdge) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage current = source;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            if (current != source && width == current.getWidth() && height == current.getHeight()) {
+                break;
+            }
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                // JPEG 不支持透明，透明区域填充白色
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+
+        Path temp = target.resolveSibling(target.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path toPath(String url) {
+        return Paths.get("uploads", url.substring(UPLOADS_PREFIX.length()));
+    }
+
+    private static String stripExtension(String url) {
+        int slash = url.lastIndexOf('/');
+        int dot = url.lastIndexOf('.');
+        return dot > slash ? url.substring(0, dot) : url;
+    }
+}
@@ -0,0 +1,237 @@
+package org.yiqixue.secomm.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.yiqixue.secomm.entity.ImageBlob;
+import org.yiqixue.secomm.exception.BusinessException;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+import org.yiqixue.secomm.repository.ImageBlobRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 图片存储服务
+ * 上传的图片按内容 SHA-256 存放（/uploads/images/blobs/ab/abcd...jpg），相同内容只存一份，
+ * URL 随内容变化，可以被浏览器永久缓存。
+ * 引用计数归零后不立即删除文件，由回收扫描在行锁下确认仍无引用再删除：
+ * 上传先登记引用（持有行锁）再写入文件，回收与并发上传相同内容互斥
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageStorageService implements MetricsProvider {
+
+    public static final String BLOB_URL_PREFIX = "/uploads/images/blobs/";
+
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", ".jpg",
+            "image/jpg", ".jpg",
+            "image/png", ".png",
+            "image/gif", ".gif");
+
+    static final int SWEEP_BATCH_SIZE = 100;
+
+    private final ImageBlobRepository imageBlobRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // 写入文件后事务回滚的图片：哈希 -> URL，下次回收扫描时登记
+    private final Map<String, String> rolledBack = new ConcurrentHashMap<>();
+
+    private final AtomicLong swept = new AtomicLong();
+
+    /**
+     * 保存图片并登记一次引用（需在调用方事务内执行）
+     *
+     * @return 内容寻址的图片URL
+     */
+    public String store(MultipartFile image) {
+        String extension = EXTENSIONS.getOrDefault(
+                image.getContentType() != null ? image.getContentType().toLowerCase() : "", ".img");
+        Path blobRoot = Paths.get("uploads", "images", "blobs");
+
+        try {
+            Files.createDirectories(blobRoot);
+            // 边写临时文件边计算摘要，只读一遍上传内容
+            Path temp = Files.createTempFile(blobRoot, "upload-", ".tmp");
+            String hash;
+            String url;
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                try (InputStream in = new DigestInputStream(image.getInputStream(), digest)) {
+                    Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                hash = HexFormat.of().formatHex(digest.digest());
+                url = BLOB_URL_PREFIX + hash.substring(0, 2) + "/" + hash + extension;
+
+                // 先登记引用再确认文件存在：回收扫描持有行锁删除文件时，这里等待其提交后重新写入
+                imageBlobRepository.acquire(hash, url);
+                registerRollbackCleanup(hash, url);
+
+                Path target = blobRoot.resolve(hash.substring(0, 2)).resolve(hash + extension);
+                if (Files.exists(target)) {
+                    log.info("图片内容已存在，复用 - hash: {}", hash);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    try {
+                        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException e) {
+                        // 并发上传了相同内容
+                        log.debug("图片内容已由其他请求写入 - hash: {}", hash);
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            log.info("图片保存成功 - URL: {}", url);
+            return url;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("图片保存失败: {}", e.getMessage(), e);
+            throw new BusinessException("图片上传失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 为已存储图片的URL登记一次引用（需在调用方事务内执行），非内容寻址URL不计数
+     */
+    public void retain(String imageUrl) {
+        String hash = hashOf(imageUrl);
+        if (hash != null && imageBlobRepository.retain(hash) == 0) {
+            log.warn("引用的图片不存在 - URL: {}", imageUrl);
+        }
+    }
+
+    /**
+     * 事务回滚时新登记的引用随之撤销，已写入的文件交给回收扫描
+     */
+    private void registerRollbackCleanup(String hash, String url) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    rolledBack.put(hash, url);
+                }
+            }
+        });
+    }
+
+    /**
+     * 释放一次引用；引用归零的原图及衍生尺寸文件由回收扫描删除
+     * 非内容寻址的旧图片URL直接删除文件
+     */
+    public void release(String imageUrl) {
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            return;
+        }
+        String hash = hashOf(imageUrl);
+        if (hash == null) {
+            deleteFiles(imageUrl);
+            return;
+        }
+        imageBlobRepository.release(hash);
+    }
+
+    /**
+     * 回收扫描：按哈希键集分页找出无引用的图片，逐个在行锁下重新确认后删除文件和记录。
+     * 文件在提交前删除，提交失败时记录保留，之后的上传会重新写入文件
+     */
+    @Scheduled(fixedDelayString = "${app.image-blobs.sweep-ms:60000}")
+    public void sweepUnreferenced() {
+        for (Map.Entry<String, String> entry : Map.copyOf(rolledBack).entrySet()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    imageBlobRepository.registerOrphan(entry.getKey(), entry.getValue()));
+            rolledBack.remove(entry.getKey(), entry.getValue());
+        }
+
+        String cursor = "";
+        List<ImageBlob> candidates;
+        do {
+            candidates = imageBlobRepository.findByHashGreaterThanAndRefCountLessThanEqualOrderByHashAsc(
+                    cursor, 0, Limit.of(SWEEP_BATCH_SIZE));
+            for (ImageBlob candidate : candidates) {
+                Boolean deleted = transactionTemplate.execute(status ->
+                        imageBlobRepository.findUnreferencedForUpdate(candidate.getHash())
+                                .map(blob -> {
+                                    deleteFiles(blob.getUrl());
+                                    imageBlobRepository.deleteIfUnreferenced(blob.getHash());
+                                    return true;
+                                })
+                                .orElse(false));
+                if (Boolean.TRUE.equals(deleted)) {
+                    swept.incrementAndGet();
+                }
+                cursor = candidate.getHash();
+            }
+        } while (candidates.size() == SWEEP_BATCH_SIZE);
+    }
+
+    /**
+     * 从内容寻址URL中取出哈希，其他URL返回 null
+     */
+    public static String hashOf(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(BLOB_URL_PREFIX)) {
+            return null;
+        }
+        String fileName = imageUrl.substring(imageUrl.lastIndexOf('/') + 1);
+        int dot = fileName.indexOf('.');
+        String name = dot >= 0 ? fileName.substring(0, dot) : fileName;
+        return name.length() == 64 ? name : null;
+    }
+
+    private void deleteFiles(String imageUrl) {
+        deleteFile(imageUrl);
+        ImageDerivativeService.derivativeUrls(imageUrl).forEach(this::deleteFile);
+    }
+
+    private void deleteFile(String url) {
+        if (!url.startsWith("/uploads/")) {
+            return;
+        }
+        Path filePath = Paths.get("uploads", url.substring("/uploads/".length()));
+        try {
+            if (Files.deleteIfExists(filePath)) {
+                log.info("图片文件删除成功: {}", filePath);
+            }
+        } catch (IOException e) {
+            log.warn("删除图片文件失败: {}: {}", filePath, e.getMessage());
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "imageStorage";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pendingRollbackCleanup", rolledBack.size());
+        metrics.put("swept", swept.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,154 @@
+package org.yiqixue.secomm.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+import org.yiqixue.secomm.exception.BusinessException;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 库存预占服务
+ * 每个商品一条带条件的扣减语句，所有行在一次 JDBC 批量中执行；任一行库存不足则整体回滚。
+ * 处于秒杀中的商品改由 FlashSaleService 的内存计数器扣减
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryService {
+
+    private static final String RESERVE_SQL =
+            "UPDATE product SET units_in_stock = units_in_stock - ?, last_updated = NOW()"
+                    + " WHERE id = ? AND units_in_stock >= ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE product SET units_in_stock = units_in_stock + ?, last_updated = NOW() WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FlashSaleService flashSaleService;
+
+    /**
+     * 扣减一行商品的数量
+     */
+    public record StockLine(Long productId, int quantity) {
+    }
+
+    /**
+     * 预占库存，加入调用方事务；库存不足时抛出 BusinessException，调用方事务随之回滚
+     *
+     * @param lines 订单行（同一商品可出现多次，会先合并）
+     */
+    @Transactional
+    public void reserve(List<StockLine> lines) {
+        Map<Long, Integer> quantities = merge(lines);
+
+        // 秒杀商品从内存计数器扣减，不足时直接拒绝，不访问数据库；事务回滚时计数器自动归还
+        quantities.entrySet().removeIf(entry -> {
+            if (!flashSaleService.isFlashSale(entry.getKey())) {
+                return false;
+            }
+            if (!flashSaleService.tryAcquire(entry.getKey(), entry.getValue())) {
+                throw new BusinessException("商品已售罄: " + entry.getKey());
+            }
+            return true;
+        });
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(quantities.entrySet());
+        int[][] counts = jdbcTemplate.batchUpdate(RESERVE_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+            ps.setInt(3, entry.getValue());
+        });
+
+        // 影响行数为 0 表示商品不存在或库存不足
+        List<Long> insufficient = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count != 1) {
+                    insufficient.add(entries.get(index).getKey());
+                }
+                index++;
+            }
+        }
+        if (!insufficient.isEmpty()) {
+            log.warn("库存不足，预占失败 - 商品ID: {}", insufficient);
+            throw new BusinessException("商品库存不足: " + insufficient);
+        }
+
+        // 已持有行锁：判断之后、加锁之前开启了秒杀的商品，其库存已预载到内存计数器，这里再扣会超卖
+        List<Long> started = quantities.keySet().stream().filter(flashSaleService::isFlashSale).toList();
+        if (!started.isEmpty()) {
+            log.warn("商品已开启秒杀，数据库预占回滚 - 商品ID: {}", started);
+            throw new BusinessException("商品已开启秒杀，请重新提交: " + started);
+        }
+
+        publishStockChanges(quantities.keySet());
+        log.info("库存预占成功 - 商品数: {}", quantities.size());
+    }
+
+    /**
+     * 归还已预占的库存（预留到期、取消等），加入调用方事务
+     */
+    @Transactional
+    public void release(List<StockLine> lines) {
+        Map<Long, Integer> quantities = merge(lines);
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        // 秒杀商品的扣减已记入恢复日志并会刷回数据库，这里同样加回数据库，另把数量还给内存计数器
+        quantities.forEach((productId, quantity) -> {
+            if (flashSaleService.isFlashSale(productId)) {
+                flashSaleService.release(productId, quantity);
+            }
+        });
+
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(quantities.entrySet());
+        jdbcTemplate.batchUpdate(RELEASE_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+        });
+
+        publishStockChanges(quantities.keySet());
+        log.info("库存归还完成 - 商品数: {}", quantities.size());
+    }
+
+    /**
+     * 合并同一商品并按商品ID排序：并发事务按相同顺序加行锁，避免死锁
+     */
+    private static Map<Long, Integer> merge(List<StockLine> lines) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (StockLine line : lines) {
+            if (line.quantity() <= 0) {
+                throw new IllegalArgumentException("购买数量必须大于0: 商品ID " + line.productId());
+            }
+            quantities.merge(line.productId(), line.quantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * 回查库存并发布事件（事务提交后由缓存、分面索引等监听方处理）
+     */
+    private void publishStockChanges(Collection<Long> productIds) {
+        for (ProductDTO product : productRepository.findProductDTOsByIdIn(productIds)) {
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(product));
+        }
+    }
+}
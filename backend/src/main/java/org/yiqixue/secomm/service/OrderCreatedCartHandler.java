@@ -0,0 +1,54 @@
+package org.yiqixue.secomm.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.event.OrderCreatedEvent;
+import org.yiqixue.secomm.outbox.OutboxEventHandler;
+import org.yiqixue.secomm.outbox.OutboxProcessedLog;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 订单创建后从客户购物车中扣除已下单的商品（原先在下单事务中同步清空整个购物车）。
+ * 异步执行期间客户可能已向购物车加入新商品，因此只扣除订单中的商品和数量。
+ * 扣除不幂等：处理记录与购物车修改在同一事务中提交，重复投递的事件跳过
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderCreatedCartHandler implements OutboxEventHandler<OrderCreatedEvent> {
+
+    private final CartService cartService;
+    private final OutboxProcessedLog processedLog;
+
+    @Override
+    public String getEventType() {
+        return OrderCreatedEvent.EVENT_TYPE;
+    }
+
+    @Override
+    public Class<OrderCreatedEvent> getPayloadType() {
+        return OrderCreatedEvent.class;
+    }
+
+    @Override
+    @Transactional
+    public void handle(OrderCreatedEvent event) {
+        if (!processedLog.markProcessed(getHandlerName(), "order:" + event.getOrderId())) {
+            log.info("订单事件已处理过，跳过 - 订单ID: {}", event.getOrderId());
+            return;
+        }
+        // 不含商品行的旧事件仍按原方式清空
+        if (event.getItems() == null) {
+            cartService.clearCart(event.getCustomerId());
+            return;
+        }
+        Map<Long, Integer> ordered = event.getItems().stream()
+                .collect(Collectors.toMap(OrderCreatedEvent.Item::getProductId, OrderCreatedEvent.Item::getQuantity,
+                        Integer::sum));
+        cartService.removeOrderedItems(event.getCustomerId(), ordered);
+    }
+}
@@ -0,0 +1,35 @@
+package org.yiqixue.secomm.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.yiqixue.secomm.cache.ApproximateCountCache;
+import org.yiqixue.secomm.entity.Order;
+import org.yiqixue.secomm.event.OrderCreatedEvent;
+import org.yiqixue.secomm.outbox.OutboxEventHandler;
+
+/**
+ * 订单创建后调整客户订单的近似总数，不必等到下次后台刷新
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderCreatedStatsHandler implements OutboxEventHandler<OrderCreatedEvent> {
+
+    private final ApproximateCountCache approximateCountCache;
+
+    @Override
+    public String getEventType() {
+        return OrderCreatedEvent.EVENT_TYPE;
+    }
+
+    @Override
+    public Class<OrderCreatedEvent> getPayloadType() {
+        return OrderCreatedEvent.class;
+    }
+
+    @Override
+    public void handle(OrderCreatedEvent event) {
+        String key = "orders:customer:" + event.getCustomerId();
+        approximateCountCache.adjust(key, 1);
+        approximateCountCache.adjust(key + ":" + Order.OrderStatus.PENDING, 1);
+    }
+}
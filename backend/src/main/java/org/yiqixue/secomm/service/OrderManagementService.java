@@ -2,10 +2,14 @@ package org.yiqixue.secomm.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.yiqixue.secomm.dto.OrderDTO;
@@ -14,18 +18,39 @@ import org.yiqixue.secomm.dto.PageResponse;
 import org.yiqixue.secomm.entity.Order;
 import org.yiqixue.secomm.exception.ResourceNotFoundException;
 import org.yiqixue.secomm.mapper.OrderMapper;
+import org.yiqixue.secomm.mapper.PageCursors;
+import org.yiqixue.secomm.repository.OrderItemRepository;
 import org.yiqixue.secomm.repository.OrderRepository;
+import org.yiqixue.secomm.search.OrderSearchIndex;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OrderManagementService {
 
+    // 与订单ID顺序一致的排序字段
+    private static final Set<String> ID_ORDERED_SORTS = Set.of("id", "dateCreated");
+
+    // 游标分页允许的排序字段（非空列）
+    private static final Set<String> CURSOR_SORT_PROPERTIES = Set.of(
+            "id", "orderNumber", "customerId", "totalAmount", "dateCreated", "lastUpdated");
+
     private final OrderRepository orderRepository;
     private final OrderMapper orderMapper;
+    private final OrderSearchIndex orderSearchIndex;
+    private final OrderItemRepository orderItemRepository;
+    private final InventoryService inventoryService;
+
+    // 按其他字段排序时命中ID作为 IN 列表交给数据库排序，超过该数量时退回数据库模糊查询
+    @Value("${app.order-search.max-sorted-hits:1000}")
+    private int maxSortedHits;
 
     /**
      * 获取所有订单（分页）
@@ -43,6 +68,20 @@ public class OrderManagementService {
         return orderMapper.toPageResponse(orderPage);
     }
 
+    /**
+     * 获取所有订单（游标分页，深翻页不随页码变慢）
+     */
+    public PageResponse<OrderDTO> scrollAllOrders(String after, int size, String sortBy, String sortDir) {
+        log.info("游标获取所有订单 - 游标: {}, 大小: {}, 排序: {} {}", after, size, sortBy, sortDir);
+
+        Sort sort = PageCursors.keysetSort(sortBy, sortDir, CURSOR_SORT_PROPERTIES);
+
+        Window<Order> orderWindow = orderRepository.findAllBy(
+                PageCursors.decode(after, sort), sort, Limit.of(size));
+
+        return orderMapper.toPageResponse(orderWindow, size, after.isBlank());
+    }
+
     /**
      * 根据状态获取订单（分页）
      */
@@ -71,8 +110,37 @@ public class OrderManagementService {
                 Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        Page<Order> orderPage = orderRepository.searchOrders(query, pageable);
+        // 索引未就绪或关键词少于 3 个字符时退回数据库模糊查询
+        List<Long> orderIds = orderSearchIndex.isReady() ? orderSearchIndex.search(query) : null;
+        if (orderIds == null) {
+            Page<Order> orderPage = orderRepository.searchOrders(query, pageable);
+            return orderMapper.toPageResponse(orderPage);
+        }
+        if (orderIds.isEmpty()) {
+            return orderMapper.toPageResponse(new PageImpl<>(List.of(), pageable, 0));
+        }
 
+        // 订单ID随创建递增，按ID或创建时间排序时直接在命中列表上分页，只查询当前页
+        if (ID_ORDERED_SORTS.contains(sortBy)) {
+            boolean asc = sortDir.equalsIgnoreCase("asc");
+            List<Long> pageIds = new ArrayList<>(size);
+            for (int i = (int) pageable.getOffset(); i < orderIds.size() && pageIds.size() < size; i++) {
+                pageIds.add(orderIds.get(asc ? i : orderIds.size() - 1 - i));
+            }
+            Map<Long, Order> orders = new HashMap<>();
+            if (!pageIds.isEmpty()) {
+                orderRepository.findByIdInWithCustomer(pageIds).forEach(order -> orders.put(order.getId(), order));
+            }
+            List<Order> content = pageIds.stream().map(orders::get).filter(Objects::nonNull).toList();
+            return orderMapper.toPageResponse(new PageImpl<>(content, pageable, orderIds.size()));
+        }
+
+        // 宽泛查询（如邮箱域名）命中过多时，超长 IN 列表不如直接模糊查询
+        if (orderIds.size() > maxSortedHits) {
+            log.info("订单搜索命中过多，按 {} 排序退回数据库查询 - 命中数: {}", sortBy, orderIds.size());
+            return orderMapper.toPageResponse(orderRepository.searchOrders(query, pageable));
+        }
+        Page<Order> orderPage = orderRepository.findPageByIdInWithCustomer(orderIds, pageable);
         return orderMapper.toPageResponse(orderPage);
     }
 
@@ -90,15 +158,24 @@ public class OrderManagementService {
 
     /**
      * 更新订单状态
+     * 改为已取消时在同一事务内归还订单占用的库存；从已取消改回其他状态时重新扣减（库存不足则拒绝）
      */
     @Transactional
     public OrderDTO updateOrderStatus(Long orderId, OrderStatusUpdateRequest request) {
         log.info("更新订单状态 - 订单ID: {}, 新状态: {}", orderId, request.getStatus());
 
-        Order order = orderRepository.findById(orderId)
+        // 持有行锁判断原状态，重复或并发取消只归还一次
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order", "id", orderId));
 
         Order.OrderStatus newStatus = Order.OrderStatus.valueOf(request.getStatus().toUpperCase());
+        boolean wasCancelled = order.getStatus() == Order.OrderStatus.CANCELLED;
+        boolean cancelled = newStatus == Order.OrderStatus.CANCELLED;
+        if (cancelled && !wasCancelled) {
+            inventoryService.release(stockLines(orderId));
+        } else if (wasCancelled && !cancelled) {
+            inventoryService.reserve(stockLines(orderId));
+        }
         order.setStatus(newStatus);
         
         order = orderRepository.save(order);
@@ -108,6 +185,15 @@ public class OrderManagementService {
         return orderMapper.toDTO(order);
     }
 
+    /**
+     * 订单项按订单ID查询（下单时订单项通过 JDBC 批量插入，未挂到订单实体上）
+     */
+    private List<InventoryService.StockLine> stockLines(Long orderId) {
+        return orderItemRepository.findByOrderId(orderId).stream()
+                .map(item -> new InventoryService.StockLine(item.getProductId(), item.getQuantity()))
+                .toList();
+    }
+
     /**
      * 获取订单统计信息
      */
@@ -0,0 +1,101 @@
+package org.yiqixue.secomm.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 订单号生成器（Snowflake 结构）
+ * 64 位ID = 41 位毫秒时间戳（自 2024-01-01 起）+ 10 位节点号 + 12 位序号，订单号为 "ORD" + ID。
+ * 时间戳与序号合并存放在一个 AtomicLong 中，CAS 推进，无锁且同一节点内严格递增；
+ * 时钟回拨或同一毫秒序号用尽时沿用上次时间戳继续递增（向后借用时间），不等待也不抛错
+ */
+@Component
+@Slf4j
+public class OrderNumberGenerator implements MetricsProvider {
+
+    static final String PREFIX = "ORD";
+
+    // 2024-01-01T00:00:00Z
+    static final long EPOCH = 1704067200000L;
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // 每个实例必须配置不同的节点号（0-1023）
+    @Value("${app.order-number.node-id:0}")
+    private long nodeId;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    // 高位为上次使用的时间戳（相对 EPOCH），低 SEQUENCE_BITS 位为该时间戳下的序号
+    private final AtomicLong state = new AtomicLong();
+
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("app.order-number.node-id 必须在 0-" + MAX_NODE_ID + " 之间: " + nodeId);
+        }
+        log.info("订单号生成器已初始化 - 节点号: {}", nodeId);
+    }
+
+    /**
+     * 生成订单号
+     */
+    public String next() {
+        return PREFIX + nextId();
+    }
+
+    /**
+     * 生成数字ID
+     */
+    public long nextId() {
+        long now = clock.getAsLong() - EPOCH;
+        long prev;
+        long next;
+        do {
+            prev = state.get();
+            long prevTimestamp = prev >>> SEQUENCE_BITS;
+            // 时钟前进时序号归零；否则在上次的值上加一，序号溢出时自然进位到下一毫秒
+            next = now > prevTimestamp ? now << SEQUENCE_BITS : prev + 1;
+        } while (!state.compareAndSet(prev, next));
+
+        // 进位到一个尚未到来的毫秒
+        if (now < next >>> SEQUENCE_BITS && (next & SEQUENCE_MASK) == 0) {
+            borrowed.incrementAndGet();
+        }
+        generated.incrementAndGet();
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderNumbers";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long now = clock.getAsLong() - EPOCH;
+        metrics.put("nodeId", nodeId);
+        metrics.put("generated", generated.get());
+        // 借用的未来毫秒数，持续增大说明时钟回拨或单节点发号超过每毫秒 4096 个
+        metrics.put("aheadOfClockMs", Math.max(0, (state.get() >>> SEQUENCE_BITS) - now));
+        metrics.put("borrowedMilliseconds", borrowed.get());
+        return metrics;
+    }
+}
@@ -2,28 +2,40 @@ package org.yiqixue.secomm.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.yiqixue.secomm.dto.CheckoutRequest;
 import org.yiqixue.secomm.dto.OrderDTO;
-import org.yiqixue.secomm.entity.Customer;
 import org.yiqixue.secomm.entity.Order;
 import org.yiqixue.secomm.entity.OrderItem;
 import org.yiqixue.secomm.entity.Product;
+import org.yiqixue.secomm.event.OrderCreatedEvent;
+import org.yiqixue.secomm.exception.BusinessException;
 import org.yiqixue.secomm.exception.ResourceNotFoundException;
 import org.yiqixue.secomm.mapper.OrderMapper;
-import org.yiqixue.secomm.repository.CustomerRepository;
+import org.yiqixue.secomm.outbox.OutboxPublisher;
 import org.yiqixue.secomm.repository.OrderRepository;
 import org.yiqixue.secomm.repository.ProductRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.yiqixue.secomm.cache.ApproximateCountCache;
+import org.yiqixue.secomm.dto.CountMode;
 import org.yiqixue.secomm.dto.PageResponse;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,69 +43,161 @@ import java.util.stream.Collectors;
 @Slf4j
 public class OrderService {
 
+    private static final String INSERT_ORDER_ITEM_SQL =
+            "INSERT INTO order_items (order_id, product_id, product_name, quantity, unit_price, subtotal)"
+                    + " VALUES (?, ?, ?, ?, ?, ?)";
+
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final CartService cartService;
     private final OrderMapper orderMapper;
-    private final CustomerRepository customerRepository;
+    private final ApproximateCountCache approximateCountCache;
+    private final InventoryService inventoryService;
+    private final StockReservationService stockReservationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final OutboxPublisher outboxPublisher;
 
+    /**
+     * 从购物车结算下单
+     * 商品一次批量加载，单价和总额按商品当前价格在服务端计算；订单项用一次 JDBC 批量插入，
+     * 语句数与订单行数无关；从购物车扣除已下单商品等后续处理通过发件箱在提交后异步执行
+     */
     @Transactional
     public OrderDTO createOrderFromCart(Long customerId, CheckoutRequest request) {
         log.info("创建订单 - 用户ID: {}, 总金额: {}", customerId, request.getTotalAmount());
 
+        List<CheckoutRequest.CheckoutItem> items = request.getItems();
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("订单商品不能为空");
+        }
+        for (CheckoutRequest.CheckoutItem item : items) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() < 1) {
+                throw new IllegalArgumentException("订单商品ID和数量必须有效");
+            }
+        }
+
         // 生成订单号
-        String orderNumber = generateOrderNumber();
+        String orderNumber = orderNumberGenerator.next();
+
+        // 一次加载所有商品，按商品当前价格计算订单项小计和订单总额
+        Map<Long, Product> products = productRepository.findAllById(items.stream()
+                        .map(CheckoutRequest.CheckoutItem::getProductId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<OrderItem> orderItems = new ArrayList<>(items.size());
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (CheckoutRequest.CheckoutItem item : items) {
+            Product product = products.get(item.getProductId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product", "id", item.getProductId());
+            }
+            if (!Boolean.TRUE.equals(product.getActive())) {
+                throw new BusinessException("商品已下架: " + product.getName());
+            }
+            BigDecimal subtotal = product.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+            orderItems.add(OrderItem.builder()
+                    .productId(product.getId())
+                    .productName(product.getName())
+                    .quantity(item.getQuantity())
+                    .unitPrice(product.getUnitPrice())
+                    .subtotal(subtotal)
+                    .build());
+            totalAmount = totalAmount.add(subtotal);
+        }
+
+        // 客户端确认的金额与当前价格不一致时拒绝下单，避免按用户未见过的价格扣款
+        if (request.getTotalAmount() == null || request.getTotalAmount().compareTo(totalAmount) != 0) {
+            throw new BusinessException("商品价格已变动，请确认后重新提交");
+        }
+
+        // 内存购物车中尚未写回的修改随下单事务写入数据库
+        cartService.flushCart(customerId);
+
+        // 同一商品合并数量，按商品ID排序
+        Map<Long, Integer> quantities = items.stream()
+                .collect(Collectors.toMap(CheckoutRequest.CheckoutItem::getProductId,
+                        CheckoutRequest.CheckoutItem::getQuantity, Integer::sum, TreeMap::new));
 
-        Customer customer = customerRepository.findById(customerId)
-                .orElseThrow(() -> new ResourceNotFoundException("Customer", "id", customerId));
-        // 创建订单
+        // 有预留时确认预留（库存已在预留时扣减）；否则直接预占库存，库存不足时整个下单事务回滚
+        // （秒杀商品售罄时在访问数据库之前即被拒绝）
+        if (request.getReservationId() != null) {
+            stockReservationService.confirm(customerId, request.getReservationId(), quantities);
+        } else {
+            inventoryService.reserve(items.stream()
+                    .map(item -> new InventoryService.StockLine(item.getProductId(), item.getQuantity()))
+                    .collect(Collectors.toList()));
+        }
+
+        // 创建订单；订单项不挂到实体上，避免级联逐条插入
         Order order = Order.builder()
                 .customerId(customerId)
                 .orderNumber(orderNumber)
                 .status(Order.OrderStatus.PENDING)
-                .totalAmount(request.getTotalAmount())
+                .totalAmount(totalAmount)
                 .build();
 
         order = orderRepository.save(order);
 
-        // 创建订单项
-        Order finalOrder = order;
-        List<OrderItem> orderItems = request.getItems().stream()
-                .map(item -> {
-                    Product product = productRepository.findById(item.getProductId())
-                            .orElseThrow(() -> new ResourceNotFoundException("Product", "id", item.getProductId()));
-
-                    return OrderItem.builder()
-                            .order(finalOrder)
-                            .productId(item.getProductId())
-                            .productName(product.getName())
-                            .quantity(item.getQuantity())
-                            .unitPrice(item.getUnitPrice())
-                            .build();
-                })
-                .collect(Collectors.toList());
-
-        order.setOrderItems(orderItems);
-        order = orderRepository.save(order);
+        insertOrderItems(order.getId(), orderItems);
 
-        // 清空购物车
-        cartService.clearCart(customerId);
+        // 从购物车扣除已下单商品、更新统计等后续处理随订单写入发件箱，提交后异步执行
+        outboxPublisher.publish(OrderCreatedEvent.AGGREGATE_TYPE, order.getId(), OrderCreatedEvent.EVENT_TYPE,
+                OrderCreatedEvent.builder()
+                        .orderId(order.getId())
+                        .customerId(customerId)
+                        .orderNumber(orderNumber)
+                        .totalAmount(totalAmount)
+                        .items(quantities.entrySet().stream()
+                                .map(entry -> new OrderCreatedEvent.Item(entry.getKey(), entry.getValue()))
+                                .collect(Collectors.toList()))
+                        .build());
 
-        log.info("订单创建成功 - 订单号: {}", orderNumber);
+        log.info("订单创建成功 - 订单号: {}, 总金额: {}, 商品行数: {}", orderNumber, totalAmount, orderItems.size());
 
-        return orderMapper.toDTO(order);
+        OrderDTO orderDTO = orderMapper.toDTO(order);
+        orderDTO.setOrderItems(orderItems.stream()
+                .map(orderMapper::toOrderItemDTO)
+                .collect(Collectors.toList()));
+        return orderDTO;
     }
 
-    private String generateOrderNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String random = String.valueOf((int)(Math.random() * 1000));
-        return "ORD" + timestamp + random;
+    /**
+     * 一次批量插入订单项，并回填自增ID
+     */
+    private void insertOrderItems(Long orderId, List<OrderItem> orderItems) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_ORDER_ITEM_SQL,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (OrderItem item : orderItems) {
+                    ps.setLong(1, orderId);
+                    ps.setLong(2, item.getProductId());
+                    ps.setString(3, item.getProductName());
+                    ps.setInt(4, item.getQuantity());
+                    ps.setBigDecimal(5, item.getUnitPrice());
+                    ps.setBigDecimal(6, item.getSubtotal());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (OrderItem item : orderItems) {
+                        if (!keys.next()) {
+                            break;
+                        }
+                        item.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
     }
 
     /**
      * 获取用户订单列表（分页）
      */
-    public PageResponse<OrderDTO> getUserOrders(Long customerId, int page, int size, String sortBy, String sortDir) {
+    public PageResponse<OrderDTO> getUserOrders(Long customerId, int page, int size, String sortBy, String sortDir, CountMode countMode) {
         log.info("获取用户订单列表 - 客户ID: {}, 页码: {}, 大小: {}", customerId, page, size);
 
         Sort sort = sortDir.equalsIgnoreCase("asc") ? 
@@ -101,6 +205,16 @@ public class OrderService {
                 Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
 
+        // 不需要精确总数时按切片查询，省去 COUNT
+        if (countMode != CountMode.EXACT) {
+            Slice<Order> orderSlice = orderRepository.findSliceByCustomerIdWithCustomer(customerId, pageable);
+            long total = countMode == CountMode.APPROX
+                    ? approximateCountCache.get("orders:customer:" + customerId,
+                            () -> orderRepository.countByCustomerId(customerId))
+                    : -1;
+            return orderMapper.toSliceResponse(orderSlice, total);
+        }
+
         Page<Order> orderPage = orderRepository.findByCustomerIdWithCustomer(customerId, pageable);
 
         return orderMapper.toPageResponse(orderPage);
@@ -121,7 +235,7 @@ public class OrderService {
     /**
      * 根据状态获取用户订单
      */
-    public PageResponse<OrderDTO> getUserOrdersByStatus(Long customerId, String status, int page, int size, String sortBy, String sortDir) {
+    public PageResponse<OrderDTO> getUserOrdersByStatus(Long customerId, String status, int page, int size, String sortBy, String sortDir, CountMode countMode) {
         log.info("根据状态获取用户订单 - 客户ID: {}, 状态: {}, 页码: {}, 大小: {}", customerId, status, page, size);
 
         Sort sort = sortDir.equalsIgnoreCase("asc") ? 
@@ -130,6 +244,18 @@ public class OrderService {
         Pageable pageable = PageRequest.of(page, size, sort);
 
         Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
+
+        // 不需要精确总数时按切片查询，省去 COUNT
+        if (countMode != CountMode.EXACT) {
+            Slice<Order> orderSlice = orderRepository
+                    .findSliceByCustomerIdAndStatusWithCustomer(customerId, orderStatus, pageable);
+            long total = countMode == CountMode.APPROX
+                    ? approximateCountCache.get("orders:customer:" + customerId + ":" + orderStatus,
+                            () -> orderRepository.countByCustomerIdAndStatus(customerId, orderStatus))
+                    : -1;
+            return orderMapper.toSliceResponse(orderSlice, total);
+        }
+
         Page<Order> orderPage = orderRepository.findByCustomerIdAndStatusWithCustomer(customerId, orderStatus, pageable);
 
         return orderMapper.toPageResponse(orderPage);
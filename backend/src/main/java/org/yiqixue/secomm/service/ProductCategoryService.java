@@ -3,25 +3,24 @@ package org.yiqixue.secomm.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.cache.CategoryCache;
 import org.yiqixue.secomm.dto.ProductCategoryDTO;
-import org.yiqixue.secomm.entity.ProductCategory;
 import org.yiqixue.secomm.exception.ResourceNotFoundException;
-import org.yiqixue.secomm.mapper.ProductMapper;
-import org.yiqixue.secomm.repository.ProductCategoryRepository;
 import java.util.List;
 
 /**
  * 商品分类服务层
+ * 分类数据读自内存快照，不开启事务，快照有效时不访问数据库
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
-@Transactional(readOnly = true)
+@Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
 public class ProductCategoryService {
 
-    private final ProductCategoryRepository categoryRepository;
-    private final ProductMapper productMapper;
+    private final CategoryCache categoryCache;
 
     /**
      * 获取所有商品分类
@@ -31,9 +30,7 @@ public class ProductCategoryService {
     public List<ProductCategoryDTO> getAllCategories() {
         log.info("获取所有商品分类");
 
-        List<ProductCategory> categories = categoryRepository.findAll();
-
-        return productMapper.toCategoryDTOList(categories);
+        return categoryCache.getAll();
     }
 
     /**
@@ -45,11 +42,9 @@ public class ProductCategoryService {
     public ProductCategoryDTO getCategoryById(Long categoryId) {
         log.info("获取分类详情 - 分类ID: {}", categoryId);
 
-        ProductCategory category = categoryRepository.findById(categoryId)
+        return categoryCache.getById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "ProductCategory", "id", categoryId));
-
-        return productMapper.toCategoryDTO(category);
     }
 
     /**
@@ -61,11 +56,8 @@ public class ProductCategoryService {
     public ProductCategoryDTO getCategoryByName(String categoryName) {
         log.info("根据名称获取分类 - 名称: {}", categoryName);
 
-        ProductCategory category = categoryRepository
-                .findByCategoryName(categoryName)
+        return categoryCache.getByName(categoryName)
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "ProductCategory", "name", categoryName));
-
-        return productMapper.toCategoryDTO(category);
     }
 }
\ No newline at end of file
@@ -0,0 +1,364 @@
+package org.yiqixue.secomm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.dto.ProductImportReport;
+import org.yiqixue.secomm.entity.ProductCategory;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+import org.yiqixue.secomm.imports.CsvProductImportReader;
+import org.yiqixue.secomm.imports.NdjsonProductImportReader;
+import org.yiqixue.secomm.imports.ProductImportReader;
+import org.yiqixue.secomm.imports.ProductImportRow;
+import org.yiqixue.secomm.repository.ProductCategoryRepository;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 商品批量导入服务
+ * 逐行读取导入文件，按批次解析分类、查询已有SKU，并用 JDBC 批量 upsert（每批一个事务）。
+ * 图片URL变化时与单个更新一致：登记新图片引用、释放旧图片引用并清空衍生尺寸
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductImportService {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO product (sku, name, description, unit_price, image_url, active, units_in_stock,"
+                    + " category_id, date_created, last_updated)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+                    + " ON DUPLICATE KEY UPDATE name = VALUES(name), description = VALUES(description),"
+                    + " unit_price = VALUES(unit_price), image_url = COALESCE(VALUES(image_url), image_url),"
+                    + " active = VALUES(active), units_in_stock = VALUES(units_in_stock),"
+                    + " category_id = VALUES(category_id), last_updated = VALUES(last_updated)";
+
+    // 锁定本批已存在的商品，读取图片URL（与单个商品更新互斥）
+    private static final String LOCK_EXISTING_SQL = "SELECT sku, image_url FROM product WHERE sku IN (%s) FOR UPDATE";
+
+    private static final String RESET_DERIVATIVES_SQL =
+            "UPDATE product SET thumbnail_url = NULL, list_image_url = NULL, detail_image_url = NULL WHERE sku = ?";
+
+    private final ProductRepository productRepository;
+    private final ProductCategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final ImageStorageService imageStorageService;
+
+    @Value("${app.product-import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.product-import.max-errors:1000}")
+    private int maxErrors;
+
+    private record ValidRow(long lineNumber, String sku, String name, String description,
+                            BigDecimal unitPrice, int unitsInStock, Long categoryId,
+                            String categoryName, boolean active, String imageUrl) {
+    }
+
+    /**
+     * 单次导入的状态：计数、失败明细和已解析的分类
+     */
+    private class ImportRun {
+
+        long totalRows;
+        long inserted;
+        long updated;
+        long failed;
+        final List<ProductImportReport.RowError> errors = new ArrayList<>();
+        boolean errorsTruncated;
+
+        final Set<Long> knownCategoryIds = new HashSet<>();
+        final Set<Long> missingCategoryIds = new HashSet<>();
+        final Map<String, Long> categoryIdsByName = new HashMap<>();
+        final Set<String> missingCategoryNames = new HashSet<>();
+
+        void fail(long lineNumber, String sku, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ProductImportReport.RowError(lineNumber, sku, message));
+            } else {
+                errorsTruncated = true;
+            }
+        }
+    }
+
+    /**
+     * 从输入流导入（UTF-8）
+     *
+     * @param in 请求体输入流
+     * @param ndjson true 表示 NDJSON，false 表示 CSV
+     */
+    public ProductImportReport importProducts(InputStream in, boolean ndjson) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        return importProducts(ndjson
+                ? new NdjsonProductImportReader(reader, objectMapper)
+                : new CsvProductImportReader(reader));
+    }
+
+    /**
+     * 执行导入
+     *
+     * @param reader 导入文件读取器
+     * @return 导入结果（含每行失败原因和吞吐量）
+     */
+    public ProductImportReport importProducts(ProductImportReader reader) throws IOException {
+        long start = System.nanoTime();
+        ImportRun run = new ImportRun();
+        List<ValidRow> batch = new ArrayList<>(batchSize);
+
+        ProductImportRow row;
+        while ((row = reader.next()) != null) {
+            run.totalRows++;
+            ValidRow valid = validate(row, run);
+            if (valid == null) {
+                continue;
+            }
+            batch.add(valid);
+            if (batch.size() >= batchSize) {
+                flush(batch, run);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch, run);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        double rowsPerSecond = elapsedMillis > 0 ? run.totalRows * 1000.0 / elapsedMillis : run.totalRows;
+
+        log.info("商品导入完成 - 行数: {}, 新增: {}, 更新: {}, 失败: {}, 耗时: {}ms, 吞吐: {} 行/秒",
+                run.totalRows, run.inserted, run.updated, run.failed, elapsedMillis,
+                String.format("%.1f", rowsPerSecond));
+
+        return ProductImportReport.builder()
+                .totalRows(run.totalRows)
+                .inserted(run.inserted)
+                .updated(run.updated)
+                .failed(run.failed)
+                .elapsedMillis(elapsedMillis)
+                .rowsPerSecond(rowsPerSecond)
+                .errors(run.errors)
+                .errorsTruncated(run.errorsTruncated)
+                .build();
+    }
+
+    /**
+     * 字段校验和类型转换，失败时记录错误并返回 null
+     */
+    private ValidRow validate(ProductImportRow row, ImportRun run) {
+        if (row.parseError() != null) {
+            run.fail(row.lineNumber(), null, row.parseError());
+            return null;
+        }
+        if (row.sku() == null) {
+            run.fail(row.lineNumber(), null, "SKU不能为空");
+            return null;
+        }
+        if (row.name() == null) {
+            run.fail(row.lineNumber(), row.sku(), "商品名称不能为空");
+            return null;
+        }
+        if (row.categoryId() == null && row.categoryName() == null) {
+            run.fail(row.lineNumber(), row.sku(), "分类ID和分类名称不能同时为空");
+            return null;
+        }
+
+        try {
+            BigDecimal unitPrice = row.unitPrice() != null ? new BigDecimal(row.unitPrice()) : null;
+            if (unitPrice == null || unitPrice.compareTo(BigDecimal.ZERO) < 0) {
+                run.fail(row.lineNumber(), row.sku(), "单价不能为空且必须大于等于0");
+                return null;
+            }
+            int unitsInStock = row.unitsInStock() != null ? Integer.parseInt(row.unitsInStock()) : 0;
+            if (unitsInStock < 0) {
+                run.fail(row.lineNumber(), row.sku(), "库存数量不能为负数");
+                return null;
+            }
+            Long categoryId = row.categoryId() != null ? Long.valueOf(row.categoryId()) : null;
+            boolean active = row.active() == null || Boolean.parseBoolean(row.active());
+
+            return new ValidRow(row.lineNumber(), row.sku(), row.name(), row.description(),
+                    unitPrice, unitsInStock, categoryId, row.categoryName(), active, row.imageUrl());
+        } catch (NumberFormatException e) {
+            run.fail(row.lineNumber(), row.sku(), "数字格式错误: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写入一批：解析分类、区分新增/更新、批量 upsert，提交后发布商品变更事件
+     */
+    private void flush(List<ValidRow> batch, ImportRun run) {
+        resolveCategories(batch, run);
+
+        // 同一批次内SKU重复时以最后一行为准
+        Map<String, ValidRow> rowsBySku = new LinkedHashMap<>();
+        for (ValidRow row : batch) {
+            Long categoryId = categoryIdOf(row, run);
+            if (categoryId == null) {
+                run.fail(row.lineNumber(), row.sku(), row.categoryId() != null
+                        ? "分类不存在: " + row.categoryId()
+                        : "分类不存在: " + row.categoryName());
+                continue;
+            }
+            ValidRow previous = rowsBySku.put(row.sku(), row);
+            if (previous != null) {
+                run.fail(previous.lineNumber(), previous.sku(), "SKU在文件中重复，已被第 " + row.lineNumber() + " 行覆盖");
+            }
+        }
+        if (rowsBySku.isEmpty()) {
+            return;
+        }
+        List<ValidRow> rows = new ArrayList<>(rowsBySku.values());
+
+        try {
+            Set<String> existing = transactionTemplate.execute(status -> {
+                Map<String, String> existingImages = lockExisting(rowsBySku.keySet());
+                Set<String> existingSkus = existingImages.keySet();
+                upsert(rows, run);
+                updateImageReferences(rows, existingImages);
+
+                // 回查本批商品并发布事件（事务提交后由搜索索引、缓存等监听方处理）
+                for (ProductDTO product : productRepository.findProductDTOsBySkuIn(rowsBySku.keySet())) {
+                    eventPublisher.publishEvent(existingSkus.contains(product.getSku())
+                            ? ProductChangedEvent.updated(product.getSku(), product)
+                            : ProductChangedEvent.created(product));
+                }
+                return existingSkus;
+            });
+
+            run.updated += existing.size();
+            run.inserted += rows.size() - existing.size();
+        } catch (RuntimeException e) {
+            log.error("商品导入批次写入失败 - 行 {} ~ {}: {}", rows.get(0).lineNumber(),
+                    rows.get(rows.size() - 1).lineNumber(), e.getMessage(), e);
+            for (ValidRow row : rows) {
+                run.fail(row.lineNumber(), row.sku(), "批次写入失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private void upsert(List<ValidRow> rows, ImportRun run) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.sku());
+            ps.setString(2, row.name());
+            ps.setString(3, row.description());
+            ps.setBigDecimal(4, row.unitPrice());
+            ps.setString(5, row.imageUrl());
+            ps.setBoolean(6, row.active());
+            ps.setInt(7, row.unitsInStock());
+            ps.setLong(8, categoryIdOf(row, run));
+            ps.setTimestamp(9, now);
+            ps.setTimestamp(10, now);
+        });
+    }
+
+    /**
+     * @return 已存在商品的 SKU -> 原图片URL（可能为 null）
+     */
+    private Map<String, String> lockExisting(Set<String> skus) {
+        Map<String, String> images = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(skus.size(), "?"));
+        jdbcTemplate.query(String.format(LOCK_EXISTING_SQL, placeholders),
+                rs -> {
+                    images.put(rs.getString("sku"), rs.getString("image_url"));
+                },
+                skus.toArray());
+        return images;
+    }
+
+    /**
+     * 新商品登记图片引用；已有商品图片变化时登记新图片、释放旧图片并清空衍生尺寸。
+     * 导入行未给出图片URL时保留原图片（与 upsert 中的 COALESCE 一致）
+     */
+    private void updateImageReferences(List<ValidRow> rows, Map<String, String> existingImages) {
+        List<String> changedSkus = new ArrayList<>();
+        for (ValidRow row : rows) {
+            String imageUrl = row.imageUrl();
+            if (imageUrl == null) {
+                continue;
+            }
+            if (!existingImages.containsKey(row.sku())) {
+                imageStorageService.retain(imageUrl);
+                continue;
+            }
+            String previous = existingImages.get(row.sku());
+            if (!imageUrl.equals(previous)) {
+                imageStorageService.retain(imageUrl);
+                imageStorageService.release(previous);
+                changedSkus.add(row.sku());
+            }
+        }
+        if (!changedSkus.isEmpty()) {
+            jdbcTemplate.batchUpdate(RESET_DERIVATIVES_SQL, changedSkus, changedSkus.size(),
+                    (ps, sku) -> ps.setString(1, sku));
+        }
+    }
+
+    /**
+     * 批量查询本批中尚未解析过的分类ID和分类名称
+     */
+    private void resolveCategories(List<ValidRow> batch, ImportRun run) {
+        Set<Long> ids = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (ValidRow row : batch) {
+            if (row.categoryId() != null) {
+                if (!run.knownCategoryIds.contains(row.categoryId())
+                        && !run.missingCategoryIds.contains(row.categoryId())) {
+                    ids.add(row.categoryId());
+                }
+            } else if (!run.categoryIdsByName.containsKey(row.categoryName())
+                    && !run.missingCategoryNames.contains(row.categoryName())) {
+                names.add(row.categoryName());
+            }
+        }
+
+        if (!ids.isEmpty()) {
+            for (ProductCategory category : categoryRepository.findAllById(ids)) {
+                run.knownCategoryIds.add(category.getId());
+            }
+            ids.removeAll(run.knownCategoryIds);
+            run.missingCategoryIds.addAll(ids);
+        }
+        if (!names.isEmpty()) {
+            for (ProductCategory category : categoryRepository.findByCategoryNameIn(names)) {
+                run.categoryIdsByName.put(category.getCategoryName(), category.getId());
+            }
+            names.removeAll(run.categoryIdsByName.keySet());
+            run.missingCategoryNames.addAll(names);
+        }
+    }
+
+    private Long categoryIdOf(ValidRow row, ImportRun run) {
+        if (row.categoryId() != null) {
+            return run.knownCategoryIds.contains(row.categoryId()) ? row.categoryId() : null;
+        }
+        return run.categoryIdsByName.get(row.categoryName());
+    }
+}
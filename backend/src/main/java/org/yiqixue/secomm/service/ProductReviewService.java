@@ -2,18 +2,23 @@ package org.yiqixue.secomm.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.cache.ApproximateCountCache;
 import org.yiqixue.secomm.dto.*;
 import org.yiqixue.secomm.entity.Customer;
 import org.yiqixue.secomm.entity.Product;
 import org.yiqixue.secomm.entity.ProductReview;
 import org.yiqixue.secomm.exception.BusinessException;
 import org.yiqixue.secomm.exception.ResourceNotFoundException;
+import org.yiqixue.secomm.mapper.PageCursors;
 import org.yiqixue.secomm.mapper.ProductReviewMapper;
 import org.yiqixue.secomm.repository.CustomerRepository;
 import org.yiqixue.secomm.repository.ProductRepository;
@@ -23,6 +28,7 @@ import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 产品评价服务层
@@ -33,10 +39,15 @@ import java.util.Map;
 @Transactional(readOnly = true)
 public class ProductReviewService {
 
+    // 游标分页允许的排序字段（非空列）
+    private static final Set<String> CURSOR_SORT_PROPERTIES = Set.of(
+            "id", "rating", "helpfulCount", "dateCreated");
+
     private final ProductReviewRepository reviewRepository;
     private final ProductRepository productRepository;
     private final CustomerRepository customerRepository;
     private final ProductReviewMapper reviewMapper;
+    private final ApproximateCountCache approximateCountCache;
 
     /**
      * 创建产品评价
@@ -89,7 +100,7 @@ public class ProductReviewService {
     /**
      * 获取产品的所有评价（分页）
      */
-    public PageResponse<ProductReviewDTO> getProductReviews(Long productId, int page, int size, String sortBy, String sortDir) {
+    public PageResponse<ProductReviewDTO> getProductReviews(Long productId, int page, int size, String sortBy, String sortDir, CountMode countMode) {
         log.info("获取产品评价 - 产品ID: {}, 页码: {}, 大小: {}", productId, page, size);
 
         // 验证产品是否存在
@@ -102,12 +113,42 @@ public class ProductReviewService {
                 Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
 
+        // 不需要精确总数时按切片查询，省去 COUNT
+        if (countMode != CountMode.EXACT) {
+            Slice<ProductReview> reviewSlice = reviewRepository.findSliceByProductIdAndStatus(productId, "APPROVED", pageable);
+            long total = countMode == CountMode.APPROX
+                    ? approximateCountCache.get("reviews:product:" + productId,
+                            () -> reviewRepository.countByProductIdAndStatus(productId, "APPROVED"))
+                    : -1;
+            return reviewMapper.toSliceResponse(reviewSlice, total);
+        }
+
         // 只查询已审核通过的评价
         Page<ProductReview> reviewPage = reviewRepository.findByProductIdAndStatus(productId, "APPROVED", pageable);
 
         return reviewMapper.toPageResponse(reviewPage);
     }
 
+    /**
+     * 获取产品的所有评价（游标分页）
+     */
+    public PageResponse<ProductReviewDTO> scrollProductReviews(Long productId, String after, int size, String sortBy, String sortDir) {
+        log.info("游标获取产品评价 - 产品ID: {}, 游标: {}, 大小: {}", productId, after, size);
+
+        // 验证产品是否存在
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product", "id", productId);
+        }
+
+        Sort sort = PageCursors.keysetSort(sortBy, sortDir, CURSOR_SORT_PROPERTIES);
+
+        // 只查询已审核通过的评价
+        Window<ProductReview> reviewWindow = reviewRepository.findByProductIdAndStatus(
+                productId, "APPROVED", PageCursors.decode(after, sort), sort, Limit.of(size));
+
+        return reviewMapper.toPageResponse(reviewWindow, size, after.isBlank());
+    }
+
     /**
      * 获取产品评价汇总信息
      */
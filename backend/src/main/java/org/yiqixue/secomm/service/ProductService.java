@@ -2,30 +2,46 @@ package org.yiqixue.secomm.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.cache.ApproximateCountCache;
+import org.yiqixue.secomm.cache.CategoryCache;
+import org.yiqixue.secomm.cache.ProductCache;
+import org.yiqixue.secomm.dto.CountMode;
+import org.yiqixue.secomm.dto.FacetCountDTO;
 import org.yiqixue.secomm.dto.PageResponse;
+import org.yiqixue.secomm.dto.ProductCategoryDTO;
 import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.dto.ProductFilterResponse;
 import org.yiqixue.secomm.entity.Product;
+import org.yiqixue.secomm.event.ProductChangedEvent;
 import org.yiqixue.secomm.exception.ResourceNotFoundException;
+import org.yiqixue.secomm.mapper.PageCursors;
 import org.yiqixue.secomm.mapper.ProductMapper;
 import org.yiqixue.secomm.repository.ProductRepository;
 import org.springframework.web.multipart.MultipartFile;
 import org.yiqixue.secomm.entity.ProductCategory;
 import org.yiqixue.secomm.repository.ProductCategoryRepository;
 import org.yiqixue.secomm.exception.BusinessException;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import org.yiqixue.secomm.search.ProductFacetIndex;
+import org.yiqixue.secomm.search.ProductSearchIndex;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.math.BigDecimal;
 
 /**
@@ -37,9 +53,20 @@ import java.math.BigDecimal;
 @Transactional(readOnly = true)
 public class ProductService {
 
+    // 游标分页允许的排序字段（非空列；lastUpdated、description 等可为空的字段不支持）
+    private static final Set<String> CURSOR_SORT_PROPERTIES = Set.of(
+            "id", "sku", "name", "unitPrice", "unitsInStock", "dateCreated");
+
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
     private final ProductCategoryRepository categoryRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductCache productCache;
+    private final ImageStorageService imageStorageService;
+    private final CategoryCache categoryCache;
+    private final ProductFacetIndex productFacetIndex;
+    private final ApproximateCountCache approximateCountCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 获取所有激活状态的商品（分页）
@@ -48,10 +75,11 @@ public class ProductService {
      * @param size 每页大小
      * @param sortBy 排序字段
      * @param sortDir 排序方向（asc/desc）
+     * @param countMode 总数统计模式
      * @return 分页商品数据
      */
     public PageResponse<ProductDTO> getAllActiveProducts(
-            int page, int size, String sortBy, String sortDir) {
+            int page, int size, String sortBy, String sortDir, CountMode countMode) {
 
         log.info("获取所有激活商品 - 页码: {}, 大小: {}, 排序: {} {}",
                 page, size, sortBy, sortDir);
@@ -64,11 +92,42 @@ public class ProductService {
         // 创建分页对象
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        // 查询激活状态的商品
-        Page<Product> productPage = productRepository.findByActiveTrue(pageable);
+        // 不需要精确总数时按切片查询，省去 COUNT
+        if (countMode != CountMode.EXACT) {
+            Slice<ProductDTO> productSlice = productRepository.findActiveProductDTOSlice(pageable);
+            long total = countMode == CountMode.APPROX
+                    ? approximateCountCache.get("products:active", productRepository::countByActiveTrue)
+                    : -1;
+            return productMapper.toSliceResponse(productSlice, total);
+        }
+
+        // 查询激活状态的商品（直接投影为DTO，分类随商品一起取回）
+        Page<ProductDTO> productPage = productRepository.findActiveProductDTOs(pageable);
+
+        return productMapper.toDTOPageResponse(productPage);
+    }
+
+    /**
+     * 获取所有激活状态的商品（游标分页）
+     *
+     * @param after 上一页返回的游标，空字符串表示第一页
+     * @param size 每页大小
+     * @param sortBy 排序字段
+     * @param sortDir 排序方向（asc/desc）
+     * @return 分页商品数据（含下一页游标，不含总数）
+     */
+    public PageResponse<ProductDTO> scrollActiveProducts(
+            String after, int size, String sortBy, String sortDir) {
+
+        log.info("游标获取激活商品 - 游标: {}, 大小: {}, 排序: {} {}",
+                after, size, sortBy, sortDir);
+
+        Sort sort = PageCursors.keysetSort(sortBy, sortDir, CURSOR_SORT_PROPERTIES);
+
+        Window<Product> productWindow = productRepository.findByActiveTrue(
+                PageCursors.decode(after, sort), sort, Limit.of(size));
 
-        // 转换为DTO并返回
-        return productMapper.toPageResponse(productPage);
+        return productMapper.toPageResponse(productWindow, size, after.isBlank());
     }
 
     /**
@@ -79,10 +138,11 @@ public class ProductService {
      * @param size 每页大小
      * @param sortBy 排序字段
      * @param sortDir 排序方向
+     * @param countMode 总数统计模式
      * @return 分页商品数据
      */
     public PageResponse<ProductDTO> getProductsByCategory(
-            Long categoryId, int page, int size, String sortBy, String sortDir) {
+            Long categoryId, int page, int size, String sortBy, String sortDir, CountMode countMode) {
 
         log.info("根据分类获取商品 - 分类ID: {}, 页码: {}, 大小: {}",
                 categoryId, page, size);
@@ -93,32 +153,68 @@ public class ProductService {
                 Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
 
+        // 不需要精确总数时按切片查询，省去 COUNT
+        if (countMode != CountMode.EXACT) {
+            Slice<ProductDTO> productSlice = productRepository
+                    .findActiveProductDTOSliceByCategoryId(categoryId, pageable);
+            long total = countMode == CountMode.APPROX
+                    ? approximateCountCache.get("products:category:" + categoryId,
+                            () -> productRepository.countByCategoryIdAndActiveTrue(categoryId))
+                    : -1;
+            return productMapper.toSliceResponse(productSlice, total);
+        }
+
         // 查询该分类下的激活商品
-        Page<Product> productPage = productRepository
-                .findByCategoryIdAndActiveTrue(categoryId, pageable);
+        Page<ProductDTO> productPage = productRepository
+                .findActiveProductDTOsByCategoryId(categoryId, pageable);
 
         // 如果该分类没有商品，记录日志
         if (productPage.isEmpty()) {
             log.warn("分类ID {} 下没有找到商品", categoryId);
         }
 
-        return productMapper.toPageResponse(productPage);
+        return productMapper.toDTOPageResponse(productPage);
+    }
+
+    /**
+     * 根据分类ID获取商品（游标分页）
+     *
+     * @param categoryId 分类ID
+     * @param after 上一页返回的游标，空字符串表示第一页
+     * @param size 每页大小
+     * @param sortBy 排序字段
+     * @param sortDir 排序方向
+     * @return 分页商品数据（含下一页游标，不含总数）
+     */
+    public PageResponse<ProductDTO> scrollProductsByCategory(
+            Long categoryId, String after, int size, String sortBy, String sortDir) {
+
+        log.info("根据分类游标获取商品 - 分类ID: {}, 游标: {}, 大小: {}",
+                categoryId, after, size);
+
+        Sort sort = PageCursors.keysetSort(sortBy, sortDir, CURSOR_SORT_PROPERTIES);
+
+        Window<Product> productWindow = productRepository.findByCategoryIdAndActiveTrue(
+                categoryId, PageCursors.decode(after, sort), sort, Limit.of(size));
+
+        return productMapper.toPageResponse(productWindow, size, after.isBlank());
     }
 
     /**
      * 根据商品ID获取商品详情
+     * 优先读取商品缓存；不开启事务，缓存命中时不占用数据库连接
      *
      * @param productId 商品ID
      * @return 商品DTO
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ProductDTO getProductById(Long productId) {
         log.info("获取商品详情 - 商品ID: {}", productId);
 
-        Product product = productRepository.findById(productId)
+        return productCache.getById(productId, () -> productRepository.findByIdWithCategory(productId)
+                .map(productMapper::toDTO)
                 .orElseThrow(() -> new ResourceNotFoundException(
-                        "Product", "id", productId));
-
-        return productMapper.toDTO(product);
+                        "Product", "id", productId)));
     }
 
     /**
@@ -136,10 +232,90 @@ public class ProductService {
 
         Pageable pageable = PageRequest.of(page, size);
 
-        Page<Product> productPage = productRepository
-                .searchProducts(keyword, pageable);
+        // 索引尚未构建完成时（应用刚启动）退回数据库模糊查询
+        if (!productSearchIndex.isReady()) {
+            Page<ProductDTO> productPage = productRepository
+                    .searchProductDTOs(keyword, pageable);
+            return productMapper.toDTOPageResponse(productPage);
+        }
+
+        ProductSearchIndex.Hits hits = productSearchIndex
+                .search(keyword, (int) pageable.getOffset(), size);
+
+        if (hits.productIds().isEmpty()) {
+            return productMapper.toDTOPageResponse(new PageImpl<>(List.of(), pageable, hits.total()));
+        }
+
+        // 按索引给出的相关度顺序回填商品
+        List<ProductDTO> products = findProductsInOrder(hits.productIds());
+
+        return productMapper.toDTOPageResponse(new PageImpl<>(products, pageable, hits.total()));
+    }
+
+    /**
+     * 分面筛选商品（分类、价格区间、有货、上架状态），同时返回各分面计数
+     *
+     * @param query 筛选条件
+     * @param page 页码
+     * @param size 每页大小
+     * @param sortBy 排序字段（id、name、unitPrice、dateCreated）
+     * @param sortDir 排序方向
+     * @return 当前页商品及分面计数
+     */
+    public ProductFilterResponse filterProducts(
+            ProductFacetIndex.Query query, int page, int size, String sortBy, String sortDir) {
+
+        log.info("分面筛选商品 - 条件: {}, 页码: {}, 大小: {}, 排序: {} {}",
+                query, page, size, sortBy, sortDir);
+
+        Pageable pageable = PageRequest.of(page, size);
+        ProductFacetIndex.Result result = productFacetIndex.search(query,
+                (int) pageable.getOffset(), size, sortBy, sortDir.equalsIgnoreCase("asc"));
+
+        List<ProductDTO> products = result.productIds().isEmpty()
+                ? List.of()
+                : findProductsInOrder(result.productIds());
+
+        List<FacetCountDTO> categoryFacets = result.categoryCounts().entrySet().stream()
+                .map(entry -> new FacetCountDTO(String.valueOf(entry.getKey()),
+                        categoryCache.getById(entry.getKey())
+                                .map(ProductCategoryDTO::getCategoryName)
+                                .orElse(String.valueOf(entry.getKey())),
+                        entry.getValue()))
+                .collect(Collectors.toList());
+
+        List<FacetCountDTO> priceFacets = result.priceRangeCounts().stream()
+                .map(range -> {
+                    String key = range.max() != null
+                            ? range.min().toPlainString() + "-" + range.max().toPlainString()
+                            : range.min().toPlainString() + "+";
+                    return new FacetCountDTO(key, key, range.count());
+                })
+                .collect(Collectors.toList());
+
+        List<FacetCountDTO> stockFacets = List.of(
+                new FacetCountDTO("true", "有货", result.inStockCount()),
+                new FacetCountDTO("false", "缺货", result.outOfStockCount()));
+
+        return ProductFilterResponse.builder()
+                .products(productMapper.toDTOPageResponse(new PageImpl<>(products, pageable, result.total())))
+                .categories(categoryFacets)
+                .priceRanges(priceFacets)
+                .stock(stockFacets)
+                .build();
+    }
 
-        return productMapper.toPageResponse(productPage);
+    /**
+     * 按给定ID顺序批量加载商品（一条投影查询），已删除的商品被跳过
+     */
+    private List<ProductDTO> findProductsInOrder(List<Long> productIds) {
+        Map<Long, ProductDTO> productsById = productRepository
+                .findProductDTOsByIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
+        return productIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -148,14 +324,14 @@ public class ProductService {
      * @param sku 商品SKU
      * @return 商品DTO
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ProductDTO getProductBySku(String sku) {
         log.info("根据SKU获取商品 - SKU: {}", sku);
 
-        Product product = productRepository.findBySku(sku)
+        return productCache.getBySku(sku, () -> productRepository.findBySkuWithCategory(sku)
+                .map(productMapper::toDTO)
                 .orElseThrow(() -> new ResourceNotFoundException(
-                        "Product", "sku", sku));
-
-        return productMapper.toDTO(product);
+                        "Product", "sku", sku)));
     }
 
     /**
@@ -181,7 +357,7 @@ public class ProductService {
         
         // 处理图片上传
         if (image != null && !image.isEmpty()) {
-            imageUrl = handleImageUpload(image, sku, category.getCategoryEnglishName());
+            imageUrl = handleImageUpload(image);
         }
 
         // 创建商品实体
@@ -199,67 +375,36 @@ public class ProductService {
         product = productRepository.save(product);
         
         log.info("商品创建成功 - ID: {}, SKU: {}", product.getId(), product.getSku());
-        
-        return productMapper.toDTO(product);
+
+        ProductDTO productDTO = productMapper.toDTO(product);
+        eventPublisher.publishEvent(ProductChangedEvent.created(productDTO));
+
+        return productDTO;
     }
 
     /**
-     * 处理图片上传
+     * 处理图片上传：校验后按内容寻址保存并登记引用
      */
-    private String handleImageUpload(MultipartFile image, String sku, String categoryEnglishName) {
-        try {
-            // 图片格式校验
-            String contentType = image.getContentType();
-            if (contentType == null || !contentType.startsWith("image/")) {
-                throw new BusinessException("只支持图片文件上传");
-            }
-            
-            // 支持的图片格式
-            List<String> allowedTypes = Arrays.asList("image/jpeg", "image/jpg", "image/png", "image/gif");
-            if (!allowedTypes.contains(contentType.toLowerCase())) {
-                throw new BusinessException("只支持 JPEG、PNG、GIF 格式的图片");
-            }
-            
-            // 文件大小校验 (10MB)
-            if (image.getSize() > 10 * 1024 * 1024) {
-                throw new BusinessException("图片文件大小不能超过10MB");
-            }
-            
-            // 获取文件扩展名
-            String originalFilename = image.getOriginalFilename();
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-            
-            // 生成随机码
-            String randomCode = UUID.randomUUID().toString().substring(0, 8);
-            String filename = sku + "_" + randomCode + extension;
-            
-            // 创建目录结构: /uploads/images/products/{category}/
-            String categoryDir = categoryEnglishName.toLowerCase().replaceAll("[^a-zA-Z0-9]", "_");
-            Path uploadDir = Paths.get("uploads", "images", "products", categoryDir);
-            
-            // 确保目录存在
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
-            }
-            
-            // 保存文件
-            Path filePath = uploadDir.resolve(filename);
-            Files.copy(image.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-            
-            // 返回相对路径作为URL
-            String imageUrl = "/uploads/images/products/" + categoryDir + "/" + filename;
-            
-            log.info("图片上传成功 - 文件路径: {}", filePath.toString());
-            
-            return imageUrl;
-            
-        } catch (IOException e) {
-            log.error("图片上传失败: {}", e.getMessage(), e);
-            throw new BusinessException("图片上传失败: " + e.getMessage());
+    private String handleImageUpload(MultipartFile image) {
+        // 图片格式校验
+        String contentType = image.getContentType();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new BusinessException("只支持图片文件上传");
+        }
+
+        // 支持的图片格式
+        List<String> allowedTypes = Arrays.asList("image/jpeg", "image/jpg", "image/png", "image/gif");
+        if (!allowedTypes.contains(contentType.toLowerCase())) {
+            throw new BusinessException("只支持 JPEG、PNG、GIF 格式的图片");
+        }
+
+        // 文件大小校验 (10MB)
+        if (image.getSize() > 10 * 1024 * 1024) {
+            throw new BusinessException("图片文件大小不能超过10MB");
         }
+
+        // 衍生尺寸在事务提交后由后台线程生成
+        return imageStorageService.store(image);
     }
 
     /**
@@ -275,39 +420,14 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Product", "id", productId));
 
-        // 删除商品图片文件（如果存在）
-        if (product.getImageUrl() != null && !product.getImageUrl().isEmpty()) {
-            try {
-                deleteImageFile(product.getImageUrl());
-            } catch (Exception e) {
-                log.warn("删除商品图片文件失败: {}", e.getMessage());
-            }
-        }
+        // 释放商品图片引用，无其他商品使用时由回收扫描删除文件
+        imageStorageService.release(product.getImageUrl());
 
         productRepository.delete(product);
         
         log.info("商品删除成功 - ID: {}, SKU: {}", product.getId(), product.getSku());
-    }
 
-    /**
-     * 删除图片文件
-     */
-    private void deleteImageFile(String imageUrl) {
-        try {
-            // 从URL中提取文件路径
-            if (imageUrl.startsWith("/uploads/")) {
-                String fileName = imageUrl.substring("/uploads/".length());
-                Path filePath = Paths.get("uploads", fileName);
-                
-                if (Files.exists(filePath)) {
-                    Files.delete(filePath);
-                    log.info("图片文件删除成功: {}", filePath);
-                }
-            }
-        } catch (IOException e) {
-            log.error("删除图片文件失败: {}", e.getMessage());
-            throw new BusinessException("删除图片文件失败");
-        }
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(product.getId(), product.getSku()));
     }
 
     /**
@@ -333,21 +453,21 @@ public class ProductService {
         ProductCategory category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("ProductCategory", "id", categoryId));
 
+        String previousSku = existingProduct.getSku();
         String imageUrl = existingProduct.getImageUrl(); // 保持原有图片URL
         
-        // 处理新图片上传
+        // 处理新图片上传：先登记新图片引用再释放旧图片，内容相同时不会误删文件
         if (image != null && !image.isEmpty()) {
-            // 删除旧图片文件
-            if (imageUrl != null && !imageUrl.isEmpty()) {
-                try {
-                    deleteImageFile(imageUrl);
-                } catch (Exception e) {
-                    log.warn("删除旧图片文件失败: {}", e.getMessage());
-                }
+            String previousImageUrl = imageUrl;
+            imageUrl = handleImageUpload(image);
+            imageStorageService.release(previousImageUrl);
+
+            // 图片内容变化时旧的衍生尺寸作废，待后台重新生成
+            if (!imageUrl.equals(previousImageUrl)) {
+                existingProduct.setThumbnailUrl(null);
+                existingProduct.setListImageUrl(null);
+                existingProduct.setDetailImageUrl(null);
             }
-            
-            // 上传新图片
-            imageUrl = handleImageUpload(image, sku, category.getCategoryEnglishName());
         }
 
         // 更新商品信息
@@ -363,7 +483,10 @@ public class ProductService {
         Product updatedProduct = productRepository.save(existingProduct);
         
         log.info("商品更新成功 - ID: {}, SKU: {}", updatedProduct.getId(), updatedProduct.getSku());
-        
-        return productMapper.toDTO(updatedProduct);
+
+        ProductDTO productDTO = productMapper.toDTO(updatedProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(previousSku, productDTO));
+
+        return productDTO;
     }
 }
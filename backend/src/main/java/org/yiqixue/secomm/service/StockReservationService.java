@@ -0,0 +1,280 @@
+package org.yiqixue.secomm.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.yiqixue.secomm.dto.CartItemDTO;
+import org.yiqixue.secomm.dto.StockHoldDTO;
+import org.yiqixue.secomm.entity.StockHold;
+import org.yiqixue.secomm.exception.BusinessException;
+import org.yiqixue.secomm.inventory.HashedTimingWheel;
+import org.yiqixue.secomm.metrics.MetricsProvider;
+import org.yiqixue.secomm.repository.StockHoldRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 结算库存预留服务
+ * 开始结算时按购物车扣减库存并持久化预留记录，到期任务放入哈希时间轮（O(1) 添加/取消）；
+ * 到期未下单的预留按批归还库存，重启后从预留表恢复时间轮。
+ * 每个客户同时只有一个有效预留，重新结算时先归还旧预留
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationService implements MetricsProvider {
+
+    private final StockHoldRepository stockHoldRepository;
+    private final InventoryService inventoryService;
+    private final CartService cartService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.stock-hold.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    @Value("${app.stock-hold.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${app.stock-hold.wheel-size:1024}")
+    private int wheelSize;
+
+    @Value("${app.stock-hold.release-batch-size:500}")
+    private int releaseBatchSize;
+
+    private HashedTimingWheel<String> wheel;
+
+    // 预留ID -> 时间轮任务，下单确认或取消时从时间轮移除
+    private final Map<String, HashedTimingWheel.Timeout<String>> timeouts = new ConcurrentHashMap<>();
+
+    private final AtomicLong held = new AtomicLong();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong replaced = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        wheel = new HashedTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * 启动时把未到期的预留重新放入时间轮；已过期的在第一次推进时归还
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        Map<String, LocalDateTime> deadlines = new HashMap<>();
+        for (StockHold hold : stockHoldRepository.findByStatus(StockHold.HoldStatus.ACTIVE)) {
+            deadlines.merge(hold.getReservationId(), hold.getExpiresAt(),
+                    (a, b) -> a.isBefore(b) ? a : b);
+        }
+        deadlines.forEach(this::schedule);
+        log.info("库存预留恢复完成 - 预留数: {}", deadlines.size());
+    }
+
+    /**
+     * 按当前购物车预留库存；客户已有的有效预留（购物车可能已变化）先归还，避免反复结算占住库存
+     */
+    @Transactional
+    public StockHoldDTO hold(Long customerId) {
+        List<CartItemDTO> cartItems = cartService.getCartItems(customerId);
+        if (cartItems.isEmpty()) {
+            throw new BusinessException("购物车为空");
+        }
+
+        List<StockHold> previous = stockHoldRepository.findByCustomerForUpdate(customerId,
+                StockHold.HoldStatus.ACTIVE);
+        List<String> previousIds = previous.stream().map(StockHold::getReservationId).distinct().toList();
+        releaseHolds(previousIds, previous);
+
+        List<InventoryService.StockLine> lines = cartItems.stream()
+                .map(item -> new InventoryService.StockLine(item.getProductId(), item.getQuantity()))
+                .collect(Collectors.toList());
+        inventoryService.reserve(lines);
+
+        String reservationId = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(ttlMinutes);
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (InventoryService.StockLine line : lines) {
+            quantities.merge(line.productId(), line.quantity(), Integer::sum);
+        }
+
+        List<StockHold> holds = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> holds.add(StockHold.builder()
+                .reservationId(reservationId)
+                .customerId(customerId)
+                .productId(productId)
+                .quantity(quantity)
+                .status(StockHold.HoldStatus.ACTIVE)
+                .expiresAt(expiresAt)
+                .dateCreated(now)
+                .build()));
+        stockHoldRepository.saveAll(holds);
+
+        // 提交后才放入时间轮，回滚的预留不会被调度
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                previousIds.forEach(StockReservationService.this::unschedule);
+                replaced.addAndGet(previousIds.size());
+                schedule(reservationId, expiresAt);
+                held.incrementAndGet();
+            }
+        });
+
+        log.info("库存预留成功 - 客户ID: {}, 预留ID: {}, 到期: {}, 替换旧预留: {}",
+                customerId, reservationId, expiresAt, previousIds);
+        return StockHoldDTO.builder()
+                .reservationId(reservationId)
+                .expiresAt(expiresAt)
+                .items(quantities.entrySet().stream()
+                        .map(entry -> new StockHoldDTO.Item(entry.getKey(), entry.getValue()))
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    /**
+     * 下单时确认预留，库存转为实际扣减；加入调用方事务
+     *
+     * @param quantities 订单中各商品的数量，必须与预留一致
+     */
+    @Transactional
+    public void confirm(Long customerId, String reservationId, Map<Long, Integer> quantities) {
+        List<StockHold> holds = stockHoldRepository.findForUpdate(List.of(reservationId), StockHold.HoldStatus.ACTIVE);
+        if (holds.isEmpty() || !holds.get(0).getCustomerId().equals(customerId)) {
+            throw new BusinessException("库存预留不存在或已过期: " + reservationId);
+        }
+        Map<Long, Integer> heldQuantities = new HashMap<>();
+        for (StockHold hold : holds) {
+            heldQuantities.put(hold.getProductId(), hold.getQuantity());
+        }
+        if (!heldQuantities.equals(quantities)) {
+            throw new BusinessException("订单商品与库存预留不一致，请重新结算");
+        }
+
+        stockHoldRepository.updateStatus(List.of(reservationId),
+                StockHold.HoldStatus.ACTIVE, StockHold.HoldStatus.CONFIRMED);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                unschedule(reservationId);
+                confirmed.incrementAndGet();
+            }
+        });
+        log.info("库存预留已确认 - 预留ID: {}", reservationId);
+    }
+
+    /**
+     * 客户放弃结算，立即归还库存
+     */
+    public void cancel(Long customerId, String reservationId) {
+        boolean released = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            List<StockHold> holds = stockHoldRepository.findForUpdate(List.of(reservationId),
+                    StockHold.HoldStatus.ACTIVE);
+            if (holds.isEmpty() || !holds.get(0).getCustomerId().equals(customerId)) {
+                return false;
+            }
+            releaseHolds(List.of(reservationId), holds);
+            return true;
+        }));
+        if (!released) {
+            throw new BusinessException("库存预留不存在或已过期: " + reservationId);
+        }
+        unschedule(reservationId);
+        cancelled.incrementAndGet();
+        log.info("库存预留已取消 - 预留ID: {}", reservationId);
+    }
+
+    /**
+     * 推进时间轮，到期的预留按批归还库存
+     */
+    @Scheduled(fixedDelayString = "${app.stock-hold.tick-ms:1000}")
+    public void expire() {
+        List<String> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+        due.forEach(timeouts::remove);
+
+        for (int from = 0; from < due.size(); from += releaseBatchSize) {
+            List<String> batch = due.subList(from, Math.min(from + releaseBatchSize, due.size()));
+            try {
+                // 已下单确认的预留不再是 ACTIVE，不会被归还
+                Long released = transactionTemplate.execute(status -> {
+                    List<StockHold> holds = stockHoldRepository.findForUpdate(batch, StockHold.HoldStatus.ACTIVE);
+                    releaseHolds(batch, holds);
+                    return holds.stream().map(StockHold::getReservationId).distinct().count();
+                });
+                expired.addAndGet(released);
+                log.info("到期库存预留已归还 - 预留数: {}", released);
+            } catch (RuntimeException e) {
+                // 归还失败的预留稍后重试
+                log.error("到期库存预留归还失败 - 预留数: {}: {}", batch.size(), e.getMessage(), e);
+                LocalDateTime retryAt = LocalDateTime.now().plusSeconds(30);
+                batch.forEach(reservationId -> schedule(reservationId, retryAt));
+            }
+        }
+    }
+
+    /**
+     * 调用方需在事务中，且已锁定 holds
+     */
+    private void releaseHolds(List<String> reservationIds, List<StockHold> holds) {
+        if (holds.isEmpty()) {
+            return;
+        }
+        stockHoldRepository.updateStatus(reservationIds, StockHold.HoldStatus.ACTIVE, StockHold.HoldStatus.RELEASED);
+        inventoryService.release(holds.stream()
+                .map(hold -> new InventoryService.StockLine(hold.getProductId(), hold.getQuantity()))
+                .collect(Collectors.toList()));
+    }
+
+    private void schedule(String reservationId, LocalDateTime expiresAt) {
+        long deadline = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        timeouts.put(reservationId, wheel.schedule(reservationId, deadline));
+    }
+
+    private void unschedule(String reservationId) {
+        HashedTimingWheel.Timeout<String> timeout = timeouts.remove(reservationId);
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "stockHolds";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("scheduled", wheel.size());
+        metrics.put("held", held.get());
+        metrics.put("confirmed", confirmed.get());
+        metrics.put("expired", expired.get());
+        metrics.put("cancelled", cancelled.get());
+        metrics.put("replaced", replaced.get());
+        return metrics;
+    }
+}
@@ -2,6 +2,7 @@ package org.yiqixue.secomm.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.yiqixue.secomm.dto.user.UserApprovalRequest;
@@ -9,6 +10,7 @@ import org.yiqixue.secomm.dto.user.UserUpdateRequest;
 import org.yiqixue.secomm.entity.Customer;
 import org.yiqixue.secomm.entity.Role;
 import org.yiqixue.secomm.entity.User;
+import org.yiqixue.secomm.event.CustomerChangedEvent;
 import org.yiqixue.secomm.exception.ResourceNotFoundException;
 import org.yiqixue.secomm.repository.CustomerRepository;
 import org.yiqixue.secomm.repository.UserRepository;
@@ -27,6 +29,7 @@ public class UserManagementService {
     private final UserRepository userRepository;
     private final CustomerRepository customerRepository;
     private final UserRoleRepository userRoleRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 获取待审批的用户列表
@@ -95,6 +98,8 @@ public class UserManagementService {
             if (!customerRepository.existsByUserId(userId)) {
                 Customer customer = Customer.fromApprovedUser(user);
                 customerRepository.save(customer);
+                eventPublisher.publishEvent(new CustomerChangedEvent(customer.getId(),
+                        customer.getFirstName(), customer.getLastName(), customer.getEmail()));
                 log.info("已为用户创建Customer记录: 用户ID={}, 客户ID={}", userId, customer.getId());
             } else {
                 log.info("用户已存在Customer记录: 用户ID={}", userId);
@@ -0,0 +1,133 @@
+package org.yiqixue.secomm.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 近似总数：超出键数上限时淘汰最久未访问的键，慢统计不阻塞其他键
+ */
+class ApproximateCountCacheTest {
+
+    private ApproximateCountCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ApproximateCountCache();
+        ReflectionTestUtils.setField(cache, "maxKeys", 2);
+        ReflectionTestUtils.setField(cache, "idleTimeoutMs", 600_000L);
+    }
+
+    @Test
+    void cachedUntilRefresh() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, cache.get("a", () -> (long) calls.incrementAndGet()));
+        assertEquals(1, cache.get("a", () -> (long) calls.incrementAndGet()));
+
+        cache.refresh();
+        assertEquals(2, cache.get("a", () -> 0L));
+    }
+
+    @Test
+    void leastRecentlyReadKeyEvicted() {
+        AtomicInteger calls = new AtomicInteger();
+        cache.get("a", () -> (long) calls.incrementAndGet());
+        cache.get("b", () -> (long) calls.incrementAndGet());
+        cache.get("a", () -> (long) calls.incrementAndGet());
+
+        // 新键仍会被缓存，淘汰最久未读取的 b
+        cache.get("c", () -> (long) calls.incrementAndGet());
+        assertEquals(3, calls.get());
+        assertEquals(1, cache.get("a", () -> (long) calls.incrementAndGet()));
+        assertEquals(3, cache.get("c", () -> (long) calls.incrementAndGet()));
+
+        assertEquals(4, cache.get("b", () -> (long) calls.incrementAndGet()));
+        assertEquals(2, cache.getMetrics().get("keys"));
+        assertEquals(2L, cache.getMetrics().get("evictions"));
+    }
+
+    @Test
+    void adjustOnlyCachedKeys() {
+        cache.get("a", () -> 5L);
+
+        cache.adjust("a", 2);
+        cache.adjust("a", -10);
+        cache.adjust("missing", 1);
+
+        assertEquals(0, cache.get("a", () -> 99L));
+        assertEquals(7, cache.get("missing", () -> 7L));
+    }
+
+    @Test
+    void idleKeysDroppedOnRefresh() {
+        ReflectionTestUtils.setField(cache, "idleTimeoutMs", -1L);
+        AtomicInteger calls = new AtomicInteger();
+        cache.get("a", () -> (long) calls.incrementAndGet());
+
+        cache.refresh();
+
+        assertEquals(1, calls.get());
+        assertEquals(0, cache.getMetrics().get("keys"));
+    }
+
+    @Test
+    void slowCountDoesNotBlockOtherKeys() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> slow = executor.submit(() -> cache.get("slow", () -> {
+                started.countDown();
+                await(release);
+                return 1L;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertEquals(2, cache.get("fast", () -> 2L));
+            cache.adjust("fast", 1);
+            assertEquals(3, cache.get("fast", () -> 0L));
+
+            release.countDown();
+            assertEquals(1, slow.get(5, TimeUnit.SECONDS));
+            assertEquals(1, cache.get("slow", () -> 0L));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void refreshFailureKeepsLastValue() {
+        AtomicInteger calls = new AtomicInteger();
+        cache.get("a", () -> {
+            if (calls.incrementAndGet() > 1) {
+                throw new IllegalStateException("db down");
+            }
+            return 4L;
+        });
+
+        cache.refresh();
+
+        assertEquals(4, cache.get("a", () -> 0L));
+        assertEquals(1L, cache.getMetrics().get("refreshFailures"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
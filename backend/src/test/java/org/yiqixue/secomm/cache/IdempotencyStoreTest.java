@@ -0,0 +1,101 @@
+package org.yiqixue.secomm.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 幂等键：并发重复请求只执行一次，重放返回缓存结果，失败后可重试
+ */
+class IdempotencyStoreTest {
+
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new IdempotencyStore();
+        ReflectionTestUtils.setField(store, "maxSize", 100);
+        ReflectionTestUtils.setField(store, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(store, "waitSeconds", 10L);
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForFirstExecution() throws Exception {
+        int threads = 8;
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> store.execute("k", "body", () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return new Object();
+                })));
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            release.countDown();
+
+            Object first = results.get(0).get();
+            for (Future<Object> result : results) {
+                assertSame(first, result.get());
+            }
+            assertEquals(1, executions.get());
+            assertSame(first, store.execute("k", "body", Object::new));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failureNotCached() {
+        assertThrows(IllegalStateException.class, () -> store.execute("k", "body", () -> {
+            throw new IllegalStateException("失败");
+        }));
+
+        assertEquals("ok", store.execute("k", "body", () -> "ok"));
+    }
+
+    @Test
+    void keyReusedWithDifferentBodyRejected() {
+        store.execute("k", "body", () -> "ok");
+
+        assertThrows(IllegalArgumentException.class, () -> store.execute("k", "other", () -> "again"));
+    }
+
+    @Test
+    void completedEntriesEvictedBeyondCapacity() {
+        ReflectionTestUtils.setField(store, "maxSize", 2);
+        store.execute("a", "body", () -> "a");
+        store.execute("b", "body", () -> "b");
+        store.execute("c", "body", () -> "c");
+
+        assertEquals(2, store.getMetrics().get("size"));
+        assertEquals("a2", store.execute("a", "body", () -> "a2"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
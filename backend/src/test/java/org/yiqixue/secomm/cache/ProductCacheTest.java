@@ -0,0 +1,88 @@
+package org.yiqixue.secomm.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 商品缓存：只改库存时原地更新不失效；加载期间的失效只影响被修改的商品
+ */
+class ProductCacheTest {
+
+    private ProductCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ProductCache();
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+    }
+
+    @Test
+    void stockChangeUpdatesCachedEntry() {
+        AtomicInteger loads = new AtomicInteger();
+        ProductDTO loaded = cache.getById(1L, () -> {
+            loads.incrementAndGet();
+            return product(1L, "SKU-1", 10);
+        });
+
+        cache.onProductChanged(ProductChangedEvent.stockChanged(product(1L, "SKU-1", 7)));
+
+        ProductDTO cached = cache.getById(1L, () -> {
+            loads.incrementAndGet();
+            return product(1L, "SKU-1", 0);
+        });
+        assertEquals(1, loads.get());
+        assertEquals(7, cached.getUnitsInStock());
+        assertEquals(7, cache.getBySku("SKU-1", () -> product(1L, "SKU-1", 0)).getUnitsInStock());
+        // 调用方已拿到的对象不被修改
+        assertEquals(10, loaded.getUnitsInStock());
+        assertEquals(0L, cache.getMetrics().get("invalidations"));
+    }
+
+    @Test
+    void changeDuringLoadOnlyDiscardsThatProduct() {
+        ProductDTO stale = cache.getById(1L, () -> {
+            cache.onProductChanged(ProductChangedEvent.stockChanged(product(1L, "SKU-1", 3)));
+            cache.onProductChanged(ProductChangedEvent.updated("SKU-2", product(2L, "SKU-2", 5)));
+            return product(1L, "SKU-1", 9);
+        });
+        assertEquals(9, stale.getUnitsInStock());
+
+        // 商品1加载期间被修改，结果不写入缓存
+        assertEquals(3, cache.getById(1L, () -> product(1L, "SKU-1", 3)).getUnitsInStock());
+
+        // 其他商品的修改不影响商品3的加载结果写入
+        ProductDTO other = cache.getById(3L, () -> {
+            cache.invalidate(2L, "SKU-2");
+            return product(3L, "SKU-3", 4);
+        });
+        assertSame(other, cache.getById(3L, () -> product(3L, "SKU-3", 0)));
+    }
+
+    @Test
+    void updateInvalidatesOldAndNewSku() {
+        cache.getBySku("OLD", () -> product(1L, "OLD", 1));
+
+        cache.onProductChanged(ProductChangedEvent.updated("OLD", product(1L, "NEW", 1)));
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.getById(1L, () -> {
+            loads.incrementAndGet();
+            return product(1L, "NEW", 1);
+        });
+        assertEquals(1, loads.get());
+        assertEquals(1L, cache.getMetrics().get("invalidations"));
+    }
+
+    private static ProductDTO product(Long id, String sku, int stock) {
+        return ProductDTO.builder().id(id).sku(sku).name(sku).unitsInStock(stock).build();
+    }
+}
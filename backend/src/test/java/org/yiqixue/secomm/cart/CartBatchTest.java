@@ -0,0 +1,109 @@
+package org.yiqixue.secomm.cart;
+
+import org.junit.jupiter.api.Test;
+import org.yiqixue.secomm.dto.CartBatchRequest;
+import org.yiqixue.secomm.dto.CartBatchRequest.OperationType;
+import org.yiqixue.secomm.exception.BusinessException;
+import org.yiqixue.secomm.exception.ResourceNotFoundException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 购物车批量操作计算：按顺序得出最终数量，只有数量增加的商品受库存限制
+ */
+class CartBatchTest {
+
+    // 商品项 100 -> 商品 10，商品项 101 -> 商品 11
+    private static final Map<Long, Long> ITEM_PRODUCTS = Map.of(100L, 10L, 101L, 11L);
+    private static final Map<Long, Integer> QUANTITIES = Map.of(10L, 2, 11L, 5);
+
+    @Test
+    void referencedIdsCollectedByOperationType() {
+        List<CartBatchRequest.Operation> operations = List.of(
+                add(10L, 1), update(100L, 3), remove(101L), add(12L, 1), add(10L, 2));
+
+        assertEquals(Set.of(10L, 12L), CartBatch.productIds(operations));
+        assertEquals(Set.of(100L, 101L), CartBatch.cartItemIds(operations));
+    }
+
+    @Test
+    void addsAccumulateOnCurrentQuantity() {
+        Map<Long, Integer> result = CartBatch.apply(List.of(add(10L, 3), add(10L, 1), add(12L, 2)),
+                ITEM_PRODUCTS, QUANTITIES);
+
+        assertEquals(Map.of(10L, 6, 12L, 2), result);
+    }
+
+    @Test
+    void updateAndRemoveResolvedInOrder() {
+        Map<Long, Integer> result = CartBatch.apply(List.of(remove(101L), update(100L, 7), add(11L, 2)),
+                ITEM_PRODUCTS, QUANTITIES);
+
+        // 移除后再加入从 0 开始累加
+        assertEquals(List.of(11L, 10L), List.copyOf(result.keySet()));
+        assertEquals(2, result.get(11L));
+        assertEquals(7, result.get(10L));
+    }
+
+    @Test
+    void removedItemCannotBeChangedAgain() {
+        assertThrows(ResourceNotFoundException.class, () ->
+                CartBatch.apply(List.of(remove(100L), update(100L, 1)), ITEM_PRODUCTS, QUANTITIES));
+    }
+
+    @Test
+    void itemOutsideCartRejected() {
+        assertThrows(ResourceNotFoundException.class, () ->
+                CartBatch.apply(List.of(update(999L, 1)), ITEM_PRODUCTS, QUANTITIES));
+    }
+
+    @Test
+    void missingFieldsRejected() {
+        assertThrows(IllegalArgumentException.class, () ->
+                CartBatch.apply(List.of(add(10L, null)), ITEM_PRODUCTS, QUANTITIES));
+        assertThrows(IllegalArgumentException.class, () ->
+                CartBatch.apply(List.of(update(null, 1)), ITEM_PRODUCTS, QUANTITIES));
+    }
+
+    @Test
+    void increaseBeyondStockRejected() {
+        Map<Long, Integer> result = Map.of(10L, 6);
+
+        BusinessException e = assertThrows(BusinessException.class, () ->
+                CartBatch.checkStock(result, QUANTITIES, Map.of(10L, 5)));
+        assertEquals("商品库存不足，当前库存: 5", e.getMessage());
+        assertDoesNotThrow(() -> CartBatch.checkStock(result, QUANTITIES, Map.of(10L, 6)));
+    }
+
+    @Test
+    void decreaseAndRemoveIgnoreStock() {
+        // 库存已低于购物车中的数量时，减少或移除仍然允许
+        Map<Long, Integer> result = Map.of(10L, 1, 11L, 0);
+
+        assertDoesNotThrow(() -> CartBatch.checkStock(result, QUANTITIES, Map.of(10L, 0, 11L, 0)));
+    }
+
+    @Test
+    void unknownProductRejected() {
+        assertThrows(ResourceNotFoundException.class, () ->
+                CartBatch.checkStock(Map.of(12L, 1), QUANTITIES, Map.of()));
+    }
+
+    private static CartBatchRequest.Operation add(Long productId, Integer quantity) {
+        return new CartBatchRequest.Operation(OperationType.ADD, productId, null, quantity);
+    }
+
+    private static CartBatchRequest.Operation update(Long cartItemId, Integer quantity) {
+        return new CartBatchRequest.Operation(OperationType.UPDATE, null, cartItemId, quantity);
+    }
+
+    private static CartBatchRequest.Operation remove(Long cartItemId) {
+        return new CartBatchRequest.Operation(OperationType.REMOVE, null, cartItemId, null);
+    }
+}
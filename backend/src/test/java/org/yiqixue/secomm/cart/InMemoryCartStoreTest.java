@@ -0,0 +1,88 @@
+package org.yiqixue.secomm.cart;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.yiqixue.secomm.dto.CartItemDTO;
+import org.yiqixue.secomm.service.TestFixtures;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * 内存购物车写回：修改先只在内存中，写回后数据库与内存一致
+ * 定时写回间隔调大，用例只通过显式 flush 写回；使用专用客户和商品，结束时删除
+ */
+@SpringBootTest(properties = {"app.cart.store=memory", "app.cart.flush-ms=3600000"})
+class InMemoryCartStoreTest {
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestFixtures fixtures;
+    private Long customerId;
+    private Long productId;
+
+    @BeforeEach
+    void insertFixtures() {
+        fixtures = new TestFixtures(jdbcTemplate);
+        customerId = fixtures.insertCustomer();
+        productId = fixtures.insertProduct(10, BigDecimal.ONE);
+    }
+
+    @AfterEach
+    void deleteFixtures() {
+        cartStore.flush(customerId);
+        fixtures.deleteCustomer(customerId);
+        fixtures.deleteProduct(productId);
+    }
+
+    @Test
+    void mutationsReachDatabaseOnFlush() {
+        assertInstanceOf(InMemoryCartStore.class, cartStore);
+
+        cartStore.addItem(customerId, productId, 2);
+        cartStore.addItem(customerId, productId, 1);
+        assertEquals(3, quantityInMemory());
+        assertEquals(0, quantityInDatabase());
+
+        cartStore.flush(customerId);
+        assertEquals(3, quantityInDatabase());
+    }
+
+    @Test
+    void itemsAddressableByIdBeforeAndAfterFlush() {
+        CartItemDTO added = cartStore.addItem(customerId, productId, 1);
+        cartStore.updateItem(customerId, added.getId(), 4);
+
+        cartStore.flush(customerId);
+        assertEquals(4, quantityInDatabase());
+
+        // 新商品项写回后换成数据库ID，原来的ID仍然可用
+        cartStore.removeItem(customerId, added.getId());
+        cartStore.flush(customerId);
+        assertEquals(0, quantityInDatabase());
+    }
+
+    private int quantityInMemory() {
+        return cartStore.getItems(customerId).stream()
+                .filter(item -> item.getProductId().equals(productId))
+                .mapToInt(CartItemDTO::getQuantity)
+                .sum();
+    }
+
+    private int quantityInDatabase() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(ci.quantity), 0) FROM cart_item ci JOIN cart c ON c.id = ci.cart_id"
+                        + " WHERE c.customer_id = ? AND c.status = 'ACTIVE' AND ci.product_id = ?",
+                Integer.class, customerId, productId);
+    }
+}
@@ -0,0 +1,98 @@
+package org.yiqixue.secomm.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 静态文件压测：并发下载同一图片文件，记录吞吐
+ * 默认不运行，使用 mvn test -Dtest=StaticFileBenchmarkTest -Dbenchmark=true 执行；
+ * 再加 -Dapp.static-files.zero-copy=false 运行一次即得到默认资源处理链的对比数据
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StaticFileBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StaticFileBenchmarkTest.class);
+
+    private static final int THREADS = 32;
+    private static final int REQUESTS = 4_000;
+    private static final int FILE_SIZE = 1024 * 1024;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${app.static-files.zero-copy:true}")
+    private boolean zeroCopy;
+
+    private Path file;
+
+    @BeforeEach
+    void createFile() throws IOException {
+        byte[] content = new byte[FILE_SIZE];
+        ThreadLocalRandom.current().nextBytes(content);
+        file = Files.createTempFile(Files.createDirectories(Paths.get("uploads")), "static-file-bench-", ".jpg");
+        Files.write(file, content);
+    }
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void downloadConcurrently() throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest whole = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/uploads/" + file.getFileName())).build();
+        HttpRequest ranged = HttpRequest.newBuilder(whole.uri()).header("Range", "bytes=0-65535").build();
+
+        // 预热
+        for (int i = 0; i < 100; i++) {
+            client.send(whole, HttpResponse.BodyHandlers.discarding());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long started = System.nanoTime();
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                HttpRequest request = i % 4 == 0 ? ranged : whole;
+                futures.add(executor.submit(() -> (long) client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length));
+            }
+            long bytes = 0;
+            for (Future<Long> future : futures) {
+                bytes += future.get();
+            }
+            long elapsedNanos = System.nanoTime() - started;
+
+            assertEquals(REQUESTS / 4 * 65_536L + (REQUESTS - REQUESTS / 4) * (long) FILE_SIZE, bytes);
+            log.info("zero-copy={}: {} 次请求 {} ms，{} 请求/秒，{} MB/秒", zeroCopy, REQUESTS, elapsedNanos / 1_000_000,
+                    Math.round(REQUESTS * 1e9 / elapsedNanos), Math.round(bytes * 1e9 / elapsedNanos / (1024 * 1024)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.yiqixue.secomm.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 静态文件：Range 解析、416 响应、If-None-Match 弱比较与 If-Range 强比较
+ */
+class StaticFileControllerTest {
+
+    private static final String CONTENT = "0123456789";
+
+    private final StaticFileController controller = new StaticFileController();
+
+    private Path file;
+    private String url;
+
+    @BeforeEach
+    void createFile() throws IOException {
+        Path uploads = Files.createDirectories(Paths.get("uploads"));
+        file = Files.createTempFile(uploads, "static-file-test-", ".txt");
+        Files.writeString(file, CONTENT, StandardCharsets.US_ASCII);
+        url = "/uploads/" + file.getFileName();
+    }
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void rangeForms() {
+        assertArrayEquals(new long[]{2, 5}, StaticFileController.parseRange("bytes=2-5", 10));
+        assertArrayEquals(new long[]{7, 9}, StaticFileController.parseRange("bytes=7-", 10));
+        assertArrayEquals(new long[]{6, 9}, StaticFileController.parseRange("bytes=-4", 10));
+        // 结束位置超出文件长度时截断，后缀长度超出时从头开始
+        assertArrayEquals(new long[]{8, 9}, StaticFileController.parseRange("bytes=8-100", 10));
+        assertArrayEquals(new long[]{0, 9}, StaticFileController.parseRange("bytes=-100", 10));
+    }
+
+    @Test
+    void unsatisfiableRanges() {
+        assertNull(StaticFileController.parseRange("bytes=10-", 10));
+        assertNull(StaticFileController.parseRange("bytes=5-3", 10));
+        assertNull(StaticFileController.parseRange("bytes=-0", 10));
+        assertNull(StaticFileController.parseRange("bytes=0-", 0));
+    }
+
+    @Test
+    void unsupportedRangesServeWholeBody() {
+        assertEquals(0, StaticFileController.parseRange("bytes=0-1,4-5", 10).length);
+        assertEquals(0, StaticFileController.parseRange("items=0-1", 10).length);
+        assertEquals(0, StaticFileController.parseRange("bytes=a-b", 10).length);
+        assertEquals(0, StaticFileController.parseRange("bytes=5", 10).length);
+    }
+
+    @Test
+    void ifNoneMatchUsesWeakComparison() {
+        assertTrue(StaticFileController.etagMatches("\"abc\"", "\"abc\""));
+        assertTrue(StaticFileController.etagMatches("W/\"abc\"", "\"abc\""));
+        assertTrue(StaticFileController.etagMatches("\"x\", \"abc\"", "\"abc\""));
+        assertTrue(StaticFileController.etagMatches("*", "\"abc\""));
+        assertFalse(StaticFileController.etagMatches("\"abd\"", "\"abc\""));
+        assertFalse(StaticFileController.etagMatches(null, "\"abc\""));
+    }
+
+    @Test
+    void ifRangeUsesStrongComparison() {
+        assertTrue(StaticFileController.ifRangeMatches(null, "\"abc\""));
+        assertTrue(StaticFileController.ifRangeMatches("\"abc\"", "\"abc\""));
+        assertFalse(StaticFileController.ifRangeMatches("W/\"abc\"", "\"abc\""));
+        assertFalse(StaticFileController.ifRangeMatches("\"abd\"", "\"abc\""));
+        assertFalse(StaticFileController.ifRangeMatches("Wed, 21 Oct 2015 07:28:00 GMT", "\"abc\""));
+    }
+
+    @Test
+    void wholeFileServed() throws IOException {
+        MockHttpServletResponse response = serve(request());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+    }
+
+    @Test
+    void rangeServedAsPartialContent() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getContentLengthLong());
+        assertEquals("2345", response.getContentAsString());
+    }
+
+    @Test
+    void unsatisfiableRangeKeepsContentRange() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertNull(response.getErrorMessage());
+        assertEquals("", response.getContentAsString());
+    }
+
+    @Test
+    void matchingEtagNotModified() throws IOException {
+        String etag = serve(request()).getHeader(HttpHeaders.ETAG);
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/" + etag);
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals("", response.getContentAsString());
+    }
+
+    @Test
+    void ifRangeStrongMatchServesRange() throws IOException {
+        String etag = serve(request()).getHeader(HttpHeaders.ETAG);
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        request.addHeader(HttpHeaders.IF_RANGE, etag);
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("789", response.getContentAsString());
+    }
+
+    @Test
+    void ifRangeWeakOrStaleServesWholeBody() throws IOException {
+        String etag = serve(request()).getHeader(HttpHeaders.ETAG);
+        for (String ifRange : new String[]{"W/" + etag, "\"stale\""}) {
+            MockHttpServletRequest request = request();
+            request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+            request.addHeader(HttpHeaders.IF_RANGE, ifRange);
+
+            MockHttpServletResponse response = serve(request);
+
+            assertEquals(200, response.getStatus());
+            assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+            assertEquals(CONTENT, response.getContentAsString());
+        }
+    }
+
+    @Test
+    void missingFileNotFound() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/missing-" + file.getFileName());
+
+        assertEquals(404, serve(request).getStatus());
+    }
+
+    private MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", url);
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.serve(request, response);
+        return response;
+    }
+}
@@ -0,0 +1,102 @@
+package org.yiqixue.secomm.imports;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * CSV 导入读取：引号转义、CRLF、字段内换行、空行、BOM 表头与行号
+ */
+class CsvProductImportReaderTest {
+
+    @Test
+    void quotedFieldsWithCommasAndEscapedQuotes() throws IOException {
+        CsvProductImportReader reader = reader("sku,name,description,unitPrice\n"
+                + "A1,\"Widget, large\",\"He said \"\"hi\"\"\",9.99\n");
+
+        ProductImportRow row = reader.next();
+
+        assertEquals(2, row.lineNumber());
+        assertEquals("A1", row.sku());
+        assertEquals("Widget, large", row.name());
+        assertEquals("He said \"hi\"", row.description());
+        assertEquals("9.99", row.unitPrice());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void crlfAndEmbeddedNewlinesKeepLineNumbers() throws IOException {
+        CsvProductImportReader reader = reader("sku,name,description,unitPrice\r\n"
+                + "A2,Gadget,\"line1\r\nline2\",5\r\n"
+                + "\r\n"
+                + "A3,Thing,,1\r\n");
+
+        ProductImportRow first = reader.next();
+        assertEquals(2, first.lineNumber());
+        assertEquals("line1\r\nline2", first.description());
+        assertEquals("5", first.unitPrice());
+
+        // 字段内换行占一个物理行，空行被跳过
+        ProductImportRow second = reader.next();
+        assertEquals(5, second.lineNumber());
+        assertEquals("A3", second.sku());
+        assertNull(second.description());
+        assertEquals("1", second.unitPrice());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void lastRecordWithoutLineBreak() throws IOException {
+        CsvProductImportReader reader = reader("sku,name\r\nA4,Last");
+
+        ProductImportRow row = reader.next();
+
+        assertEquals("A4", row.sku());
+        assertEquals("Last", row.name());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void byteOrderMarkStrippedFromHeader() throws IOException {
+        CsvProductImportReader reader = reader("\uFEFFsku,name\nA5,Bom\n");
+
+        ProductImportRow row = reader.next();
+
+        assertEquals("A5", row.sku());
+        assertEquals("Bom", row.name());
+    }
+
+    @Test
+    void byteOrderMarkBeforeQuotedHeader() throws IOException {
+        CsvProductImportReader reader = reader("\uFEFF\"SKU\",\"Name\"\nA6,Quoted\n");
+
+        assertEquals("A6", reader.next().sku());
+    }
+
+    @Test
+    void unclosedQuoteReportedAsInvalidRow() throws IOException {
+        CsvProductImportReader reader = reader("sku,name\nB1,\"oops\n");
+
+        ProductImportRow row = reader.next();
+
+        assertEquals(2, row.lineNumber());
+        assertEquals("引号未闭合", row.parseError());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void headerWithoutSkuRejected() {
+        CsvProductImportReader reader = reader("name,unitPrice\nWidget,1\n");
+
+        assertThrows(IllegalArgumentException.class, reader::next);
+    }
+
+    private static CsvProductImportReader reader(String csv) {
+        return new CsvProductImportReader(new StringReader(csv));
+    }
+}
@@ -0,0 +1,59 @@
+package org.yiqixue.secomm.inventory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlashSaleRecoveryLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rotatedSegmentsAggregatePerProduct() throws Exception {
+        try (FlashSaleRecoveryLog log = new FlashSaleRecoveryLog(directory)) {
+            log.append(1L, 2);
+            log.append(2L, 1);
+            log.append(1L, 3);
+
+            List<Path> segments = log.rotate();
+            assertEquals(1, segments.size());
+            assertEquals(Map.of(1L, 5L, 2L, 1L), FlashSaleRecoveryLog.read(segments.get(0)));
+
+            // 轮转后的新追加进入新日志，不影响待刷段
+            log.append(3L, 1);
+            log.complete(segments.get(0));
+            List<Path> next = log.rotate();
+            assertEquals(1, next.size());
+            assertEquals(Map.of(3L, 1L), FlashSaleRecoveryLog.read(next.get(0)));
+        }
+    }
+
+    @Test
+    void unfinishedSegmentsSurviveRestartAndTornLinesAreSkipped() throws Exception {
+        try (FlashSaleRecoveryLog log = new FlashSaleRecoveryLog(directory)) {
+            log.append(7L, 4);
+        }
+        // 模拟崩溃时写了一半的行
+        Files.writeString(directory.resolve("flash-sale.log"), "7,", StandardCharsets.US_ASCII,
+                StandardOpenOption.APPEND);
+
+        try (FlashSaleRecoveryLog reopened = new FlashSaleRecoveryLog(directory)) {
+            List<Path> segments = reopened.rotate();
+            assertEquals(1, segments.size());
+            assertEquals(Map.of(7L, 4L), FlashSaleRecoveryLog.read(segments.get(0)));
+
+            reopened.complete(segments.get(0));
+            assertTrue(reopened.rotate().isEmpty());
+        }
+    }
+}
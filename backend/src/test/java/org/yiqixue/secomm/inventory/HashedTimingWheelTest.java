@@ -0,0 +1,48 @@
+package org.yiqixue.secomm.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimingWheelTest {
+
+    @Test
+    void expiresEntriesAtTheirDeadlineTick() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(100, 8, 0);
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 1_000);
+        wheel.schedule("overdue", -5);
+
+        assertEquals(List.of("overdue"), wheel.advance(200));
+        assertEquals(List.of("a"), wheel.advance(300));
+        assertEquals(List.of(), wheel.advance(999));
+        assertEquals(List.of("b"), wheel.advance(1_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlinesBeyondOneRotationWaitForTheirRound() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(100, 8, 0);
+        // 8 个槽一圈 800ms，3 圈之后到期
+        wheel.schedule("late", 2_450);
+
+        assertEquals(List.of(), wheel.advance(2_400));
+        assertEquals(List.of("late"), wheel.advance(2_500));
+    }
+
+    @Test
+    void cancelledEntriesNeverExpire() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(100, 8, 0);
+        HashedTimingWheel.Timeout<String> kept = wheel.schedule("kept", 500);
+        HashedTimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 500);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(List.of("kept"), wheel.advance(600));
+        assertFalse(wheel.cancel(kept));
+    }
+}
@@ -0,0 +1,114 @@
+package org.yiqixue.secomm.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedStockCounterTest {
+
+    @Test
+    void concurrentAcquiresNeverExceedStock() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(1_000, 16);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger acquired = new AtomicInteger();
+
+        for (int i = 0; i < 5_000; i++) {
+            int quantity = i % 3 + 1;
+            executor.submit(() -> {
+                start.await();
+                if (counter.tryAcquire(quantity)) {
+                    acquired.addAndGet(quantity);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(1_000, acquired.get() + counter.remaining());
+        assertTrue(counter.remaining() < 3);
+    }
+
+    @Test
+    void acquireSpansStripesAndRollsBackWhenShort() {
+        StripedStockCounter counter = new StripedStockCounter(10, 4);
+
+        assertTrue(counter.tryAcquire(7));
+        assertEquals(3, counter.remaining());
+
+        assertFalse(counter.tryAcquire(4));
+        assertEquals(3, counter.remaining());
+
+        assertTrue(counter.tryAcquire(3));
+        assertEquals(0, counter.remaining());
+        assertFalse(counter.tryAcquire(1));
+        assertTrue(counter.isExhausted());
+    }
+
+    @Test
+    void exhaustedFlagNotLeftSetWhileStockRemains() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 2_000; round++) {
+                // 库存接近 0：大数量请求跨段暂扣后失败归还，与小数量请求和归还并发
+                StripedStockCounter counter = new StripedStockCounter(4, 4);
+                CountDownLatch start = new CountDownLatch(1);
+                AtomicInteger acquired = new AtomicInteger();
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    int quantity = i % 4 + 1;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        for (int attempt = 0; attempt < 20; attempt++) {
+                            if (counter.tryAcquire(quantity)) {
+                                if (attempt % 2 == 0) {
+                                    counter.release(quantity);
+                                } else {
+                                    acquired.addAndGet(quantity);
+                                }
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+
+                assertEquals(4, acquired.get() + counter.remaining());
+                if (counter.remaining() > 0) {
+                    assertFalse(counter.isExhausted(), "round " + round);
+                    assertTrue(counter.tryAcquire(1), "round " + round);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void releaseReopensExhaustedCounter() {
+        StripedStockCounter counter = new StripedStockCounter(1, 2);
+        assertTrue(counter.tryAcquire(1));
+        assertFalse(counter.tryAcquire(1));
+
+        counter.release(1);
+
+        assertFalse(counter.isExhausted());
+        assertTrue(counter.tryAcquire(1));
+    }
+}
@@ -0,0 +1,117 @@
+package org.yiqixue.secomm.mapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 游标编码：各类型排序字段值编码后能按原类型解码；只允许按白名单内的非空字段排序
+ */
+class PageCursorsTest {
+
+    private static final Set<String> SORTABLE = Set.of("id", "name", "unitPrice", "dateCreated", "rating", "active");
+
+    @Test
+    void keysetSortAppendsId() {
+        assertEquals(Sort.by(Sort.Direction.ASC, "name").and(Sort.by(Sort.Direction.ASC, "id")),
+                PageCursors.keysetSort("name", "asc", SORTABLE));
+        assertEquals(Sort.by(Sort.Direction.DESC, "id"), PageCursors.keysetSort("id", "desc", SORTABLE));
+    }
+
+    @Test
+    void nullableSortPropertyRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursors.keysetSort("lastUpdated", "asc", SORTABLE));
+    }
+
+    @Test
+    void typedValuesRoundTrip() {
+        assertRoundTrip("name", "A&B=C 商品");
+        assertRoundTrip("unitPrice", new BigDecimal("19.90"));
+        assertRoundTrip("dateCreated", LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000));
+        assertRoundTrip("rating", 5);
+        assertRoundTrip("active", true);
+    }
+
+    @Test
+    void nullSortKeyNotEncoded() {
+        assertThrows(IllegalStateException.class, () -> cursorOf("name", null));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        Window<String> window = Window.from(List.of("a"), index -> ScrollPosition.keyset(), false);
+
+        assertNull(PageCursors.nextCursor(window));
+    }
+
+    @Test
+    void blankCursorStartsFromBeginning() {
+        assertTrue(PageCursors.decode("", PageCursors.keysetSort("name", "asc", SORTABLE)).isInitial());
+    }
+
+    @Test
+    void cursorForDifferentSortRejected() {
+        String cursor = cursorOf("name", "x");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> PageCursors.decode(cursor, PageCursors.keysetSort("unitPrice", "asc", SORTABLE)));
+    }
+
+    @Test
+    void malformedCursorRejected() {
+        Sort sort = PageCursors.keysetSort("name", "asc", SORTABLE);
+
+        assertThrows(IllegalArgumentException.class, () -> PageCursors.decode("not base64!", sort));
+        assertThrows(IllegalArgumentException.class, () -> PageCursors.decode(encode("name=X:1&id=L:1"), sort));
+        assertThrows(IllegalArgumentException.class, () -> PageCursors.decode(encode("name=N:x&id=L:1"), sort));
+    }
+
+    @Test
+    void unsupportedValueTypeRejected() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("tags", List.of("a"));
+        keys.put("id", 1L);
+        Window<String> window = Window.from(List.of("a"), index -> ScrollPosition.forward(keys), true);
+
+        assertThrows(IllegalArgumentException.class, () -> PageCursors.nextCursor(window));
+    }
+
+    private static void assertRoundTrip(String property, Object value) {
+        Map<String, Object> keys = ((KeysetScrollPosition) PageCursors.decode(cursorOf(property, value),
+                PageCursors.keysetSort(property, "asc", SORTABLE))).getKeys();
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put(property, value);
+        expected.put("id", 7L);
+        assertEquals(expected, keys);
+    }
+
+    private static String cursorOf(String property, Object value) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(property, value);
+        keys.put("id", 7L);
+        Window<String> window = Window.from(List.of("a"), index -> ScrollPosition.forward(keys), true);
+        return PageCursors.nextCursor(window);
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
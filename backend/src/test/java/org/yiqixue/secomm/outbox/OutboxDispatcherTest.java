@@ -0,0 +1,207 @@
+package org.yiqixue.secomm.outbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 发件箱：同一聚合按写入顺序投递，失败的事件重试成功前不投递后续事件；重试只重新调用失败的处理器，
+ * 退避中的事件不占用批次
+ */
+@SpringBootTest(properties = {
+        "app.outbox.poll-ms=3600000",
+        "app.outbox.retry-base-ms=0"
+})
+class OutboxDispatcherTest {
+
+    private static final String AGGREGATE_TYPE = "TEST";
+    private static final String EVENT_TYPE = "TEST_EVENT";
+
+    record TestPayload(String value) {
+    }
+
+    // 按聚合ID记录投递成功的事件内容
+    private static final Map<Long, List<String>> RECEIVED = new ConcurrentHashMap<>();
+
+    // 首次投递时失败的事件内容
+    private static final Set<String> FAIL_ONCE = ConcurrentHashMap.newKeySet();
+
+    // 第二个处理器对每个事件内容的调用次数
+    private static final Map<String, Integer> COUNTED = new ConcurrentHashMap<>();
+
+    @TestConfiguration
+    static class TestHandlerConfig {
+
+        @Bean
+        OutboxEventHandler<TestPayload> recordingHandler() {
+            return new OutboxEventHandler<>() {
+                @Override
+                public String getEventType() {
+                    return EVENT_TYPE;
+                }
+
+                @Override
+                public Class<TestPayload> getPayloadType() {
+                    return TestPayload.class;
+                }
+
+                @Override
+                public void handle(TestPayload payload) {
+                    if (FAIL_ONCE.remove(payload.value())) {
+                        throw new IllegalStateException("模拟失败: " + payload.value());
+                    }
+                    long aggregateId = Long.parseLong(payload.value().split("-")[0]);
+                    RECEIVED.computeIfAbsent(aggregateId, id -> Collections.synchronizedList(new ArrayList<>()))
+                            .add(payload.value());
+                }
+            };
+        }
+
+        @Bean
+        OutboxEventHandler<TestPayload> countingHandler() {
+            return new OutboxEventHandler<>() {
+                @Override
+                public String getEventType() {
+                    return EVENT_TYPE;
+                }
+
+                @Override
+                public Class<TestPayload> getPayloadType() {
+                    return TestPayload.class;
+                }
+
+                @Override
+                public String getHandlerName() {
+                    return "counting";
+                }
+
+                @Override
+                public void handle(TestPayload payload) {
+                    COUNTED.merge(payload.value(), 1, Integer::sum);
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        RECEIVED.clear();
+        FAIL_ONCE.clear();
+        COUNTED.clear();
+        jdbcTemplate.update("DELETE FROM outbox_event WHERE aggregate_type = ?", AGGREGATE_TYPE);
+    }
+
+    @Test
+    void eventsDeliveredInOrderPerAggregate() throws InterruptedException {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 5; i++) {
+                publish(1, "1-" + i);
+                publish(2, "2-" + i);
+            }
+        });
+
+        awaitDelivered();
+
+        assertEquals(List.of("1-0", "1-1", "1-2", "1-3", "1-4"), RECEIVED.get(1L));
+        assertEquals(List.of("2-0", "2-1", "2-2", "2-3", "2-4"), RECEIVED.get(2L));
+    }
+
+    @Test
+    void failedEventRetriedBeforeLaterEvents() throws InterruptedException {
+        FAIL_ONCE.add("3-1");
+        transactionTemplate.executeWithoutResult(status -> {
+            publish(3, "3-0");
+            publish(3, "3-1");
+            publish(3, "3-2");
+        });
+
+        awaitDelivered();
+
+        assertEquals(List.of("3-0", "3-1", "3-2"), RECEIVED.get(3L));
+        // 另一个处理器已成功处理的事件在重试时不再调用
+        assertEquals(1, COUNTED.get("3-1"));
+    }
+
+    @Test
+    void backingOffEventsDoNotBlockOtherAggregates() throws InterruptedException {
+        transactionTemplate.executeWithoutResult(status -> {
+            publish(5, "5-0");
+            publish(5, "5-1");
+        });
+        jdbcTemplate.update("UPDATE outbox_event SET next_attempt_at = ?"
+                        + " WHERE aggregate_type = ? AND aggregate_id = 5 AND payload LIKE '%5-0%'",
+                LocalDateTime.now().plusHours(1), AGGREGATE_TYPE);
+        transactionTemplate.executeWithoutResult(status -> publish(6, "6-0"));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (RECEIVED.get(6L) == null && System.currentTimeMillis() < deadline) {
+            outboxDispatcher.poll();
+            Thread.sleep(20);
+        }
+
+        assertEquals(List.of("6-0"), RECEIVED.get(6L));
+        // 5-0 仍在退避，同一聚合的 5-1 不能先投递
+        assertNull(RECEIVED.get(5L));
+        assertEquals(2L, pending());
+    }
+
+    @Test
+    void rolledBackEventsNotDelivered() throws InterruptedException {
+        transactionTemplate.executeWithoutResult(status -> {
+            publish(4, "4-0");
+            status.setRollbackOnly();
+        });
+
+        awaitDelivered();
+
+        assertNull(RECEIVED.get(4L));
+    }
+
+    private void publish(long aggregateId, String value) {
+        outboxPublisher.publish(AGGREGATE_TYPE, aggregateId, EVENT_TYPE, new TestPayload(value));
+    }
+
+    private void awaitDelivered() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (pending() > 0 && System.currentTimeMillis() < deadline) {
+            outboxDispatcher.poll();
+            Thread.sleep(20);
+        }
+        assertEquals(0, pending(), "事件未在限定时间内投递完成");
+    }
+
+    private long pending() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_event WHERE aggregate_type = ?", Long.class, AGGREGATE_TYPE);
+    }
+}
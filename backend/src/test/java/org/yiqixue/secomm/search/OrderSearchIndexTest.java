@@ -0,0 +1,81 @@
+package org.yiqixue.secomm.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yiqixue.secomm.event.CustomerChangedEvent;
+import org.yiqixue.secomm.event.OrderCreatedEvent;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 订单搜索索引：订单号、客户姓名、邮箱的子串匹配与 LIKE '%q%' 一致
+ */
+class OrderSearchIndexTest {
+
+    private OrderSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new OrderSearchIndex(null);
+        index.onCustomerChanged(new CustomerChangedEvent(1L, "Alice", "Wong", "alice@example.com"));
+        index.onCustomerChanged(new CustomerChangedEvent(2L, "Bob", "Lee", "bob@test.org"));
+        order(10L, "ORD1234567", 1L);
+        order(11L, "ORD7654321", 2L);
+        order(12L, "ORD5556667", 1L);
+    }
+
+    @Test
+    void matchesOrderNumberSubstring() {
+        assertEquals(List.of(10L), index.search("3456"));
+        assertEquals(List.of(10L, 11L, 12L), index.search("ord"));
+    }
+
+    @Test
+    void matchesCustomerNameAcrossFirstAndLastName() {
+        assertEquals(List.of(10L, 12L), index.search("ice wo"));
+        assertEquals(List.of(11L), index.search("BOB LEE"));
+    }
+
+    @Test
+    void matchesEmail() {
+        assertEquals(List.of(10L, 12L), index.search("example.com"));
+        assertEquals(List.of(), index.search("nobody@"));
+    }
+
+    @Test
+    void trigramsPresentButNotContiguousRejected() {
+        // "555" 出现在 ORD5556667 中，但 "5555" 不是子串
+        assertEquals(List.of(), index.search("5555"));
+    }
+
+    @Test
+    void customerChangeReindexed() {
+        index.onCustomerChanged(new CustomerChangedEvent(2L, "Robert", "Lee", "robert@test.org"));
+
+        assertEquals(List.of(), index.search("bob@"));
+        assertEquals(List.of(11L), index.search("robert"));
+    }
+
+    @Test
+    void duplicateOrderEventIgnored() {
+        order(10L, "ORD1234567", 1L);
+
+        assertEquals(List.of(10L), index.search("1234567"));
+    }
+
+    @Test
+    void shortQueryFallsBack() {
+        assertNull(index.search("al"));
+    }
+
+    private void order(Long orderId, String orderNumber, Long customerId) {
+        index.handle(OrderCreatedEvent.builder()
+                .orderId(orderId)
+                .orderNumber(orderNumber)
+                .customerId(customerId)
+                .build());
+    }
+}
@@ -0,0 +1,145 @@
+package org.yiqixue.secomm.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 商品分面索引：每个分面的计数不应用该分面自身的条件；构建前到达的变更事件由构建读取的数据覆盖
+ */
+class ProductFacetIndexTest {
+
+    private final List<ProductDTO> products = new ArrayList<>();
+
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        products.add(product(1L, "A", "30", 1L, 5, true));
+        products.add(product(2L, "B", "80", 1L, 0, true));
+        products.add(product(3L, "C", "150", 2L, 3, true));
+        products.add(product(4L, "D", "40", 2L, 2, true));
+        products.add(product(5L, "E", "60", 3L, 1, false));
+
+        // 只实现 findAllProductDTOs，其余方法不应被调用
+        ProductRepository repository = (ProductRepository) Proxy.newProxyInstance(
+                ProductRepository.class.getClassLoader(), new Class<?>[]{ProductRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findAllProductDTOs")) {
+                        return new ArrayList<>(products);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        index = new ProductFacetIndex(repository);
+        ReflectionTestUtils.setField(index, "priceBoundaries",
+                new BigDecimal[]{new BigDecimal("50"), new BigDecimal("100")});
+    }
+
+    @Test
+    void categoryCountsIgnoreCategoryFilter() {
+        index.rebuild();
+
+        ProductFacetIndex.Result result = index.search(
+                new ProductFacetIndex.Query(List.of(1L), null, null, null, true), 0, 10, "id", true);
+
+        assertEquals(List.of(1L, 2L), result.productIds());
+        assertEquals(2, result.total());
+        // 选中分类 1 时仍返回其他分类的计数（商品 5 未上架，不计入）
+        assertEquals(Map.of(1L, 2L, 2L, 2L), result.categoryCounts());
+    }
+
+    @Test
+    void priceCountsIgnorePriceFilter() {
+        index.rebuild();
+
+        ProductFacetIndex.Result result = index.search(
+                new ProductFacetIndex.Query(null, null, new BigDecimal("49.99"), null, true), 0, 10, "id", true);
+
+        assertEquals(List.of(1L, 4L), result.productIds());
+        assertEquals(List.of(2L, 1L, 1L), result.priceRangeCounts().stream()
+                .map(ProductFacetIndex.PriceRangeCount::count).toList());
+        // 其他分面仍应用价格条件
+        assertEquals(Map.of(1L, 1L, 2L, 1L), result.categoryCounts());
+    }
+
+    @Test
+    void stockCountsIgnoreStockFilter() {
+        index.rebuild();
+
+        ProductFacetIndex.Result result = index.search(
+                new ProductFacetIndex.Query(List.of(1L), null, null, true, true), 0, 10, "id", true);
+
+        assertEquals(List.of(1L), result.productIds());
+        assertEquals(1, result.inStockCount());
+        assertEquals(1, result.outOfStockCount());
+        assertEquals(Map.of(1L, 1L, 2L, 2L), result.categoryCounts());
+    }
+
+    @Test
+    void activeFilterOptional() {
+        index.rebuild();
+
+        ProductFacetIndex.Result all = index.search(
+                new ProductFacetIndex.Query(null, null, null, null, null), 0, 10, "name", false);
+
+        assertEquals(List.of(5L, 4L, 3L, 2L, 1L), all.productIds());
+        assertEquals(Map.of(1L, 2L, 2L, 2L, 3L, 1L), all.categoryCounts());
+    }
+
+    @Test
+    void eventsBeforeRebuildCoveredByLoad() {
+        assertFalse(index.isReady());
+        ProductDTO moved = product(1L, "A", "30", 3L, 5, true);
+        products.set(0, moved);
+        index.onProductChanged(ProductChangedEvent.updated("SKU-1", moved));
+
+        index.rebuild();
+
+        assertTrue(index.isReady());
+        ProductFacetIndex.Result result = index.search(
+                new ProductFacetIndex.Query(List.of(3L), null, null, null, null), 0, 10, "id", true);
+        assertEquals(List.of(1L, 5L), result.productIds());
+    }
+
+    @Test
+    void incrementalUpdatesAfterRebuild() {
+        index.rebuild();
+
+        index.onProductChanged(ProductChangedEvent.stockChanged(product(2L, "B", "80", 1L, 4, true)));
+        index.onProductChanged(ProductChangedEvent.updated("SKU-3", product(3L, "C", "20", 1L, 3, true)));
+        index.onProductChanged(ProductChangedEvent.deleted(4L, "SKU-4"));
+
+        ProductFacetIndex.Result result = index.search(
+                new ProductFacetIndex.Query(List.of(1L), null, null, true, true), 0, 10, "unitPrice", true);
+
+        assertEquals(List.of(3L, 1L, 2L), result.productIds());
+        assertEquals(0, result.outOfStockCount());
+        assertEquals(Map.of(1L, 3L), result.categoryCounts());
+    }
+
+    private static ProductDTO product(Long id, String name, String price, Long categoryId, int stock,
+                                      boolean active) {
+        return ProductDTO.builder()
+                .id(id)
+                .sku("SKU-" + id)
+                .name(name)
+                .unitPrice(new BigDecimal(price))
+                .categoryId(categoryId)
+                .unitsInStock(stock)
+                .active(active)
+                .build();
+    }
+}
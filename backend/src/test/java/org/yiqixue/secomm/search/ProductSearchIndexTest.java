@@ -0,0 +1,98 @@
+package org.yiqixue.secomm.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 商品搜索 BM25：名称命中高于描述命中，同等词频时短文档优先；多词取交集，最后一个拉丁词按前缀展开
+ */
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(null, null);
+        index(1L, "apple", "A1", null);
+        index(2L, "pear", "A2", "apple");
+        index(3L, "apple pie", "A3", null);
+        index(4L, "苹果手机", "B4", "新款");
+    }
+
+    @Test
+    void nameMatchOutranksDescriptionAndShortDocFirst() {
+        ProductSearchIndex.Hits hits = index.search("apple", 0, 10);
+
+        assertEquals(List.of(1L, 3L, 2L), hits.productIds());
+        assertEquals(3, hits.total());
+    }
+
+    @Test
+    void multipleTermsIntersected() {
+        assertEquals(List.of(3L), index.search("apple pie", 0, 10).productIds());
+        assertEquals(List.of(), index.search("apple banana ", 0, 10).productIds());
+    }
+
+    @Test
+    void lastLatinTermExpandedAsPrefix() {
+        assertEquals(3, index.search("app", 0, 10).total());
+        // 末尾是空格表示单词已输入完整，不再按前缀展开
+        assertEquals(0, index.search("app ", 0, 10).total());
+    }
+
+    @Test
+    void skuSearchable() {
+        assertEquals(List.of(2L), index.search("a2", 0, 10).productIds());
+    }
+
+    @Test
+    void cjkBigramsMatch() {
+        assertEquals(List.of(4L), index.search("苹果", 0, 10).productIds());
+        assertEquals(List.of(4L), index.search("果", 0, 10).productIds());
+        assertEquals(List.of(), index.search("苹机", 0, 10).productIds());
+    }
+
+    @Test
+    void pagingKeepsTotal() {
+        ProductSearchIndex.Hits hits = index.search("apple", 1, 1);
+
+        assertEquals(List.of(3L), hits.productIds());
+        assertEquals(3, hits.total());
+    }
+
+    @Test
+    void updatesAndDeletesApplied() {
+        index.onProductChanged(ProductChangedEvent.updated("A1", product(1L, "orange", "A1", null)));
+        index.onProductChanged(ProductChangedEvent.deleted(3L, "A3"));
+
+        assertEquals(List.of(2L), index.search("apple", 0, 10).productIds());
+        assertEquals(List.of(1L), index.search("orange", 0, 10).productIds());
+        assertEquals(List.of(), index.search("pie", 0, 10).productIds());
+    }
+
+    @Test
+    void stockOnlyEventsIgnored() {
+        index.onProductChanged(ProductChangedEvent.stockChanged(product(1L, "renamed", "A1", null)));
+
+        assertEquals(List.of(1L, 3L, 2L), index.search("apple", 0, 10).productIds());
+    }
+
+    private void index(Long id, String name, String sku, String description) {
+        index.onProductChanged(ProductChangedEvent.created(product(id, name, sku, description)));
+    }
+
+    private static ProductDTO product(Long id, String name, String sku, String description) {
+        return ProductDTO.builder()
+                .id(id)
+                .name(name)
+                .sku(sku)
+                .description(description)
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package org.yiqixue.secomm.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.repository.OrderItemRepository;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 商品联想压测：10 万商品建树后随机前缀查询，记录 p50/p99 延迟（目标亚毫秒）
+ * 默认不运行，使用 mvn test -Dtest=ProductSuggestBenchmarkTest -Dbenchmark=true 执行
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductSuggestBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggestBenchmarkTest.class);
+
+    private static final int PRODUCTS = 100_000;
+    private static final int WARMUP_QUERIES = 50_000;
+    private static final int QUERIES = 200_000;
+
+    private static final String[] WORDS = {"apple", "banana", "cherry", "phone", "case", "cable", "charger",
+            "laptop", "stand", "mouse", "keyboard", "monitor", "红色", "手机", "数据线", "耳机", "充电器", "保护壳"};
+
+    @Test
+    void suggestLatency() {
+        Random random = new Random(42);
+        List<ProductDTO> products = new ArrayList<>(PRODUCTS);
+        List<Object[]> sales = new ArrayList<>(PRODUCTS);
+        for (long id = 1; id <= PRODUCTS; id++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + WORDS[random.nextInt(WORDS.length)] + " " + id;
+            products.add(ProductDTO.builder().id(id).name(name).sku("SKU-" + id).active(true).build());
+            sales.add(new Object[]{id, (long) random.nextInt(10_000)});
+        }
+
+        ProductSuggestIndex index = new ProductSuggestIndex(
+                (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+                        new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> products),
+                (OrderItemRepository) Proxy.newProxyInstance(OrderItemRepository.class.getClassLoader(),
+                        new Class<?>[]{OrderItemRepository.class}, (proxy, method, args) -> sales));
+        ReflectionTestUtils.setField(index, "topN", 10);
+
+        long buildStart = System.nanoTime();
+        index.rebuild();
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        String[] prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            prefixes[i] = i % 8 == 0
+                    ? "sku-" + (1 + random.nextInt(PRODUCTS))
+                    : word.substring(0, 1 + random.nextInt(word.length()));
+        }
+
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            index.suggest(prefixes[i % prefixes.length], 10);
+        }
+        long[] nanos = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            index.suggest(prefixes[i % prefixes.length], 10);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        long p50 = nanos[QUERIES / 2];
+        long p99 = nanos[QUERIES * 99 / 100];
+
+        log.info("建树 {} 个商品: {} ms; 查询 {} 次: p50 {} µs, p99 {} µs, max {} µs", PRODUCTS, buildMillis, QUERIES,
+                p50 / 1_000, p99 / 1_000, nanos[QUERIES - 1] / 1_000);
+        assertTrue(p99 < 1_000_000, "p99 延迟应低于 1ms");
+    }
+}
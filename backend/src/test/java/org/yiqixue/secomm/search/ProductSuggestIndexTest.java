@@ -0,0 +1,179 @@
+package org.yiqixue.secomm.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.yiqixue.secomm.dto.ProductDTO;
+import org.yiqixue.secomm.dto.ProductSuggestionDTO;
+import org.yiqixue.secomm.event.ProductChangedEvent;
+import org.yiqixue.secomm.repository.OrderItemRepository;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 商品联想前缀树：按销量取前 N 名，增量删除/修改后受影响节点从子树重算前 N 名；重建期间的增量更新不丢失
+ */
+class ProductSuggestIndexTest {
+
+    private final List<ProductDTO> products = new ArrayList<>();
+    private final List<Object[]> sales = new ArrayList<>();
+
+    private ProductSuggestIndex index;
+
+    // 非空时在重建读取商品期间执行，模拟读取期间提交的商品变更
+    private Runnable duringLoad;
+
+    @BeforeEach
+    void setUp() {
+        ProductRepository productRepository = (ProductRepository) Proxy.newProxyInstance(
+                ProductRepository.class.getClassLoader(), new Class<?>[]{ProductRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findAllProductDTOs")) {
+                        List<ProductDTO> snapshot = new ArrayList<>(products);
+                        if (duringLoad != null) {
+                            duringLoad.run();
+                        }
+                        return snapshot;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        OrderItemRepository orderItemRepository = (OrderItemRepository) Proxy.newProxyInstance(
+                OrderItemRepository.class.getClassLoader(), new Class<?>[]{OrderItemRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findBestSellingProducts")) {
+                        return sales;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        index = new ProductSuggestIndex(productRepository, orderItemRepository);
+        ReflectionTestUtils.setField(index, "topN", 2);
+
+        add(1L, "Apple", "S1", 50);
+        add(2L, "Apricot", "S2", 30);
+        add(3L, "Avocado", "S3", 10);
+        add(4L, "Banana", "S4", 5);
+        index.rebuild();
+    }
+
+    @Test
+    void rankedBySalesAndCappedAtTopN() {
+        assertEquals(List.of(1L, 2L), ids("a"));
+        assertEquals(List.of(1L, 2L), ids("ap"));
+        assertEquals(List.of(1L), ids("a", 1));
+        assertEquals(List.of(3L), ids("avo"));
+    }
+
+    @Test
+    void wordAndSkuKeysMatch() {
+        products.add(product(5L, "Green apple juice", "JUICE-1"));
+        index.rebuild();
+
+        assertEquals(List.of(5L), ids("juice"));
+        assertEquals(List.of(5L), ids("juice-"));
+        assertEquals(List.of(1L, 5L), ids("apple"));
+    }
+
+    @Test
+    void removeRefillsTopFromSubtree() {
+        index.onProductChanged(ProductChangedEvent.deleted(1L, "S1"));
+
+        // 商品 3 原本不在 "a" 节点的前 2 名中，删除后应从子树补进来
+        assertEquals(List.of(2L, 3L), ids("a"));
+        assertEquals(List.of(2L), ids("ap"));
+        assertEquals(List.of(), ids("apple"));
+        assertEquals(List.of(), ids("s1"));
+    }
+
+    @Test
+    void renameMovesProductBetweenPrefixes() {
+        index.onProductChanged(ProductChangedEvent.updated("S2", product(2L, "Blueberry", "S2")));
+
+        assertEquals(List.of(1L, 3L), ids("a"));
+        assertEquals(List.of(2L, 4L), ids("b"));
+        assertEquals(List.of(), ids("apr"));
+    }
+
+    @Test
+    void deletedPathsPrunedAndReAddable() {
+        index.onProductChanged(ProductChangedEvent.deleted(4L, "S4"));
+        assertEquals(List.of(), ids("b"));
+
+        index.onProductChanged(ProductChangedEvent.created(product(4L, "Banana", "S4")));
+        assertEquals(List.of(4L), ids("ban"));
+    }
+
+    @Test
+    void inactiveProductsNotIndexed() {
+        ProductDTO inactive = product(2L, "Apricot", "S2");
+        inactive.setActive(false);
+        index.onProductChanged(ProductChangedEvent.updated("S2", inactive));
+
+        assertEquals(List.of(1L, 3L), ids("a"));
+    }
+
+    @Test
+    void equalSalesPreferShorterName() {
+        products.clear();
+        sales.clear();
+        add(1L, "Pear drops", "S1", 0);
+        add(2L, "Pear", "S2", 0);
+        index.rebuild();
+
+        assertEquals(List.of(2L, 1L), ids("pe"));
+    }
+
+    @Test
+    void changeCommittedDuringRebuildKept() throws Exception {
+        Thread[] writer = new Thread[1];
+        duringLoad = () -> {
+            writer[0] = new Thread(() -> index.onProductChanged(
+                    ProductChangedEvent.created(product(6L, "Cherry", "S6"))));
+            writer[0].start();
+            // 给增量更新足够时间：重建持写锁时它会等到重建结束
+            join(writer[0], 200);
+        };
+
+        index.rebuild();
+        join(writer[0], 5000);
+
+        assertEquals(List.of(6L), ids("cherry"));
+    }
+
+    private static void join(Thread thread, long millis) {
+        try {
+            thread.join(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void add(Long id, String name, String sku, long sold) {
+        products.add(product(id, name, sku));
+        if (sold > 0) {
+            sales.add(new Object[]{id, sold});
+        }
+    }
+
+    private List<Long> ids(String prefix) {
+        return ids(prefix, 10);
+    }
+
+    private List<Long> ids(String prefix, int limit) {
+        return index.suggest(prefix, limit).stream().map(ProductSuggestionDTO::getProductId).toList();
+    }
+
+    private static ProductDTO product(Long id, String name, String sku) {
+        return ProductDTO.builder()
+                .id(id)
+                .name(name)
+                .sku(sku)
+                .active(true)
+                .build();
+    }
+}
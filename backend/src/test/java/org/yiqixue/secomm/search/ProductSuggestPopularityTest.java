@@ -0,0 +1,63 @@
+package org.yiqixue.secomm.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.dto.CheckoutRequest;
+import org.yiqixue.secomm.dto.OrderDTO;
+import org.yiqixue.secomm.repository.OrderItemRepository;
+import org.yiqixue.secomm.service.OrderService;
+import org.yiqixue.secomm.service.TestFixtures;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 联想排名使用的销量不计已取消订单
+ */
+@SpringBootTest
+@Transactional
+class ProductSuggestPopularityTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void cancelledOrdersExcluded() {
+        TestFixtures fixtures = new TestFixtures(jdbcTemplate);
+        Long customerId = fixtures.insertCustomer();
+        BigDecimal price = new BigDecimal("4.00");
+        Long productId = fixtures.insertProduct(3, price);
+
+        CheckoutRequest.CheckoutItem item = new CheckoutRequest.CheckoutItem();
+        item.setProductId(productId);
+        item.setQuantity(3);
+        CheckoutRequest request = new CheckoutRequest();
+        request.setItems(List.of(item));
+        request.setTotalAmount(price.multiply(BigDecimal.valueOf(3)));
+        OrderDTO order = orderService.createOrderFromCart(customerId, request);
+        assertEquals(3, soldOf(productId));
+
+        jdbcTemplate.update("UPDATE orders SET status = 'CANCELLED' WHERE id = ?", order.getId());
+        assertEquals(0, soldOf(productId));
+    }
+
+    private long soldOf(Long productId) {
+        for (Object[] row : orderItemRepository.findBestSellingProducts()) {
+            if (productId.equals(row[0])) {
+                return ((Number) row[1]).longValue();
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,53 @@
+package org.yiqixue.secomm.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分词：拉丁单词转小写并按非字母数字切分，CJK 建索引输出单字和二元组、查询只输出二元组
+ */
+class TextTokenizerTest {
+
+    @Test
+    void latinWordsLowercasedAndSplitOnPunctuation() {
+        assertEquals(List.of("red", "apple", "fr", "001"), TextTokenizer.tokenizeForIndex("Red Apple FR-001"));
+        assertEquals(List.of("café", "crème"), TextTokenizer.tokenizeForQuery("Café Crème"));
+    }
+
+    @Test
+    void cjkIndexedAsUnigramsAndBigrams() {
+        assertEquals(List.of("苹", "果", "手", "机", "苹果", "果手", "手机"),
+                TextTokenizer.tokenizeForIndex("苹果手机"));
+    }
+
+    @Test
+    void cjkQueriedAsBigramsOnly() {
+        assertEquals(List.of("苹果", "果手", "手机"), TextTokenizer.tokenizeForQuery("苹果手机"));
+        // 单个汉字无法组成二元组，输出单字
+        assertEquals(List.of("果"), TextTokenizer.tokenizeForQuery("果"));
+    }
+
+    @Test
+    void mixedScriptsSplitAtBoundaries() {
+        assertEquals(List.of("iphone", "15", "手机", "机壳"), TextTokenizer.tokenizeForQuery("iPhone 15 手机壳"));
+        assertEquals(List.of("usb", "数据", "据线"), TextTokenizer.tokenizeForQuery("USB数据线"));
+    }
+
+    @Test
+    void supplementaryCharactersKeptWhole() {
+        assertEquals(List.of("𠀀"), TextTokenizer.tokenizeForQuery("𠀀"));
+        assertTrue(TextTokenizer.isCjk(0x20000));
+        assertFalse(TextTokenizer.isCjk('a'));
+    }
+
+    @Test
+    void emptyAndNullInput() {
+        assertEquals(List.of(), TextTokenizer.tokenizeForIndex(null));
+        assertEquals(List.of(), TextTokenizer.tokenizeForQuery(" - "));
+    }
+}
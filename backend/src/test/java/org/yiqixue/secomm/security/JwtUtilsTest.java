@@ -0,0 +1,83 @@
+package org.yiqixue.secomm.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 令牌声明：新令牌可直接还原用户主体，旧令牌返回 null 走查库兜底
+ */
+class JwtUtilsTest {
+
+    private static final String SECRET = "abcdefghijklmnopqrstuvwxyz1234567890abcdefgh";
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60_000);
+    }
+
+    @Test
+    void principalRestoredFromClaims() {
+        List<GrantedAuthority> roles = List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER"));
+        UserPrincipal principal = new UserPrincipal(7L, "alice", "Alice", "13800000000", null, 42L, "secret", roles);
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null, roles));
+
+        Claims claims = jwtUtils.parseJwtToken(token);
+        assertNotNull(claims);
+        UserPrincipal restored = jwtUtils.getPrincipalFromClaims(claims);
+
+        assertNotNull(restored);
+        assertEquals(7L, restored.getId());
+        assertEquals("alice", restored.getUsername());
+        assertEquals(42L, restored.getCustomerId());
+        assertEquals(roles, List.copyOf(restored.getAuthorities()));
+        assertNull(restored.getPassword());
+    }
+
+    @Test
+    void userWithoutCustomerHasNoCustomerClaim() {
+        UserPrincipal admin = new UserPrincipal(1L, "admin", null, null, null, null, null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(admin, null));
+
+        UserPrincipal restored = jwtUtils.getPrincipalFromClaims(jwtUtils.parseJwtToken(token));
+
+        assertNotNull(restored);
+        assertNull(restored.getCustomerId());
+    }
+
+    @Test
+    void legacyTokenHasNoPrincipalClaims() {
+        String legacy = Jwts.builder()
+                .subject("alice")
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+
+        Claims claims = jwtUtils.parseJwtToken(legacy);
+
+        assertNotNull(claims);
+        assertEquals("alice", claims.getSubject());
+        assertNull(jwtUtils.getPrincipalFromClaims(claims));
+    }
+
+    @Test
+    void tamperedTokenRejected() {
+        assertNull(jwtUtils.parseJwtToken("not.a.token"));
+    }
+}
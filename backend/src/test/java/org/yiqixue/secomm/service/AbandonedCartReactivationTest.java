@@ -0,0 +1,111 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.dto.AddToCartRequest;
+import org.yiqixue.secomm.dto.CartDTO;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 被清理任务标记为 ABANDONED 的购物车，再次读取或加购时原地重新启用（customer_id 唯一）：
+ * 未归档时商品项和总计保留，归档时恢复为空车
+ */
+@SpringBootTest(properties = {
+        "app.abandoned-cart.sweep-ms=3600000",
+        "app.abandoned-cart.window="
+})
+@Transactional
+class AbandonedCartReactivationTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private AbandonedCartSweeper abandonedCartSweeper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long customerId;
+    private Long productId;
+
+    @BeforeEach
+    void fillCart() {
+        TestFixtures fixtures = new TestFixtures(jdbcTemplate);
+        customerId = fixtures.insertCustomer();
+        productId = fixtures.insertProduct(10, new BigDecimal("5.00"));
+
+        cartService.addToCart(customerId, request(2));
+        jdbcTemplate.update("UPDATE cart SET last_updated = NOW() - INTERVAL 30 DAY WHERE customer_id = ?",
+                customerId);
+    }
+
+    @AfterEach
+    void restoreSweeper() {
+        ReflectionTestUtils.setField(abandonedCartSweeper, "archiveItems", false);
+    }
+
+    @Test
+    void readingSweptCartKeepsItems() {
+        sweep(false);
+
+        CartDTO cart = cartService.getCartByCustomerId(customerId);
+
+        assertEquals("ACTIVE", cart.getStatus());
+        assertEquals(2, cart.getTotalQuantity());
+        assertEquals(0, new BigDecimal("10.00").compareTo(cart.getTotalPrice()));
+        assertEquals(1, cartService.getCartItems(customerId).size());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM cart WHERE customer_id = ?", Integer.class, customerId));
+    }
+
+    @Test
+    void addingToSweptCartAddsToKeptItems() {
+        sweep(false);
+
+        cartService.addToCart(customerId, request(1));
+
+        assertEquals("ACTIVE", cartStatus());
+        assertEquals(3, cartService.getCartByCustomerId(customerId).getTotalQuantity());
+    }
+
+    @Test
+    void archivedCartStartsEmpty() {
+        sweep(true);
+
+        CartDTO cart = cartService.getCartByCustomerId(customerId);
+        assertEquals("ACTIVE", cart.getStatus());
+        assertEquals(0, cart.getTotalQuantity());
+        assertTrue(cartService.getCartItems(customerId).isEmpty());
+
+        cartService.addToCart(customerId, request(1));
+        assertEquals(1, cartService.getCartByCustomerId(customerId).getTotalQuantity());
+    }
+
+    private void sweep(boolean archiveItems) {
+        ReflectionTestUtils.setField(abandonedCartSweeper, "archiveItems", archiveItems);
+        abandonedCartSweeper.sweep();
+        assertEquals("ABANDONED", cartStatus());
+    }
+
+    private String cartStatus() {
+        return jdbcTemplate.queryForObject("SELECT status FROM cart WHERE customer_id = ?", String.class, customerId);
+    }
+
+    private AddToCartRequest request(int quantity) {
+        AddToCartRequest request = new AddToCartRequest();
+        request.setProductId(productId);
+        request.setQuantity(quantity);
+        return request;
+    }
+}
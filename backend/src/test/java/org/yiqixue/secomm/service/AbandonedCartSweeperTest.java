@@ -0,0 +1,92 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 废弃购物车清理：运行时间窗口判断和键集游标的移动
+ */
+class AbandonedCartSweeperTest {
+
+    private static final LocalDateTime T = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Test
+    void emptyWindowAlwaysRuns() {
+        AbandonedCartSweeper sweeper = sweeper("");
+
+        assertTrue(sweeper.inWindow(LocalTime.MIDNIGHT));
+        assertTrue(sweeper.inWindow(LocalTime.of(13, 30)));
+    }
+
+    @Test
+    void sameDayWindowIncludesStartExcludesEnd() {
+        AbandonedCartSweeper sweeper = sweeper("01:00-06:00");
+
+        assertFalse(sweeper.inWindow(LocalTime.of(0, 59)));
+        assertTrue(sweeper.inWindow(LocalTime.of(1, 0)));
+        assertTrue(sweeper.inWindow(LocalTime.of(5, 59)));
+        assertFalse(sweeper.inWindow(LocalTime.of(6, 0)));
+        assertFalse(sweeper.inWindow(LocalTime.of(23, 0)));
+    }
+
+    @Test
+    void windowCrossingMidnight() {
+        AbandonedCartSweeper sweeper = sweeper("22:00-02:00");
+
+        assertFalse(sweeper.inWindow(LocalTime.of(21, 59)));
+        assertTrue(sweeper.inWindow(LocalTime.of(22, 0)));
+        assertTrue(sweeper.inWindow(LocalTime.of(23, 59)));
+        assertTrue(sweeper.inWindow(LocalTime.MIDNIGHT));
+        assertTrue(sweeper.inWindow(LocalTime.of(1, 59)));
+        assertFalse(sweeper.inWindow(LocalTime.of(2, 0)));
+        assertFalse(sweeper.inWindow(LocalTime.NOON));
+    }
+
+    @Test
+    void malformedWindowRejected() {
+        assertThrows(IllegalArgumentException.class, () -> sweeper("01:00"));
+    }
+
+    @Test
+    void fullChunkAdvancesCursorToLastRow() {
+        AbandonedCartSweeper sweeper = sweeper("");
+
+        assertTrue(sweeper.advanceCursor(List.of(
+                new AbandonedCartSweeper.Row(7, T),
+                new AbandonedCartSweeper.Row(3, T.plusMinutes(1)))));
+
+        assertEquals(T.plusMinutes(1), ReflectionTestUtils.getField(sweeper, "cursorLastUpdated"));
+        assertEquals(3L, ReflectionTestUtils.getField(sweeper, "cursorId"));
+    }
+
+    @Test
+    void partialChunkResetsCursor() {
+        AbandonedCartSweeper sweeper = sweeper("");
+        sweeper.advanceCursor(List.of(
+                new AbandonedCartSweeper.Row(1, T),
+                new AbandonedCartSweeper.Row(2, T)));
+
+        assertFalse(sweeper.advanceCursor(List.of(new AbandonedCartSweeper.Row(5, T.plusHours(1)))));
+
+        assertEquals(LocalDateTime.of(1970, 1, 1, 0, 0), ReflectionTestUtils.getField(sweeper, "cursorLastUpdated"));
+        assertEquals(0L, ReflectionTestUtils.getField(sweeper, "cursorId"));
+        assertFalse(sweeper.advanceCursor(List.of()));
+    }
+
+    private static AbandonedCartSweeper sweeper(String window) {
+        AbandonedCartSweeper sweeper = new AbandonedCartSweeper(null, null, null);
+        ReflectionTestUtils.setField(sweeper, "window", window);
+        ReflectionTestUtils.setField(sweeper, "chunkSize", 2);
+        sweeper.init();
+        return sweeper;
+    }
+}
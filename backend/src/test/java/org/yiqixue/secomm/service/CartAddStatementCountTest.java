@@ -0,0 +1,95 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.dto.AddToCartRequest;
+import org.yiqixue.secomm.dto.CartItemDTO;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 加入购物车的数据库往返次数断言
+ * 改造前：查商品、查购物车（可能插入）、查购物车项、保存、重查购物车和全部商品项、保存购物车，共 6 次以上；
+ * 改造后购物车已有该商品时固定 2 次（查询、同时累加数量和总计的更新）；
+ * 新商品项 3 次（查询、upsert、更新总计；连接不开启多语句），返回值不再回查
+ */
+@SpringBootTest
+@Import(StatementCountingConfig.class)
+@Transactional
+class CartAddStatementCountTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestFixtures fixtures;
+    private Long customerId;
+    private Long productId;
+
+    @BeforeEach
+    void insertFixtures() {
+        fixtures = new TestFixtures(jdbcTemplate);
+        customerId = fixtures.insertCustomer();
+        productId = fixtures.insertProduct(10, BigDecimal.ONE);
+    }
+
+    @Test
+    void addingExistingItemTakesTwoRoundTrips() {
+        // 第一次加入需要新建购物车，多出一次往返
+        CartItemDTO first = cartService.addToCart(customerId, request(productId, 1));
+
+        StatementCountingConfig.EXECUTIONS.set(0);
+        CartItemDTO second = cartService.addToCart(customerId, request(productId, 2));
+        assertEquals(2, StatementCountingConfig.EXECUTIONS.get());
+
+        assertEquals(first.getId(), second.getId());
+        assertEquals(first.getQuantity() + 2, second.getQuantity());
+        assertEquals(0, new BigDecimal("3").compareTo(second.getSubtotal()));
+    }
+
+    @Test
+    void addingNewItemTakesThreeRoundTrips() {
+        cartService.addToCart(customerId, request(productId, 1));
+        Long otherProductId = fixtures.insertProduct(10, new BigDecimal("2.50"));
+
+        StatementCountingConfig.EXECUTIONS.set(0);
+        CartItemDTO added = cartService.addToCart(customerId, request(otherProductId, 2));
+        assertEquals(3, StatementCountingConfig.EXECUTIONS.get());
+
+        // 返回的 id 来自 upsert 的生成键
+        assertEquals(jdbcTemplate.queryForObject("SELECT id FROM cart_item WHERE product_id = ?",
+                Long.class, otherProductId), added.getId());
+        assertEquals(0, new BigDecimal("5.00").compareTo(added.getSubtotal()));
+    }
+
+    @Test
+    void cartTotalsFollowDeltas() {
+        cartService.addToCart(customerId, request(productId, 1));
+        int before = totalQuantity();
+
+        cartService.addToCart(customerId, request(productId, 2));
+
+        assertEquals(before + 2, totalQuantity());
+    }
+
+    private int totalQuantity() {
+        return jdbcTemplate.queryForObject(
+                "SELECT total_quantity FROM cart WHERE customer_id = ?", Integer.class, customerId);
+    }
+
+    private AddToCartRequest request(Long productId, int quantity) {
+        AddToCartRequest request = new AddToCartRequest();
+        request.setProductId(productId);
+        request.setQuantity(quantity);
+        return request;
+    }
+}
@@ -0,0 +1,110 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.dto.CheckoutRequest;
+import org.yiqixue.secomm.dto.OrderDTO;
+import org.yiqixue.secomm.exception.BusinessException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 下单的语句数与订单行数无关，金额按商品当前价格计算
+ */
+@SpringBootTest
+@Import(StatementCountingConfig.class)
+@Transactional
+class CheckoutStatementCountTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long customerId;
+    private final List<Map<String, Object>> products = new ArrayList<>();
+
+    @BeforeEach
+    void insertFixtures() {
+        TestFixtures fixtures = new TestFixtures(jdbcTemplate);
+        customerId = fixtures.insertCustomer();
+        long categoryId = fixtures.insertCategory();
+        for (int i = 1; i <= 5; i++) {
+            BigDecimal price = new BigDecimal(i + ".50");
+            products.add(Map.of("id", fixtures.insertProduct(categoryId, 10, price), "unit_price", price));
+        }
+    }
+
+    @Test
+    void statementCountIndependentOfLineCount() {
+        StatementCountingConfig.EXECUTIONS.set(0);
+        OrderDTO single = orderService.createOrderFromCart(customerId, request(1, null));
+        int singleLine = StatementCountingConfig.EXECUTIONS.get();
+
+        StatementCountingConfig.EXECUTIONS.set(0);
+        OrderDTO multi = orderService.createOrderFromCart(customerId, request(5, null));
+        int fiveLines = StatementCountingConfig.EXECUTIONS.get();
+
+        assertEquals(singleLine, fiveLines);
+        assertEquals(1, single.getOrderItems().size());
+        assertEquals(5, multi.getOrderItems().size());
+        multi.getOrderItems().forEach(item -> assertNotNull(item.getId()));
+    }
+
+    @Test
+    void clientPricesIgnored() {
+        CheckoutRequest request = request(2, new BigDecimal("0.01"));
+
+        OrderDTO order = orderService.createOrderFromCart(customerId, request);
+
+        assertEquals(0, total(2).compareTo(order.getTotalAmount()));
+        for (int i = 0; i < 2; i++) {
+            BigDecimal price = (BigDecimal) products.get(i).get("unit_price");
+            assertEquals(0, price.compareTo(order.getOrderItems().get(i).getUnitPrice()));
+        }
+    }
+
+    @Test
+    void staleTotalRejected() {
+        CheckoutRequest request = request(2, null);
+        request.setTotalAmount(request.getTotalAmount().add(BigDecimal.ONE));
+
+        assertThrows(BusinessException.class, () -> orderService.createOrderFromCart(customerId, request));
+    }
+
+    private CheckoutRequest request(int lines, BigDecimal clientUnitPrice) {
+        List<CheckoutRequest.CheckoutItem> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            CheckoutRequest.CheckoutItem item = new CheckoutRequest.CheckoutItem();
+            item.setProductId(((Number) products.get(i).get("id")).longValue());
+            item.setQuantity(1);
+            item.setUnitPrice(clientUnitPrice);
+            items.add(item);
+        }
+        CheckoutRequest request = new CheckoutRequest();
+        request.setItems(items);
+        request.setTotalAmount(total(lines));
+        return request;
+    }
+
+    private BigDecimal total(int lines) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            total = total.add((BigDecimal) products.get(i).get("unit_price"));
+        }
+        return total;
+    }
+}
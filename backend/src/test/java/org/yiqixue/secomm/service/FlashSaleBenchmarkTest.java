@@ -0,0 +1,115 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.yiqixue.secomm.exception.BusinessException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 秒杀压测：同一热点商品上对比数据库行锁扣减与内存计数器扣减的吞吐
+ * 默认不运行，使用 mvn test -Dtest=FlashSaleBenchmarkTest -Dbenchmark=true 执行
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FlashSaleBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(FlashSaleBenchmarkTest.class);
+
+    private static final int THREADS = 64;
+    private static final int ATTEMPTS = 20_000;
+    private static final int STOCK = 5_000;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestFixtures fixtures;
+    private Long productId;
+
+    @BeforeEach
+    void insertProduct() {
+        fixtures = new TestFixtures(jdbcTemplate);
+        productId = fixtures.insertProduct(STOCK, BigDecimal.ONE);
+    }
+
+    @AfterEach
+    void deleteProduct() {
+        if (flashSaleService.isFlashSale(productId)) {
+            flashSaleService.stop(productId);
+        }
+        fixtures.deleteProduct(productId);
+    }
+
+    @Test
+    void compareDatabaseLockingWithFlashSaleCounters() throws Exception {
+        Run database = run();
+        assertEquals(STOCK, database.succeeded());
+        assertEquals(0, stockOf());
+
+        jdbcTemplate.update("UPDATE product SET units_in_stock = ? WHERE id = ?", STOCK, productId);
+        flashSaleService.start(productId, null);
+        Run flashSale = run();
+        flashSaleService.stop(productId);
+        assertEquals(STOCK, flashSale.succeeded());
+        assertEquals(0, stockOf());
+
+        log.info("数据库行锁: {} 次请求 {} ms ({} 次/秒)",
+                ATTEMPTS, database.millis(), Math.round(ATTEMPTS * 1000.0 / Math.max(1, database.millis())));
+        log.info("内存计数器: {} 次请求 {} ms ({} 次/秒)",
+                ATTEMPTS, flashSale.millis(), Math.round(ATTEMPTS * 1000.0 / Math.max(1, flashSale.millis())));
+        assertTrue(flashSale.millis() < database.millis(),
+                "内存计数器应快于数据库行锁: " + flashSale.millis() + "ms / " + database.millis() + "ms");
+    }
+
+    private record Run(int succeeded, long millis) {
+    }
+
+    private Run run() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            executor.submit(() -> {
+                start.await();
+                try {
+                    inventoryService.reserve(List.of(new InventoryService.StockLine(productId, 1)));
+                    succeeded.incrementAndGet();
+                } catch (BusinessException ignored) {
+                    // 售罄
+                }
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES));
+        return new Run(succeeded.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+
+    private int stockOf() {
+        return fixtures.stockOf(productId);
+    }
+}
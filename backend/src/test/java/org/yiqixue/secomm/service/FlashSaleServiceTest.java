@@ -0,0 +1,107 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 秒杀扣减：回滚的扣减不刷入数据库，超卖时库存变为负数并计入指标；已刷库的段重放时不再扣减
+ */
+@SpringBootTest(properties = "app.flash-sale.flush-ms=3600000")
+class FlashSaleServiceTest {
+
+    private static final int STOCK = 10;
+
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestFixtures fixtures;
+    private Long productId;
+
+    @BeforeEach
+    void startSale() {
+        fixtures = new TestFixtures(jdbcTemplate);
+        productId = fixtures.insertProduct(STOCK, BigDecimal.ONE);
+        flashSaleService.start(productId, null);
+    }
+
+    @AfterEach
+    void deleteProduct() {
+        if (flashSaleService.isFlashSale(productId)) {
+            flashSaleService.stop(productId);
+        }
+        fixtures.deleteProduct(productId);
+    }
+
+    @Test
+    void committedAcquireFlushedRolledBackAcquireNot() {
+        transactionTemplate.executeWithoutResult(status -> assertTrue(flashSaleService.tryAcquire(productId, 3)));
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(flashSaleService.tryAcquire(productId, 4));
+            status.setRollbackOnly();
+        });
+
+        flashSaleService.flush();
+
+        assertEquals(STOCK - 3, stockOf());
+        assertEquals(STOCK - 3, flashSaleService.getActiveSales().stream()
+                .filter(sale -> sale.getProductId().equals(productId))
+                .findFirst().orElseThrow().getRemaining());
+    }
+
+    @Test
+    void oversellSurfacesAsNegativeStock() {
+        long oversoldBefore = (Long) flashSaleService.getMetrics().get("oversoldUnits");
+        // 模拟预载之后数据库库存被其他途径扣减
+        jdbcTemplate.update("UPDATE product SET units_in_stock = 2 WHERE id = ?", productId);
+
+        transactionTemplate.executeWithoutResult(status -> assertTrue(flashSaleService.tryAcquire(productId, 5)));
+        flashSaleService.flush();
+
+        assertEquals(-3, stockOf());
+        assertEquals(oversoldBefore + 3, (Long) flashSaleService.getMetrics().get("oversoldUnits"));
+    }
+
+    @Test
+    void replayedSegmentNotAppliedTwice() throws Exception {
+        // 模拟刷库提交后、删除段文件前进程退出：同名段再次出现
+        Path directory = Paths.get((String) ReflectionTestUtils.getField(flashSaleService, "logDir"));
+        Path segment = directory.resolve("flash-sale-" + System.currentTimeMillis() + "-0.pending");
+        String content = productId + ",3\n";
+        Files.writeString(segment, content, StandardCharsets.US_ASCII);
+        flashSaleService.flush();
+        assertEquals(STOCK - 3, stockOf());
+
+        Files.writeString(segment, content, StandardCharsets.US_ASCII);
+        flashSaleService.flush();
+
+        assertEquals(STOCK - 3, stockOf());
+        assertTrue(Files.notExists(segment));
+        jdbcTemplate.update("DELETE FROM flash_sale_applied_segment WHERE segment_name = ?",
+                segment.getFileName().toString());
+    }
+
+    private int stockOf() {
+        return fixtures.stockOf(productId);
+    }
+}
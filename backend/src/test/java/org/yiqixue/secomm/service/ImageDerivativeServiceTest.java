@@ -0,0 +1,158 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.entity.Product;
+import org.yiqixue.secomm.repository.ProductRepository;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 图片衍生尺寸补偿扫描：只扫上传的原图，按ID键集前进，失败的原图在重试间隔内跳过且记录数有上限；
+ * 像素数超过上限的原图不解码
+ */
+@SpringBootTest(properties = "app.image-derivatives.sweep-ms=3600000")
+@Transactional
+class ImageDerivativeServiceTest {
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long maxIdBefore;
+    private long seedProductId;
+    private long uploadA;
+    private long uploadB;
+
+    @BeforeEach
+    void insertProducts() {
+        maxIdBefore = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM product", Long.class);
+        long suffix = System.nanoTime();
+        seedProductId = insertProduct("seed-" + suffix, "/images/products/seed-" + suffix + ".png");
+        uploadA = insertProduct("upload-a-" + suffix, "/uploads/missing-a-" + suffix + ".jpg");
+        uploadB = insertProduct("upload-b-" + suffix, "/uploads/missing-b-" + suffix + ".jpg");
+    }
+
+    @Test
+    void pendingQuerySkipsSeedImagesAndPagesById() {
+        List<Long> all = ids(productRepository.findByIdGreaterThanAndImageUrlStartingWithAndThumbnailUrlIsNullOrderByIdAsc(
+                maxIdBefore, ImageDerivativeService.UPLOADS_PREFIX, Limit.of(10)));
+        List<Long> afterA = ids(productRepository.findByIdGreaterThanAndImageUrlStartingWithAndThumbnailUrlIsNullOrderByIdAsc(
+                uploadA, ImageDerivativeService.UPLOADS_PREFIX, Limit.of(10)));
+
+        assertEquals(List.of(uploadA, uploadB), all);
+        assertFalse(all.contains(seedProductId));
+        assertEquals(List.of(uploadB), afterA);
+    }
+
+    @Test
+    void failedImagesDoNotPinTheSweep() throws InterruptedException {
+        ReflectionTestUtils.setField(imageDerivativeService, "sweepCursor", maxIdBefore);
+        long submittedBefore = submitted();
+
+        imageDerivativeService.sweepPending();
+
+        // 两个上传原图都已提交，末页扫完后游标回到起点
+        assertEquals(submittedBefore + 2, submitted());
+        assertEquals(0L, ReflectionTestUtils.getField(imageDerivativeService, "sweepCursor"));
+
+        // 原图文件不存在，生成失败后在重试间隔内不再提交
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!bothFailed() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(bothFailed());
+        ReflectionTestUtils.setField(imageDerivativeService, "sweepCursor", maxIdBefore);
+        imageDerivativeService.sweepPending();
+        assertEquals(submittedBefore + 2, submitted());
+    }
+
+    @Test
+    void failuresExpireAndAreCapped() {
+        ImageDerivativeService service = new ImageDerivativeService(null, null, null);
+        ReflectionTestUtils.setField(service, "failureRetryMinutes", 1L);
+        ReflectionTestUtils.setField(service, "maxFailedImages", 2);
+        long retryMillis = TimeUnit.MINUTES.toMillis(1);
+
+        service.recordFailure("/uploads/a.jpg", 0);
+        service.recordFailure("/uploads/b.jpg", 10);
+        service.recordFailure("/uploads/c.jpg", 20);
+
+        // 超出上限时丢弃最早的记录
+        assertFalse(service.recentlyFailed("/uploads/a.jpg", 30));
+        assertTrue(service.recentlyFailed("/uploads/b.jpg", 30));
+        assertTrue(service.recentlyFailed("/uploads/c.jpg", 30));
+        // 到期后可以再试
+        assertFalse(service.recentlyFailed("/uploads/b.jpg", 10 + retryMillis));
+        assertTrue(service.recentlyFailed("/uploads/c.jpg", 10 + retryMillis));
+    }
+
+    @Test
+    void oversizedImageNotDecoded() throws IOException {
+        ImageDerivativeService service = new ImageDerivativeService(null, null, null);
+        Path image = Files.createTempFile("derivative-test-", ".png");
+        try {
+            ImageIO.write(new BufferedImage(100, 80, BufferedImage.TYPE_INT_RGB), "png", image.toFile());
+
+            ReflectionTestUtils.setField(service, "maxPixels", 8000L);
+            assertEquals(100, service.read(image).getWidth());
+
+            ReflectionTestUtils.setField(service, "maxPixels", 7999L);
+            assertThrows(IOException.class, () -> service.read(image));
+            assertEquals(1L, ((AtomicLong) ReflectionTestUtils.getField(service, "oversized")).get());
+        } finally {
+            Files.deleteIfExists(image);
+        }
+    }
+
+    private boolean bothFailed() {
+        long now = System.currentTimeMillis();
+        return imageDerivativeService.recentlyFailed(imageUrl(uploadA), now)
+                && imageDerivativeService.recentlyFailed(imageUrl(uploadB), now);
+    }
+
+    private long submitted() {
+        Map<String, Object> metrics = imageDerivativeService.getMetrics();
+        return (Long) metrics.get("submitted");
+    }
+
+    private String imageUrl(long productId) {
+        return jdbcTemplate.queryForObject("SELECT image_url FROM product WHERE id = ?", String.class, productId);
+    }
+
+    private long insertProduct(String sku, String imageUrl) {
+        long categoryId = new TestFixtures(jdbcTemplate).insertCategory();
+        jdbcTemplate.update("INSERT INTO product (sku, name, unit_price, image_url, active, units_in_stock,"
+                        + " date_created, last_updated, category_id) VALUES (?, ?, 9.99, ?, 1, 0, NOW(), NOW(), ?)",
+                sku, sku, imageUrl, categoryId);
+        return jdbcTemplate.queryForObject("SELECT id FROM product WHERE sku = ?", Long.class, sku);
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
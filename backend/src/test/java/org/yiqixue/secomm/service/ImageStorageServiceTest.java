@@ -0,0 +1,152 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 内容寻址图片回收：引用归零的文件由扫描删除；回收与并发上传相同内容互斥；事务回滚后写入的文件也会被回收
+ */
+@SpringBootTest(properties = "app.image-blobs.sweep-ms=3600000")
+class ImageStorageServiceTest {
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> urls = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        for (String url : urls) {
+            jdbcTemplate.update("DELETE FROM image_blob WHERE hash = ?", ImageStorageService.hashOf(url));
+            Files.deleteIfExists(pathOf(url));
+        }
+    }
+
+    @Test
+    void releasedBlobDeletedBySweep() {
+        MockMultipartFile image = image();
+        String url = transactionTemplate.execute(status -> imageStorageService.store(image));
+        urls.add(url);
+        transactionTemplate.executeWithoutResult(status -> imageStorageService.release(url));
+
+        // 释放后文件保留到回收扫描
+        assertTrue(Files.exists(pathOf(url)));
+        assertEquals(0, refCount(url));
+
+        imageStorageService.sweepUnreferenced();
+
+        assertFalse(Files.exists(pathOf(url)));
+        assertEquals(0L, rows(url));
+    }
+
+    @Test
+    void reacquiredBlobKept() {
+        MockMultipartFile image = image();
+        String url = transactionTemplate.execute(status -> imageStorageService.store(image));
+        urls.add(url);
+        transactionTemplate.executeWithoutResult(status -> imageStorageService.release(url));
+        transactionTemplate.execute(status -> imageStorageService.store(image));
+
+        imageStorageService.sweepUnreferenced();
+
+        assertTrue(Files.exists(pathOf(url)));
+        assertEquals(1, refCount(url));
+    }
+
+    @Test
+    void rolledBackUploadCollected() {
+        MockMultipartFile image = image();
+        String url = transactionTemplate.execute(status -> {
+            String stored = imageStorageService.store(image);
+            status.setRollbackOnly();
+            return stored;
+        });
+        urls.add(url);
+
+        assertTrue(Files.exists(pathOf(url)));
+        assertEquals(0L, rows(url));
+
+        imageStorageService.sweepUnreferenced();
+
+        assertFalse(Files.exists(pathOf(url)));
+        assertEquals(0L, rows(url));
+    }
+
+    @Test
+    void sweepWaitsForUncommittedUpload() throws Exception {
+        MockMultipartFile image = image();
+        String url = transactionTemplate.execute(status -> imageStorageService.store(image));
+        urls.add(url);
+        transactionTemplate.executeWithoutResult(status -> imageStorageService.release(url));
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> upload = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    imageStorageService.store(image);
+                    acquired.countDown();
+                    try {
+                        commit.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> sweep = CompletableFuture.runAsync(imageStorageService::sweepUnreferenced);
+        Thread.sleep(500);
+        // 上传事务持有行锁，回收在锁上等待
+        assertFalse(sweep.isDone());
+
+        commit.countDown();
+        upload.get(10, TimeUnit.SECONDS);
+        sweep.get(10, TimeUnit.SECONDS);
+
+        assertTrue(Files.exists(pathOf(url)));
+        assertEquals(1, refCount(url));
+    }
+
+    private static MockMultipartFile image() {
+        byte[] content = ("image-" + System.nanoTime()).getBytes(StandardCharsets.UTF_8);
+        return new MockMultipartFile("image", "test.png", "image/png", content);
+    }
+
+    private static Path pathOf(String url) {
+        return Paths.get("uploads", url.substring("/uploads/".length()));
+    }
+
+    private int refCount(String url) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM image_blob WHERE hash = ?", Integer.class,
+                ImageStorageService.hashOf(url));
+    }
+
+    private long rows(String url) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM image_blob WHERE hash = ?", Long.class,
+                ImageStorageService.hashOf(url));
+    }
+}
@@ -0,0 +1,121 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.yiqixue.secomm.exception.BusinessException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 库存预占并发测试：大量并发结账同一商品时不超卖、不死锁；多行预占全部成功或全部回滚
+ * 并发事务需要各自提交，不能放在测试事务中；使用专用商品，结束时删除
+ */
+@SpringBootTest
+class InventoryServiceConcurrencyTest {
+
+    private static final int STOCK = 50;
+    private static final int CHECKOUTS = 300;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestFixtures fixtures;
+    private Long firstProductId;
+    private Long secondProductId;
+
+    @BeforeEach
+    void insertProducts() {
+        fixtures = new TestFixtures(jdbcTemplate);
+        long categoryId = fixtures.insertCategory();
+        firstProductId = fixtures.insertProduct(categoryId, 0, BigDecimal.ONE);
+        secondProductId = fixtures.insertProduct(categoryId, 0, BigDecimal.ONE);
+    }
+
+    @AfterEach
+    void deleteProducts() {
+        fixtures.deleteProduct(firstProductId);
+        fixtures.deleteProduct(secondProductId);
+    }
+
+    @Test
+    void parallelCheckoutsOnOneProductNeverOversell() throws Exception {
+        setStock(firstProductId, STOCK);
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            // 一半请求同时带上第二个商品，且顺序相反，验证排序加锁不死锁
+            boolean withSecond = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<InventoryService.StockLine> lines = withSecond
+                        ? List.of(new InventoryService.StockLine(secondProductId, 1),
+                                new InventoryService.StockLine(firstProductId, 1))
+                        : List.of(new InventoryService.StockLine(firstProductId, 1));
+                try {
+                    inventoryService.reserve(lines);
+                    succeeded.incrementAndGet();
+                } catch (BusinessException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        setStock(secondProductId, CHECKOUTS);
+        start.countDown();
+
+        // 死锁或其他数据库异常会在这里以 ExecutionException 抛出
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(STOCK, succeeded.get());
+        assertEquals(CHECKOUTS - STOCK, rejected.get());
+        assertEquals(0, stockOf(firstProductId));
+    }
+
+    @Test
+    void insufficientLineRollsBackWholeReservation() {
+        setStock(firstProductId, 10);
+        setStock(secondProductId, 1);
+
+        assertThrows(BusinessException.class, () -> inventoryService.reserve(List.of(
+                new InventoryService.StockLine(firstProductId, 5),
+                new InventoryService.StockLine(secondProductId, 2))));
+
+        assertEquals(10, stockOf(firstProductId));
+        assertEquals(1, stockOf(secondProductId));
+    }
+
+    private int stockOf(Long productId) {
+        return fixtures.stockOf(productId);
+    }
+
+    private void setStock(Long productId, int stock) {
+        jdbcTemplate.update("UPDATE product SET units_in_stock = ? WHERE id = ?", stock, productId);
+    }
+}
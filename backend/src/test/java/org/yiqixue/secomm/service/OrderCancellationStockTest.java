@@ -0,0 +1,99 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.dto.CheckoutRequest;
+import org.yiqixue.secomm.dto.OrderDTO;
+import org.yiqixue.secomm.dto.OrderStatusUpdateRequest;
+import org.yiqixue.secomm.exception.BusinessException;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 取消订单归还库存，重复取消只归还一次；从已取消改回其他状态时重新扣减
+ */
+@SpringBootTest
+@Transactional
+class OrderCancellationStockTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("10.00");
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderManagementService orderManagementService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestFixtures fixtures;
+    private long customerId;
+    private long productId;
+
+    @BeforeEach
+    void insertFixtures() {
+        fixtures = new TestFixtures(jdbcTemplate);
+        customerId = fixtures.insertCustomer();
+        productId = fixtures.insertProduct(10, PRICE);
+    }
+
+    @Test
+    void cancelReleasesStockOnce() {
+        OrderDTO order = checkout(3);
+        assertEquals(7, fixtures.stockOf(productId));
+
+        updateStatus(order, "CANCELLED");
+        assertEquals(10, fixtures.stockOf(productId));
+
+        updateStatus(order, "cancelled");
+        assertEquals(10, fixtures.stockOf(productId));
+    }
+
+    @Test
+    void otherTransitionsKeepStock() {
+        OrderDTO order = checkout(3);
+
+        updateStatus(order, "CONFIRMED");
+        updateStatus(order, "SHIPPED");
+
+        assertEquals(7, fixtures.stockOf(productId));
+    }
+
+    @Test
+    void reopeningCancelledOrderReservesAgain() {
+        OrderDTO order = checkout(3);
+        updateStatus(order, "CANCELLED");
+
+        updateStatus(order, "PENDING");
+        assertEquals(7, fixtures.stockOf(productId));
+
+        updateStatus(order, "CANCELLED");
+        jdbcTemplate.update("UPDATE product SET units_in_stock = 2 WHERE id = ?", productId);
+        assertThrows(BusinessException.class, () -> updateStatus(order, "PENDING"));
+    }
+
+    private OrderDTO checkout(int quantity) {
+        CheckoutRequest.CheckoutItem item = new CheckoutRequest.CheckoutItem();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        CheckoutRequest request = new CheckoutRequest();
+        request.setItems(List.of(item));
+        request.setTotalAmount(PRICE.multiply(BigDecimal.valueOf(quantity)));
+        return orderService.createOrderFromCart(customerId, request);
+    }
+
+    private void updateStatus(OrderDTO order, String status) {
+        OrderStatusUpdateRequest request = new OrderStatusUpdateRequest();
+        request.setStatus(status);
+        orderManagementService.updateOrderStatus(order.getId(), request);
+    }
+}
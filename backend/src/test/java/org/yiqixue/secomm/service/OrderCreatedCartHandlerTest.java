@@ -0,0 +1,109 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.dto.AddToCartRequest;
+import org.yiqixue.secomm.dto.CartItemDTO;
+import org.yiqixue.secomm.event.OrderCreatedEvent;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 订单创建后只从购物车扣除已下单的商品和数量，下单后新加入的商品保留；同一事件重复投递只扣除一次
+ */
+@SpringBootTest
+@Transactional
+class OrderCreatedCartHandlerTest {
+
+    @Autowired
+    private OrderCreatedCartHandler orderCreatedCartHandler;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long customerId;
+    private Long ordered;
+    private Long partlyOrdered;
+    private Long addedLater;
+
+    @BeforeEach
+    void fillCart() {
+        TestFixtures fixtures = new TestFixtures(jdbcTemplate);
+        customerId = fixtures.insertCustomer();
+        ordered = fixtures.insertProduct(10, BigDecimal.TEN);
+        partlyOrdered = fixtures.insertProduct(10, BigDecimal.TEN);
+        addedLater = fixtures.insertProduct(10, BigDecimal.TEN);
+
+        add(ordered, 2);
+        add(partlyOrdered, 5);
+        add(addedLater, 1);
+    }
+
+    @Test
+    void onlyOrderedQuantitiesRemoved() {
+        orderCreatedCartHandler.handle(OrderCreatedEvent.builder()
+                .orderId(1L)
+                .customerId(customerId)
+                .items(List.of(new OrderCreatedEvent.Item(ordered, 2), new OrderCreatedEvent.Item(partlyOrdered, 3)))
+                .build());
+
+        assertEquals(Map.of(partlyOrdered, 2, addedLater, 1), cartQuantities());
+        assertEquals(3, cartService.getCartByCustomerId(customerId).getTotalQuantity());
+    }
+
+    @Test
+    void redeliveredEventAppliedOnce() {
+        OrderCreatedEvent event = OrderCreatedEvent.builder()
+                .orderId(1L)
+                .customerId(customerId)
+                .items(List.of(new OrderCreatedEvent.Item(partlyOrdered, 3)))
+                .build();
+        orderCreatedCartHandler.handle(event);
+
+        orderCreatedCartHandler.handle(event);
+
+        assertEquals(Map.of(ordered, 2, partlyOrdered, 2, addedLater, 1), cartQuantities());
+        assertEquals(5, cartService.getCartByCustomerId(customerId).getTotalQuantity());
+    }
+
+    @Test
+    void itemsAlreadyRemovedIgnored() {
+        orderCreatedCartHandler.handle(OrderCreatedEvent.builder()
+                .orderId(1L)
+                .customerId(customerId)
+                .items(List.of(new OrderCreatedEvent.Item(ordered, 2)))
+                .build());
+
+        orderCreatedCartHandler.handle(OrderCreatedEvent.builder()
+                .orderId(2L)
+                .customerId(customerId)
+                .items(List.of(new OrderCreatedEvent.Item(ordered, 2), new OrderCreatedEvent.Item(partlyOrdered, 1)))
+                .build());
+
+        assertEquals(Map.of(partlyOrdered, 4, addedLater, 1), cartQuantities());
+    }
+
+    private Map<Long, Integer> cartQuantities() {
+        return cartService.getCartItems(customerId).stream()
+                .collect(Collectors.toMap(CartItemDTO::getProductId, CartItemDTO::getQuantity));
+    }
+
+    private void add(Long productId, int quantity) {
+        AddToCartRequest request = new AddToCartRequest();
+        request.setProductId(productId);
+        request.setQuantity(quantity);
+        cartService.addToCart(customerId, request);
+    }
+}
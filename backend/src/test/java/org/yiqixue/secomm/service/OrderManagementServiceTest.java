@@ -0,0 +1,75 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.yiqixue.secomm.event.CustomerChangedEvent;
+import org.yiqixue.secomm.event.OrderCreatedEvent;
+import org.yiqixue.secomm.mapper.OrderMapper;
+import org.yiqixue.secomm.repository.OrderRepository;
+import org.yiqixue.secomm.search.OrderSearchIndex;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 订单搜索按非ID字段排序：命中数不超过上限时用命中ID查询当前页，超过时退回数据库模糊查询
+ */
+class OrderManagementServiceTest {
+
+    // 调用过的仓库方法名及 IN 列表长度
+    private final List<String> calls = new ArrayList<>();
+
+    private OrderManagementService service;
+
+    @BeforeEach
+    void setUp() {
+        OrderRepository repository = (OrderRepository) Proxy.newProxyInstance(
+                OrderRepository.class.getClassLoader(), new Class<?>[]{OrderRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "searchOrders" -> {
+                        calls.add("searchOrders");
+                        yield new PageImpl<>(List.of(), (Pageable) args[1], 0);
+                    }
+                    case "findPageByIdInWithCustomer" -> {
+                        calls.add("findPageByIdInWithCustomer:" + ((Collection<?>) args[0]).size());
+                        yield new PageImpl<>(List.of(), (Pageable) args[1], 0);
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        OrderSearchIndex index = new OrderSearchIndex(null);
+        ReflectionTestUtils.setField(index, "ready", true);
+        index.onCustomerChanged(new CustomerChangedEvent(1L, "Alice", "Wong", "alice@example.com"));
+        for (long id = 1; id <= 5; id++) {
+            index.handle(OrderCreatedEvent.builder()
+                    .orderId(id)
+                    .orderNumber("ORD000000" + id)
+                    .customerId(1L)
+                    .build());
+        }
+
+        service = new OrderManagementService(repository, new OrderMapper(), index, null, null);
+        ReflectionTestUtils.setField(service, "maxSortedHits", 3);
+    }
+
+    @Test
+    void fewHitsSortedByDatabaseWithinIdList() {
+        service.searchOrders("0000001", 0, 10, "totalAmount", "desc");
+
+        assertEquals(List.of("findPageByIdInWithCustomer:1"), calls);
+    }
+
+    @Test
+    void tooManyHitsFallBackToDatabaseSearch() {
+        service.searchOrders("example.com", 0, 10, "totalAmount", "desc");
+
+        assertEquals(List.of("searchOrders"), calls);
+    }
+}
@@ -0,0 +1,126 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 订单号生成器：多线程无重复、同节点单调递增、时钟回拨不回退
+ */
+class OrderNumberGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 250_000;
+
+    private OrderNumberGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        generator = generator(7);
+    }
+
+    @Test
+    void concurrentIdsUniqueAndMonotonicPerThread() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            @SuppressWarnings("unchecked")
+            Future<long[]>[] futures = new Future[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                futures[t] = executor.submit(() -> {
+                    long[] ids = new long[PER_THREAD];
+                    start.await();
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                });
+            }
+            start.countDown();
+
+            long[] all = new long[THREADS * PER_THREAD];
+            for (int t = 0; t < THREADS; t++) {
+                long[] ids = futures[t].get();
+                for (int i = 1; i < ids.length; i++) {
+                    assertTrue(ids[i] > ids[i - 1], "同一线程内必须递增");
+                }
+                System.arraycopy(ids, 0, all, t * PER_THREAD, PER_THREAD);
+            }
+
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertNotEquals(all[i - 1], all[i], "订单号重复");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void clockMovingBackwardsKeepsIncreasing() {
+        AtomicLong now = new AtomicLong(OrderNumberGenerator.EPOCH + 1_000_000);
+        ReflectionTestUtils.setField(generator, "clock", (LongSupplier) now::get);
+
+        long first = generator.nextId();
+        now.addAndGet(-10_000);
+        long second = generator.nextId();
+        long third = generator.nextId();
+        now.addAndGet(20_000);
+        long fourth = generator.nextId();
+
+        assertTrue(second > first);
+        assertTrue(third > second);
+        assertTrue(fourth > third);
+    }
+
+    @Test
+    void sequenceOverflowBorrowsNextMillisecond() {
+        AtomicLong now = new AtomicLong(OrderNumberGenerator.EPOCH + 1_000_000);
+        ReflectionTestUtils.setField(generator, "clock", (LongSupplier) now::get);
+
+        long previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        assertTrue((Long) generator.getMetrics().get("aheadOfClockMs") > 0);
+    }
+
+    @Test
+    void nodeIdEncodedAndPrefixKept() {
+        String orderNumber = generator.next();
+        long id = Long.parseLong(orderNumber.substring(OrderNumberGenerator.PREFIX.length()));
+
+        assertTrue(orderNumber.startsWith("ORD"));
+        assertEquals(7, (id >>> OrderNumberGenerator.SEQUENCE_BITS) & OrderNumberGenerator.MAX_NODE_ID);
+    }
+
+    @Test
+    void invalidNodeIdRejected() {
+        OrderNumberGenerator invalid = new OrderNumberGenerator();
+        ReflectionTestUtils.setField(invalid, "nodeId", OrderNumberGenerator.MAX_NODE_ID + 1);
+
+        assertThrows(IllegalArgumentException.class, invalid::init);
+    }
+
+    private static OrderNumberGenerator generator(long nodeId) {
+        OrderNumberGenerator generator = new OrderNumberGenerator();
+        ReflectionTestUtils.setField(generator, "nodeId", nodeId);
+        generator.init();
+        return generator;
+    }
+}
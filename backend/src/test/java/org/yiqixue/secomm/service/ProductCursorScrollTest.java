@@ -0,0 +1,94 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.dto.PageResponse;
+import org.yiqixue.secomm.dto.ProductDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 游标分页逐页翻到底不丢行、不重复：排序值重复、可空列为空的行跨越页边界；
+ * 按可空字段排序时直接拒绝（keyset 条件无法越过空值）
+ */
+@SpringBootTest
+@Transactional
+class ProductCursorScrollTest {
+
+    // 价格（含重复）与 last_updated 是否为空，按插入顺序
+    private static final String[] PRICES = {"5.00", "3.00", "5.00", "1.00", "3.00", "5.00", "2.00"};
+    private static final boolean[] NULL_LAST_UPDATED = {true, false, true, true, false, true, false};
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long categoryId;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void insertProducts() {
+        String name = "cursor-test-" + System.nanoTime();
+        jdbcTemplate.update("INSERT INTO product_category (category_name, category_english_name) VALUES (?, ?)",
+                name, name);
+        categoryId = jdbcTemplate.queryForObject("SELECT id FROM product_category WHERE category_name = ?",
+                Long.class, name);
+        for (int i = 0; i < PRICES.length; i++) {
+            String sku = name + "-" + i;
+            jdbcTemplate.update("INSERT INTO product (sku, name, unit_price, active, units_in_stock,"
+                            + " date_created, last_updated, category_id) VALUES (?, ?, ?, 1, 1, '2024-01-01 00:00:00', "
+                            + (NULL_LAST_UPDATED[i] ? "NULL" : "NOW()") + ", ?)",
+                    sku, sku, PRICES[i], categoryId);
+            productIds.add(jdbcTemplate.queryForObject("SELECT id FROM product WHERE sku = ?", Long.class, sku));
+        }
+    }
+
+    @Test
+    void scrollByDuplicatedPriceLosesNoRows() {
+        // (价格, id) 升序：1.00, 2.00, 3.00 x2, 5.00 x3
+        List<Long> expected = List.of(productIds.get(3), productIds.get(6), productIds.get(1), productIds.get(4),
+                productIds.get(0), productIds.get(2), productIds.get(5));
+
+        assertEquals(expected, scrollAll("unitPrice", "asc"));
+    }
+
+    @Test
+    void scrollByTiedDateFallsBackToId() {
+        // date_created 全部相同，顺序完全由 id 决定
+        List<Long> expected = new ArrayList<>(productIds);
+        Collections.reverse(expected);
+
+        assertEquals(expected, scrollAll("dateCreated", "desc"));
+    }
+
+    @Test
+    void nullableSortRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.scrollProductsByCategory(categoryId, "", 2, "lastUpdated", "asc"));
+    }
+
+    private List<Long> scrollAll(String sortBy, String sortDir) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        do {
+            PageResponse<ProductDTO> page = productService.scrollProductsByCategory(
+                    categoryId, cursor, 2, sortBy, sortDir);
+            page.getContent().forEach(product -> ids.add(product.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null && pages <= PRICES.length);
+        return ids;
+    }
+}
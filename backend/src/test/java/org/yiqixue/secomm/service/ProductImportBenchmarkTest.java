@@ -0,0 +1,109 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.yiqixue.secomm.dto.ProductImportReport;
+import org.yiqixue.secomm.imports.CsvProductImportReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 商品导入压测：生成大文件（新增后再整体更新一遍），记录每秒导入行数
+ * 默认不运行，使用 mvn test -Dtest=ProductImportBenchmarkTest -Dbenchmark=true 执行
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductImportBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportBenchmarkTest.class);
+
+    private static final int ROWS = 100_000;
+    private static final String SKU_PREFIX = "BENCH-IMPORT-";
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long categoryId;
+
+    @BeforeEach
+    void insertCategory() {
+        categoryId = new TestFixtures(jdbcTemplate).insertCategory();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM product WHERE sku LIKE ?", SKU_PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM product_category WHERE id = ?", categoryId);
+    }
+
+    @Test
+    void importLargeFile() throws IOException {
+
+        ProductImportReport inserted = productImportService.importProducts(
+                new CsvProductImportReader(new BufferedReader(new GeneratedCsv(categoryId, "9.90"), 64 * 1024)));
+        assertEquals(ROWS, inserted.getInserted());
+        assertEquals(0, inserted.getFailed());
+
+        ProductImportReport updated = productImportService.importProducts(
+                new CsvProductImportReader(new BufferedReader(new GeneratedCsv(categoryId, "19.90"), 64 * 1024)));
+        assertEquals(ROWS, updated.getUpdated());
+        assertEquals(0, updated.getFailed());
+
+        log.info("新增 {} 行: {} ms ({} 行/秒)", ROWS, inserted.getElapsedMillis(),
+                Math.round(inserted.getRowsPerSecond()));
+        log.info("更新 {} 行: {} ms ({} 行/秒)", ROWS, updated.getElapsedMillis(),
+                Math.round(updated.getRowsPerSecond()));
+    }
+
+    /**
+     * 按需生成 CSV 内容，不在内存中拼出整个文件
+     */
+    private static final class GeneratedCsv extends Reader {
+
+        private final Long categoryId;
+        private final String unitPrice;
+        private String current = "sku,name,description,unitPrice,unitsInStock,categoryId,active\n";
+        private int position;
+        private int row;
+
+        GeneratedCsv(Long categoryId, String unitPrice) {
+            this.categoryId = categoryId;
+            this.unitPrice = unitPrice;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == current.length()) {
+                if (row == ROWS) {
+                    return -1;
+                }
+                row++;
+                current = SKU_PREFIX + row + ",\"Bench product " + row + "\",\"Generated, row " + row + "\","
+                        + unitPrice + "," + (row % 100) + "," + categoryId + ",true\r\n";
+                position = 0;
+            }
+            int count = Math.min(length, current.length() - position);
+            current.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
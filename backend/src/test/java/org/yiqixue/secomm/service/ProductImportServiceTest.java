@@ -0,0 +1,110 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.yiqixue.secomm.dto.ProductImportReport;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 商品导入的图片引用：新商品登记引用，图片变化时释放旧图片并清空衍生尺寸，未给出图片时保留原图片
+ */
+@SpringBootTest(properties = "app.image-blobs.sweep-ms=3600000")
+class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String sku;
+    private Long categoryId;
+    private String imageA;
+    private String imageB;
+
+    @BeforeEach
+    void storeImages() {
+        sku = "IMPORT-TEST-" + System.nanoTime();
+        categoryId = new TestFixtures(jdbcTemplate).insertCategory();
+        imageA = store("a");
+        imageB = store("b");
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        jdbcTemplate.update("DELETE FROM product WHERE sku = ?", sku);
+        jdbcTemplate.update("DELETE FROM product_category WHERE id = ?", categoryId);
+        for (String url : List.of(imageA, imageB)) {
+            jdbcTemplate.update("DELETE FROM image_blob WHERE hash = ?", ImageStorageService.hashOf(url));
+            Files.deleteIfExists(Paths.get("uploads", url.substring("/uploads/".length())));
+        }
+    }
+
+    @Test
+    void importTracksImageReferences() throws Exception {
+        ProductImportReport created = importRow(imageA);
+        assertEquals(1, created.getInserted());
+        assertEquals(2, refCount(imageA));
+
+        jdbcTemplate.update("UPDATE product SET thumbnail_url = '/uploads/thumb.jpg' WHERE sku = ?", sku);
+        ProductImportReport replaced = importRow(imageB);
+        assertEquals(1, replaced.getUpdated());
+        assertEquals(1, refCount(imageA));
+        assertEquals(2, refCount(imageB));
+        assertEquals(imageB, column("image_url"));
+        assertNull(column("thumbnail_url"));
+
+        // 未给出图片URL时保留原图片，引用不变
+        importRow("");
+        assertEquals(imageB, column("image_url"));
+        assertEquals(2, refCount(imageB));
+
+        // 图片不变时不重复登记
+        importRow(imageB);
+        assertEquals(2, refCount(imageB));
+    }
+
+    private ProductImportReport importRow(String imageUrl) throws Exception {
+        String csv = "sku,name,unitPrice,unitsInStock,categoryId,imageUrl\n"
+                + sku + ",Import Test,9.90,5," + categoryId + "," + imageUrl + "\n";
+        ProductImportReport report = productImportService.importProducts(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), false);
+        assertEquals(0, report.getFailed(), String.valueOf(report.getErrors()));
+        return report;
+    }
+
+    private String store(String content) {
+        MockMultipartFile image = new MockMultipartFile("image", "test.png", "image/png",
+                (content + "-" + System.nanoTime()).getBytes(StandardCharsets.UTF_8));
+        return transactionTemplate.execute(status -> imageStorageService.store(image));
+    }
+
+    private int refCount(String url) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM image_blob WHERE hash = ?", Integer.class,
+                ImageStorageService.hashOf(url));
+    }
+
+    private String column(String name) {
+        return jdbcTemplate.queryForObject("SELECT " + name + " FROM product WHERE sku = ?", String.class, sku);
+    }
+}
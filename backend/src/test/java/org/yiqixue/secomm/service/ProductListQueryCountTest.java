@@ -0,0 +1,83 @@
+package org.yiqixue.secomm.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.yiqixue.secomm.dto.CountMode;
+import org.yiqixue.secomm.dto.PageResponse;
+import org.yiqixue.secomm.dto.ProductDTO;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 商品列表接口的SQL语句数断言：每页语句数固定，不随商品条数增长（无 N+1）
+ * 每个用例先插入一个分类和若干商品，保证列表非空，随事务回滚
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class ProductListQueryCountTest {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int FIXTURE_PRODUCTS = 3;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private long categoryId;
+
+    @BeforeEach
+    void insertProductsAndResetStatistics() {
+        TestFixtures fixtures = new TestFixtures(jdbcTemplate);
+        categoryId = fixtures.insertCategory();
+        for (int i = 0; i < FIXTURE_PRODUCTS; i++) {
+            fixtures.insertProduct(categoryId, 1, BigDecimal.ONE);
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void slicePageIssuesSingleStatement() {
+        PageResponse<ProductDTO> page = productService
+                .getAllActiveProducts(0, PAGE_SIZE, "name", "asc", CountMode.NONE);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(page.getContent().size() >= FIXTURE_PRODUCTS);
+        page.getContent().forEach(product -> assertNotNull(product.getCategoryId()));
+    }
+
+    @Test
+    void exactPageIssuesAtMostSelectAndCount() {
+        productService.getAllActiveProducts(0, PAGE_SIZE, "name", "asc", CountMode.EXACT);
+
+        assertTrue(statistics.getPrepareStatementCount() <= 2,
+                "statements: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void categoryPageIssuesAtMostSelectAndCount() {
+        PageResponse<ProductDTO> page = productService
+                .getProductsByCategory(categoryId, 0, PAGE_SIZE, "name", "asc", CountMode.EXACT);
+
+        assertEquals(FIXTURE_PRODUCTS, page.getContent().size());
+        assertTrue(statistics.getPrepareStatementCount() <= 2,
+                "statements: " + statistics.getPrepareStatementCount());
+    }
+}
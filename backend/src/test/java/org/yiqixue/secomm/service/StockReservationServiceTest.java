@@ -0,0 +1,139 @@
+package org.yiqixue.secomm.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.yiqixue.secomm.dto.AddToCartRequest;
+import org.yiqixue.secomm.dto.StockHoldDTO;
+import org.yiqixue.secomm.exception.BusinessException;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 结算库存预留：确认、取消、到期归还，以及同一客户重新结算时替换旧预留
+ * 预留由后台线程到期归还，不能放在测试事务中；使用专用的客户和商品，结束时删除
+ */
+@SpringBootTest(properties = "app.stock-hold.tick-ms=100")
+class StockReservationServiceTest {
+
+    private static final int QUANTITY = 2;
+    private static final int STOCK = 10;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestFixtures fixtures;
+    private Long customerId;
+    private Long productId;
+
+    @BeforeEach
+    void fillCart() {
+        fixtures = new TestFixtures(jdbcTemplate);
+        customerId = fixtures.insertCustomer();
+        productId = fixtures.insertProduct(STOCK, new BigDecimal("10.00"));
+
+        AddToCartRequest request = new AddToCartRequest();
+        request.setProductId(productId);
+        request.setQuantity(QUANTITY);
+        cartService.addToCart(customerId, request);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        ReflectionTestUtils.setField(stockReservationService, "ttlMinutes", 15L);
+        fixtures.deleteCustomer(customerId);
+        fixtures.deleteProduct(productId);
+    }
+
+    @Test
+    void confirmKeepsStockDeducted() {
+        StockHoldDTO hold = hold();
+        assertEquals(STOCK - QUANTITY, stock());
+
+        stockReservationService.confirm(customerId, hold.getReservationId(), Map.of(productId, QUANTITY));
+
+        assertEquals("CONFIRMED", status(hold));
+        assertEquals(STOCK - QUANTITY, stock());
+        // 已确认的预留不能再取消
+        assertThrows(BusinessException.class,
+                () -> stockReservationService.cancel(customerId, hold.getReservationId()));
+    }
+
+    @Test
+    void confirmRejectsMismatchedQuantities() {
+        StockHoldDTO hold = hold();
+
+        assertThrows(BusinessException.class, () ->
+                stockReservationService.confirm(customerId, hold.getReservationId(), Map.of(productId, QUANTITY + 1)));
+        assertEquals("ACTIVE", status(hold));
+    }
+
+    @Test
+    void cancelReturnsStock() {
+        StockHoldDTO hold = hold();
+
+        stockReservationService.cancel(customerId, hold.getReservationId());
+
+        assertEquals("RELEASED", status(hold));
+        assertEquals(STOCK, stock());
+        assertThrows(BusinessException.class,
+                () -> stockReservationService.cancel(customerId, hold.getReservationId()));
+    }
+
+    @Test
+    void expiredHoldReturnsStock() throws InterruptedException {
+        ReflectionTestUtils.setField(stockReservationService, "ttlMinutes", 0L);
+        StockHoldDTO hold = hold();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!"RELEASED".equals(status(hold)) && System.currentTimeMillis() < deadline) {
+            stockReservationService.expire();
+            Thread.sleep(50);
+        }
+
+        assertEquals("RELEASED", status(hold));
+        assertEquals(STOCK, stock());
+        assertThrows(BusinessException.class, () ->
+                stockReservationService.confirm(customerId, hold.getReservationId(), Map.of(productId, QUANTITY)));
+    }
+
+    @Test
+    void repeatedHoldReplacesPreviousHold() {
+        StockHoldDTO first = hold();
+        StockHoldDTO second = hold();
+
+        assertEquals("RELEASED", status(first));
+        assertEquals("ACTIVE", status(second));
+        assertEquals(STOCK - QUANTITY, stock());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT reservation_id) FROM stock_hold WHERE customer_id = ? AND status = 'ACTIVE'",
+                Integer.class, customerId));
+    }
+
+    private StockHoldDTO hold() {
+        return stockReservationService.hold(customerId);
+    }
+
+    private String status(StockHoldDTO hold) {
+        return jdbcTemplate.queryForObject("SELECT DISTINCT status FROM stock_hold WHERE reservation_id = ?",
+                String.class, hold.getReservationId());
+    }
+
+    private int stock() {
+        return fixtures.stockOf(productId);
+    }
+}
@@ -0,0 +1,88 @@
+package org.yiqixue.secomm.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 测试专用数据：每次插入新的分类、商品和客户，不读取或修改库中已有的行
+ * 在 @Transactional 测试中随事务回滚；非事务测试结束时调用 delete 系列方法清理
+ */
+public class TestFixtures {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.nanoTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TestFixtures(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 插入分类
+     */
+    public long insertCategory() {
+        String name = "fixture-category-" + SEQUENCE.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO product_category (category_name, category_english_name) VALUES (?, ?)",
+                name, name);
+        return jdbcTemplate.queryForObject("SELECT id FROM product_category WHERE category_name = ?",
+                Long.class, name);
+    }
+
+    /**
+     * 在新分类下插入一个上架商品
+     */
+    public long insertProduct(int stock, BigDecimal unitPrice) {
+        return insertProduct(insertCategory(), stock, unitPrice);
+    }
+
+    public long insertProduct(long categoryId, int stock, BigDecimal unitPrice) {
+        String sku = "FIXTURE-" + SEQUENCE.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO product (sku, name, unit_price, active, units_in_stock,"
+                        + " date_created, last_updated, category_id) VALUES (?, ?, ?, 1, ?, NOW(), NOW(), ?)",
+                sku, sku, unitPrice, stock, categoryId);
+        return jdbcTemplate.queryForObject("SELECT id FROM product WHERE sku = ?", Long.class, sku);
+    }
+
+    /**
+     * 插入客户（user_id 取负数，不与真实用户关联）
+     */
+    public long insertCustomer() {
+        long sequence = SEQUENCE.incrementAndGet();
+        String email = "fixture-" + sequence + "@example.test";
+        jdbcTemplate.update("INSERT INTO customer (user_id, first_name, last_name, email, status, create_time)"
+                + " VALUES (?, 'Fixture', 'Customer', ?, 'ACTIVE', NOW())", -sequence, email);
+        return jdbcTemplate.queryForObject("SELECT id FROM customer WHERE email = ?", Long.class, email);
+    }
+
+    public int stockOf(long productId) {
+        return jdbcTemplate.queryForObject("SELECT units_in_stock FROM product WHERE id = ?", Integer.class, productId);
+    }
+
+    /**
+     * 删除商品及其分类
+     */
+    public void deleteProduct(long productId) {
+        Long categoryId = jdbcTemplate.queryForObject("SELECT category_id FROM product WHERE id = ?",
+                Long.class, productId);
+        jdbcTemplate.update("DELETE FROM product WHERE id = ?", productId);
+        jdbcTemplate.update("DELETE FROM product_category WHERE id = ? AND NOT EXISTS"
+                + " (SELECT 1 FROM product WHERE category_id = ?)", categoryId, categoryId);
+    }
+
+    /**
+     * 删除客户及其购物车（含归档）、订单、库存预留
+     */
+    public void deleteCustomer(long customerId) {
+        jdbcTemplate.update("DELETE FROM stock_hold WHERE customer_id = ?", customerId);
+        jdbcTemplate.update("DELETE FROM cart_item_archive WHERE customer_id = ?", customerId);
+        jdbcTemplate.update("DELETE FROM cart_item WHERE cart_id IN (SELECT id FROM cart WHERE customer_id = ?)",
+                customerId);
+        jdbcTemplate.update("DELETE FROM cart WHERE customer_id = ?", customerId);
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (SELECT id FROM orders WHERE customer_id = ?)",
+                customerId);
+        jdbcTemplate.update("DELETE FROM orders WHERE customer_id = ?", customerId);
+        jdbcTemplate.update("DELETE FROM customer WHERE id = ?", customerId);
+    }
+}